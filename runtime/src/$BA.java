@@ -0,0 +1,633 @@
+import java.util.Arrays;
+
+/**
+ * $BA - PyByteArray, a mutable and growable byte sequence.
+ *
+ * The contents are buf[start, start + length). Appends grow the array by
+ * doubling, so building a bytearray a piece at a time is linear. Deleting
+ * from the front (del b[:n]) only moves start forward; the consumed space
+ * is reclaimed when the array next has to grow, and only once at least as
+ * many bytes have been consumed as are still live, so a buffer that is
+ * filled at the back and drained at the front costs O(1) per byte.
+ *
+ * memoryview() exports the live array without copying. While a view is
+ * held in a with block the bytearray cannot change size, as in CPython;
+ * any other view goes stale when it does.
+ */
+public final class $BA extends $O implements $MV.Resizable {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    byte[] buf;
+    int start;
+    int length;
+    // Memoryviews of this bytearray held in with blocks
+    private int exports;
+    // Changes of size, which leave earlier views stale
+    private int resizes;
+
+    public $BA() {
+        this.buf = EMPTY;
+    }
+
+    private $BA(byte[] buf, int length) {
+        this.buf = buf;
+        this.length = length;
+    }
+
+    public static $BA of(byte[] data) {
+        return new $BA(data.clone(), data.length);
+    }
+
+    static $BA of(byte[] data, int from, int to) {
+        return new $BA(Arrays.copyOfRange(data, from, to), to - from);
+    }
+
+    /**
+     * Build a bytearray from a bytearray() argument: a size, a bytes-like
+     * object or an iterable of ints.
+     */
+    public static $BA from($O arg) {
+        if (arg instanceof $I) {
+            $I i = ($I) arg;
+            if (i.isBig() || i.value < 0) throw new $X("ValueError", "negative count");
+            return new $BA(new byte[(int) i.value], (int) i.value);
+        }
+        if (arg instanceof $S) throw new $X("TypeError", "string argument without an encoding");
+        byte[] data = toBytes(arg);
+        return new $BA(arg instanceof $BY ? data.clone() : data, data.length);
+    }
+
+    /**
+     * The live contents as a new array.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(buf, start, start + length);
+    }
+
+    /**
+     * The backing array of a bytes-like object, or null if it is not one.
+     * For a bytearray this is a copy of the live window.
+     */
+    static byte[] bytesOf($O o) {
+        if (o instanceof $BY) return (($BY) o).data;
+        if (o instanceof $BA) return (($BA) o).toByteArray();
+        if (o instanceof $MV) return (($MV) o).tobytes().data;
+        if (o instanceof _mmap.mmap) return ((_mmap.mmap) o).contents();
+        return null;
+    }
+
+    /**
+     * Bytes of a bytes-like object or an iterable of ints in range(256).
+     * The result may be shared with a bytes object and must not be written.
+     */
+    static byte[] toBytes($O value) {
+        byte[] data = bytesOf(value);
+        if (data != null) return data;
+        if (value instanceof $S) throw new $X("TypeError", "expected a bytes-like object, str found");
+        $BA acc = new $BA();
+        $O iter = value.__iter__();
+        while (true) {
+            $O item;
+            try {
+                item = iter.__next__();
+            } catch ($X e) {
+                if (e.isStopIteration()) break;
+                throw e;
+            }
+            acc.append(item);
+        }
+        return acc.toByteArray();
+    }
+
+    private static int byteValue($O item) {
+        if (!(item instanceof $I)) {
+            throw new $X("TypeError", "'" + item.getClass().getSimpleName()
+                + "' object cannot be interpreted as an integer");
+        }
+        $I i = ($I) item;
+        if (i.isBig() || i.value < 0 || i.value > 255) {
+            throw new $X("ValueError", "byte must be in range(0, 256)");
+        }
+        return (int) i.value;
+    }
+
+    // Storage
+
+    @Override
+    public void exports(int delta) {
+        exports += delta;
+    }
+
+    @Override
+    public int resizes() {
+        return resizes;
+    }
+
+    private void checkResizable() {
+        if (exports > 0) {
+            throw new $X.BufferError("Existing exports of data: object cannot be re-sized");
+        }
+        resizes++;
+    }
+
+    /**
+     * Make room for extra more bytes after the live window.
+     */
+    private void reserve(int extra) {
+        if (extra > 0) checkResizable();
+        int needed = length + extra;
+        if (needed < 0) throw new $X("OverflowError", "byte string is too large");
+        if (start + needed <= buf.length) return;
+        if (start >= length && needed <= buf.length) {
+            // The consumed prefix pays for moving the live bytes down
+            System.arraycopy(buf, start, buf, 0, length);
+        } else {
+            int capacity = Math.max(needed, Math.max(16, buf.length * 2));
+            if (capacity < 0) capacity = needed;
+            byte[] grown = new byte[capacity];
+            System.arraycopy(buf, start, grown, 0, length);
+            buf = grown;
+        }
+        start = 0;
+    }
+
+    /**
+     * Replace [from, to) of the live window with data[0, n).
+     */
+    private void splice(int from, int to, byte[] data, int n) {
+        int delta = n - (to - from);
+        if (delta != 0) checkResizable();
+        if (from == 0 && n == 0) {
+            // Consume from the front
+            start += to;
+            length -= to;
+            if (length == 0) start = 0;
+            return;
+        }
+        if (delta > 0) reserve(delta);
+        int tail = length - to;
+        System.arraycopy(buf, start + to, buf, start + from + n, tail);
+        System.arraycopy(data, 0, buf, start + from, n);
+        length += delta;
+    }
+
+    // Mutation
+
+    public $N append($O item) {
+        int v = byteValue(item);
+        reserve(1);
+        buf[start + length++] = (byte) v;
+        return $N.INSTANCE;
+    }
+
+    public $N extend($O values) {
+        byte[] data = toBytes(values);
+        reserve(data.length);
+        System.arraycopy(data, 0, buf, start + length, data.length);
+        length += data.length;
+        return $N.INSTANCE;
+    }
+
+    public $N insert($O index, $O item) {
+        int v = byteValue(item);
+        int i = $Scan.bound(index, length, 0);
+        splice(i, i, new byte[] { (byte) v }, 1);
+        return $N.INSTANCE;
+    }
+
+    public $I pop() {
+        return pop($I.of(-1));
+    }
+
+    public $I pop($O index) {
+        if (length == 0) throw new $X("IndexError", "pop from empty bytearray");
+        int i = index(index, "pop index out of range");
+        int v = buf[start + i] & 0xFF;
+        splice(i, i + 1, EMPTY, 0);
+        return $I.of(v);
+    }
+
+    public $N remove($O item) {
+        int i = $Scan.indexOf(buf, byteValue(item), start, start + length);
+        if (i < 0) throw new $X("ValueError", "value not found in bytearray");
+        splice(i - start, i - start + 1, EMPTY, 0);
+        return $N.INSTANCE;
+    }
+
+    public $N clear() {
+        if (length > 0) checkResizable();
+        start = 0;
+        length = 0;
+        return $N.INSTANCE;
+    }
+
+    public $N reverse() {
+        for (int i = start, j = start + length - 1; i < j; i++, j--) {
+            byte t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+        return $N.INSTANCE;
+    }
+
+    public $BA copy() {
+        return of(buf, start, start + length);
+    }
+
+    // Sequence protocol
+
+    private int index($O key, String message) {
+        $I i = ($I) key;
+        long idx = i.isBig() ? Long.MAX_VALUE : i.value;
+        if (idx < 0) idx += length;
+        if (idx < 0 || idx >= length) throw new $X("IndexError", message);
+        return (int) idx;
+    }
+
+    @Override
+    public $I __len__() {
+        return $I.of(length);
+    }
+
+    @Override
+    public boolean __bool__() {
+        return length > 0;
+    }
+
+    @Override
+    public $O __getitem__($O key) {
+        if (key instanceof $I) {
+            return $I.of(buf[start + index(key, "bytearray index out of range")] & 0xFF);
+        }
+        if (key instanceof $SL) {
+            $T indices = (($SL) key).indices($I.of(length));
+            int from = (int) (($I) indices.items[0]).value;
+            int to = (int) (($I) indices.items[1]).value;
+            int step = (int) (($I) indices.items[2]).value;
+            if (step == 1) return of(buf, start + from, start + Math.max(from, to));
+            $BA result = new $BA();
+            for (int i = from; step > 0 ? i < to : i > to; i += step) {
+                result.append($I.of(buf[start + i] & 0xFF));
+            }
+            return result;
+        }
+        throw new $X("TypeError", "bytearray indices must be integers or slices");
+    }
+
+    @Override
+    public void __setitem__($O key, $O value) {
+        if (key instanceof $I) {
+            buf[start + index(key, "bytearray index out of range")] = (byte) byteValue(value);
+            return;
+        }
+        if (key instanceof $SL) {
+            $T indices = (($SL) key).indices($I.of(length));
+            int from = (int) (($I) indices.items[0]).value;
+            int to = (int) (($I) indices.items[1]).value;
+            int step = (int) (($I) indices.items[2]).value;
+            if (value instanceof $I) {
+                throw new $X("TypeError", "can assign only bytes, buffers, or iterables of ints in range(0, 256)");
+            }
+            byte[] data = toBytes(value);
+            if (step == 1) {
+                splice(from, Math.max(from, to), data, data.length);
+                return;
+            }
+            int count = 0;
+            for (int i = from; step > 0 ? i < to : i > to; i += step) count++;
+            if (count != data.length) {
+                throw new $X("ValueError", "attempt to assign bytes of size " + data.length
+                    + " to extended slice of size " + count);
+            }
+            for (int i = from, j = 0; j < count; i += step, j++) buf[start + i] = data[j];
+            return;
+        }
+        throw new $X("TypeError", "bytearray indices must be integers or slices");
+    }
+
+    @Override
+    public void __delitem__($O key) {
+        if (key instanceof $I) {
+            int i = index(key, "bytearray index out of range");
+            splice(i, i + 1, EMPTY, 0);
+            return;
+        }
+        if (key instanceof $SL) {
+            $T indices = (($SL) key).indices($I.of(length));
+            int from = (int) (($I) indices.items[0]).value;
+            int to = (int) (($I) indices.items[1]).value;
+            int step = (int) (($I) indices.items[2]).value;
+            if (step < 0) {
+                // Same bytes as the forward slice ending at from
+                int count = from > to ? (from - to - 1) / -step + 1 : 0;
+                to = from + 1;
+                from = from - (count - 1) * -step;
+                step = -step;
+                if (count == 0) return;
+            }
+            if (from >= to) return;
+            if (step == 1) {
+                splice(from, to, EMPTY, 0);
+                return;
+            }
+            checkResizable();
+            int w = start + from;
+            for (int i = from; i < length; i++) {
+                if (i >= to || (i - from) % step != 0) buf[w++] = buf[start + i];
+            }
+            length = w - start;
+            return;
+        }
+        throw new $X("TypeError", "bytearray indices must be integers or slices");
+    }
+
+    @Override
+    public $B __contains__($O item) {
+        return $B.of(find(needle(item), 0, length) >= 0);
+    }
+
+    @Override
+    public $O __iter__() {
+        return new $BAI(this);
+    }
+
+    @Override
+    public $O __add__($O other) {
+        byte[] o = bytesOf(other);
+        if (o == null) {
+            throw new $X("TypeError", "can't concat " + $MV.typeName(other) + " to bytearray");
+        }
+        $BA result = new $BA(Arrays.copyOfRange(buf, start, start + length + o.length), length);
+        System.arraycopy(o, 0, result.buf, length, o.length);
+        result.length += o.length;
+        return result;
+    }
+
+    @Override
+    public $O __iadd__($O other) {
+        if (bytesOf(other) == null) {
+            throw new $X("TypeError", "can't concat " + $MV.typeName(other) + " to bytearray");
+        }
+        extend(other);
+        return this;
+    }
+
+    @Override
+    public $O __mul__($O other) {
+        if (!(other instanceof $I)) throw new $X("TypeError", "can't multiply sequence by non-int");
+        $I i = ($I) other;
+        long n = Math.max(i.value, 0);
+        if (length > 0 && n > (Integer.MAX_VALUE - 8) / length) throw new $X("OverflowError", "byte string is too large");
+        $BA result = new $BA(new byte[(int) (n * length)], (int) (n * length));
+        for (int j = 0; j < n; j++) System.arraycopy(buf, start, result.buf, j * length, length);
+        return result;
+    }
+
+    // Comparison
+
+    private int compareTo($O other, String op) {
+        byte[] o = bytesOf(other);
+        if (o == null) throw new $X("TypeError", "'" + op + "' not supported");
+        return Arrays.compareUnsigned(buf, start, start + length, o, 0, o.length);
+    }
+
+    @Override
+    public $O __eq__($O other) {
+        byte[] o = bytesOf(other);
+        if (o == null) return $B.FALSE;
+        return $B.of(Arrays.equals(buf, start, start + length, o, 0, o.length));
+    }
+
+    @Override
+    public $O __lt__($O other) { return $B.of(compareTo(other, "<") < 0); }
+
+    @Override
+    public $O __le__($O other) { return $B.of(compareTo(other, "<=") <= 0); }
+
+    @Override
+    public $O __gt__($O other) { return $B.of(compareTo(other, ">") > 0); }
+
+    @Override
+    public $O __ge__($O other) { return $B.of(compareTo(other, ">=") >= 0); }
+
+    @Override
+    public $I __hash__() {
+        throw new $X("TypeError", "unhashable type: 'bytearray'");
+    }
+
+    @Override
+    public $S __repr__() {
+        return $S.of("bytearray(" + $BY.repr(buf, start, start + length) + ")");
+    }
+
+    @Override
+    public $S __str__() {
+        return __repr__();
+    }
+
+    // Methods
+
+    @Override
+    public $O __getattr__(String name) {
+        switch (name) {
+            case "append":
+            case "extend":
+            case "insert":
+            case "pop":
+            case "remove":
+            case "clear":
+            case "reverse":
+            case "copy":
+            case "decode":
+            case "find":
+            case "rfind":
+            case "index":
+            case "rindex":
+            case "count":
+            case "startswith":
+            case "endswith":
+            case "replace":
+            case "split":
+            case "upper":
+            case "lower":
+            case "hex":
+                return new $BM(this, name);
+            default:
+                return super.__getattr__(name);
+        }
+    }
+
+    private static byte[] needle($O sub) {
+        if (sub instanceof $BA) return (($BA) sub).toByteArray();
+        return $BY.needle(sub);
+    }
+
+    /**
+     * Index of sub in the window [from, to), relative to the window, or -1.
+     */
+    private int find(byte[] sub, int from, int to) {
+        if (from > to) return -1;
+        int i = $Scan.indexOf(buf, sub, start + from, start + to);
+        return i < 0 ? -1 : i - start;
+    }
+
+    public $S decode() {
+        return $S.of(new String(buf, start, length, java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    public $S decode($O encoding) {
+        return $S.of(new String(buf, start, length, $S.charset((($S) encoding).value())));
+    }
+
+    public $I find($O sub) {
+        return $I.of(find(needle(sub), 0, length));
+    }
+
+    public $I find($O sub, $O from) {
+        return find(sub, from, $N.INSTANCE);
+    }
+
+    public $I find($O sub, $O from, $O to) {
+        return $I.of(find(needle(sub), $Scan.start(from, length), $Scan.bound(to, length, length)));
+    }
+
+    public $I rfind($O sub) {
+        return rfind(sub, $N.INSTANCE, $N.INSTANCE);
+    }
+
+    public $I rfind($O sub, $O from) {
+        return rfind(sub, from, $N.INSTANCE);
+    }
+
+    public $I rfind($O sub, $O from, $O to) {
+        int lo = $Scan.start(from, length);
+        int hi = $Scan.bound(to, length, length);
+        if (lo > hi) return $I.of(-1);
+        int i = $Scan.lastIndexOf(buf, needle(sub), start + lo, start + hi);
+        return $I.of(i < 0 ? -1 : i - start);
+    }
+
+    public $I rindex($O sub) {
+        return rindex(sub, $N.INSTANCE, $N.INSTANCE);
+    }
+
+    public $I rindex($O sub, $O from) {
+        return rindex(sub, from, $N.INSTANCE);
+    }
+
+    public $I rindex($O sub, $O from, $O to) {
+        $I i = rfind(sub, from, to);
+        if (i.value < 0) throw new $X("ValueError", "subsection not found");
+        return i;
+    }
+
+    public $I index($O sub) {
+        return index(sub, $N.INSTANCE, $N.INSTANCE);
+    }
+
+    public $I index($O sub, $O from) {
+        return index(sub, from, $N.INSTANCE);
+    }
+
+    public $I index($O sub, $O from, $O to) {
+        $I i = find(sub, from, to);
+        if (i.value < 0) throw new $X("ValueError", "subsection not found");
+        return i;
+    }
+
+    public $I count($O sub) {
+        return $I.of($Scan.count(buf, needle(sub), start, start + length));
+    }
+
+    public $B startswith($O prefix) {
+        byte[] p = needle(prefix);
+        return $B.of(p.length <= length && Arrays.equals(buf, start, start + p.length, p, 0, p.length));
+    }
+
+    public $B endswith($O suffix) {
+        byte[] s = needle(suffix);
+        int end = start + length;
+        return $B.of(s.length <= length && Arrays.equals(buf, end - s.length, end, s, 0, s.length));
+    }
+
+    /**
+     * The bytes methods that build new sequences run on a snapshot and
+     * convert the results back to bytearray.
+     */
+    private $BY snapshot() {
+        return $BY.of(toByteArray());
+    }
+
+    private static $O fromBytes($O result) {
+        if (result instanceof $BY) return of((($BY) result).data);
+        if (result instanceof $L) {
+            $L list = ($L) result;
+            $L converted = new $L();
+            for (int i = 0; i < list.items.size(); i++) converted.append(fromBytes(list.items.get(i)));
+            return converted;
+        }
+        return result;
+    }
+
+    public $O replace($O old, $O replacement) {
+        return replace(old, replacement, $I.of(-1));
+    }
+
+    public $O replace($O old, $O replacement, $O count) {
+        return fromBytes(snapshot().replace(asBytes(old), asBytes(replacement), count));
+    }
+
+    public $O split() {
+        return fromBytes(snapshot().split());
+    }
+
+    public $O split($O sep) {
+        return split(sep, $I.of(-1));
+    }
+
+    public $O split($O sep, $O maxsplit) {
+        return fromBytes(snapshot().split(sep == $N.INSTANCE ? sep : asBytes(sep), maxsplit));
+    }
+
+    public $O upper() {
+        return new $BA($Scan.asciiCase(toByteArray(), true), length);
+    }
+
+    public $O lower() {
+        return new $BA($Scan.asciiCase(toByteArray(), false), length);
+    }
+
+    public $S hex() {
+        return snapshot().hex();
+    }
+
+    private static $O asBytes($O o) {
+        return o instanceof $BA ? $BY.of((($BA) o).toByteArray()) : o;
+    }
+}
+
+/**
+ * Bytearray iterator; sees changes made while iterating.
+ */
+class $BAI extends $O {
+    private final $BA array;
+    private int index;
+
+    $BAI($BA array) {
+        this.array = array;
+    }
+
+    @Override
+    public $O __iter__() {
+        return this;
+    }
+
+    @Override
+    public $O __next__() {
+        if (index >= array.length) {
+            throw new $X.StopIteration();
+        }
+        return $I.of(array.buf[array.start + index++] & 0xFF);
+    }
+}
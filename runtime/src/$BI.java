@@ -0,0 +1,147 @@
+import java.math.BigInteger;
+
+/**
+ * $BI - PyInt for values that do not fit in a long.
+ *
+ * Only $I.of(BigInteger) creates these, so big is always outside the
+ * long range and a $BI never equals a plain $I. value holds the long
+ * the number saturates to, for callers that only clamp.
+ */
+final class $BI extends $I {
+
+    final BigInteger big;
+
+    $BI(BigInteger big) {
+        super(big.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE);
+        this.big = big;
+    }
+
+    @Override
+    public BigInteger toBigInteger() {
+        return big;
+    }
+
+    @Override
+    public double doubleValue() {
+        return big.doubleValue();
+    }
+
+    @Override
+    int signum() {
+        return big.signum();
+    }
+
+    @Override
+    public boolean __bool__() {
+        return true;
+    }
+
+    @Override
+    public $S __repr__() {
+        return $S.of(big.toString());
+    }
+
+    private int compareTo($O other) {
+        return big.compareTo((($I) other).toBigInteger());
+    }
+
+    @Override
+    public $O __eq__($O other) {
+        if (other instanceof $I) {
+            return $B.of(big.equals((($I) other).toBigInteger()));
+        }
+        return super.__eq__(other);
+    }
+
+    @Override
+    public $O __lt__($O other) {
+        if (other instanceof $I) return $B.of(compareTo(other) < 0);
+        return super.__lt__(other);
+    }
+
+    @Override
+    public $O __le__($O other) {
+        if (other instanceof $I) return $B.of(compareTo(other) <= 0);
+        return super.__le__(other);
+    }
+
+    @Override
+    public $O __gt__($O other) {
+        if (other instanceof $I) return $B.of(compareTo(other) > 0);
+        return super.__gt__(other);
+    }
+
+    @Override
+    public $O __ge__($O other) {
+        if (other instanceof $I) return $B.of(compareTo(other) >= 0);
+        return super.__ge__(other);
+    }
+
+    @Override
+    public $O __add__($O other) {
+        if (other instanceof $I) return of(big.add((($I) other).toBigInteger()));
+        return super.__add__(other);
+    }
+
+    @Override
+    public $O __sub__($O other) {
+        if (other instanceof $I) return of(big.subtract((($I) other).toBigInteger()));
+        return super.__sub__(other);
+    }
+
+    @Override
+    public $O __mul__($O other) {
+        if (other instanceof $I) return of(big.multiply((($I) other).toBigInteger()));
+        return super.__mul__(other);
+    }
+
+    @Override
+    public $O __floordiv__($O other) {
+        if (other instanceof $I) return of(floorDiv(big, (($I) other).toBigInteger()));
+        return super.__floordiv__(other);
+    }
+
+    @Override
+    public $O __mod__($O other) {
+        if (other instanceof $I) return of(floorMod(big, (($I) other).toBigInteger()));
+        return super.__mod__(other);
+    }
+
+    @Override
+    public $O __neg__() {
+        return of(big.negate());
+    }
+
+    @Override
+    public $O __invert__() {
+        return of(big.not());
+    }
+
+    @Override
+    public $O __and__($O other) {
+        if (other instanceof $I) return of(big.and((($I) other).toBigInteger()));
+        return super.__and__(other);
+    }
+
+    @Override
+    public $O __or__($O other) {
+        if (other instanceof $I) return of(big.or((($I) other).toBigInteger()));
+        return super.__or__(other);
+    }
+
+    @Override
+    public $O __xor__($O other) {
+        if (other instanceof $I) return of(big.xor((($I) other).toBigInteger()));
+        return super.__xor__(other);
+    }
+
+    @Override
+    public $O __lshift__($O other) {
+        return of(big.shiftLeft(shiftCount(other, "<<")));
+    }
+
+    @Override
+    public $O __rshift__($O other) {
+        return of(big.shiftRight(shiftCount(other, ">>")));
+    }
+}
@@ -36,7 +36,7 @@ public final class $BM extends $O {
     
     @Override
     public $S __repr__() {
-        return $S.of("<bound method " + methodName + " of " + self.__repr__().value + ">");
+        return $S.of("<bound method " + methodName + " of " + self.__repr__().value() + ">");
     }
     
     @Override
@@ -71,11 +71,49 @@ public final class $BM extends $O {
             
         } catch ($X e) {
             throw e;
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new $X("TypeError", "failed to call method '" + methodName + "': " + e.getCause());
+        } catch (Exception e) {
+            throw new $X("TypeError", "failed to call method '" + methodName + "': " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public $O __call__($O[] args, String[] kwnames) {
+        if (kwnames == null || kwnames.length == 0) {
+            return __call__(args);
+        }
+        if (directMethod != null) {
+            return directMethod.__call__(prepend(self, args), kwnames);
+        }
+        // Built-in methods taking keywords have a (args, kwnames) overload
+        Method method;
+        try {
+            method = self.getClass().getMethod(methodName, $O[].class, String[].class);
+        } catch (NoSuchMethodException e) {
+            return super.__call__(args, kwnames);
+        }
+        try {
+            return wrapResult(method.invoke(self, args, kwnames));
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new $X("TypeError", "failed to call method '" + methodName + "': " + e.getCause());
         } catch (Exception e) {
             throw new $X("TypeError", "failed to call method '" + methodName + "': " + e.getMessage());
         }
     }
     
+    /** The (args, kwnames) overload, which only keyword calls use. */
+    private static boolean isKeywordOverload(Method m) {
+        Class<?>[] types = m.getParameterTypes();
+        return types.length == 2 && types[0] == $O[].class && types[1] == String[].class;
+    }
+    
     private Method findMethod(Class<?> clazz, String name, int argCount) {
         // First try exact match from cache
         if (cachedMethod != null && cachedMethod.getParameterCount() == argCount) {
@@ -84,7 +122,7 @@ public final class $BM extends $O {
         
         // Search for method with matching name and arg count
         for (Method m : clazz.getMethods()) {
-            if (m.getName().equals(name)) {
+            if (m.getName().equals(name) && !isKeywordOverload(m)) {
                 int paramCount = m.getParameterCount();
                 // Check for exact match or varargs
                 if (paramCount == argCount) {
@@ -139,7 +177,7 @@ public final class $BM extends $O {
             return arg;
         }
         if (targetType == String.class && arg instanceof $S) {
-            return (($S) arg).value;
+            return (($S) arg).value();
         }
         if (targetType == int.class || targetType == Integer.class) {
             if (arg instanceof $I) {
@@ -271,6 +271,265 @@ public final class $BS {
         // Use __call__ which handles $MH (wrapped MethodHandle) and other callables
         return callable.__call__(args);
     }
+
+    /**
+     * Bootstrap method for the first half of a method call,
+     * obj.name(args): the method looked up on the receiver before the
+     * arguments are evaluated. The call site type is ($O) -> $O.
+     *
+     * Receivers whose class has a native method table ($NM) entry for
+     * name give null, which tells the callMethod site to call the table's
+     * handle; a table method cannot be rebound on the instance, so there
+     * is nothing to snapshot. Other receivers give the attribute itself,
+     * so an argument that rebinds it, or a missing attribute, behaves as
+     * in obj.name followed by the call. Each receiver class seen is linked
+     * in front of the last, up to MAX_METHOD_LINKS.
+     */
+    public static CallSite lookupMethod(MethodHandles.Lookup lookup, String name, MethodType type) {
+        return new LookupSite(name, type);
+    }
+
+    /**
+     * Bootstrap method for method calls, obj.name(args), with positional
+     * arguments only. The call site type is ($O, $O, [$O) -> $O: the
+     * receiver, what lookupMethod gave for it and the arguments.
+     *
+     * A null method is a native method: receivers are called straight
+     * through the table's handle for this many arguments, with no method
+     * object in between. Each receiver class seen is linked in front of
+     * the last, up to MAX_METHOD_LINKS, after which the site looks the
+     * table up per call. Any other method is called as is.
+     */
+    public static CallSite callMethod(MethodHandles.Lookup lookup, String name, MethodType type) {
+        return new MethodSite(name, type);
+    }
+
+    private static final int MAX_METHOD_LINKS = 4;
+
+    private static final MethodHandle LINK_LOOKUP;
+    private static final MethodHandle LOOKUP_ANY;
+    private static final MethodHandle GET_ATTRIBUTE;
+    private static final MethodHandle NATIVE_METHOD;
+    private static final MethodHandle CLASS_IS;
+    private static final MethodHandle LINK_METHOD;
+    private static final MethodHandle INVOKE_METHOD;
+    private static final MethodHandle INVOKE_ATTRIBUTE;
+    private static final MethodHandle IS_NATIVE;
+    private static final MethodHandle RECEIVER_IS;
+    static {
+        try {
+            LINK_LOOKUP = LOOKUP.findStatic($BS.class, "linkLookup",
+                UNARY_TYPE.insertParameterTypes(0, LookupSite.class));
+            LOOKUP_ANY = LOOKUP.findStatic($BS.class, "lookupAny",
+                UNARY_TYPE.insertParameterTypes(0, String.class));
+            GET_ATTRIBUTE = LOOKUP.findVirtual($O.class, "__getattr__",
+                MethodType.methodType($O.class, String.class));
+            NATIVE_METHOD = MethodHandles.dropArguments(
+                MethodHandles.constant($O.class, null), 0, $O.class);
+            CLASS_IS = LOOKUP.findStatic($BS.class, "classIs",
+                MethodType.methodType(boolean.class, Class.class, $O.class));
+            MethodType call = MethodType.methodType($O.class, $O.class, $O.class, $O[].class);
+            LINK_METHOD = LOOKUP.findStatic($BS.class, "linkMethod",
+                call.insertParameterTypes(0, MethodSite.class));
+            INVOKE_METHOD = LOOKUP.findStatic($BS.class, "invokeMethod",
+                call.insertParameterTypes(0, String.class));
+            INVOKE_ATTRIBUTE = LOOKUP.findStatic($BS.class, "invokeAttribute", call);
+            IS_NATIVE = LOOKUP.findStatic($BS.class, "isNative",
+                MethodType.methodType(boolean.class, $O.class, $O.class));
+            RECEIVER_IS = LOOKUP.findStatic($BS.class, "receiverIs",
+                MethodType.methodType(boolean.class, Class.class, int.class, $O.class, $O.class, $O[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static final class LookupSite extends MutableCallSite {
+        final String name;
+        int links;
+
+        LookupSite(String name, MethodType type) {
+            super(type);
+            this.name = name;
+            setTarget(LINK_LOOKUP.bindTo(this).asType(type));
+        }
+    }
+
+    /**
+     * Link the receiver's class in front of the lookup site's current
+     * target, then look the method up.
+     */
+    private static $O linkLookup(LookupSite site, $O self) {
+        Class<?> type = self.getClass();
+        MethodHandle target = $NM.of(type).has(site.name)
+            ? NATIVE_METHOD
+            : MethodHandles.insertArguments(GET_ATTRIBUTE, 1, site.name);
+        synchronized (site) {
+            if (site.links < MAX_METHOD_LINKS) {
+                site.links++;
+                MethodHandle test = CLASS_IS.bindTo(type);
+                site.setTarget(MethodHandles.guardWithTest(test, target, site.getTarget()));
+            } else {
+                site.setTarget(LOOKUP_ANY.bindTo(site.name));
+            }
+        }
+        return lookupAny(site.name, self);
+    }
+
+    private static boolean classIs(Class<?> type, $O self) {
+        return self.getClass() == type;
+    }
+
+    /** A lookup at a site that has seen too many receiver classes. */
+    private static $O lookupAny(String name, $O self) {
+        return $NM.of(self.getClass()).has(name) ? null : self.__getattr__(name);
+    }
+
+    static final class MethodSite extends MutableCallSite {
+        final String name;
+        int links;
+        // Receiver classes linked so far, for null methods
+        MethodHandle natives;
+
+        MethodSite(String name, MethodType type) {
+            super(type);
+            this.name = name;
+            this.natives = LINK_METHOD.bindTo(this);
+            relink();
+        }
+
+        void relink() {
+            setTarget(MethodHandles.guardWithTest(IS_NATIVE, natives, INVOKE_ATTRIBUTE).asType(type()));
+        }
+    }
+
+    /**
+     * Link the receiver's class in front of the site's native methods,
+     * then make this call.
+     */
+    private static $O linkMethod(MethodSite site, $O self, $O method, $O[] args) {
+        Class<?> type = self.getClass();
+        MethodHandle target = $NM.of(type).handle(site.name, args.length);
+        target = target != null
+            ? MethodHandles.dropArguments(target, 1, $O.class)
+            : INVOKE_METHOD.bindTo(site.name);
+        synchronized (site) {
+            if (site.links < MAX_METHOD_LINKS) {
+                site.links++;
+                MethodHandle test = MethodHandles.insertArguments(RECEIVER_IS, 0, type, args.length);
+                site.natives = MethodHandles.guardWithTest(test, target, site.natives);
+            } else {
+                site.natives = INVOKE_METHOD.bindTo(site.name);
+            }
+            site.relink();
+        }
+        return invokeMethod(site.name, self, method, args);
+    }
+
+    private static boolean isNative($O self, $O method) {
+        return method == null;
+    }
+
+    private static boolean receiverIs(Class<?> type, int argc, $O self, $O method, $O[] args) {
+        return self.getClass() == type && args.length == argc;
+    }
+
+    /**
+     * A native method call at a site that has seen too many receiver
+     * classes, or with a number of arguments the method does not take.
+     */
+    private static $O invokeMethod(String name, $O self, $O method, $O[] args) {
+        MethodHandle handle = $NM.of(self.getClass()).handle(name, args.length);
+        if (handle != null) return $NM.invoke(handle, self, args);
+        return self.__getattr__(name).__call__(args);
+    }
+
+    private static $O invokeAttribute($O self, $O method, $O[] args) {
+        return method.__call__(args);
+    }
+
+    /**
+     * Bootstrap method for calls with keyword arguments.
+     * The call site name is the keyword-name descriptor: the keyword names
+     * in call order, separated by commas. The keyword values follow the
+     * positional arguments in the args array. The parsed names are bound
+     * into the call site as a constant, so callees can cache the mapping
+     * from this descriptor onto their parameter slots.
+     */
+    public static CallSite callkw(MethodHandles.Lookup lookup, String name, MethodType type) {
+        MethodHandle mh;
+        try {
+            mh = LOOKUP.findStatic($BS.class, "invokeCallableKw",
+                    MethodType.methodType($O.class, $O.class, $O[].class, String[].class));
+            mh = MethodHandles.insertArguments(mh, 2, (Object) name.split(","));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to bootstrap callkw: " + name, e);
+        }
+        return new ConstantCallSite(mh.asType(type));
+    }
+    
+    /**
+     * Helper method to invoke a callable object with keyword arguments.
+     */
+    public static $O invokeCallableKw($O callable, $O[] args, String[] kwnames) {
+        return callable.__call__(args, kwnames);
+    }
+
+    /**
+     * A call with **mapping arguments, whose keyword names are only known
+     * at run time: kwargs holds all the keywords in call order, gathered
+     * by keyword() and keywords().
+     */
+    public static $O callMapping($O callable, $O[] args, $D kwargs) {
+        int nkw = kwargs.map.size();
+        $O[] all = java.util.Arrays.copyOf(args, args.length + nkw);
+        String[] kwnames = new String[nkw];
+        int i = 0;
+        for (java.util.Map.Entry<$O, $O> e : kwargs.map.entrySet()) {
+            kwnames[i] = (($S) e.getKey()).value();
+            all[args.length + i] = e.getValue();
+            i++;
+        }
+        return callable.__call__(all, kwnames);
+    }
+
+    /** Add keyword name=value to the keywords of a **mapping call. */
+    public static $D keyword($D kwargs, String name, $O value) {
+        if (kwargs.map.putIfAbsent($S.of(name), value) != null) {
+            throw new $X.TypeError("got multiple values for keyword argument '" + name + "'");
+        }
+        return kwargs;
+    }
+
+    /** Add the items of **mapping to the keywords of a call. */
+    public static $D keywords($D kwargs, $O mapping) {
+        $O keys;
+        if (mapping instanceof $D) {
+            keys = $L.of((($D) mapping).map.keySet().toArray(new $O[0]));
+        } else {
+            $O method;
+            try {
+                method = mapping.__getattr__("keys");
+            } catch ($X e) {
+                throw new $X.TypeError("argument after ** must be a mapping");
+            }
+            keys = method.__call__();
+        }
+        $O iter = keys.__iter__();
+        while (true) {
+            $O key;
+            try {
+                key = iter.__next__();
+            } catch ($X e) {
+                if (e.isStopIteration()) break;
+                throw e;
+            }
+            if (!(key instanceof $S)) {
+                throw new $X.TypeError("keywords must be strings");
+            }
+            keyword(kwargs, (($S) key).value(), mapping.__getitem__(key));
+        }
+        return kwargs;
+    }
     
     /**
      * Bootstrap method for iteration (__iter__).
@@ -458,7 +717,7 @@ public final class $BS {
         }
         
         // Default: convert to string and wrap in generic Exception
-        String message = value.__str__().value;
+        String message = value.__str__().value();
         return new $X.Exception(message);
     }
     
@@ -480,10 +739,10 @@ public final class $BS {
             if (cls.javaClass != null && $X.class.isAssignableFrom(cls.javaClass)) {
                 exc = $X.create(cls.name, "");
             } else {
-                exc = new $X.Exception(value.__str__().value);
+                exc = new $X.Exception(value.__str__().value());
             }
         } else {
-            exc = new $X.Exception(value.__str__().value);
+            exc = new $X.Exception(value.__str__().value());
         }
         
         // Set the cause if it's an exception
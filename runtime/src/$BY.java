@@ -19,6 +19,13 @@ public final class $BY extends $O {
         return new $BY(s.getBytes(java.nio.charset.StandardCharsets.UTF_8));
     }
     
+    /**
+     * A bytes literal, one char per byte.
+     */
+    public static $BY literal(String s) {
+        return new $BY(s.getBytes(java.nio.charset.StandardCharsets.ISO_8859_1));
+    }
+    
     public static $BY of(int... values) {
         byte[] data = new byte[values.length];
         for (int i = 0; i < values.length; i++) {
@@ -37,10 +44,17 @@ public final class $BY extends $O {
     
     @Override
     public $S __repr__() {
-        StringBuilder sb = new StringBuilder();
+        return $S.of(repr(data, 0, data.length));
+    }
+    
+    /**
+     * The b'...' literal for a[from:to].
+     */
+    static String repr(byte[] a, int from, int to) {
+        StringBuilder sb = new StringBuilder(to - from + 3);
         sb.append("b'");
-        for (byte b : data) {
-            int v = b & 0xFF;
+        for (int i = from; i < to; i++) {
+            int v = a[i] & 0xFF;
             if (v == '\\') sb.append("\\\\");
             else if (v == '\'') sb.append("\\'");
             else if (v == '\n') sb.append("\\n");
@@ -50,7 +64,7 @@ public final class $BY extends $O {
             else sb.append(String.format("\\x%02x", v));
         }
         sb.append("'");
-        return $S.of(sb.toString());
+        return sb.toString();
     }
     
     @Override
@@ -68,46 +82,39 @@ public final class $BY extends $O {
         if (other instanceof $BY) {
             return $B.of(Arrays.equals(data, (($BY)other).data));
         }
+        if (other instanceof $BA || other instanceof $MV) {
+            return other.__eq__(this);
+        }
         return $B.FALSE;
     }
     
-    @Override
-    public $O __lt__($O other) {
-        if (other instanceof $BY) {
-            return $B.of(Arrays.compare(data, (($BY)other).data) < 0);
+    private int compareTo($O other, String op) {
+        // bytearray compares by value; memoryview does not order at all
+        if (other instanceof $BY || other instanceof $BA) {
+            byte[] o = $BA.bytesOf(other);
+            return Arrays.compareUnsigned(data, o);
         }
-        throw new $X("TypeError", "'<' not supported between bytes and " + other.getClass().getSimpleName());
+        throw new $X("TypeError", "'" + op + "' not supported between instances of 'bytes' and '"
+            + $MV.typeName(other) + "'");
     }
     
     @Override
-    public $O __le__($O other) {
-        if (other instanceof $BY) {
-            return $B.of(Arrays.compare(data, (($BY)other).data) <= 0);
-        }
-        throw new $X("TypeError", "'<=' not supported");
-    }
+    public $O __lt__($O other) { return $B.of(compareTo(other, "<") < 0); }
     
     @Override
-    public $O __gt__($O other) {
-        if (other instanceof $BY) {
-            return $B.of(Arrays.compare(data, (($BY)other).data) > 0);
-        }
-        throw new $X("TypeError", "'>' not supported");
-    }
+    public $O __le__($O other) { return $B.of(compareTo(other, "<=") <= 0); }
     
     @Override
-    public $O __ge__($O other) {
-        if (other instanceof $BY) {
-            return $B.of(Arrays.compare(data, (($BY)other).data) >= 0);
-        }
-        throw new $X("TypeError", "'>=' not supported");
-    }
+    public $O __gt__($O other) { return $B.of(compareTo(other, ">") > 0); }
+    
+    @Override
+    public $O __ge__($O other) { return $B.of(compareTo(other, ">=") >= 0); }
     
     @Override
     public $O __getitem__($O key) {
         if (key instanceof $I) {
             $I i = ($I) key;
-            if (i.big != null) throw new $X("IndexError", "bytes index out of range");
+            if (i.isBig()) throw new $X("IndexError", "bytes index out of range");
             int idx = (int) i.value;
             if (idx < 0) idx += data.length;
             if (idx < 0 || idx >= data.length) {
@@ -143,46 +150,26 @@ public final class $BY extends $O {
     
     @Override
     public $B __contains__($O item) {
-        if (item instanceof $I) {
-            int v = (int)(($I)item).value;
-            if (v < 0 || v > 255) return $B.FALSE;
-            byte b = (byte) v;
-            for (byte d : data) {
-                if (d == b) return $B.TRUE;
-            }
-            return $B.FALSE;
-        }
-        if (item instanceof $BY) {
-            byte[] sub = (($BY)item).data;
-            outer:
-            for (int i = 0; i <= data.length - sub.length; i++) {
-                for (int j = 0; j < sub.length; j++) {
-                    if (data[i + j] != sub[j]) continue outer;
-                }
-                return $B.TRUE;
-            }
-            return $B.FALSE;
-        }
-        throw new $X("TypeError", "a bytes-like object is required");
+        return $B.of(find(needle(item), 0, data.length) >= 0);
     }
     
     @Override
     public $O __add__($O other) {
-        if (other instanceof $BY) {
-            byte[] o = (($BY)other).data;
-            byte[] result = new byte[data.length + o.length];
-            System.arraycopy(data, 0, result, 0, data.length);
-            System.arraycopy(o, 0, result, data.length, o.length);
-            return new $BY(result);
+        byte[] o = $BA.bytesOf(other);
+        if (o == null) {
+            throw new $X("TypeError", "can't concat " + $MV.typeName(other) + " to bytes");
         }
-        throw new $X("TypeError", "can't concat bytes to " + other.getClass().getSimpleName());
+        byte[] result = new byte[data.length + o.length];
+        System.arraycopy(data, 0, result, 0, data.length);
+        System.arraycopy(o, 0, result, data.length, o.length);
+        return new $BY(result);
     }
     
     @Override
     public $O __mul__($O other) {
         if (other instanceof $I) {
             $I i = ($I) other;
-            if (i.big != null) throw new $X("OverflowError", "repeated bytes is too long");
+            if (i.isBig()) throw new $X("OverflowError", "repeated bytes is too long");
             int n = (int) i.value;
             if (n <= 0) return new $BY(new byte[0]);
             byte[] result = new byte[data.length * n];
@@ -199,6 +186,32 @@ public final class $BY extends $O {
         return new $BYI(this);
     }
     
+    @Override
+    public $O __getattr__(String name) {
+        switch (name) {
+            case "decode":
+            case "find":
+            case "rfind":
+            case "index":
+            case "rindex":
+            case "count":
+            case "replace":
+            case "split":
+            case "upper":
+            case "lower":
+            case "isdigit":
+            case "isalpha":
+            case "isalnum":
+            case "isspace":
+            case "startswith":
+            case "endswith":
+            case "hex":
+                return new $BM(this, name);
+            default:
+                return super.__getattr__(name);
+        }
+    }
+    
     // Bytes methods
     
     public $S decode() {
@@ -206,51 +219,203 @@ public final class $BY extends $O {
     }
     
     public $S decode($O encoding) {
-        String enc = (($S)encoding).value;
-        try {
-            return $S.of(new String(data, enc));
-        } catch (java.io.UnsupportedEncodingException e) {
-            throw new $X("LookupError", "unknown encoding: " + enc);
+        return $S.of(new String(data, $S.charset((($S)encoding).value())));
+    }
+    
+    /**
+     * The bytes to search for: a bytes object or a single byte value.
+     */
+    static byte[] needle($O sub) {
+        if (sub instanceof $BY) return (($BY) sub).data;
+        if (sub instanceof $BA) return (($BA) sub).toByteArray();
+        if (sub instanceof $I) {
+            $I i = ($I) sub;
+            if (i.isBig() || i.value < 0 || i.value > 255) {
+                throw new $X("ValueError", "byte must be in range(0, 256)");
+            }
+            return new byte[] { (byte) i.value };
         }
+        throw new $X("TypeError", "argument should be integer or bytes-like object, not '"
+            + sub.getClass().getSimpleName() + "'");
+    }
+    
+    private int find(byte[] sub, int start, int end) {
+        return start > end ? -1 : $Scan.indexOf(data, sub, start, end);
     }
     
     public $I find($O sub) {
-        if (!(sub instanceof $BY)) throw new $X("TypeError", "expected bytes");
-        byte[] s = (($BY)sub).data;
-        outer:
-        for (int i = 0; i <= data.length - s.length; i++) {
-            for (int j = 0; j < s.length; j++) {
-                if (data[i + j] != s[j]) continue outer;
+        return $I.of(find(needle(sub), 0, data.length));
+    }
+    
+    public $I find($O sub, $O start) {
+        return find(sub, start, $N.INSTANCE);
+    }
+    
+    public $I find($O sub, $O start, $O end) {
+        int n = data.length;
+        return $I.of(find(needle(sub), $Scan.start(start, n), $Scan.bound(end, n, n)));
+    }
+    
+    public $I rfind($O sub) {
+        return $I.of($Scan.lastIndexOf(data, needle(sub), 0, data.length));
+    }
+    
+    public $I rfind($O sub, $O start) {
+        return rfind(sub, start, $N.INSTANCE);
+    }
+    
+    public $I rfind($O sub, $O start, $O end) {
+        int n = data.length;
+        int from = $Scan.start(start, n);
+        int to = $Scan.bound(end, n, n);
+        return $I.of(from > to ? -1 : $Scan.lastIndexOf(data, needle(sub), from, to));
+    }
+    
+    public $I rindex($O sub) {
+        return rindex(sub, $N.INSTANCE, $N.INSTANCE);
+    }
+    
+    public $I rindex($O sub, $O start) {
+        return rindex(sub, start, $N.INSTANCE);
+    }
+    
+    public $I rindex($O sub, $O start, $O end) {
+        $I i = rfind(sub, start, end);
+        if (i.value < 0) throw new $X("ValueError", "subsection not found");
+        return i;
+    }
+    
+    public $I index($O sub) {
+        return index(sub, $N.INSTANCE, $N.INSTANCE);
+    }
+    
+    public $I index($O sub, $O start) {
+        return index(sub, start, $N.INSTANCE);
+    }
+    
+    public $I index($O sub, $O start, $O end) {
+        $I i = find(sub, start, end);
+        if (i.value < 0) throw new $X("ValueError", "subsection not found");
+        return i;
+    }
+    
+    public $I count($O sub) {
+        return $I.of($Scan.count(data, needle(sub), 0, data.length));
+    }
+    
+    public $I count($O sub, $O start) {
+        return count(sub, start, $N.INSTANCE);
+    }
+    
+    public $I count($O sub, $O start, $O end) {
+        int n = data.length;
+        int from = $Scan.start(start, n);
+        int to = $Scan.bound(end, n, n);
+        return $I.of(from > to ? 0 : $Scan.count(data, needle(sub), from, to));
+    }
+    
+    public $BY replace($O old, $O replacement) {
+        return replace(old, replacement, $I.of(-1));
+    }
+    
+    public $BY replace($O old, $O replacement, $O count) {
+        if (!(old instanceof $BY) || !(replacement instanceof $BY)) {
+            throw new $X("TypeError", "a bytes-like object is required");
+        }
+        byte[] from = (($BY) old).data;
+        byte[] to = (($BY) replacement).data;
+        long max = count instanceof $I ? (($I) count).value : -1;
+        if (max < 0) max = Long.MAX_VALUE;
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream(data.length);
+        int pos = 0;
+        long done = 0;
+        if (from.length == 0) {
+            // Insert the replacement before every byte and at the end
+            for (; pos <= data.length && done < max; pos++, done++) {
+                out.write(to, 0, to.length);
+                if (pos < data.length) out.write(data[pos]);
             }
-            return $I.of(i);
+            if (pos < data.length) out.write(data, pos, data.length - pos);
+            return new $BY(out.toByteArray());
+        }
+        for (int i; done < max && (i = $Scan.indexOf(data, from, pos, data.length)) >= 0; done++) {
+            out.write(data, pos, i - pos);
+            out.write(to, 0, to.length);
+            pos = i + from.length;
         }
-        return $I.of(-1);
+        if (done == 0) return this;
+        out.write(data, pos, data.length - pos);
+        return new $BY(out.toByteArray());
     }
     
-    public $BY upper() {
-        byte[] result = new byte[data.length];
-        for (int i = 0; i < data.length; i++) {
-            byte b = data[i];
-            if (b >= 'a' && b <= 'z') {
-                result[i] = (byte)(b - 32);
-            } else {
-                result[i] = b;
+    public $L split() {
+        return split($N.INSTANCE, $I.of(-1));
+    }
+    
+    public $L split($O sep) {
+        return split(sep, $I.of(-1));
+    }
+    
+    public $L split($O sep, $O maxsplit) {
+        long max = maxsplit instanceof $I ? (($I) maxsplit).value : -1;
+        if (max < 0) max = Long.MAX_VALUE;
+        $L result = new $L();
+        int n = data.length;
+        if (sep == $N.INSTANCE) {
+            // Runs of ASCII whitespace separate words; none are empty
+            int i = 0;
+            while (true) {
+                while (i < n && $Scan.isSpace(data[i])) i++;
+                if (i == n) break;
+                if (result.items.size() == max) {
+                    // The rest, trailing whitespace and all
+                    result.items.add(new $BY(Arrays.copyOfRange(data, i, n)));
+                    break;
+                }
+                int start = i;
+                while (i < n && !$Scan.isSpace(data[i])) i++;
+                result.items.add(new $BY(Arrays.copyOfRange(data, start, i)));
             }
+            return result;
         }
-        return new $BY(result);
+        if (!(sep instanceof $BY)) throw new $X("TypeError", "a bytes-like object is required");
+        byte[] s = (($BY) sep).data;
+        if (s.length == 0) throw new $X("ValueError", "empty separator");
+        int pos = 0;
+        for (int i; result.items.size() < max && (i = $Scan.indexOf(data, s, pos, n)) >= 0; ) {
+            result.items.add(new $BY(Arrays.copyOfRange(data, pos, i)));
+            pos = i + s.length;
+        }
+        result.items.add(new $BY(Arrays.copyOfRange(data, pos, n)));
+        return result;
+    }
+    
+    public $BY upper() {
+        return new $BY($Scan.asciiCase(data, true));
     }
     
     public $BY lower() {
-        byte[] result = new byte[data.length];
-        for (int i = 0; i < data.length; i++) {
-            byte b = data[i];
-            if (b >= 'A' && b <= 'Z') {
-                result[i] = (byte)(b + 32);
-            } else {
-                result[i] = b;
-            }
+        return new $BY($Scan.asciiCase(data, false));
+    }
+    
+    public $B isdigit() {
+        return $B.of($Scan.all(data, $Scan.DIGIT));
+    }
+    
+    public $B isalpha() {
+        return $B.of($Scan.all(data, $Scan.ALPHA));
+    }
+    
+    public $B isalnum() {
+        return $B.of($Scan.all(data, $Scan.ALNUM));
+    }
+    
+    public $B isspace() {
+        if (data.length == 0) return $B.FALSE;
+        for (byte b : data) {
+            if (!$Scan.isSpace(b)) return $B.FALSE;
         }
-        return new $BY(result);
+        return $B.TRUE;
     }
     
     public $B startswith($O prefix) {
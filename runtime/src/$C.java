@@ -48,7 +48,7 @@ public final class $C extends $O {
         }
         if (other instanceof $I || other instanceof $F) {
             double r = other instanceof $I ? 
-                ((($I)other).big != null ? (($I)other).big.doubleValue() : (($I)other).value) :
+                (($I)other).doubleValue() :
                 (($F)other).value;
             return $B.of(real == r && imag == 0.0);
         }
@@ -63,7 +63,7 @@ public final class $C extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            double r = i.big != null ? i.big.doubleValue() : i.value;
+            double r = i.doubleValue();
             return of(real + r, imag);
         }
         if (other instanceof $F) {
@@ -80,7 +80,7 @@ public final class $C extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            double r = i.big != null ? i.big.doubleValue() : i.value;
+            double r = i.doubleValue();
             return of(real - r, imag);
         }
         if (other instanceof $F) {
@@ -98,7 +98,7 @@ public final class $C extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            double r = i.big != null ? i.big.doubleValue() : i.value;
+            double r = i.doubleValue();
             return of(real * r, imag * r);
         }
         if (other instanceof $F) {
@@ -120,7 +120,7 @@ public final class $C extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            double r = i.big != null ? i.big.doubleValue() : i.value;
+            double r = i.doubleValue();
             if (r == 0) throw new $X("ZeroDivisionError", "complex division by zero");
             return of(real / r, imag / r);
         }
@@ -146,7 +146,7 @@ public final class $C extends $O {
     public $O __pow__($O other) {
         if (other instanceof $I) {
             $I i = ($I) other;
-            if (i.big != null || i.value > Integer.MAX_VALUE) {
+            if (i.isBig() || i.value > Integer.MAX_VALUE) {
                 throw new $X("ValueError", "exponent too large");
             }
             int n = (int) i.value;
@@ -74,6 +74,11 @@ class $BCM extends $O {
         return func.__call__(newArgs);
     }
     
+    @Override
+    public $O __call__($O[] args, String[] kwnames) {
+        return func.__call__(prepend(cls, args), kwnames);
+    }
+    
     @Override
     public $S __repr__() {
         return $S.of("<bound method of " + cls.name + ">");
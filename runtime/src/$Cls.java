@@ -162,7 +162,7 @@ public final class $Cls extends $O {
      * Add a method or class attribute.
      */
     public void setAttr(String name, $O value) {
-        attrs.__setitem__($S.of(name), value);
+        attrs.__setitem__($S.intern(name), value);
     }
     
     /**
@@ -170,12 +170,13 @@ public final class $Cls extends $O {
      * Uses MRO (Method Resolution Order) for lookup.
      */
     public $O getRawAttr(String name) {
-        $S key = $S.of(name);
+        $S key = $S.intern(name);
         
         // Walk the MRO to find the attribute
         for ($Cls cls : mro) {
-            if (cls.attrs.__contains__(key).__bool__()) {
-                return cls.attrs.__getitem__(key);
+            $O value = cls.attrs.get(key);
+            if (value != null) {
+                return value;
             }
         }
         
@@ -206,10 +207,10 @@ public final class $Cls extends $O {
      * Uses MRO (Method Resolution Order) for lookup.
      */
     public boolean hasAttr(String name) {
-        $S key = $S.of(name);
+        $S key = $S.intern(name);
         // Walk the MRO to find the attribute
         for ($Cls cls : mro) {
-            if (cls.attrs.__contains__(key).__bool__()) {
+            if (cls.attrs.get(key) != null) {
                 return true;
             }
         }
@@ -239,13 +240,28 @@ public final class $Cls extends $O {
         return inst;
     }
     
+    @Override
+    public $O __call__($O[] args, String[] kwnames) {
+        if (kwnames == null || kwnames.length == 0 ||
+                (javaClass != null && $X.class.isAssignableFrom(javaClass))) {
+            return __call__(args);
+        }
+        $Inst inst = new $Inst(this);
+        if (hasAttr("__init__")) {
+            getAttr("__init__").__call__(prepend(inst, args), kwnames);
+        } else {
+            throw new $X("TypeError", name + "() takes no arguments");
+        }
+        return inst;
+    }
+    
     /**
      * Create an exception instance from this exception class.
      */
     private $O createException($O[] args) {
         String message = "";
         if (args.length > 0 && args[0] != null) {
-            message = args[0].__str__().value;
+            message = args[0].__str__().value();
         }
         
         // Use $X.create to get the right exception type
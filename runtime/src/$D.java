@@ -47,9 +47,9 @@ public final class $D extends $O {
         for (Map.Entry<$O, $O> e : map.entrySet()) {
             if (!first) sb.append(", ");
             first = false;
-            sb.append(e.getKey().__repr__().value);
+            sb.append(e.getKey().__repr__().value());
             sb.append(": ");
-            sb.append(e.getValue().__repr__().value);
+            sb.append(e.getValue().__repr__().value());
         }
         sb.append('}');
         return $S.of(sb.toString());
@@ -77,7 +77,11 @@ public final class $D extends $O {
     }
     
     private $O findKey($O key) {
-        // Dict lookup uses __eq__, not identity
+        // Strings hash by contents, and a key found by identity is equal
+        // to itself, so the map answers both directly
+        if (map.containsKey(key)) return key;
+        if (key instanceof $S) return null;
+        // Otherwise dict lookup uses __eq__, not identity
         for ($O k : map.keySet()) {
             $O eq = k.__eq__(key);
             if (eq instanceof $B && (($B)eq).boolValue) {
@@ -96,7 +100,7 @@ public final class $D extends $O {
     public $O __getitem__($O key) {
         $O value = get(key);
         if (value == null) {
-            throw new $X("KeyError", key.__repr__().value);
+            throw new $X("KeyError", key.__repr__().value());
         }
         return value;
     }
@@ -115,7 +119,7 @@ public final class $D extends $O {
     public void __delitem__($O key) {
         $O k = findKey(key);
         if (k == null) {
-            throw new $X("KeyError", key.__repr__().value);
+            throw new $X("KeyError", key.__repr__().value());
         }
         map.remove(k);
     }
@@ -127,7 +131,7 @@ public final class $D extends $O {
     
     @Override
     public $O __iter__() {
-        return keys().__iter__();
+        return new $DI(this, $DV.KEYS);
     }
     
     @Override
@@ -150,20 +154,24 @@ public final class $D extends $O {
     
     // Dict methods
     
-    public $L keys() {
-        return $L.of(map.keySet().toArray(new $O[0]));
+    public $DV keys() {
+        return new $DV(this, $DV.KEYS);
     }
     
-    public $L values() {
-        return $L.of(map.values().toArray(new $O[0]));
+    public $DV values() {
+        return new $DV(this, $DV.VALUES);
     }
     
-    public $L items() {
-        $L list = new $L();
-        for (Map.Entry<$O, $O> e : map.entrySet()) {
-            list.items.add($T.of(e.getKey(), e.getValue()));
-        }
-        return list;
+    public $DV items() {
+        return new $DV(this, $DV.ITEMS);
+    }
+    
+    /**
+     * Snapshot of the keys, for runtime code that mutates the dict
+     * while walking it.
+     */
+    public $O[] keyArray() {
+        return map.keySet().toArray(new $O[0]);
     }
     
     public $O get($O key, $O defaultVal) {
@@ -181,7 +189,7 @@ public final class $D extends $O {
     public $O pop($O key) {
         $O k = findKey(key);
         if (k == null) {
-            throw new $X("KeyError", key.__repr__().value);
+            throw new $X("KeyError", key.__repr__().value());
         }
         return map.remove(k);
     }
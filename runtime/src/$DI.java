@@ -0,0 +1,72 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Dict view iterator. Walks the map's entries directly and raises
+ * RuntimeError, as Python does, if the dict is resized or its keys
+ * change while the iteration is in progress.
+ */
+class $DI extends $PI {
+    private final $D dict;
+    final int kind;
+    private final Iterator<Map.Entry<$O, $O>> iter;
+    private final int size;
+    private boolean done;
+
+    $DI($D dict, int kind) {
+        this.dict = dict;
+        this.kind = kind;
+        this.iter = dict.map.entrySet().iterator();
+        this.size = dict.map.size();
+    }
+
+    private Map.Entry<$O, $O> nextEntry() {
+        if (done) {
+            return null;
+        }
+        if (dict.map.size() != size) {
+            done = true;
+            throw new $X("RuntimeError", "dictionary changed size during iteration");
+        }
+        try {
+            if (iter.hasNext()) {
+                return iter.next();
+            }
+        } catch (ConcurrentModificationException e) {
+            done = true;
+            throw new $X("RuntimeError", "dictionary keys changed during iteration");
+        }
+        done = true;
+        return null;
+    }
+
+    @Override
+    public $O __next__() {
+        Map.Entry<$O, $O> e = nextEntry();
+        if (e == null) {
+            throw new $X.StopIteration();
+        }
+        switch (kind) {
+            case $DV.KEYS: return e.getKey();
+            case $DV.VALUES: return e.getValue();
+            default: return $T.of(e.getKey(), e.getValue());
+        }
+    }
+
+    @Override
+    $PI advance() {
+        Map.Entry<$O, $O> e = nextEntry();
+        if (e == null) {
+            return null;
+        }
+        switch (kind) {
+            case $DV.KEYS: return unpack(e.getKey());
+            case $DV.VALUES: return unpack(e.getValue());
+            default:
+                first = e.getKey();
+                second = e.getValue();
+                return this;
+        }
+    }
+}
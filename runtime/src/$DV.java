@@ -0,0 +1,175 @@
+import java.util.Map;
+
+/**
+ * $DV - Dict view (dict_keys, dict_values, dict_items).
+ *
+ * Views are live: they read the dict's map on every operation rather
+ * than copying it, so they reflect later changes to the dict. Keys and
+ * items views are set-like and support comparison with sets and the
+ * set operators.
+ */
+public final class $DV extends $O {
+
+    public static final int KEYS = 0;
+    public static final int VALUES = 1;
+    public static final int ITEMS = 2;
+
+    public final $D dict;
+    public final int kind;
+
+    public $DV($D dict, int kind) {
+        this.dict = dict;
+        this.kind = kind;
+    }
+
+    public String typeName() {
+        switch (kind) {
+            case KEYS: return "dict_keys";
+            case VALUES: return "dict_values";
+            default: return "dict_items";
+        }
+    }
+
+    /**
+     * Whether this view supports the set operations.
+     */
+    public boolean isSetLike() {
+        return kind != VALUES;
+    }
+
+    @Override
+    public boolean __bool__() {
+        return !dict.map.isEmpty();
+    }
+
+    @Override
+    public $I __len__() {
+        return $I.of(dict.map.size());
+    }
+
+    @Override
+    public $O __iter__() {
+        return new $DI(dict, kind);
+    }
+
+    @Override
+    public $S __repr__() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(typeName()).append("([");
+        boolean first = true;
+        for (Map.Entry<$O, $O> e : dict.map.entrySet()) {
+            if (!first) sb.append(", ");
+            first = false;
+            switch (kind) {
+                case KEYS:
+                    sb.append(e.getKey().__repr__().value());
+                    break;
+                case VALUES:
+                    sb.append(e.getValue().__repr__().value());
+                    break;
+                default:
+                    sb.append('(');
+                    sb.append(e.getKey().__repr__().value());
+                    sb.append(", ");
+                    sb.append(e.getValue().__repr__().value());
+                    sb.append(')');
+                    break;
+            }
+        }
+        sb.append("])");
+        return $S.of(sb.toString());
+    }
+
+    @Override
+    public $B __contains__($O item) {
+        switch (kind) {
+            case KEYS:
+                return dict.__contains__(item);
+            case VALUES:
+                for ($O v : dict.map.values()) {
+                    if (v == item || v.__eq__(item).__bool__()) {
+                        return $B.TRUE;
+                    }
+                }
+                return $B.FALSE;
+            default:
+                if (!(item instanceof $T) || (($T) item).items.length != 2) {
+                    return $B.FALSE;
+                }
+                $O[] pair = (($T) item).items;
+                $O v = dict.get(pair[0]);
+                return $B.of(v != null && (v == pair[1] || v.__eq__(pair[1]).__bool__()));
+        }
+    }
+
+    @Override
+    public $O __eq__($O other) {
+        if (!isSetLike()) {
+            return $B.of(this == other);
+        }
+        int size;
+        if (other instanceof $ST) {
+            size = (($ST) other).items.size();
+        } else if (other instanceof $DV && (($DV) other).isSetLike()) {
+            size = (($DV) other).dict.map.size();
+        } else {
+            return $B.FALSE;
+        }
+        if (size != dict.map.size()) return $B.FALSE;
+        $O iter = other.__iter__();
+        for ($O item = $BS.safeNext(iter); item != null; item = $BS.safeNext(iter)) {
+            if (!__contains__(item).boolValue) return $B.FALSE;
+        }
+        return $B.TRUE;
+    }
+
+    // Set operations (keys and items views only); results are sets
+
+    private $ST toSet() {
+        return $ST.fromIterable(this);
+    }
+
+    private static $ST toSet($O other) {
+        return other instanceof $ST ? ($ST) other : $ST.fromIterable(other);
+    }
+
+    @Override
+    public $O __and__($O other) {
+        if (!isSetLike()) return super.__and__(other);
+        return toSet().__and__(toSet(other));
+    }
+
+    @Override
+    public $O __or__($O other) {
+        if (!isSetLike()) return super.__or__(other);
+        return toSet().__or__(toSet(other));
+    }
+
+    @Override
+    public $O __sub__($O other) {
+        if (!isSetLike()) return super.__sub__(other);
+        return toSet().__sub__(toSet(other));
+    }
+
+    @Override
+    public $O __xor__($O other) {
+        if (!isSetLike()) return super.__xor__(other);
+        return toSet().__xor__(toSet(other));
+    }
+
+    public $B isdisjoint($O other) {
+        $O iter = other.__iter__();
+        for ($O item = $BS.safeNext(iter); item != null; item = $BS.safeNext(iter)) {
+            if (__contains__(item).boolValue) return $B.FALSE;
+        }
+        return $B.TRUE;
+    }
+
+    @Override
+    public $O __getattr__(String name) {
+        if ("isdisjoint".equals(name) && isSetLike()) {
+            return new $BM(this, name);
+        }
+        return super.__getattr__(name);
+    }
+}
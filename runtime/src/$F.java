@@ -50,7 +50,7 @@ public final class $F extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            return $B.of(value == (i.big != null ? i.big.doubleValue() : i.value));
+            return $B.of(value == i.doubleValue());
         }
         return $B.FALSE;
     }
@@ -62,7 +62,7 @@ public final class $F extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            return $B.of(value < (i.big != null ? i.big.doubleValue() : i.value));
+            return $B.of(value < i.doubleValue());
         }
         throw new $X("TypeError", "'<' not supported between instances");
     }
@@ -74,7 +74,7 @@ public final class $F extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            return $B.of(value <= (i.big != null ? i.big.doubleValue() : i.value));
+            return $B.of(value <= i.doubleValue());
         }
         throw new $X("TypeError", "'<=' not supported between instances");
     }
@@ -86,7 +86,7 @@ public final class $F extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            return $B.of(value > (i.big != null ? i.big.doubleValue() : i.value));
+            return $B.of(value > i.doubleValue());
         }
         throw new $X("TypeError", "'>' not supported between instances");
     }
@@ -98,7 +98,7 @@ public final class $F extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            return $B.of(value >= (i.big != null ? i.big.doubleValue() : i.value));
+            return $B.of(value >= i.doubleValue());
         }
         throw new $X("TypeError", "'>=' not supported between instances");
     }
@@ -110,7 +110,7 @@ public final class $F extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            return of(value + (i.big != null ? i.big.doubleValue() : i.value));
+            return of(value + i.doubleValue());
         }
         throw new $X("TypeError", "unsupported operand type(s) for +");
     }
@@ -122,7 +122,7 @@ public final class $F extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            return of(value - (i.big != null ? i.big.doubleValue() : i.value));
+            return of(value - i.doubleValue());
         }
         throw new $X("TypeError", "unsupported operand type(s) for -");
     }
@@ -134,7 +134,7 @@ public final class $F extends $O {
         }
         if (other instanceof $I) {
             $I i = ($I) other;
-            return of(value * (i.big != null ? i.big.doubleValue() : i.value));
+            return of(value * i.doubleValue());
         }
         throw new $X("TypeError", "unsupported operand type(s) for *");
     }
@@ -146,7 +146,7 @@ public final class $F extends $O {
             d = (($F)other).value;
         } else if (other instanceof $I) {
             $I i = ($I) other;
-            d = i.big != null ? i.big.doubleValue() : i.value;
+            d = i.doubleValue();
         } else {
             throw new $X("TypeError", "unsupported operand type(s) for /");
         }
@@ -161,7 +161,7 @@ public final class $F extends $O {
             d = (($F)other).value;
         } else if (other instanceof $I) {
             $I i = ($I) other;
-            d = i.big != null ? i.big.doubleValue() : i.value;
+            d = i.doubleValue();
         } else {
             throw new $X("TypeError", "unsupported operand type(s) for //");
         }
@@ -176,7 +176,7 @@ public final class $F extends $O {
             d = (($F)other).value;
         } else if (other instanceof $I) {
             $I i = ($I) other;
-            d = i.big != null ? i.big.doubleValue() : i.value;
+            d = i.doubleValue();
         } else {
             throw new $X("TypeError", "unsupported operand type(s) for %");
         }
@@ -191,7 +191,7 @@ public final class $F extends $O {
             exp = (($F)other).value;
         } else if (other instanceof $I) {
             $I i = ($I) other;
-            exp = i.big != null ? i.big.doubleValue() : i.value;
+            exp = i.doubleValue();
         } else {
             throw new $X("TypeError", "unsupported operand type(s) for **");
         }
@@ -90,7 +90,7 @@ public final class $FS extends $O {
         for ($O item : items) {
             if (!first) sb.append(", ");
             first = false;
-            sb.append(item.__repr__().value);
+            sb.append(item.__repr__().value());
         }
         sb.append("})");
         return $S.of(sb.toString());
@@ -100,7 +100,7 @@ public class $File extends $O {
     public $N write($O text) {
         if (writer == null) throw new $X("UnsupportedOperation", "not writable");
         try {
-            writer.write((($S)text).value);
+            writer.write((($S)text).value());
             return $N.INSTANCE;
         } catch (IOException e) {
             throw new $X("IOError", e.getMessage());
@@ -114,7 +114,7 @@ public class $File extends $O {
             while (true) {
                 try {
                     $O line = iter.__next__();
-                    writer.write((($S)line).value);
+                    writer.write((($S)line).value());
                 } catch ($X e) {
                     if (e.isStopIteration()) break;
                     throw e;
@@ -1,4 +1,3 @@
-import java.util.Scanner;
 import java.util.HashMap;
 import java.util.Map;
 import java.io.File;
@@ -16,7 +15,6 @@ import java.util.List;
  */
 public final class $G {
     
-    private static final Scanner scanner = new Scanner(System.in);
     
     /** User-defined global variables */
     private static final Map<String, $O> globals = new HashMap<>();
@@ -41,12 +39,15 @@ public final class $G {
         registerBuiltinModules();
     }
     
+    // The sys module; print() and input() find the current streams here
+    private static $Mod sysModule;
+    
     /**
      * Register built-in modules like sys, builtins.
      */
     private static void registerBuiltinModules() {
         // Create sys module
-        $Mod sysModule = new $Mod("sys");
+        sysModule = new $Mod("sys");
         sysModule.setAttr("path", $Sys.path);
         sysModule.setAttr("modules", $Sys.modules);
         sysModule.setAttr("argv", $Sys.argv);
@@ -85,6 +86,7 @@ public final class $G {
         builtinsModule.setAttr("None", $N.INSTANCE);
         builtinsModule.setAttr("True", $B.TRUE);
         builtinsModule.setAttr("False", $B.FALSE);
+        builtinsModule.setAttr("__debug__", $B.TRUE);
         
         // Exception classes
         builtinsModule.setAttr("BaseException", ExceptionClasses.BaseException);
@@ -98,6 +100,7 @@ public final class $G {
         builtinsModule.setAttr("ZeroDivisionError", ExceptionClasses.ZeroDivisionError);
         builtinsModule.setAttr("OverflowError", ExceptionClasses.OverflowError);
         builtinsModule.setAttr("AssertionError", ExceptionClasses.AssertionError);
+        builtinsModule.setAttr("BufferError", ExceptionClasses.BufferError);
         builtinsModule.setAttr("AttributeError", ExceptionClasses.AttributeError);
         builtinsModule.setAttr("EOFError", ExceptionClasses.EOFError);
         builtinsModule.setAttr("TypeError", ExceptionClasses.TypeError);
@@ -225,17 +228,44 @@ public final class $G {
         });
         posixMod.setAttr("walk", new $O() {
             @Override public $O __call__($O... args) { 
-                if (args.length > 3) return _posix.walk(args[0], args[1], args[2], args[3]);
-                return _posix.walk(args[0]); 
+                return _posix.walk(args, null);
+            }
+            @Override public $O __call__($O[] args, String[] kwnames) {
+                return _posix.walk(args, kwnames);
             }
             @Override public $S __repr__() { return $S.of("<built-in function walk>"); }
         });
+        posixMod.setAttr("scandir", new $O() {
+            @Override public $O __call__($O... args) {
+                return args.length > 0 ? _posix.scandir(args[0]) : _posix.scandir();
+            }
+            @Override public $S __repr__() { return $S.of("<built-in function scandir>"); }
+        });
+        
+        posixMod.setAttr("sendfile", new $O() {
+            @Override public $O __call__($O... args) { return _posix.sendfile(args[0], args[1], args[2], args[3]); }
+            @Override public $S __repr__() { return $S.of("<built-in function sendfile>"); }
+        });
         
         modules.put("posix", posixMod);
         modules.put("_posix", posixMod);
         // On Windows this would be "nt", but we use posix for simplicity
         modules.put("nt", posixMod);
         
+        // shutil - file copying on the posix channel transfer fast path
+        $Mod shutilMod = new $Mod("shutil");
+        shutilMod.setAttr("copyfileobj", new $O() {
+            @Override public $O __call__($O... args) {
+                return _posix.copyfileobj(args[0], args[1], args.length > 2 ? args[2] : $I.of(0));
+            }
+            @Override public $S __repr__() { return $S.of("<function copyfileobj>"); }
+        });
+        shutilMod.setAttr("copyfile", new $O() {
+            @Override public $O __call__($O... args) { return _posix.copyfile(args[0], args[1]); }
+            @Override public $S __repr__() { return $S.of("<function copyfile>"); }
+        });
+        modules.put("shutil", shutilMod);
+        
         // _collections - deque, defaultdict, Counter
         $Mod collectionsMod = new $Mod("_collections");
         collectionsMod.setAttr("deque", new $O() {
@@ -364,6 +394,14 @@ public final class $G {
             }
             @Override public $S __repr__() { return $S.of("<class '_io.BufferedWriter'>"); }
         });
+        ioMod.setAttr("BufferedRandom", new $O() {
+            @Override public $O __call__($O... args) {
+                _io.RawIOBase raw = (_io.RawIOBase)args[0];
+                int size = args.length > 1 && args[1] instanceof $I ? (int)(($I)args[1]).value : _io.DEFAULT_BUFFER_SIZE;
+                return new _io.BufferedRandom(raw, size);
+            }
+            @Override public $S __repr__() { return $S.of("<class '_io.BufferedRandom'>"); }
+        });
         ioMod.setAttr("TextIOWrapper", new $O() {
             @Override public $O __call__($O... args) {
                 _io.BufferedIOBase buf = (_io.BufferedIOBase)args[0];
@@ -389,14 +427,10 @@ public final class $G {
         });
         ioMod.setAttr("open", new $O() {
             @Override public $O __call__($O... args) {
-                return _io.open(args[0],
-                    args.length > 1 ? args[1] : $S.of("r"),
-                    args.length > 2 ? args[2] : $I.of(-1),
-                    args.length > 3 ? args[3] : $N.INSTANCE,
-                    args.length > 4 ? args[4] : $N.INSTANCE,
-                    args.length > 5 ? args[5] : $N.INSTANCE,
-                    args.length > 6 ? args[6] : $B.TRUE,
-                    args.length > 7 ? args[7] : $N.INSTANCE);
+                return _io.open(args, null);
+            }
+            @Override public $O __call__($O[] args, String[] kwnames) {
+                return _io.open(args, kwnames);
             }
             @Override public $S __repr__() { return $S.of("<built-in function open>"); }
         });
@@ -480,6 +514,46 @@ public final class $G {
         
         modules.put("_socket", socketMod);
         modules.put("socket", socketMod);  // Also register as 'socket' for direct import
+        
+        // _mmap - Memory-mapped files
+        $Mod mmapMod = new $Mod("mmap");
+        mmapMod.setAttr("ACCESS_DEFAULT", $I.of(_mmap.ACCESS_DEFAULT));
+        mmapMod.setAttr("ACCESS_READ", $I.of(_mmap.ACCESS_READ));
+        mmapMod.setAttr("ACCESS_WRITE", $I.of(_mmap.ACCESS_WRITE));
+        mmapMod.setAttr("ACCESS_COPY", $I.of(_mmap.ACCESS_COPY));
+        mmapMod.setAttr("MAP_SHARED", $I.of(_mmap.MAP_SHARED));
+        mmapMod.setAttr("MAP_PRIVATE", $I.of(_mmap.MAP_PRIVATE));
+        mmapMod.setAttr("MAP_ANONYMOUS", $I.of(_mmap.MAP_ANONYMOUS));
+        mmapMod.setAttr("MAP_ANON", $I.of(_mmap.MAP_ANONYMOUS));
+        mmapMod.setAttr("PROT_READ", $I.of(_mmap.PROT_READ));
+        mmapMod.setAttr("PROT_WRITE", $I.of(_mmap.PROT_WRITE));
+        mmapMod.setAttr("PAGESIZE", $I.of(_mmap.PAGESIZE));
+        mmapMod.setAttr("ALLOCATIONGRANULARITY", $I.of(_mmap.ALLOCATIONGRANULARITY));
+        mmapMod.setAttr("mmap", new $O() {
+            @Override public $O __call__($O... args) {
+                return _mmap.open(args, null);
+            }
+            @Override public $O __call__($O[] args, String[] kwnames) {
+                return _mmap.open(args, kwnames);
+            }
+            @Override public $S __repr__() { return $S.of("<class 'mmap.mmap'>"); }
+        });
+        modules.put("_mmap", mmapMod);
+        modules.put("mmap", mmapMod);
+
+        // _aio - Asynchronous file I/O returning awaitable futures
+        $Mod aioMod = new $Mod("aio");
+        aioMod.setAttr("open", new $O() {
+            @Override public $O __call__($O... args) {
+                return _aio.open(args, null);
+            }
+            @Override public $O __call__($O[] args, String[] kwnames) {
+                return _aio.open(args, kwnames);
+            }
+            @Override public $S __repr__() { return $S.of("<built-in function open>"); }
+        });
+        modules.put("_aio", aioMod);
+        modules.put("aio", aioMod);
     }
     
     /**
@@ -607,7 +681,7 @@ public final class $G {
         $L publicNames = mod.getPublicNames();
         for ($O nameObj : publicNames.items) {
             if (nameObj instanceof $S) {
-                String name = (($S)nameObj).value;
+                String name = (($S)nameObj).value();
                 try {
                     $O value = mod.getAttr(name);
                     globals.put(name, value);
@@ -646,7 +720,7 @@ public final class $G {
         
         for ($O pathObj : $Sys.path.items) {
             if (!(pathObj instanceof $S)) continue;
-            String pathStr = (($S)pathObj).value;
+            String pathStr = (($S)pathObj).value();
             
             File dir = new File(pathStr);
             if (!dir.isDirectory()) {
@@ -912,7 +986,7 @@ public final class $G {
         // Add to sys.path if not already there
         String cachePath = stdlibCacheDir.getAbsolutePath();
         for ($O p : $Sys.path.items) {
-            if (p instanceof $S && (($S)p).value.equals(cachePath)) {
+            if (p instanceof $S && (($S)p).value().equals(cachePath)) {
                 return stdlibCacheDir;
             }
         }
@@ -1037,6 +1111,7 @@ public final class $G {
             case "True": return $B.TRUE;
             case "False": return $B.FALSE;
             case "None": return $N.INSTANCE;
+            case "__debug__": return $B.TRUE;
             // Exception classes
             case "BaseException": return ExceptionClasses.BaseException;
             case "Exception": return ExceptionClasses.Exception;
@@ -1049,6 +1124,7 @@ public final class $G {
             case "ZeroDivisionError": return ExceptionClasses.ZeroDivisionError;
             case "OverflowError": return ExceptionClasses.OverflowError;
             case "AssertionError": return ExceptionClasses.AssertionError;
+            case "BufferError": return ExceptionClasses.BufferError;
             case "AttributeError": return ExceptionClasses.AttributeError;
             case "EOFError": return ExceptionClasses.EOFError;
             case "TypeError": return ExceptionClasses.TypeError;
@@ -1085,12 +1161,65 @@ public final class $G {
     public static final $O PRINT = new $O() {
         @Override
         public $O __call__($O... args) {
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < args.length; i++) {
-                if (i > 0) sb.append(' ');
-                sb.append(args[i].__str__().value);
+            return print(args, args.length, null, null, null, false);
+        }
+        @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            int nkw = kwnames != null ? kwnames.length : 0;
+            int argc = args.length - nkw;
+            $O sep = null, end = null, file = null;
+            boolean flush = false;
+            for (int i = 0; i < nkw; i++) {
+                $O value = args[argc + i];
+                switch (kwnames[i]) {
+                    case "sep": sep = value; break;
+                    case "end": end = value; break;
+                    case "file": file = value; break;
+                    case "flush": flush = value.__bool__(); break;
+                    default:
+                        throw new $X.TypeError("'" + kwnames[i] + "' is an invalid keyword argument for print()");
+                }
+            }
+            return print(args, argc, text(sep, "sep"), text(end, "end"), file, flush);
+        }
+        private String text($O value, String name) {
+            if (value == null || value == $N.INSTANCE) return null;
+            if (!(value instanceof $S)) {
+                throw new $X.TypeError(name + " must be None or a string");
+            }
+            return (($S) value).value();
+        }
+        /**
+         * Write the first argc args. Standard streams and open text files
+         * take each piece straight into their buffer; anything else gets
+         * one write() call per piece, as CPython makes.
+         */
+        private $O print($O[] args, int argc, String sep, String end, $O file, boolean flush) {
+            if (sep == null) sep = " ";
+            if (end == null) end = "\n";
+            if (file == null || file == $N.INSTANCE) {
+                file = sysModule.getAttr("stdout");
+                if (file == $N.INSTANCE) return $N.INSTANCE;
+            }
+            if (file instanceof _io.TextIOWrapper) {
+                _io.TextIOWrapper out = (_io.TextIOWrapper) file;
+                synchronized (out) {
+                    for (int i = 0; i < argc; i++) {
+                        if (i > 0) out.write(sep);
+                        out.write(args[i].__str__().value());
+                    }
+                    out.write(end);
+                    if (flush) out.flush();
+                }
+                return $N.INSTANCE;
             }
-            System.out.println(sb.toString());
+            $O write = file.__getattr__("write");
+            for (int i = 0; i < argc; i++) {
+                if (i > 0) write.__call__($S.of(sep));
+                write.__call__(args[i].__str__());
+            }
+            write.__call__($S.of(end));
+            if (flush) file.__getattr__("flush").__call__();
             return $N.INSTANCE;
         }
         @Override
@@ -1100,10 +1229,16 @@ public final class $G {
     public static final $O INPUT = new $O() {
         @Override
         public $O __call__($O... args) {
+            // Whatever is pending on stdout goes out before we wait for a reply
+            $O stdout = sysModule.getAttr("stdout");
             if (args.length > 0) {
-                System.out.print(args[0].__str__().value);
+                stdout.__getattr__("write").__call__(args[0].__str__());
             }
-            return $S.of(scanner.nextLine());
+            stdout.__getattr__("flush").__call__();
+            $O line = sysModule.getAttr("stdin").__getattr__("readline").__call__();
+            String s = line.__str__().value();
+            if (s.isEmpty()) throw new $X("EOFError", "EOF when reading a line");
+            return $S.of(s.endsWith("\n") ? s.substring(0, s.length() - 1) : s);
         }
         @Override
         public $S __repr__() { return $S.of("<built-in function input>"); }
@@ -1144,7 +1279,7 @@ public final class $G {
         private long toInt($O o) {
             if (o instanceof $I) {
                 $I i = ($I) o;
-                if (i.big != null) throw new $X("OverflowError", "range() integer too large");
+                if (i.isBig()) throw new $X("OverflowError", "range() integer too large");
                 return i.value;
             }
             throw new $X("TypeError", "range() integer expected");
@@ -1157,18 +1292,83 @@ public final class $G {
         @Override
         public $O __call__($O... args) {
             if (args.length == 0) return $I.of(0);
-            if (args.length > 1) throw new $X("TypeError", "int() takes at most 1 argument");
+            if (args.length > 2) throw new $X("TypeError", "int() takes at most 2 arguments");
             $O arg = args[0];
+            if (arg == null) throw new $X("TypeError", "int() missing string argument");
+            if (args.length == 2) return parseInt(arg, args[1]);
             if (arg instanceof $I) return arg;
             if (arg instanceof $F) return $I.of((long)(($F)arg).value);
             if (arg instanceof $B) return $I.of((($B)arg).boolValue ? 1 : 0);
-            if (arg instanceof $S) return $I.of((($S)arg).value);
+            if (arg instanceof $S) return parseInt(arg, $I.of(10));
             throw new $X("TypeError", "int() argument must be a string or number");
         }
         @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            return __call__(keywordsToPositional("int", args, kwnames, null, "base"));
+        }
+        @Override
         public $S __repr__() { return $S.of("<class 'int'>"); }
     };
     
+    /**
+     * int(x, base): x a str or bytes of digits in base, with an optional
+     * sign, underscores between digits and, for base 0 or the matching
+     * base, a 0x/0o/0b prefix.
+     */
+    private static $I parseInt($O x, $O base) {
+        if (!(base instanceof $I)) {
+            throw new $X("TypeError", "int() base must be an integer");
+        }
+        long b = (($I) base).value;
+        if (b != 0 && (b < 2 || b > 36)) {
+            throw new $X("ValueError", "int() base must be >= 2 and <= 36, or 0");
+        }
+        String text;
+        if (x instanceof $S) {
+            text = (($S) x).value();
+        } else if (x instanceof $BY || x instanceof $BA) {
+            text = new String($BA.toBytes(x), java.nio.charset.StandardCharsets.ISO_8859_1);
+        } else {
+            throw new $X("TypeError", "int() can't convert non-string with explicit base");
+        }
+        String digits = text.strip();
+        boolean negative = false;
+        if (!digits.isEmpty() && (digits.charAt(0) == '+' || digits.charAt(0) == '-')) {
+            negative = digits.charAt(0) == '-';
+            digits = digits.substring(1);
+        }
+        int radix = (int) b;
+        int prefixed = 0;
+        if (digits.length() > 1 && digits.charAt(0) == '0') {
+            switch (Character.toLowerCase(digits.charAt(1))) {
+                case 'x': prefixed = 16; break;
+                case 'o': prefixed = 8; break;
+                case 'b': prefixed = 2; break;
+            }
+        }
+        if (prefixed != 0 && (radix == 0 || radix == prefixed)) {
+            radix = prefixed;
+            digits = digits.substring(2);
+            if (digits.startsWith("_")) digits = digits.substring(1);
+        } else if (radix == 0) {
+            radix = 10;
+            // Decimal literals have no leading zeros, except zero itself
+            if (digits.startsWith("0") && !digits.matches("0[0_]*")) digits = "";
+        }
+        boolean valid = !digits.isEmpty() && !digits.startsWith("_") && !digits.endsWith("_")
+            && !digits.contains("__");
+        for (int i = 0; valid && i < digits.length(); i++) {
+            char c = digits.charAt(i);
+            valid = c == '_' || Character.digit(c, radix) >= 0;
+        }
+        if (!valid) {
+            throw new $X("ValueError", "invalid literal for int() with base " + b + ": "
+                + $S.of(text).__repr__().value());
+        }
+        java.math.BigInteger value = new java.math.BigInteger(digits.replace("_", ""), radix);
+        return $I.of(negative ? value.negate() : value);
+    }
+    
     public static final $O FLOAT = new $O() {
         @Override
         public $O __call__($O... args) {
@@ -1178,9 +1378,9 @@ public final class $G {
             if (arg instanceof $F) return arg;
             if (arg instanceof $I) {
                 $I i = ($I) arg;
-                return $F.of(i.big != null ? i.big.doubleValue() : i.value);
+                return $F.of(i.doubleValue());
             }
-            if (arg instanceof $S) return $F.of((($S)arg).value);
+            if (arg instanceof $S) return $F.of((($S)arg).value());
             throw new $X("TypeError", "float() argument must be a string or number");
         }
         @Override
@@ -1191,8 +1391,19 @@ public final class $G {
         @Override
         public $O __call__($O... args) {
             if (args.length == 0) return $S.of("");
-            if (args.length > 1) throw new $X("TypeError", "str() takes at most 1 argument");
-            return args[0].__str__();
+            if (args.length > 3) throw new $X("TypeError", "str() takes at most 3 arguments");
+            if (args.length == 1) return args[0].__str__();
+            // str(object, encoding, errors) decodes a bytes-like object
+            byte[] data = args[0] == null ? new byte[0] : $BA.bytesOf(args[0]);
+            if (data == null) {
+                throw new $X("TypeError", "decoding to str: need a bytes-like object");
+            }
+            $O encoding = args[1] != null ? args[1] : $S.of("utf-8");
+            return $BY.of(data).decode(encoding);
+        }
+        @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            return __call__(keywordsToPositional("str", args, kwnames, "object", "encoding", "errors"));
         }
         @Override
         public $S __repr__() { return $S.of("<class 'str'>"); }
@@ -1216,6 +1427,10 @@ public final class $G {
             if (args.length > 1) throw new $X("TypeError", "list() takes at most 1 argument");
             $O iterable = args[0];
             $L result = new $L();
+            if (iterable instanceof $L) {
+                result.items.addAll((($L) iterable).items);
+                return result;
+            }
             $O iter = iterable.__iter__();
             while (true) {
                 try {
@@ -1247,7 +1462,7 @@ public final class $G {
                     throw e;
                 }
             }
-            return $T.of(items.toArray(new $O[0]));
+            return $T.wrap(items.toArray(new $O[0]));
         }
         @Override
         public $S __repr__() { return $S.of("<class 'tuple'>"); }
@@ -1257,7 +1472,37 @@ public final class $G {
         @Override
         public $O __call__($O... args) {
             if (args.length == 0) return new $D();
-            throw new $X("TypeError", "dict() not fully implemented");
+            if (args.length > 1) throw new $X("TypeError", "dict expected at most 1 argument, got " + args.length);
+            $D result = new $D();
+            if (args[0] instanceof $D) {
+                result.update(args[0]);
+                return result;
+            }
+            // An iterable of key/value pairs
+            $O iter = args[0].__iter__();
+            while (true) {
+                $O item;
+                try {
+                    item = iter.__next__();
+                } catch ($X e) {
+                    if (e.isStopIteration()) break;
+                    throw e;
+                }
+                $O pair = item.__iter__();
+                $O key = pair.__next__();
+                result.__setitem__(key, pair.__next__());
+            }
+            return result;
+        }
+        @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            int nkw = kwnames != null ? kwnames.length : 0;
+            int argc = args.length - nkw;
+            $D result = ($D) __call__(java.util.Arrays.copyOf(args, argc));
+            for (int i = 0; i < nkw; i++) {
+                result.__setitem__($S.of(kwnames[i]), args[argc + i]);
+            }
+            return result;
         }
         @Override
         public $S __repr__() { return $S.of("<class 'dict'>"); }
@@ -1276,6 +1521,7 @@ public final class $G {
             if (obj instanceof $L) return $S.of("<class 'list'>");
             if (obj instanceof $T) return $S.of("<class 'tuple'>");
             if (obj instanceof $D) return $S.of("<class 'dict'>");
+            if (obj instanceof $DV) return $S.of("<class '" + (($DV)obj).typeName() + "'>");
             return $S.of("<class 'object'>");
         }
         @Override
@@ -1360,8 +1606,7 @@ public final class $G {
             $O arg = args[0];
             if (arg instanceof $I) {
                 $I i = ($I) arg;
-                if (i.big != null) return $I.of(i.big.abs());
-                return $I.of(Math.abs(i.value));
+                return i.signum() < 0 ? i.__neg__() : i;
             }
             if (arg instanceof $F) return $F.of(Math.abs((($F)arg).value));
             throw new $X("TypeError", "bad operand type for abs()");
@@ -1373,15 +1618,11 @@ public final class $G {
     public static final $O MIN = new $O() {
         @Override
         public $O __call__($O... args) {
-            if (args.length == 0) throw new $X("TypeError", "min expected 1 argument");
-            $O result = args[0];
-            for (int i = 1; i < args.length; i++) {
-                $O cmp = args[i].__lt__(result);
-                if (cmp instanceof $B && (($B)cmp).boolValue) {
-                    result = args[i];
-                }
-            }
-            return result;
+            return minMax("min", args, args.length, null, null, false);
+        }
+        @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            return minMaxKw("min", args, kwnames, false);
         }
         @Override
         public $S __repr__() { return $S.of("<built-in function min>"); }
@@ -1390,26 +1631,86 @@ public final class $G {
     public static final $O MAX = new $O() {
         @Override
         public $O __call__($O... args) {
-            if (args.length == 0) throw new $X("TypeError", "max expected 1 argument");
-            $O result = args[0];
-            for (int i = 1; i < args.length; i++) {
-                $O cmp = args[i].__gt__(result);
-                if (cmp instanceof $B && (($B)cmp).boolValue) {
-                    result = args[i];
-                }
-            }
-            return result;
+            return minMax("max", args, args.length, null, null, true);
+        }
+        @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            return minMaxKw("max", args, kwnames, true);
         }
         @Override
         public $S __repr__() { return $S.of("<built-in function max>"); }
     };
     
+    private static $O minMaxKw(String name, $O[] args, String[] kwnames, boolean max) {
+        if (kwnames == null || kwnames.length == 0) {
+            return minMax(name, args, args.length, null, null, max);
+        }
+        int argc = args.length - kwnames.length;
+        $O key = null;
+        $O dflt = null;
+        for (int i = 0; i < kwnames.length; i++) {
+            $O value = args[argc + i];
+            if ("key".equals(kwnames[i])) {
+                key = value == $N.INSTANCE ? null : value;
+            } else if ("default".equals(kwnames[i])) {
+                dflt = value;
+            } else {
+                throw new $X("TypeError", "'" + kwnames[i] + "' is an invalid keyword argument for " + name + "()");
+            }
+        }
+        return minMax(name, args, argc, key, dflt, max);
+    }
+    
+    /**
+     * min()/max() over the first argc arguments, or over a single
+     * iterable argument, comparing key(item) when a key is given.
+     */
+    private static $O minMax(String name, $O[] args, int argc, $O key, $O dflt, boolean max) {
+        if (argc == 0) throw new $X("TypeError", name + " expected 1 argument");
+        if (argc == 1 && key == null && args[0] instanceof $L) {
+            $O result = (($L) args[0]).minMax(max);
+            if (result != null) return result;
+        }
+        $O iter = argc == 1 ? args[0].__iter__() : null;
+        $O result = null;
+        $O resultKey = null;
+        for (int i = 0; ; i++) {
+            $O item;
+            if (iter != null) {
+                try {
+                    item = iter.__next__();
+                } catch ($X e) {
+                    if (e.isStopIteration()) break;
+                    throw e;
+                }
+            } else {
+                if (i == argc) break;
+                item = args[i];
+            }
+            $O itemKey = key != null ? key.__call__(item) : item;
+            if (result == null ||
+                    (max ? itemKey.__gt__(resultKey) : itemKey.__lt__(resultKey)).__bool__()) {
+                result = item;
+                resultKey = itemKey;
+            }
+        }
+        if (result == null) {
+            if (dflt != null) return dflt;
+            throw new $X("ValueError", name + "() arg is an empty sequence");
+        }
+        return result;
+    }
+    
     public static final $O SUM = new $O() {
         @Override
         public $O __call__($O... args) {
             if (args.length == 0) throw new $X("TypeError", "sum() takes at least 1 argument");
             $O iterable = args[0];
             $O result = args.length > 1 ? args[1] : $I.of(0);
+            if (iterable instanceof $L) {
+                $O sum = (($L) iterable).sum(result);
+                if (sum != null) return sum;
+            }
             $O iter = iterable.__iter__();
             while (true) {
                 try {
@@ -1422,6 +1723,10 @@ public final class $G {
             return result;
         }
         @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            return __call__(keywordsToPositional("sum", args, kwnames, null, "start"));
+        }
+        @Override
         public $S __repr__() { return $S.of("<built-in function sum>"); }
     };
     
@@ -1440,7 +1745,7 @@ public final class $G {
         public $O __call__($O... args) {
             if (args.length != 1) throw new $X("TypeError", "ord() takes exactly one argument");
             if (!(args[0] instanceof $S)) throw new $X("TypeError", "ord() expected string of length 1");
-            String s = (($S)args[0]).value;
+            String s = (($S)args[0]).value();
             if (s.length() != 1) throw new $X("TypeError", "ord() expected string of length 1");
             return $I.of(s.charAt(0));
         }
@@ -1467,8 +1772,8 @@ public final class $G {
             if (args.length != 1) throw new $X("TypeError", "hex() takes exactly one argument");
             if (!(args[0] instanceof $I)) throw new $X("TypeError", "hex() expected int");
             $I i = ($I) args[0];
-            String s = i.big != null ? i.big.toString(16) : Long.toHexString(i.value);
-            return $S.of((i.value < 0 || (i.big != null && i.big.signum() < 0)) ? "-0x" + s.substring(1) : "0x" + s);
+            String s = i.isBig() ? i.toBigInteger().toString(16) : Long.toString(i.value, 16);
+            return $S.of(s.startsWith("-") ? "-0x" + s.substring(1) : "0x" + s);
         }
         @Override
         public $S __repr__() { return $S.of("<built-in function hex>"); }
@@ -1480,8 +1785,8 @@ public final class $G {
             if (args.length != 1) throw new $X("TypeError", "bin() takes exactly one argument");
             if (!(args[0] instanceof $I)) throw new $X("TypeError", "bin() expected int");
             $I i = ($I) args[0];
-            String s = i.big != null ? i.big.toString(2) : Long.toBinaryString(i.value);
-            return $S.of((i.value < 0 || (i.big != null && i.big.signum() < 0)) ? "-0b" + s.substring(1) : "0b" + s);
+            String s = i.isBig() ? i.toBigInteger().toString(2) : Long.toString(i.value, 2);
+            return $S.of(s.startsWith("-") ? "-0b" + s.substring(1) : "0b" + s);
         }
         @Override
         public $S __repr__() { return $S.of("<built-in function bin>"); }
@@ -1493,8 +1798,8 @@ public final class $G {
             if (args.length != 1) throw new $X("TypeError", "oct() takes exactly one argument");
             if (!(args[0] instanceof $I)) throw new $X("TypeError", "oct() expected int");
             $I i = ($I) args[0];
-            String s = i.big != null ? i.big.toString(8) : Long.toOctalString(i.value);
-            return $S.of((i.value < 0 || (i.big != null && i.big.signum() < 0)) ? "-0o" + s.substring(1) : "0o" + s);
+            String s = i.isBig() ? i.toBigInteger().toString(8) : Long.toString(i.value, 8);
+            return $S.of(s.startsWith("-") ? "-0o" + s.substring(1) : "0o" + s);
         }
         @Override
         public $S __repr__() { return $S.of("<built-in function oct>"); }
@@ -1550,20 +1855,16 @@ public final class $G {
     public static final $O SORTED = new $O() {
         @Override
         public $O __call__($O... args) {
-            if (args.length != 1) throw new $X("TypeError", "sorted() takes exactly one argument");
-            // Simple bubble sort for now
-            $L list = ($L) LIST.__call__(args[0]);
-            java.util.List<$O> items = list.items;
-            for (int i = 0; i < items.size() - 1; i++) {
-                for (int j = 0; j < items.size() - i - 1; j++) {
-                    $O cmp = items.get(j).__gt__(items.get(j + 1));
-                    if (cmp instanceof $B && (($B)cmp).boolValue) {
-                        $O temp = items.get(j);
-                        items.set(j, items.get(j + 1));
-                        items.set(j + 1, temp);
-                    }
-                }
+            return __call__(args, null);
+        }
+        @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            int nkw = kwnames != null ? kwnames.length : 0;
+            if (args.length - nkw != 1) {
+                throw new $X("TypeError", "sorted expected 1 argument, got " + (args.length - nkw));
             }
+            $L list = ($L) LIST.__call__(args[0]);
+            list.sort(java.util.Arrays.copyOfRange(args, 1, args.length), kwnames);
             return list;
         }
         @Override
@@ -1585,11 +1886,15 @@ public final class $G {
     public static final $O ENUMERATE = new $O() {
         @Override
         public $O __call__($O... args) {
-            if (args.length < 1) throw new $X("TypeError", "enumerate() takes at least 1 argument");
+            if (args.length < 1 || args[0] == null) throw new $X("TypeError", "enumerate() takes at least 1 argument");
             long start = args.length > 1 ? (($I)args[1]).value : 0;
             return new $EN(args[0].__iter__(), start);
         }
         @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            return __call__(keywordsToPositional("enumerate", args, kwnames, "iterable", "start"));
+        }
+        @Override
         public $S __repr__() { return $S.of("<class 'enumerate'>"); }
     };
     
@@ -1691,7 +1996,7 @@ public final class $G {
         public $O __call__($O... args) {
             if (args.length < 2 || args.length > 3) throw new $X("TypeError", "getattr() takes 2 or 3 arguments");
             try {
-                return args[0].__getattr__((($S)args[1]).value);
+                return args[0].__getattr__((($S)args[1]).value());
             } catch ($X e) {
                 if (args.length == 3) return args[2];
                 throw e;
@@ -1705,7 +2010,7 @@ public final class $G {
         @Override
         public $O __call__($O... args) {
             if (args.length != 3) throw new $X("TypeError", "setattr() takes exactly 3 arguments");
-            args[0].__setattr__((($S)args[1]).value, args[2]);
+            args[0].__setattr__((($S)args[1]).value(), args[2]);
             return $N.INSTANCE;
         }
         @Override
@@ -1717,7 +2022,7 @@ public final class $G {
         public $O __call__($O... args) {
             if (args.length != 2) throw new $X("TypeError", "hasattr() takes exactly 2 arguments");
             try {
-                args[0].__getattr__((($S)args[1]).value);
+                args[0].__getattr__((($S)args[1]).value());
                 return $B.TRUE;
             } catch ($X e) {
                 return $B.FALSE;
@@ -1730,9 +2035,9 @@ public final class $G {
     public static final $O ROUND = new $O() {
         @Override
         public $O __call__($O... args) {
-            if (args.length < 1 || args.length > 2) throw new $X("TypeError", "round() takes 1 or 2 arguments");
+            if (args.length < 1 || args.length > 2 || args[0] == null) throw new $X("TypeError", "round() takes 1 or 2 arguments");
             $O num = args[0];
-            int ndigits = args.length > 1 ? (int)(($I)args[1]).value : 0;
+            int ndigits = args.length > 1 && args[1] != $N.INSTANCE ? (int)(($I)args[1]).value : 0;
             if (num instanceof $F) {
                 double v = (($F)num).value;
                 double factor = Math.pow(10, ndigits);
@@ -1747,6 +2052,10 @@ public final class $G {
             throw new $X("TypeError", "type has no __round__ method");
         }
         @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            return __call__(keywordsToPositional("round", args, kwnames, "number", "ndigits"));
+        }
+        @Override
         public $S __repr__() { return $S.of("<built-in function round>"); }
     };
     
@@ -1814,6 +2123,9 @@ public final class $G {
                     return $BY.of(new byte[size]);
                 }
                 if (arg instanceof $BY) return arg;
+                if (arg instanceof $BA) return $BY.of((($BA) arg).toByteArray());
+                if (arg instanceof $MV) return (($MV) arg).tobytes();
+                if (arg instanceof _mmap.mmap) return $BY.of(((_mmap.mmap) arg).contents());
                 // Iterable of ints
                 java.util.List<Byte> bytes = new java.util.ArrayList<>();
                 $O iter = arg.__iter__();
@@ -1833,16 +2145,24 @@ public final class $G {
                 for (int i = 0; i < bytes.size(); i++) arr[i] = bytes.get(i);
                 return $BY.of(arr);
             }
-            if (args.length >= 2 && args[0] instanceof $S) {
-                String s = (($S)args[0]).value;
-                String enc = args.length > 1 ? (($S)args[1]).value : "utf-8";
-                try {
-                    return $BY.of(s.getBytes(enc));
-                } catch (java.io.UnsupportedEncodingException e) {
-                    throw new $X("LookupError", "unknown encoding: " + enc);
-                }
+            if (args.length > 3) throw new $X("TypeError", "bytes() takes at most 3 arguments");
+            if (!(args[0] instanceof $S)) {
+                throw new $X("TypeError", "encoding without a string argument");
+            }
+            if (args[1] == null) {
+                throw new $X("TypeError", "string argument without an encoding");
+            }
+            String s = (($S)args[0]).value();
+            String enc = (($S)args[1]).value();
+            try {
+                return $BY.of(s.getBytes(enc));
+            } catch (java.io.UnsupportedEncodingException e) {
+                throw new $X("LookupError", "unknown encoding: " + enc);
             }
-            throw new $X("TypeError", "bytes() takes at most 3 arguments");
+        }
+        @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            return __call__(keywordsToPositional("bytes", args, kwnames, "source", "encoding", "errors"));
         }
         @Override
         public $S __repr__() { return $S.of("<class 'bytes'>"); }
@@ -1851,8 +2171,13 @@ public final class $G {
     public static final $O BYTEARRAY = new $O() {
         @Override
         public $O __call__($O... args) {
-            // For now, bytearray is same as bytes (simplified)
-            return BYTES.__call__(args);
+            if (args.length == 0) return new $BA();
+            if (args.length == 1) return $BA.from(args[0]);
+            return $BA.of((($BY) BYTES.__call__(args)).data);
+        }
+        @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            return __call__(keywordsToPositional("bytearray", args, kwnames, "source", "encoding", "errors"));
         }
         @Override
         public $S __repr__() { return $S.of("<class 'bytearray'>"); }
@@ -1867,11 +2192,11 @@ public final class $G {
                 if (arg instanceof $C) return arg;
                 if (arg instanceof $I) {
                     $I i = ($I) arg;
-                    return $C.of(i.big != null ? i.big.doubleValue() : i.value, 0.0);
+                    return $C.of(i.doubleValue(), 0.0);
                 }
                 if (arg instanceof $F) return $C.of((($F)arg).value, 0.0);
                 if (arg instanceof $S) {
-                    String s = (($S)arg).value.trim().replace(" ", "");
+                    String s = (($S)arg).value().trim().replace(" ", "");
                     // Simple parsing: a+bj or bj
                     try {
                         if (s.endsWith("j") || s.endsWith("J")) {
@@ -1894,11 +2219,11 @@ public final class $G {
             }
             if (args.length == 2) {
                 double real = 0, imag = 0;
-                if (args[0] instanceof $I) real = (($I)args[0]).big != null ? (($I)args[0]).big.doubleValue() : (($I)args[0]).value;
+                if (args[0] instanceof $I) real = (($I)args[0]).doubleValue();
                 else if (args[0] instanceof $F) real = (($F)args[0]).value;
                 else throw new $X("TypeError", "complex() argument must be number");
                 
-                if (args[1] instanceof $I) imag = (($I)args[1]).big != null ? (($I)args[1]).big.doubleValue() : (($I)args[1]).value;
+                if (args[1] instanceof $I) imag = (($I)args[1]).doubleValue();
                 else if (args[1] instanceof $F) imag = (($F)args[1]).value;
                 else throw new $X("TypeError", "complex() argument must be number");
                 
@@ -1913,15 +2238,11 @@ public final class $G {
     public static final $O OPEN = new $O() {
         @Override
         public $O __call__($O... args) {
-            if (args.length < 1) throw new $X.TypeError("open() requires at least 1 argument");
-            return _io.open(args[0],
-                args.length > 1 ? args[1] : $S.of("r"),
-                args.length > 2 ? args[2] : $I.of(-1),
-                args.length > 3 ? args[3] : $N.INSTANCE,
-                args.length > 4 ? args[4] : $N.INSTANCE,
-                args.length > 5 ? args[5] : $N.INSTANCE,
-                args.length > 6 ? args[6] : $B.TRUE,
-                args.length > 7 ? args[7] : $N.INSTANCE);
+            return _io.open(args, null);
+        }
+        @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            return _io.open(args, kwnames);
         }
         @Override
         public $S __repr__() { return $S.of("<built-in function open>"); }
@@ -1933,7 +2254,7 @@ public final class $G {
             if (args.length < 1) throw new $X("TypeError", "format() takes at least 1 argument");
             if (args.length == 1) return args[0].__str__();
             // With format spec (simplified)
-            String spec = (($S)args[1]).value;
+            String spec = (($S)args[1]).value();
             if (spec.isEmpty()) return args[0].__str__();
             // Basic formatting
             $O val = args[0];
@@ -1955,7 +2276,7 @@ public final class $G {
         @Override
         public $O __call__($O... args) {
             if (args.length != 1) throw new $X("TypeError", "ascii() takes exactly one argument");
-            String s = args[0].__repr__().value;
+            String s = args[0].__repr__().value();
             StringBuilder sb = new StringBuilder();
             for (int i = 0; i < s.length(); i++) {
                 char c = s.charAt(i);
@@ -2065,7 +2386,7 @@ public final class $G {
         @Override
         public $O __call__($O... args) {
             if (args.length < 1) throw new $X("TypeError", "__import__() takes at least 1 argument");
-            String name = (($S)args[0]).value;
+            String name = (($S)args[0]).value();
             return importModule(name);
         }
         @Override
@@ -2199,7 +2520,7 @@ public final class $G {
                 return new $Prop(args[0], args[1], args[2]);
             }
             if (args.length == 4) {
-                String doc = args[3] instanceof $S ? (($S)args[3]).value : null;
+                String doc = args[3] instanceof $S ? (($S)args[3]).value() : null;
                 return new $Prop(args[0], args[1], args[2], doc);
             }
             throw new $X("TypeError", "property() takes at most 4 arguments");
@@ -2220,10 +2541,7 @@ public final class $G {
         @Override
         public $O __call__($O... args) {
             if (args.length != 1) throw new $X("TypeError", "memoryview() takes exactly 1 argument");
-            if (args[0] instanceof $BY) {
-                return new $MV(($BY) args[0]);
-            }
-            throw new $X("TypeError", "memoryview: a bytes-like object is required");
+            return $MV.of(args[0]);
         }
         @Override
         public $S __repr__() { return $S.of("<class 'memoryview'>"); }
@@ -2247,7 +2565,7 @@ public final class $G {
             // eval() requires runtime compilation which we don't support
             // For simple cases, we could potentially evaluate literals
             if (args.length >= 1 && args[0] instanceof $S) {
-                String code = (($S) args[0]).value.trim();
+                String code = (($S) args[0]).value().trim();
                 
                 // Try to evaluate simple literals
                 try {
@@ -2429,7 +2747,7 @@ class $ZI extends $O {
         for (int i = 0; i < iters.length; i++) {
             items[i] = iters[i].__next__();
         }
-        return $T.of(items);
+        return $T.wrap(items);
     }
 }
 
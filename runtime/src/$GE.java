@@ -1,3 +1,7 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
 /**
  * $GE - Generator Expression iterator.
  * 
@@ -9,12 +13,23 @@
  *   - source: the iterable to iterate over
  *   - mapper: function to transform each element (the expression)
  *   - filters: optional filter functions (the if conditions)
+ * 
+ * The mapper and filters are compiled single-argument lambdas; their
+ * handles are bound once (closure included) to a fixed ($O)$O type so
+ * each element is an invokeExact rather than a varargs __call__.
+ * 
+ * When a generator expression is passed straight to sum(), any(), all(),
+ * list(), tuple(), min(), max() or str.join(), the compiler inlines the
+ * loop and feeds each element to a {@link Sink} instead; sink() is the
+ * guard that checks the callee is still that builtin.
  */
 public final class $GE extends $O {
     
     private $O sourceIter;      // Iterator from source
     private final $MH mapper;   // Element expression as callable
     private final $MH[] filters; // Filter conditions as callables
+    private final MethodHandle mapperExact;    // mapper bound to ($O)$O
+    private final MethodHandle[] filtersExact; // filters bound to ($O)$O
     private $O nextValue;       // Prefetched next value (null if exhausted)
     private boolean exhausted;
     
@@ -27,6 +42,11 @@ public final class $GE extends $O {
     public $GE($O source, $MH mapper, $MH[] filters) {
         this.mapper = mapper;
         this.filters = filters != null ? filters : new $MH[0];
+        this.mapperExact = exact(mapper);
+        this.filtersExact = new MethodHandle[this.filters.length];
+        for (int i = 0; i < this.filters.length; i++) {
+            this.filtersExact[i] = exact(this.filters[i]);
+        }
         this.exhausted = false;
         
         // Get iterator from source
@@ -43,6 +63,31 @@ public final class $GE extends $O {
         this(source, mapper, new $MH[0]);
     }
     
+    private static final MethodType EXACT_TYPE = MethodType.methodType($O.class, $O.class);
+    
+    /**
+     * Bind a one-argument function's handle to ($O)$O, closure included.
+     */
+    private static MethodHandle exact($MH fn) {
+        MethodHandle h = fn.handle;
+        if (fn.closure != null) {
+            h = MethodHandles.insertArguments(h, 0, (Object) fn.closure);
+        }
+        return h.asType(EXACT_TYPE);
+    }
+    
+    private static $O invokeExact(MethodHandle h, $O item) {
+        try {
+            return ($O) h.invokeExact(item);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            $X ex = new $X("RuntimeError", t.getClass().getName() + ": " + t.getMessage());
+            ex.initCause(t);
+            throw ex;
+        }
+    }
+    
     /**
      * Advance to the next valid element (that passes all filters).
      */
@@ -57,7 +102,7 @@ public final class $GE extends $O {
             try {
                 item = sourceIter.__next__();
             } catch ($X e) {
-                if ("StopIteration".equals(e.type)) {
+                if (e.isStopIteration()) {
                     exhausted = true;
                     nextValue = null;
                     return;
@@ -74,8 +119,8 @@ public final class $GE extends $O {
             
             // Check all filters
             boolean passesFilters = true;
-            for ($MH filter : filters) {
-                $O result = filter.__call__(item);
+            for (MethodHandle filter : filtersExact) {
+                $O result = invokeExact(filter, item);
                 if (!result.__bool__()) {
                     passesFilters = false;
                     break;
@@ -84,7 +129,7 @@ public final class $GE extends $O {
             
             if (passesFilters) {
                 // Apply mapper and save
-                nextValue = mapper.__call__(item);
+                nextValue = invokeExact(mapperExact, item);
                 return;
             }
             // Otherwise, continue to next item
@@ -143,4 +188,98 @@ public final class $GE extends $O {
     public static $GE of($O source, $MH mapper, $MH[] filters) {
         return new $GE(source, mapper, filters);
     }
+    
+    /**
+     * Get the sink for an inlined generator expression consumed by
+     * callable, or null if callable is not a builtin we inline for
+     * (e.g. the name has been rebound), in which case the compiled code
+     * falls back to building a $GE and calling callable with it.
+     */
+    public static Sink sink($O callable) {
+        if (callable == $G.SUM) return new SumSink();
+        if (callable == $G.ANY) return new AnySink();
+        if (callable == $G.ALL) return new AllSink();
+        if (callable == $G.LIST) return new ListSink();
+        if (callable == $G.TUPLE) return new TupleSink();
+        if (callable == $G.MIN) return new MinMaxSink("min", false);
+        if (callable == $G.MAX) return new MinMaxSink("max", true);
+        if (callable instanceof $BM) {
+            $BM bm = ($BM) callable;
+            if (bm.self instanceof $S && "join".equals(bm.methodName)) {
+                return new JoinSink((($S) bm.self).value());
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Consumer of an inlined generator expression.
+     */
+    public abstract static class Sink {
+        /** Take the next element; return false to stop iterating. */
+        public abstract boolean accept($O item);
+        
+        /** The consumer's result once iteration has finished or stopped. */
+        public abstract $O result();
+    }
+    
+    static final class SumSink extends Sink {
+        private $O total = $I.of(0);
+        @Override public boolean accept($O item) { total = total.__add__(item); return true; }
+        @Override public $O result() { return total; }
+    }
+    
+    static final class AnySink extends Sink {
+        private boolean found;
+        @Override public boolean accept($O item) { found = item.__bool__(); return !found; }
+        @Override public $O result() { return $B.of(found); }
+    }
+    
+    static final class AllSink extends Sink {
+        private boolean failed;
+        @Override public boolean accept($O item) { failed = !item.__bool__(); return !failed; }
+        @Override public $O result() { return $B.of(!failed); }
+    }
+    
+    static final class ListSink extends Sink {
+        private final $L list = new $L();
+        @Override public boolean accept($O item) { list.items.add(item); return true; }
+        @Override public $O result() { return list; }
+    }
+    
+    static final class TupleSink extends Sink {
+        private final java.util.ArrayList<$O> items = new java.util.ArrayList<>();
+        @Override public boolean accept($O item) { items.add(item); return true; }
+        @Override public $O result() { return $T.wrap(items.toArray(new $O[0])); }
+    }
+    
+    static final class MinMaxSink extends Sink {
+        private final String name;
+        private final boolean max;
+        private $O best;
+        MinMaxSink(String name, boolean max) { this.name = name; this.max = max; }
+        @Override public boolean accept($O item) {
+            if (best == null || (max ? item.__gt__(best) : item.__lt__(best)).__bool__()) {
+                best = item;
+            }
+            return true;
+        }
+        @Override public $O result() {
+            if (best == null) throw new $X("ValueError", name + "() arg is an empty sequence");
+            return best;
+        }
+    }
+    
+    static final class JoinSink extends Sink {
+        private final String sep;
+        private $O[] items = new $O[8];
+        private int count;
+        JoinSink(String sep) { this.sep = sep; }
+        @Override public boolean accept($O item) {
+            if (count == items.length) items = java.util.Arrays.copyOf(items, count * 2);
+            items[count++] = item;
+            return true;
+        }
+        @Override public $O result() { return $S.join(sep, items, count); }
+    }
 }
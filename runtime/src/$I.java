@@ -2,264 +2,273 @@ import java.math.BigInteger;
 
 /**
  * $I - PyInt for arbitrary precision integers.
- * 
- * Uses long for small values, BigInteger for large ones.
- * Not final because $B extends it (bool is a subclass of int in Python).
+ *
+ * An $I holds a value that fits in a long and nothing else; values that
+ * do not are the $BI subclass, which holds only a BigInteger. Arithmetic
+ * here stays on longs through the Math.*Exact intrinsics and moves to
+ * BigInteger only when they overflow or the other operand is big.
+ * Not final because $B and $BI extend it (bool is a subclass of int in
+ * Python).
  */
 public class $I extends $O {
-    
-    // Common small integers are cached
-    private static final $I[] CACHE = new $I[256 + 128];
+
+    // Common small integers are cached; -Dloretta.intcache.low/high
+    // change the range
+    private static final int CACHE_LOW = Math.min(Integer.getInteger("loretta.intcache.low", -128), 0);
+    private static final int CACHE_HIGH = Math.max(Integer.getInteger("loretta.intcache.high", 255), 1);
+    private static final $I[] CACHE = new $I[CACHE_HIGH - CACHE_LOW + 1];
     static {
         for (int i = 0; i < CACHE.length; i++) {
-            CACHE[i] = new $I(i - 128);
+            CACHE[i] = new $I(i + CACHE_LOW);
         }
     }
-    
+
+    /**
+     * The value, or for a $BI the long it saturates to.
+     */
     public final long value;
-    public final BigInteger big;  // null if fits in long
-    
+
     $I(long value) {
         this.value = value;
-        this.big = null;
-    }
-    
-    private $I(BigInteger big) {
-        this.big = big;
-        this.value = 0;  // unused when big != null
     }
-    
+
     /**
      * Factory method for creating integers.
      */
     public static $I of(long value) {
-        if (value >= -128 && value < 256) {
-            return CACHE[(int)(value + 128)];
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[(int)(value - CACHE_LOW)];
         }
         return new $I(value);
     }
-    
+
     public static $I of(BigInteger big) {
         // Try to fit in long
         if (big.bitLength() < 64) {
             return of(big.longValue());
         }
-        return new $I(big);
+        return new $BI(big);
     }
-    
+
     public static $I of(String s) {
         return of(new BigInteger(s));
     }
-    
-    private boolean isBig() {
-        return big != null;
+
+    /**
+     * Whether this is a $BI, i.e. does not fit in a long.
+     */
+    final boolean isBig() {
+        return this instanceof $BI;
     }
-    
+
     public BigInteger toBigInteger() {
-        return isBig() ? big : BigInteger.valueOf(value);
+        return BigInteger.valueOf(value);
+    }
+
+    public double doubleValue() {
+        return value;
+    }
+
+    int signum() {
+        return Long.signum(value);
     }
-    
+
     @Override
     public boolean __bool__() {
-        return isBig() ? !big.equals(BigInteger.ZERO) : value != 0;
+        return value != 0;
     }
-    
+
     @Override
     public $S __repr__() {
-        return $S.of(isBig() ? big.toString() : String.valueOf(value));
+        return $S.of(String.valueOf(value));
     }
-    
+
     @Override
     public $I __hash__() {
         return this;
     }
-    
+
+    // A $BI never equals a long, and is above every long when positive
+
     @Override
     public $O __eq__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
-                return $B.of(toBigInteger().equals(o.toBigInteger()));
-            }
-            return $B.of(value == o.value);
+            return $B.of(!o.isBig() && value == o.value);
         }
         if (other instanceof $F) {
-            return $B.of((double)(isBig() ? big.doubleValue() : value) == (($F)other).value);
+            return $B.of(doubleValue() == (($F)other).value);
         }
         return $B.FALSE;
     }
-    
+
     @Override
     public $O __lt__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
-                return $B.of(toBigInteger().compareTo(o.toBigInteger()) < 0);
-            }
-            return $B.of(value < o.value);
+            return $B.of(o.isBig() ? o.signum() > 0 : value < o.value);
         }
         if (other instanceof $F) {
-            return $B.of((isBig() ? big.doubleValue() : value) < (($F)other).value);
+            return $B.of(doubleValue() < (($F)other).value);
         }
         throw new $X("TypeError", "'<' not supported between instances");
     }
-    
+
     @Override
     public $O __le__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
-                return $B.of(toBigInteger().compareTo(o.toBigInteger()) <= 0);
-            }
-            return $B.of(value <= o.value);
+            return $B.of(o.isBig() ? o.signum() > 0 : value <= o.value);
         }
         if (other instanceof $F) {
-            return $B.of((isBig() ? big.doubleValue() : value) <= (($F)other).value);
+            return $B.of(doubleValue() <= (($F)other).value);
         }
         throw new $X("TypeError", "'<=' not supported between instances");
     }
-    
+
     @Override
     public $O __gt__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
-                return $B.of(toBigInteger().compareTo(o.toBigInteger()) > 0);
-            }
-            return $B.of(value > o.value);
+            return $B.of(o.isBig() ? o.signum() < 0 : value > o.value);
         }
         if (other instanceof $F) {
-            return $B.of((isBig() ? big.doubleValue() : value) > (($F)other).value);
+            return $B.of(doubleValue() > (($F)other).value);
         }
         throw new $X("TypeError", "'>' not supported between instances");
     }
-    
+
     @Override
     public $O __ge__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
-                return $B.of(toBigInteger().compareTo(o.toBigInteger()) >= 0);
-            }
-            return $B.of(value >= o.value);
+            return $B.of(o.isBig() ? o.signum() < 0 : value >= o.value);
         }
         if (other instanceof $F) {
-            return $B.of((isBig() ? big.doubleValue() : value) >= (($F)other).value);
+            return $B.of(doubleValue() >= (($F)other).value);
         }
         throw new $X("TypeError", "'>=' not supported between instances");
     }
-    
+
     @Override
     public $O __add__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
-                return of(toBigInteger().add(o.toBigInteger()));
+            if (!o.isBig()) {
+                try {
+                    return of(Math.addExact(value, o.value));
+                } catch (ArithmeticException overflow) {
+                    // Fall through to BigInteger
+                }
             }
-            // Check for overflow
-            long r = value + o.value;
-            if (((value ^ r) & (o.value ^ r)) < 0) {
-                return of(toBigInteger().add(o.toBigInteger()));
-            }
-            return of(r);
+            return of(toBigInteger().add(o.toBigInteger()));
         }
         if (other instanceof $F) {
-            return $F.of((isBig() ? big.doubleValue() : value) + (($F)other).value);
+            return $F.of(doubleValue() + (($F)other).value);
         }
         throw new $X("TypeError", "unsupported operand type(s) for +");
     }
-    
+
     @Override
     public $O __sub__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
-                return of(toBigInteger().subtract(o.toBigInteger()));
+            if (!o.isBig()) {
+                try {
+                    return of(Math.subtractExact(value, o.value));
+                } catch (ArithmeticException overflow) {
+                    // Fall through to BigInteger
+                }
             }
-            long r = value - o.value;
-            if (((value ^ o.value) & (value ^ r)) < 0) {
-                return of(toBigInteger().subtract(o.toBigInteger()));
-            }
-            return of(r);
+            return of(toBigInteger().subtract(o.toBigInteger()));
         }
         if (other instanceof $F) {
-            return $F.of((isBig() ? big.doubleValue() : value) - (($F)other).value);
+            return $F.of(doubleValue() - (($F)other).value);
         }
         throw new $X("TypeError", "unsupported operand type(s) for -");
     }
-    
+
     @Override
     public $O __mul__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
-                return of(toBigInteger().multiply(o.toBigInteger()));
+            if (!o.isBig()) {
+                try {
+                    return of(Math.multiplyExact(value, o.value));
+                } catch (ArithmeticException overflow) {
+                    // Fall through to BigInteger
+                }
             }
-            // Check for overflow
-            long r = value * o.value;
-            if (value != 0 && r / value != o.value) {
-                return of(toBigInteger().multiply(o.toBigInteger()));
-            }
-            return of(r);
+            return of(toBigInteger().multiply(o.toBigInteger()));
         }
         if (other instanceof $F) {
-            return $F.of((isBig() ? big.doubleValue() : value) * (($F)other).value);
+            return $F.of(doubleValue() * (($F)other).value);
         }
         if (other instanceof $S) {
             return (($S)other).__mul__(this);
         }
         throw new $X("TypeError", "unsupported operand type(s) for *");
     }
-    
+
     @Override
     public $O __truediv__($O other) {
         if (other instanceof $I) {
-            $I o = ($I) other;
-            double d = o.isBig() ? o.big.doubleValue() : o.value;
+            double d = (($I) other).doubleValue();
             if (d == 0) throw new $X.ZeroDivisionError();
-            return $F.of((isBig() ? big.doubleValue() : value) / d);
+            return $F.of(doubleValue() / d);
         }
         if (other instanceof $F) {
             if ((($F)other).value == 0) throw new $X.ZeroDivisionError();
-            return $F.of((isBig() ? big.doubleValue() : value) / (($F)other).value);
+            return $F.of(doubleValue() / (($F)other).value);
         }
         throw new $X("TypeError", "unsupported operand type(s) for /");
     }
-    
+
     @Override
     public $O __floordiv__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
-                BigInteger ob = o.toBigInteger();
-                if (ob.equals(BigInteger.ZERO)) throw new $X.ZeroDivisionError();
-                return of(toBigInteger().divide(ob));
+            if (o.isBig() || (value == Long.MIN_VALUE && o.value == -1)) {
+                return of(floorDiv(toBigInteger(), o.toBigInteger()));
             }
             if (o.value == 0) throw new $X.ZeroDivisionError();
             return of(Math.floorDiv(value, o.value));
         }
         if (other instanceof $F) {
             if ((($F)other).value == 0) throw new $X.ZeroDivisionError();
-            return $F.of(Math.floor((isBig() ? big.doubleValue() : value) / (($F)other).value));
+            return $F.of(Math.floor(doubleValue() / (($F)other).value));
         }
         throw new $X("TypeError", "unsupported operand type(s) for //");
     }
-    
+
+    static BigInteger floorDiv(BigInteger a, BigInteger b) {
+        if (b.signum() == 0) throw new $X.ZeroDivisionError();
+        BigInteger[] qr = a.divideAndRemainder(b);
+        if (qr[1].signum() != 0 && qr[1].signum() != b.signum()) {
+            return qr[0].subtract(BigInteger.ONE);
+        }
+        return qr[0];
+    }
+
     @Override
     public $O __mod__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
-                BigInteger ob = o.toBigInteger();
-                if (ob.equals(BigInteger.ZERO)) throw new $X.ZeroDivisionError("modulo by zero");
-                return of(toBigInteger().mod(ob.abs()));
+            if (o.isBig()) {
+                return of(floorMod(toBigInteger(), o.toBigInteger()));
             }
             if (o.value == 0) throw new $X.ZeroDivisionError("modulo by zero");
             return of(Math.floorMod(value, o.value));
         }
         throw new $X("TypeError", "unsupported operand type(s) for %");
     }
-    
+
+    static BigInteger floorMod(BigInteger a, BigInteger b) {
+        if (b.signum() == 0) throw new $X.ZeroDivisionError("modulo by zero");
+        BigInteger r = a.mod(b.abs());
+        return b.signum() < 0 && r.signum() != 0 ? r.add(b) : r;
+    }
+
     @Override
     public $O __pow__($O other) {
         if (other instanceof $I) {
@@ -269,97 +278,94 @@ public class $I extends $O {
             }
             int exp = (int) o.value;
             if (exp < 0) {
-                return $F.of(Math.pow(isBig() ? big.doubleValue() : value, exp));
+                return $F.of(Math.pow(doubleValue(), exp));
             }
             return of(toBigInteger().pow(exp));
         }
         if (other instanceof $F) {
-            return $F.of(Math.pow(isBig() ? big.doubleValue() : value, (($F)other).value));
+            return $F.of(Math.pow(doubleValue(), (($F)other).value));
         }
         throw new $X("TypeError", "unsupported operand type(s) for **");
     }
-    
+
     @Override
     public $O __neg__() {
-        if (isBig()) {
-            return of(big.negate());
-        }
         if (value == Long.MIN_VALUE) {
-            return of(BigInteger.valueOf(value).negate());
+            return of(toBigInteger().negate());
         }
         return of(-value);
     }
-    
+
     @Override
     public $O __pos__() {
         return this;
     }
-    
+
     @Override
     public $O __invert__() {
-        if (isBig()) {
-            return of(big.not());
-        }
         return of(~value);
     }
-    
+
     @Override
     public $O __and__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
+            if (o.isBig()) {
                 return of(toBigInteger().and(o.toBigInteger()));
             }
             return of(value & o.value);
         }
         throw new $X("TypeError", "unsupported operand type(s) for &");
     }
-    
+
     @Override
     public $O __or__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
+            if (o.isBig()) {
                 return of(toBigInteger().or(o.toBigInteger()));
             }
             return of(value | o.value);
         }
         throw new $X("TypeError", "unsupported operand type(s) for |");
     }
-    
+
     @Override
     public $O __xor__($O other) {
         if (other instanceof $I) {
             $I o = ($I) other;
-            if (isBig() || o.isBig()) {
+            if (o.isBig()) {
                 return of(toBigInteger().xor(o.toBigInteger()));
             }
             return of(value ^ o.value);
         }
         throw new $X("TypeError", "unsupported operand type(s) for ^");
     }
-    
+
     @Override
     public $O __lshift__($O other) {
-        if (other instanceof $I) {
-            $I o = ($I) other;
-            if (o.isBig() || o.value > Integer.MAX_VALUE || o.value < 0) {
-                throw new $X("ValueError", "shift count out of range");
-            }
-            return of(toBigInteger().shiftLeft((int)o.value));
+        int n = shiftCount(other, "<<");
+        // The shift stays in a long when no set bit (or sign bit) falls off
+        if (n < 63 && (value == 0 || Long.numberOfLeadingZeros(value < 0 ? ~value : value) > n)) {
+            return of(value << n);
         }
-        throw new $X("TypeError", "unsupported operand type(s) for <<");
+        return of(toBigInteger().shiftLeft(n));
     }
-    
+
     @Override
     public $O __rshift__($O other) {
+        int n = shiftCount(other, ">>");
+        return of(value >> Math.min(n, 63));
+    }
+
+    static int shiftCount($O other, String op) {
         if (other instanceof $I) {
             $I o = ($I) other;
             if (o.isBig() || o.value > Integer.MAX_VALUE || o.value < 0) {
-                throw new $X("ValueError", "shift count out of range");
+                throw new $X("ValueError", o.signum() < 0 ? "negative shift count" : "shift count out of range");
             }
-            return of(toBigInteger().shiftRight((int)o.value));
+            return (int) o.value;
         }
-        throw new $X("TypeError", "unsupported operand type(s) for >>");
+        throw new $X("TypeError", "unsupported operand type(s) for " + op);
     }
 }
@@ -43,9 +43,9 @@ public final class $Inst extends $O {
             }
         } else {
             // Check dict-based instance attributes
-            $S key = $S.of(name);
-            if (attrs.__contains__(key).__bool__()) {
-                return attrs.__getitem__(key);
+            $O value = attrs.get($S.intern(name));
+            if (value != null) {
+                return value;
             }
         }
         
@@ -103,7 +103,7 @@ public final class $Inst extends $O {
         }
         
         // Normal dict-based attribute assignment
-        attrs.__setitem__($S.of(name), value);
+        attrs.__setitem__($S.intern(name), value);
     }
     
     public void __delattr__(String name) {
@@ -130,7 +130,7 @@ public final class $Inst extends $O {
         }
         
         // Normal dict-based attribute deletion
-        $S key = $S.of(name);
+        $S key = $S.intern(name);
         if (attrs.__contains__(key).__bool__()) {
             attrs.__delitem__(key);
         } else {
@@ -288,6 +288,17 @@ public final class $Inst extends $O {
         throw new $X("TypeError", "'" + type.name + "' object is not callable");
     }
     
+    @Override
+    public $O __call__($O[] args, String[] kwnames) {
+        if (kwnames != null && kwnames.length > 0 && type.hasAttr("__call__")) {
+            $O method = type.getAttr("__call__");
+            if (method instanceof $MH) {
+                return method.__call__(prepend(this, args), kwnames);
+            }
+        }
+        return super.__call__(args, kwnames);
+    }
+    
     // Arithmetic operations - delegate to class methods
     @Override
     public $O __add__($O other) {
@@ -300,6 +311,17 @@ public final class $Inst extends $O {
         return super.__add__(other);
     }
     
+    @Override
+    public $O __iadd__($O other) {
+        if (type.hasAttr("__iadd__")) {
+            $O method = type.getAttr("__iadd__");
+            if (method instanceof $MH) {
+                return method.__call__(this, other);
+            }
+        }
+        return super.__iadd__(other);
+    }
+    
     @Override
     public $O __sub__($O other) {
         if (type.hasAttr("__sub__")) {
@@ -1,19 +1,27 @@
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * $L - PyList, mutable sequence.
+ *
+ * Items are held in a $LS, which stores lists of ints or floats
+ * unboxed; see there for the storage strategies.
  */
 public final class $L extends $O {
     
     public final List<$O> items;
+    private final $LS store;
     
     public $L() {
-        this.items = new ArrayList<>();
+        this.items = this.store = new $LS();
     }
     
     public $L(List<$O> items) {
-        this.items = items;
+        this();
+        this.items.addAll(items);
+    }
+    
+    private $L($LS store) {
+        this.items = this.store = store;
     }
     
     public static $L of($O... items) {
@@ -24,6 +32,22 @@ public final class $L extends $O {
         return list;
     }
     
+    /**
+     * Kernel for sum(list, start).
+     * @return the sum, or null if the items must be added one by one
+     */
+    $O sum($O start) {
+        return store.sum(start);
+    }
+    
+    /**
+     * Kernel for min(list) and max(list).
+     * @return the result, or null if the items must be compared one by one
+     */
+    $O minMax(boolean max) {
+        return store.minMax(max);
+    }
+    
     @Override
     public boolean __bool__() {
         return !items.isEmpty();
@@ -35,7 +59,7 @@ public final class $L extends $O {
         sb.append('[');
         for (int i = 0; i < items.size(); i++) {
             if (i > 0) sb.append(", ");
-            sb.append(items.get(i).__repr__().value);
+            sb.append(items.get(i).__repr__().value());
         }
         sb.append(']');
         return $S.of(sb.toString());
@@ -64,7 +88,7 @@ public final class $L extends $O {
     public $O __getitem__($O key) {
         if (key instanceof $I) {
             $I i = ($I) key;
-            if (i.big != null) throw new $X("IndexError", "list index out of range");
+            if (i.isBig()) throw new $X("IndexError", "list index out of range");
             int idx = (int) i.value;
             if (idx < 0) idx += items.size();
             if (idx < 0 || idx >= items.size()) {
@@ -79,17 +103,7 @@ public final class $L extends $O {
             int stop = (int)(($I)indices.items[1]).value;
             int step = (int)(($I)indices.items[2]).value;
             
-            $L result = new $L();
-            if (step > 0) {
-                for (int i = start; i < stop; i += step) {
-                    result.items.add(items.get(i));
-                }
-            } else {
-                for (int i = start; i > stop; i += step) {
-                    result.items.add(items.get(i));
-                }
-            }
-            return result;
+            return new $L(store.slice(start, stop, step));
         }
         throw new $X("TypeError", "list indices must be integers or slices");
     }
@@ -98,7 +112,7 @@ public final class $L extends $O {
     public void __setitem__($O key, $O value) {
         if (key instanceof $I) {
             $I i = ($I) key;
-            if (i.big != null) throw new $X("IndexError", "list assignment index out of range");
+            if (i.isBig()) throw new $X("IndexError", "list assignment index out of range");
             int idx = (int) i.value;
             if (idx < 0) idx += items.size();
             if (idx < 0 || idx >= items.size()) {
@@ -167,7 +181,7 @@ public final class $L extends $O {
     public void __delitem__($O key) {
         if (key instanceof $I) {
             $I i = ($I) key;
-            if (i.big != null) throw new $X("IndexError", "list index out of range");
+            if (i.isBig()) throw new $X("IndexError", "list index out of range");
             int idx = (int) i.value;
             if (idx < 0) idx += items.size();
             if (idx < 0 || idx >= items.size()) {
@@ -202,6 +216,10 @@ public final class $L extends $O {
     
     @Override
     public $B __contains__($O item) {
+        $B found = store.containsNumber(item);
+        if (found != null) {
+            return found;
+        }
         for ($O x : items) {
             $O eq = x.__eq__(item);
             if (eq instanceof $B && (($B)eq).boolValue) {
@@ -226,7 +244,7 @@ public final class $L extends $O {
     public $O __mul__($O other) {
         if (other instanceof $I) {
             $I i = ($I) other;
-            if (i.big != null) throw new $X("OverflowError", "repeated list is too long");
+            if (i.isBig()) throw new $X("OverflowError", "repeated list is too long");
             int n = (int) i.value;
             $L result = new $L();
             for (int j = 0; j < n; j++) {
@@ -363,11 +381,60 @@ public final class $L extends $O {
     }
     
     public void reverse() {
-        java.util.Collections.reverse(items);
+        store.reverse();
     }
     
     public $L copy() {
-        return $L.of(items.toArray(new $O[0]));
+        $L result = new $L();
+        result.items.addAll(items);
+        return result;
+    }
+    
+    public void sort() {
+        sort(null, false);
+    }
+    
+    /**
+     * list.sort(*, key=None, reverse=False)
+     */
+    public void sort($O[] args, String[] kwnames) {
+        int nkw = kwnames != null ? kwnames.length : 0;
+        if (args.length != nkw) {
+            throw new $X("TypeError", "sort() takes no positional arguments");
+        }
+        $O key = null;
+        boolean reverse = false;
+        for (int i = 0; i < nkw; i++) {
+            if ("key".equals(kwnames[i])) {
+                key = args[i] == $N.INSTANCE ? null : args[i];
+            } else if ("reverse".equals(kwnames[i])) {
+                reverse = args[i].__bool__();
+            } else {
+                throw new $X("TypeError", "'" + kwnames[i] + "' is an invalid keyword argument for sort()");
+            }
+        }
+        sort(key, reverse);
+    }
+    
+    void sort($O key, boolean reverse) {
+        if (key == null && store.sort(reverse)) {
+            return;
+        }
+        // As in CPython the list is empty while the key function and
+        // comparisons run, so changes they make can be detected
+        $O[] array = items.toArray(new $O[0]);
+        items.clear();
+        boolean modified;
+        try {
+            $Sort.sort(array, key, reverse);
+        } finally {
+            modified = !items.isEmpty();
+            items.clear();
+            items.addAll(java.util.Arrays.asList(array));
+        }
+        if (modified) {
+            throw new $X("ValueError", "list modified during sort");
+        }
     }
 }
 
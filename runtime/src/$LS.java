@@ -0,0 +1,460 @@
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * $LS - List storage with PyPy-style strategies.
+ *
+ * Backs $L.items. A list holding only ints from 0 to 255 keeps them in
+ * a byte[], other ints that fit in a long go in a long[], and floats go
+ * in a double[]. The first store of a value the current storage cannot
+ * hold widens it (bytes to longs) or switches the list to boxed $O[]
+ * storage, where it stays until cleared. Reads box on demand, so code
+ * using the List interface sees ordinary $O values; $L uses the raw
+ * arrays for its kernels.
+ */
+final class $LS extends AbstractList<$O> implements RandomAccess {
+
+    static final int EMPTY = 0;
+    static final int BYTE = 1;
+    static final int INT = 2;
+    static final int FLOAT = 3;
+    static final int OBJECT = 4;
+
+    private static final int MIN_CAPACITY = 8;
+
+    int strategy = EMPTY;
+    int size;
+    byte[] bytes;       // BYTE: unsigned values
+    long[] longs;       // INT
+    double[] doubles;   // FLOAT
+    $O[] objects;       // OBJECT
+
+    /**
+     * The narrowest strategy that can hold the value.
+     */
+    static int strategyOf($O v) {
+        if (v != null && v.getClass() == $I.class) {
+            // Exactly $I, so neither a bool nor a $BI
+            $I i = ($I) v;
+            return i.value >= 0 && i.value < 256 ? BYTE : INT;
+        }
+        return v instanceof $F ? FLOAT : OBJECT;
+    }
+
+    private static int join(int a, int b) {
+        if (a == b || b == EMPTY) return a;
+        if (a == EMPTY) return b;
+        if ((a == BYTE || a == INT) && (b == BYTE || b == INT)) return INT;
+        return OBJECT;
+    }
+
+    // Storage management
+
+    private int capacity() {
+        switch (strategy) {
+            case BYTE: return bytes.length;
+            case INT: return longs.length;
+            case FLOAT: return doubles.length;
+            case OBJECT: return objects.length;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Convert the storage to the given strategy with room for at least
+     * the given number of items.
+     */
+    private void convert(int to, int capacity) {
+        capacity = Math.max(capacity, MIN_CAPACITY);
+        switch (to) {
+            case BYTE: {
+                byte[] b = new byte[capacity];
+                if (strategy == BYTE) System.arraycopy(bytes, 0, b, 0, size);
+                bytes = b;
+                break;
+            }
+            case INT: {
+                long[] l = new long[capacity];
+                if (strategy == INT) {
+                    System.arraycopy(longs, 0, l, 0, size);
+                } else if (strategy == BYTE) {
+                    for (int i = 0; i < size; i++) l[i] = bytes[i] & 0xFF;
+                }
+                longs = l;
+                break;
+            }
+            case FLOAT: {
+                double[] d = new double[capacity];
+                if (strategy == FLOAT) System.arraycopy(doubles, 0, d, 0, size);
+                doubles = d;
+                break;
+            }
+            default: {
+                $O[] o = new $O[capacity];
+                if (strategy == OBJECT) {
+                    System.arraycopy(objects, 0, o, 0, size);
+                } else {
+                    for (int i = 0; i < size; i++) o[i] = get(i);
+                }
+                objects = o;
+                break;
+            }
+        }
+        if (to != BYTE) bytes = null;
+        if (to != INT) longs = null;
+        if (to != FLOAT) doubles = null;
+        if (to != OBJECT) objects = null;
+        strategy = to;
+    }
+
+    /**
+     * Make room for n more items of strategy s.
+     */
+    private void reserve(int n, int s) {
+        int to = join(strategy, s);
+        int needed = size + n;
+        if (to != strategy) {
+            convert(to, Math.max(needed, size + (size >> 1)));
+        } else if (needed > capacity()) {
+            convert(to, Math.max(needed, size + (size >> 1)));
+        }
+    }
+
+    private void store(int i, $O v) {
+        switch (strategy) {
+            case BYTE: bytes[i] = (byte) (($I) v).value; break;
+            case INT: longs[i] = (($I) v).value; break;
+            case FLOAT: doubles[i] = (($F) v).value; break;
+            default: objects[i] = v; break;
+        }
+    }
+
+    private void shift(int from, int to, int n) {
+        switch (strategy) {
+            case BYTE: System.arraycopy(bytes, from, bytes, to, n); break;
+            case INT: System.arraycopy(longs, from, longs, to, n); break;
+            case FLOAT: System.arraycopy(doubles, from, doubles, to, n); break;
+            default: System.arraycopy(objects, from, objects, to, n); break;
+        }
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+    }
+
+    // List interface
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public $O get(int i) {
+        checkIndex(i);
+        switch (strategy) {
+            case BYTE: return $I.of(bytes[i] & 0xFF);
+            case INT: return $I.of(longs[i]);
+            case FLOAT: return $F.of(doubles[i]);
+            default: return objects[i];
+        }
+    }
+
+    @Override
+    public $O set(int i, $O v) {
+        $O old = get(i);
+        int s = strategyOf(v);
+        if (join(strategy, s) != strategy) {
+            convert(join(strategy, s), capacity());
+        }
+        store(i, v);
+        return old;
+    }
+
+    @Override
+    public boolean add($O v) {
+        reserve(1, strategyOf(v));
+        store(size++, v);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int i, $O v) {
+        if (i < 0 || i > size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        reserve(1, strategyOf(v));
+        shift(i, i + 1, size - i);
+        store(i, v);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public $O remove(int i) {
+        $O old = get(i);
+        shift(i + 1, i, size - i - 1);
+        size--;
+        if (strategy == OBJECT) objects[size] = null;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    protected void removeRange(int from, int to) {
+        shift(to, from, size - to);
+        int newSize = size - (to - from);
+        if (strategy == OBJECT) Arrays.fill(objects, newSize, size, null);
+        size = newSize;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        strategy = EMPTY;
+        size = 0;
+        bytes = null;
+        longs = null;
+        doubles = null;
+        objects = null;
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends $O> c) {
+        if (!(c instanceof $LS)) {
+            return super.addAll(c);
+        }
+        $LS o = ($LS) c;
+        int n = o.size;
+        if (n == 0) return false;
+        reserve(n, o.strategy);
+        if (strategy == o.strategy) {
+            switch (strategy) {
+                case BYTE: System.arraycopy(o.bytes, 0, bytes, size, n); break;
+                case INT: System.arraycopy(o.longs, 0, longs, size, n); break;
+                case FLOAT: System.arraycopy(o.doubles, 0, doubles, size, n); break;
+                default: System.arraycopy(o.objects, 0, objects, size, n); break;
+            }
+        } else if (strategy == INT && o.strategy == BYTE) {
+            for (int i = 0; i < n; i++) longs[size + i] = o.bytes[i] & 0xFF;
+        } else {
+            for (int i = 0; i < n; i++) objects[size + i] = o.get(i);
+        }
+        size += n;
+        modCount++;
+        return true;
+    }
+
+    // Kernels
+
+    /**
+     * Items start, start + step, ... before stop, with the same storage.
+     */
+    $LS slice(int start, int stop, int step) {
+        int n = 0;
+        if (step > 0 && start < stop) {
+            n = (stop - start - 1) / step + 1;
+        } else if (step < 0 && start > stop) {
+            n = (start - stop - 1) / -step + 1;
+        }
+        $LS result = new $LS();
+        if (n == 0) return result;
+        result.convert(strategy, n);
+        if (step == 1) {
+            switch (strategy) {
+                case BYTE: System.arraycopy(bytes, start, result.bytes, 0, n); break;
+                case INT: System.arraycopy(longs, start, result.longs, 0, n); break;
+                case FLOAT: System.arraycopy(doubles, start, result.doubles, 0, n); break;
+                default: System.arraycopy(objects, start, result.objects, 0, n); break;
+            }
+        } else {
+            for (int i = 0, j = start; i < n; i++, j += step) {
+                switch (strategy) {
+                    case BYTE: result.bytes[i] = bytes[j]; break;
+                    case INT: result.longs[i] = longs[j]; break;
+                    case FLOAT: result.doubles[i] = doubles[j]; break;
+                    default: result.objects[i] = objects[j]; break;
+                }
+            }
+        }
+        result.size = n;
+        return result;
+    }
+
+    /**
+     * Membership test for a number against unboxed storage, using the
+     * same comparisons as $I.__eq__ and $F.__eq__.
+     * @return TRUE or FALSE, or null if the generic loop must decide
+     */
+    $B containsNumber($O item) {
+        if (strategy == OBJECT || strategy == EMPTY) return null;
+        if (!(item instanceof $I || item instanceof $F)) return null;
+        if (item instanceof $I && (($I) item).isBig()) return null;
+        boolean isFloat = item instanceof $F;
+        long x = isFloat ? 0 : (($I) item).value;
+        double d = isFloat ? (($F) item).value : x;
+        switch (strategy) {
+            case BYTE:
+                if (isFloat) {
+                    for (int i = 0; i < size; i++) if ((bytes[i] & 0xFF) == d) return $B.TRUE;
+                } else if (x >= 0 && x < 256) {
+                    for (int i = 0; i < size; i++) if ((bytes[i] & 0xFF) == x) return $B.TRUE;
+                }
+                return $B.FALSE;
+            case INT:
+                if (isFloat) {
+                    for (int i = 0; i < size; i++) if ((double) longs[i] == d) return $B.TRUE;
+                } else {
+                    for (int i = 0; i < size; i++) if (longs[i] == x) return $B.TRUE;
+                }
+                return $B.FALSE;
+            default:
+                for (int i = 0; i < size; i++) if (doubles[i] == d) return $B.TRUE;
+                return $B.FALSE;
+        }
+    }
+
+    /**
+     * sum() of the items plus start, for unboxed storage.
+     * @return the sum, or null if the generic loop must compute it
+     */
+    $O sum($O start) {
+        if (start.getClass() != $I.class && !(start instanceof $F)) return null;
+        switch (strategy) {
+            case BYTE: case INT: {
+                if (start instanceof $F) return null;
+                long total = (($I) start).value;
+                for (int i = 0; i < size; i++) {
+                    long v = strategy == BYTE ? bytes[i] & 0xFF : longs[i];
+                    long t = total + v;
+                    if (((total ^ t) & (v ^ t)) < 0) {
+                        // Overflow: finish with arbitrary precision
+                        BigInteger big = BigInteger.valueOf(total);
+                        for (; i < size; i++) {
+                            big = big.add(BigInteger.valueOf(strategy == BYTE ? bytes[i] & 0xFF : longs[i]));
+                        }
+                        return $I.of(big);
+                    }
+                    total = t;
+                }
+                return $I.of(total);
+            }
+            case FLOAT: {
+                double total = start instanceof $F ? (($F) start).value : (($I) start).value;
+                for (int i = 0; i < size; i++) {
+                    total += doubles[i];
+                }
+                return $F.of(total);
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * min() or max() of a non-empty list with unboxed storage.
+     * @return the result, or null if the generic loop must compute it
+     */
+    $O minMax(boolean max) {
+        if (size == 0) return null;
+        switch (strategy) {
+            case BYTE: {
+                int best = bytes[0] & 0xFF;
+                for (int i = 1; i < size; i++) {
+                    int v = bytes[i] & 0xFF;
+                    if (max ? v > best : v < best) best = v;
+                }
+                return $I.of(best);
+            }
+            case INT: {
+                long best = longs[0];
+                for (int i = 1; i < size; i++) {
+                    long v = longs[i];
+                    if (max ? v > best : v < best) best = v;
+                }
+                return $I.of(best);
+            }
+            case FLOAT: {
+                double best = doubles[0];
+                for (int i = 1; i < size; i++) {
+                    double v = doubles[i];
+                    if (max ? v > best : v < best) best = v;
+                }
+                return $F.of(best);
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Sort unboxed storage in place without a key function.
+     * @return false if the generic sort must be used
+     */
+    boolean sort(boolean reverse) {
+        switch (strategy) {
+            case BYTE: {
+                // Counting sort
+                int[] counts = new int[256];
+                for (int i = 0; i < size; i++) counts[bytes[i] & 0xFF]++;
+                int k = 0;
+                for (int v = 0; v < 256; v++) {
+                    for (int c = counts[v]; c > 0; c--) bytes[k++] = (byte) v;
+                }
+                break;
+            }
+            case INT:
+                Arrays.sort(longs, 0, size);
+                break;
+            case FLOAT:
+                // Arrays.sort orders -0.0 before 0.0 and NaN last, where
+                // a stable sort on < leaves them as they were
+                for (int i = 0; i < size; i++) {
+                    double d = doubles[i];
+                    if (d != d || (d == 0.0 && Double.doubleToRawLongBits(d) != 0)) {
+                        return false;
+                    }
+                }
+                Arrays.sort(doubles, 0, size);
+                break;
+            default:
+                return false;
+        }
+        if (reverse) {
+            reverse();
+        }
+        return true;
+    }
+
+    void reverse() {
+        switch (strategy) {
+            case BYTE:
+                for (int lo = 0, hi = size - 1; lo < hi; lo++, hi--) {
+                    byte t = bytes[lo]; bytes[lo] = bytes[hi]; bytes[hi] = t;
+                }
+                break;
+            case INT:
+                for (int lo = 0, hi = size - 1; lo < hi; lo++, hi--) {
+                    long t = longs[lo]; longs[lo] = longs[hi]; longs[hi] = t;
+                }
+                break;
+            case FLOAT:
+                for (int lo = 0, hi = size - 1; lo < hi; lo++, hi--) {
+                    double t = doubles[lo]; doubles[lo] = doubles[hi]; doubles[hi] = t;
+                }
+                break;
+            case OBJECT:
+                for (int lo = 0, hi = size - 1; lo < hi; lo++, hi--) {
+                    $O t = objects[lo]; objects[lo] = objects[hi]; objects[hi] = t;
+                }
+                break;
+        }
+    }
+}
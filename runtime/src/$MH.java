@@ -1,5 +1,9 @@
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * $MH - Wrapper for MethodHandle to make it a Python object.
@@ -7,18 +11,35 @@ import java.lang.invoke.MethodHandles;
  * This allows compiled Python functions (which are static methods
  * accessed via MethodHandle) to be treated as first-class Python objects.
  * 
- * For closures, the closure array is bound as the first argument.
+ * For closures, the closure array is bound as the first argument, or
+ * for closures the compiler proves never see a rebinding, the captured
+ * values themselves.
+ * 
+ * Functions compiled from a def or lambda also carry a signature
+ * ({@link Sig}) describing their parameter slots, and the values of
+ * their defaults, evaluated once when the def or lambda ran. Calls that
+ * match the slots exactly are invoked directly; calls with keyword
+ * arguments, missing defaulted arguments, *args or **kwargs are first
+ * bound onto the slots through a permutation computed once per call site.
  */
 public final class $MH extends $O {
     
     public final MethodHandle handle;
     public final String name;
     public final $O[] closure;  // Captured variables (null if no closure)
+    public final Sig sig;       // Parameter signature (null if unknown)
+    private final $O[] defaults; // Default value per slot (null if none)
     
     private $MH(MethodHandle handle, String name, $O[] closure) {
+        this(handle, name, closure, null, null);
+    }
+    
+    private $MH(MethodHandle handle, String name, $O[] closure, Sig sig, $O[] defaults) {
         this.handle = handle;
         this.name = name;
         this.closure = closure;
+        this.sig = sig;
+        this.defaults = defaults != null ? sig.spread(defaults) : null;
     }
     
     public $MH(MethodHandle handle) {
@@ -44,6 +65,50 @@ public final class $MH extends $O {
         return new $MH(handle, "<closure>", closure);
     }
     
+    /**
+     * Factory method for compiled functions with a known signature.
+     * The spec is a compiler constant, e.g. "a,b=,*args,c,d=,**kw".
+     */
+    public static $MH of(MethodHandle handle, String name, String spec) {
+        return of(handle, name, spec, null);
+    }
+    
+    /**
+     * Factory method for compiled functions with default values, given
+     * in slot order.
+     */
+    public static $MH of(MethodHandle handle, String name, String spec, $O[] defaults) {
+        return new $MH(handle, name, null, Sig.of(spec), defaults);
+    }
+    
+    /**
+     * Factory method for compiled closures with a known signature.
+     */
+    public static $MH withClosure(MethodHandle handle, $O[] closure, String name, String spec) {
+        return withClosure(handle, closure, name, spec, null);
+    }
+    
+    public static $MH withClosure(MethodHandle handle, $O[] closure, String name, String spec,
+                                  $O[] defaults) {
+        return new $MH(handle, name, closure, Sig.of(spec), defaults);
+    }
+    
+    /**
+     * Factory method for compiled closures whose captured variables are
+     * never rebound after capture. The values are bound as the leading
+     * arguments of the handle, so the function reads them as parameters
+     * rather than through a closure array.
+     */
+    public static $MH bound(MethodHandle handle, $O[] values, String name, String spec) {
+        return bound(handle, values, name, spec, null);
+    }
+    
+    public static $MH bound(MethodHandle handle, $O[] values, String name, String spec,
+                            $O[] defaults) {
+        return new $MH(MethodHandles.insertArguments(handle, 0, (Object[]) values),
+                       name, null, Sig.of(spec), defaults);
+    }
+    
     @Override
     public $S __repr__() {
         return $S.of("<function " + name + ">");
@@ -51,6 +116,28 @@ public final class $MH extends $O {
     
     @Override
     public $O __call__($O... args) {
+        if (sig != null && !sig.accepts(args.length)) {
+            return invoke(sig.bind(name, args, null, defaults));
+        }
+        return invoke(args);
+    }
+    
+    /**
+     * Call with keyword arguments. The last kwnames.length entries of
+     * args are the keyword values, in the order given by kwnames.
+     */
+    @Override
+    public $O __call__($O[] args, String[] kwnames) {
+        if (kwnames == null || kwnames.length == 0) {
+            return __call__(args);
+        }
+        if (sig == null) {
+            throw new $X("TypeError", name + "() takes no keyword arguments");
+        }
+        return invoke(sig.bind(name, args, kwnames, defaults));
+    }
+    
+    private $O invoke($O[] args) {
         try {
             if (closure != null) {
                 // Prepend closure array to arguments
@@ -121,4 +208,227 @@ public final class $MH extends $O {
             return ($O) handle.invokeWithArguments(objArgs);
         }
     }
+    
+    /**
+     * Parameter signature of a compiled function.
+     * 
+     * Slots are numbered in the order of the JVM method parameters
+     * (excluding the closure array): positional parameters, *args,
+     * keyword-only parameters, **kwargs. The signature is shared by
+     * every function with the same spec; their default values are kept
+     * by each $MH and filled in by {@link #bind}.
+     */
+    public static final class Sig {
+        
+        private static final ConcurrentHashMap<String, Sig> CACHE = new ConcurrentHashMap<>();
+        
+        final String[] names;       // Parameter name per slot
+        final boolean[] hasDefault; // Whether each slot has a default
+        final int arity;            // Number of slots
+        final int positional;       // Slots fillable by position
+        final int posOnly;          // Leading slots not nameable by keyword
+        final int varSlot;          // *args slot, or -1
+        final int kwSlot;           // **kwargs slot, or -1
+        
+        /** Keyword-name descriptor (per call site) -> slot for each keyword. */
+        private final ConcurrentHashMap<String[], int[]> perms = new ConcurrentHashMap<>();
+        
+        private Sig(String spec) {
+            String[] parts = spec.isEmpty() ? new String[0] : spec.split(",");
+            String[] n = new String[parts.length];
+            boolean[] d = new boolean[parts.length];
+            int slot = 0, pos = -1, po = 0, vs = -1, ks = -1;
+            for (String part : parts) {
+                if (part.equals("/")) {
+                    po = slot;
+                    continue;
+                }
+                if (part.equals("*")) {
+                    pos = slot;
+                    continue;
+                }
+                if (part.startsWith("**")) {
+                    ks = slot;
+                    part = part.substring(2);
+                } else if (part.startsWith("*")) {
+                    if (pos < 0) pos = slot;
+                    vs = slot;
+                    part = part.substring(1);
+                }
+                if (part.endsWith("=")) {
+                    d[slot] = true;
+                    part = part.substring(0, part.length() - 1);
+                }
+                n[slot++] = part;
+            }
+            this.names = Arrays.copyOf(n, slot);
+            this.hasDefault = Arrays.copyOf(d, slot);
+            this.arity = slot;
+            this.positional = pos >= 0 ? pos : (ks >= 0 ? ks : slot);
+            this.posOnly = po;
+            this.varSlot = vs;
+            this.kwSlot = ks;
+        }
+        
+        static Sig of(String spec) {
+            return CACHE.computeIfAbsent(spec, Sig::new);
+        }
+        
+        /**
+         * Whether a purely positional call with argc arguments can be
+         * passed to the method handle unchanged.
+         */
+        boolean accepts(int argc) {
+            // Only when every slot is a positional parameter
+            return argc == arity && positional == arity;
+        }
+        
+        /**
+         * Default values given in slot order spread over all the slots,
+         * null for those without a default.
+         */
+        $O[] spread($O[] values) {
+            $O[] slots = new $O[arity];
+            int next = 0;
+            for (int i = 0; i < arity && next < values.length; i++) {
+                if (hasDefault[i]) slots[i] = values[next++];
+            }
+            return slots;
+        }
+        
+        /**
+         * Map actual arguments onto parameter slots, filling those left
+         * unsupplied from defaults (per slot, may be null).
+         */
+        $O[] bind(String fname, $O[] args, String[] kwnames, $O[] defaults) {
+            int nkw = kwnames != null ? kwnames.length : 0;
+            int npos = args.length - nkw;
+            $O[] slots = new $O[arity];
+            
+            System.arraycopy(args, 0, slots, 0, Math.min(npos, positional));
+            
+            $D extra = null;
+            if (nkw > 0) {
+                int[] perm = permutation(fname, kwnames);
+                for (int i = 0; i < nkw; i++) {
+                    $O value = args[npos + i];
+                    int slot = perm[i];
+                    if (slot < 0) {
+                        if (extra == null) extra = new $D();
+                        extra.__setitem__($S.of(kwnames[i]), value);
+                    } else if (slots[slot] != null) {
+                        throw new $X("TypeError", fname + "() got multiple values for argument '" +
+                                     kwnames[i] + "'");
+                    } else {
+                        slots[slot] = value;
+                    }
+                }
+            }
+            if (kwSlot >= 0) {
+                slots[kwSlot] = extra != null ? extra : new $D();
+            }
+            
+            if (npos > positional) {
+                if (varSlot < 0) {
+                    throw tooManyPositional(fname, npos, slots);
+                }
+                slots[varSlot] = $T.wrap(Arrays.copyOfRange(args, positional, npos));
+            } else if (varSlot >= 0) {
+                slots[varSlot] = $T.EMPTY;
+            }
+            
+            if (defaults != null) {
+                for (int i = 0; i < arity; i++) {
+                    if (slots[i] == null) slots[i] = defaults[i];
+                }
+            }
+            
+            checkMissing(fname, slots, 0, positional, "positional");
+            checkMissing(fname, slots, positional, arity, "keyword-only");
+            return slots;
+        }
+        
+        private boolean isParameter(int slot) {
+            return slot != varSlot && slot != kwSlot;
+        }
+        
+        /**
+         * TypeError for a call passing npos positional arguments to a
+         * function without *args, worded as CPython words it.
+         */
+        private $X tooManyPositional(String fname, int npos, $O[] slots) {
+            int defaulted = 0;
+            for (int i = 0; i < positional; i++) {
+                if (hasDefault[i]) defaulted++;
+            }
+            int kwonlyGiven = 0;
+            for (int i = positional; i < arity; i++) {
+                if (isParameter(i) && slots[i] != null) kwonlyGiven++;
+            }
+            String takes = defaulted > 0
+                ? "from " + (positional - defaulted) + " to " + positional + " positional arguments"
+                : positional + " positional argument" + (positional != 1 ? "s" : "");
+            String given = kwonlyGiven > 0
+                ? npos + " positional argument" + (npos != 1 ? "s" : "") + " (and " + kwonlyGiven
+                  + " keyword-only argument" + (kwonlyGiven != 1 ? "s" : "") + ") were"
+                : npos + (npos == 1 ? " was" : " were");
+            return new $X("TypeError", fname + "() takes " + takes + " but " + given + " given");
+        }
+        
+        /**
+         * Raise CPython's TypeError naming every required parameter in
+         * slots [from, to) that the call left unfilled.
+         */
+        private void checkMissing(String fname, $O[] slots, int from, int to, String kind) {
+            List<String> missing = null;
+            for (int i = from; i < to; i++) {
+                if (isParameter(i) && slots[i] == null && !hasDefault[i]) {
+                    if (missing == null) missing = new ArrayList<>();
+                    missing.add("'" + names[i] + "'");
+                }
+            }
+            if (missing == null) return;
+            int n = missing.size();
+            String list;
+            if (n == 1) {
+                list = missing.get(0);
+            } else if (n == 2) {
+                list = missing.get(0) + " and " + missing.get(1);
+            } else {
+                list = String.join(", ", missing.subList(0, n - 1)) + ", and " + missing.get(n - 1);
+            }
+            throw new $X("TypeError", fname + "() missing " + n + " required " + kind + " argument"
+                         + (n != 1 ? "s" : "") + ": " + list);
+        }
+        
+        /**
+         * Get the slot for each keyword name, -1 meaning **kwargs.
+         * Computed once per keyword-name descriptor.
+         */
+        private int[] permutation(String fname, String[] kwnames) {
+            int[] perm = perms.get(kwnames);
+            if (perm != null) {
+                return perm;
+            }
+            perm = new int[kwnames.length];
+            for (int i = 0; i < kwnames.length; i++) {
+                perm[i] = slotOf(kwnames[i]);
+                if (perm[i] < 0 && kwSlot < 0) {
+                    throw new $X("TypeError", fname + "() got an unexpected keyword argument '" +
+                                 kwnames[i] + "'");
+                }
+            }
+            perms.put(kwnames, perm);
+            return perm;
+        }
+        
+        private int slotOf(String kwname) {
+            for (int i = posOnly; i < arity; i++) {
+                if (i != varSlot && i != kwSlot && names[i].equals(kwname)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
 }
@@ -1,210 +1,697 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
 /**
  * $MV - memoryview object.
- * 
- * Provides a view into a bytes-like object without copying.
- * Supports slicing and indexing.
+ *
+ * A view of the memory of a buffer exporter (bytes, bytearray,
+ * BytesIO.getbuffer(), mmap, or another memoryview) without copying. The
+ * view is an offset into the exporter's array, or into a ByteBuffer for
+ * memory outside the heap, plus struct-module style metadata: an item
+ * format, a shape and per-dimension strides in bytes.
+ * Slicing, including with a step, only makes a new view of the same
+ * array; cast() reinterprets a contiguous view with another format or
+ * shape. A view of a writable exporter is writable.
+ *
+ * A view held in a with block is an export of a resizable object
+ * (bytearray, BytesIO): until the block is left the object refuses to
+ * change size, as in CPython. There is no reference counting here to tell
+ * a dropped view from a held one, so other views, and slices and casts of
+ * any view, do not hold the object; once it changes size they are stale,
+ * and using one raises BufferError instead of reading memory the object
+ * no longer uses.
  */
 public final class $MV extends $O {
-    
-    private final byte[] buffer;
-    private final int offset;
-    private final int length;
+
+    /**
+     * An exporter that cannot change size while views of it are held.
+     */
+    interface Resizable {
+        /** Count one more (1) or one fewer (-1) view held in a with block. */
+        void exports(int delta);
+
+        /** How many times the object has changed size. */
+        int resizes();
+    }
+
+    private static final VarHandle SHORTS =
+        MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS =
+        MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONGS =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final BigInteger TWO_64 = BigInteger.ONE.shiftLeft(64);
+
+    /** The backing array, or null when memory holds the bytes. */
+    final byte[] buffer;
+    /** Off-heap backing in native byte order, or null. */
+    private final ByteBuffer memory;
+    final int offset;
+    /** Size of the view in bytes. */
+    final int length;
     private final boolean readonly;
-    
+    private final char format;
+    private final int itemsize;
+    private final int[] shape;
+    private final int[] strides;
+    private final $O obj;
+    // obj.resizes() when the view was made; the memory is stale after
+    private final int resizes;
+    private boolean released;
+    // Whether this view counts as an export of obj until released
+    private boolean exported;
+
     /**
      * Create a memoryview wrapping bytes.
      */
     public $MV($BY bytes) {
-        this.buffer = bytes.data;
-        this.offset = 0;
-        this.length = bytes.data.length;
-        this.readonly = true;  // bytes are immutable
+        this(bytes.data, 0, bytes.data.length, true, bytes);
+    }
+
+    /**
+     * Create a writable memoryview of a bytearray.
+     */
+    public $MV($BA array) {
+        this(array.buf, array.start, array.length, false, array);
     }
     
     /**
-     * Create a memoryview slice.
+     * Create a memoryview of another view's memory.
+     */
+    public $MV($MV view) {
+        this(view.buffer, view.memory, view.offset, view.readonly, view.format, view.shape, view.strides, view.obj);
+        view.checkReleased();
+    }
+
+    /**
+     * Create a contiguous unsigned byte view of buffer[offset, offset + length).
+     */
+    $MV(byte[] buffer, int offset, int length, boolean readonly) {
+        this(buffer, offset, length, readonly, null);
+    }
+
+    $MV(byte[] buffer, int offset, int length, boolean readonly, $O obj) {
+        this(buffer, null, offset, readonly, 'B', new int[] { length }, new int[] { 1 }, obj);
+    }
+
+    /**
+     * Create a contiguous unsigned byte view of all of memory.
      */
-    private $MV(byte[] buffer, int offset, int length, boolean readonly) {
+    $MV(ByteBuffer memory, boolean readonly, $O obj) {
+        this(null, memory.duplicate().order(ByteOrder.nativeOrder()), 0, readonly, 'B',
+             new int[] { memory.capacity() }, new int[] { 1 }, obj);
+    }
+
+    private $MV(byte[] buffer, ByteBuffer memory, int offset, boolean readonly, char format,
+                int[] shape, int[] strides, $O obj) {
         this.buffer = buffer;
+        this.memory = memory;
         this.offset = offset;
-        this.length = length;
         this.readonly = readonly;
+        this.format = format;
+        this.itemsize = itemsize(format);
+        this.shape = shape;
+        this.strides = strides;
+        this.obj = obj;
+        this.resizes = obj instanceof Resizable ? ((Resizable) obj).resizes() : 0;
+        int n = itemsize;
+        for (int dim : shape) n *= dim;
+        this.length = n;
     }
-    
+
+    /**
+     * memoryview(object) for any buffer exporter.
+     */
+    public static $MV of($O object) {
+        if (object instanceof $MV) return new $MV(($MV) object);
+        if (object instanceof $BA) return new $MV(($BA) object);
+        if (object instanceof $BY) return new $MV(($BY) object);
+        if (object instanceof _mmap.mmap) return ((_mmap.mmap) object).view();
+        throw new $X("TypeError", "memoryview: a bytes-like object is required, not '"
+            + typeName(object) + "'");
+    }
+
+    /**
+     * A view of a bytes-like object, or null if it is not one. Views are
+     * returned as is.
+     */
+    static $MV bytesLike($O object) {
+        if (object instanceof $MV) return ($MV) object;
+        if (object instanceof $BY) return new $MV(($BY) object);
+        if (object instanceof $BA) {
+            $BA array = ($BA) object;
+            return new $MV(array.buf, array.start, array.length, false, array);
+        }
+        if (object instanceof _mmap.mmap) return ((_mmap.mmap) object).view();
+        return null;
+    }
+
+    /**
+     * The contiguous bytes of a write() or send() argument in an array,
+     * copied only from off-heap memory. str is encoded as UTF-8.
+     */
+    static $MV written($O data) {
+        if (data instanceof $S) {
+            byte[] bytes = (($S) data).value().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            return new $MV(bytes, 0, bytes.length, true);
+        }
+        $MV view = bytesLike(data);
+        if (view == null) {
+            throw new $X.TypeError("a bytes-like object is required, not '" + typeName(data) + "'");
+        }
+        view.checkReleased();
+        if (!view.isContiguous()) {
+            throw new $X.BufferError("memoryview: underlying buffer is not C-contiguous");
+        }
+        return view.memory != null ? view.contiguous() : view;
+    }
+
+    static String typeName($O object) {
+        if (object == null || object == $N.INSTANCE) return "NoneType";
+        if (object instanceof $S) return "str";
+        if (object instanceof $B) return "bool";
+        if (object instanceof $I) return "int";
+        if (object instanceof $F) return "float";
+        if (object instanceof $L) return "list";
+        if (object instanceof $T) return "tuple";
+        if (object instanceof $BY) return "bytes";
+        if (object instanceof $BA) return "bytearray";
+        if (object instanceof $MV) return "memoryview";
+        return object.getClass().getSimpleName();
+    }
+
+    // Item formats
+
+    private static int itemsize(char format) {
+        switch (format) {
+            case 'B': case 'b': case 'c': case '?': return 1;
+            case 'h': case 'H': return 2;
+            case 'i': case 'I': case 'f': return 4;
+            case 'l': case 'L': case 'q': case 'Q': case 'n': case 'N': case 'd': return 8;
+            default:
+                throw new $X("ValueError", "memoryview: destination format must be a native single character format prefixed with an optional '@'");
+        }
+    }
+
+    private static char parseFormat($O format) {
+        if (!(format instanceof $S)) throw new $X("TypeError", "memoryview: format argument must be a string");
+        String f = (($S) format).value();
+        if (f.startsWith("@")) f = f.substring(1);
+        if (f.length() != 1) itemsize('\0');
+        itemsize(f.charAt(0));
+        return f.charAt(0);
+    }
+
+    private static boolean isByteFormat(char format) {
+        return format == 'B' || format == 'b' || format == 'c';
+    }
+
+    /**
+     * The item at pos as raw bits, sign-extended from itemsize bytes.
+     */
+    private long bits(int pos) {
+        if (memory != null) {
+            switch (itemsize) {
+                case 1: return memory.get(pos);
+                case 2: return memory.getShort(pos);
+                case 4: return memory.getInt(pos);
+                default: return memory.getLong(pos);
+            }
+        }
+        switch (itemsize) {
+            case 1: return buffer[pos];
+            case 2: return (short) SHORTS.get(buffer, pos);
+            case 4: return (int) INTS.get(buffer, pos);
+            default: return (long) LONGS.get(buffer, pos);
+        }
+    }
+
+    private void setBits(int pos, long v) {
+        if (memory != null) {
+            switch (itemsize) {
+                case 1: memory.put(pos, (byte) v); break;
+                case 2: memory.putShort(pos, (short) v); break;
+                case 4: memory.putInt(pos, (int) v); break;
+                default: memory.putLong(pos, v); break;
+            }
+            return;
+        }
+        switch (itemsize) {
+            case 1: buffer[pos] = (byte) v; break;
+            case 2: SHORTS.set(buffer, pos, (short) v); break;
+            case 4: INTS.set(buffer, pos, (int) v); break;
+            default: LONGS.set(buffer, pos, v); break;
+        }
+    }
+
+    private $O unpack(int pos) {
+        long v = bits(pos);
+        switch (format) {
+            case 'B': return $I.of(v & 0xFF);
+            case 'c': return $BY.of(new byte[] { (byte) v });
+            case '?': return $B.of(v != 0);
+            case 'H': return $I.of(v & 0xFFFF);
+            case 'I': return $I.of(v & 0xFFFFFFFFL);
+            case 'f': return $F.of(Float.intBitsToFloat((int) v));
+            case 'd': return $F.of(Double.longBitsToDouble(v));
+            case 'L': case 'Q': case 'N':
+                return v >= 0 ? $I.of(v) : $I.of(BigInteger.valueOf(v).add(TWO_64));
+            default: return $I.of(v);
+        }
+    }
+
+    private void pack(int pos, $O value) {
+        if (format == 'f' || format == 'd') {
+            double d;
+            if (value instanceof $F) d = (($F) value).value;
+            else if (value instanceof $I && !(($I) value).isBig()) d = (($I) value).value;
+            else throw invalidValue();
+            setBits(pos, format == 'f' ? Float.floatToRawIntBits((float) d) : Double.doubleToRawLongBits(d));
+            return;
+        }
+        if (format == 'c') {
+            if (!(value instanceof $BY) || (($BY) value).data.length != 1) throw invalidValue();
+            setBits(pos, (($BY) value).data[0]);
+            return;
+        }
+        if (format == '?') {
+            setBits(pos, value.__bool__() ? 1 : 0);
+            return;
+        }
+        if (!(value instanceof $I)) {
+            throw new $X("TypeError", "memoryview: invalid type for format '" + format + "'");
+        }
+        $I i = ($I) value;
+        long v;
+        if (i.isBig()) {
+            if ((format != 'Q' && format != 'L' && format != 'N')
+                || i.signum() < 0 || i.toBigInteger().bitLength() > 64) {
+                throw invalidValue();
+            }
+            v = i.toBigInteger().longValue();
+        } else {
+            v = i.value;
+            long lo, hi;
+            switch (format) {
+                case 'B': lo = 0; hi = 0xFF; break;
+                case 'b': lo = -0x80; hi = 0x7F; break;
+                case 'H': lo = 0; hi = 0xFFFF; break;
+                case 'h': lo = -0x8000; hi = 0x7FFF; break;
+                case 'I': lo = 0; hi = 0xFFFFFFFFL; break;
+                case 'i': lo = Integer.MIN_VALUE; hi = Integer.MAX_VALUE; break;
+                case 'L': case 'Q': case 'N': lo = 0; hi = Long.MAX_VALUE; break;
+                default: lo = Long.MIN_VALUE; hi = Long.MAX_VALUE; break;
+            }
+            if (v < lo || v > hi) throw invalidValue();
+        }
+        setBits(pos, v);
+    }
+
+    private void copyOut(int pos, byte[] dest, int at, int n) {
+        if (memory != null) memory.get(pos, dest, at, n);
+        else System.arraycopy(buffer, pos, dest, at, n);
+    }
+
+    private void copyIn(byte[] src, int from, int pos, int n) {
+        if (memory != null) memory.put(pos, src, from, n);
+        else System.arraycopy(src, from, buffer, pos, n);
+    }
+
+    private $X invalidValue() {
+        return new $X("ValueError", "memoryview: invalid value for format '" + format + "'");
+    }
+
+    // Geometry
+
+    private void checkReleased() {
+        if (released) {
+            throw new $X("ValueError", "operation forbidden on released memoryview object");
+        }
+        if (obj instanceof Resizable && ((Resizable) obj).resizes() != resizes) {
+            throw new $X.BufferError("memoryview: underlying object was resized");
+        }
+    }
+
+    /**
+     * Whether the items are laid out in C order with no gaps.
+     */
+    boolean isContiguous() {
+        int expected = itemsize;
+        for (int d = shape.length - 1; d >= 0; d--) {
+            if (shape[d] > 1 && strides[d] != expected) return false;
+            expected *= shape[d];
+        }
+        return true;
+    }
+
+    /**
+     * This view if it is contiguous and in an array, otherwise a copy;
+     * either way the bytes are buffer[offset, offset + length).
+     */
+    $MV contiguous() {
+        checkReleased();
+        return isContiguous() && memory == null ? this : new $MV(tobytes().data, 0, length, true);
+    }
+
+    private int index($O key, int dim) {
+        if (!(key instanceof $I)) {
+            throw new $X("TypeError", "memoryview: invalid slice key");
+        }
+        $I i = ($I) key;
+        long idx = i.isBig() ? Long.MAX_VALUE : i.value;
+        if (idx < 0) idx += shape[dim];
+        if (idx < 0 || idx >= shape[dim]) {
+            throw new $X("IndexError", "index out of bounds on dimension " + (dim + 1));
+        }
+        return (int) idx;
+    }
+
+    /**
+     * Byte position of the item at an int index or a tuple of them.
+     */
+    private int position($O key) {
+        if (key instanceof $T) {
+            $O[] items = (($T) key).items;
+            if (items.length != shape.length) {
+                throw new $X("TypeError", "memoryview: cannot index " + shape.length
+                    + "-dimension view with " + items.length + "-element tuple");
+            }
+            int pos = offset;
+            for (int d = 0; d < items.length; d++) pos += index(items[d], d) * strides[d];
+            return pos;
+        }
+        if (shape.length != 1) {
+            throw new $X("NotImplementedError", "multi-dimensional sub-views are not implemented");
+        }
+        return offset + index(key, 0) * strides[0];
+    }
+
+    private $MV slice($SL slice) {
+        if (shape.length != 1) {
+            throw new $X("NotImplementedError", "multi-dimensional slicing is not implemented");
+        }
+        $T indices = slice.indices($I.of(shape[0]));
+        int start = (int)(($I)indices.items[0]).value;
+        int stop = (int)(($I)indices.items[1]).value;
+        int step = (int)(($I)indices.items[2]).value;
+        int count = step > 0 ? (stop > start ? (stop - start + step - 1) / step : 0)
+                             : (start > stop ? (start - stop - step - 1) / -step : 0);
+        return new $MV(buffer, memory, offset + start * strides[0], readonly, format,
+                       new int[] { count }, new int[] { strides[0] * step }, obj);
+    }
+
     @Override
     public $I __len__() {
-        return $I.of(length);
+        checkReleased();
+        return $I.of(shape.length == 0 ? 1 : shape[0]);
     }
-    
+
     @Override
     public $O __getitem__($O key) {
-        if (key instanceof $I) {
-            int idx = (int)(($I) key).value;
-            if (idx < 0) idx += length;
-            if (idx < 0 || idx >= length) {
-                throw new $X("IndexError", "index out of range");
-            }
-            // Return the byte value as an integer
-            return $I.of(buffer[offset + idx] & 0xFF);
-        }
-        
-        if (key instanceof $SL) {
-            $SL slice = ($SL) key;
-            // Get slice parameters
-            int start = slice.start != null ? (int)(($I)slice.start).value : 0;
-            int stop = slice.stop != null ? (int)(($I)slice.stop).value : length;
-            int step = slice.step != null ? (int)(($I)slice.step).value : 1;
-            
-            // Normalize negative indices
-            if (start < 0) start += length;
-            if (stop < 0) stop += length;
-            if (start < 0) start = 0;
-            if (stop > length) stop = length;
-            if (stop < start) stop = start;
-            
-            if (step == 1) {
-                // Contiguous slice - can return a view
-                return new $MV(buffer, offset + start, stop - start, readonly);
-            } else {
-                // Non-contiguous - must copy
-                int newLen = 0;
-                for (int i = start; i < stop; i += step) newLen++;
-                byte[] newBuf = new byte[newLen];
-                int j = 0;
-                for (int i = start; i < stop; i += step) {
-                    newBuf[j++] = buffer[offset + i];
-                }
-                return new $MV(newBuf, 0, newLen, readonly);
-            }
-        }
-        
-        throw new $X("TypeError", "memoryview indices must be integers or slices");
+        checkReleased();
+        if (key instanceof $SL) return slice(($SL) key);
+        return unpack(position(key));
     }
-    
+
     @Override
     public void __setitem__($O key, $O value) {
+        checkReleased();
         if (readonly) {
             throw new $X("TypeError", "cannot modify read-only memory");
         }
-        
-        if (key instanceof $I) {
-            int idx = (int)(($I) key).value;
-            if (idx < 0) idx += length;
-            if (idx < 0 || idx >= length) {
-                throw new $X("IndexError", "index out of range");
-            }
-            if (!(value instanceof $I)) {
-                throw new $X("TypeError", "memoryview assignment must be an int");
-            }
-            int v = (int)(($I) value).value;
-            if (v < 0 || v > 255) {
-                throw new $X("ValueError", "byte must be in range(0, 256)");
-            }
-            buffer[offset + idx] = (byte) v;
+        if (!(key instanceof $SL)) {
+            pack(position(key), value);
             return;
         }
-        
-        throw new $X("TypeError", "memoryview indices must be integers");
+        $MV target = slice(($SL) key);
+        $MV source = bytesLike(value);
+        if (source == null) {
+            throw new $X("TypeError", "a bytes-like object is required, not '" + typeName(value) + "'");
+        }
+        if (source.format != format || source.shape.length != 1 || source.shape[0] != target.shape[0]) {
+            throw new $X("ValueError", "memoryview assignment: lvalue and rvalue have different structures");
+        }
+        // Go through a copy, since the two may overlap
+        byte[] data = source.tobytes().data;
+        for (int i = 0; i < target.shape[0]; i++) {
+            copyIn(data, i * itemsize, target.offset + i * target.strides[0], itemsize);
+        }
     }
-    
+
+    // Methods
+
     /**
-     * Convert to bytes.
+     * Copy of the items in C order.
      */
     public $BY tobytes() {
+        checkReleased();
         byte[] copy = new byte[length];
-        System.arraycopy(buffer, offset, copy, 0, length);
+        if (isContiguous()) {
+            copyOut(offset, copy, 0, length);
+            return $BY.of(copy);
+        }
+        copyItems(copy, 0, offset, 0);
         return $BY.of(copy);
     }
-    
+
+    private int copyItems(byte[] dest, int at, int pos, int dim) {
+        for (int i = 0; i < shape[dim]; i++, pos += strides[dim]) {
+            if (dim == shape.length - 1) {
+                copyOut(pos, dest, at, itemsize);
+                at += itemsize;
+            } else {
+                at = copyItems(dest, at, pos, dim + 1);
+            }
+        }
+        return at;
+    }
+
     /**
-     * Convert to list of ints.
+     * The items as a (nested) list.
      */
-    public $L tolist() {
+    public $O tolist() {
+        checkReleased();
+        if (shape.length == 0) return unpack(offset);
+        return tolist(offset, 0);
+    }
+
+    private $L tolist(int pos, int dim) {
         $L list = new $L();
-        for (int i = 0; i < length; i++) {
-            list.append($I.of(buffer[offset + i] & 0xFF));
+        for (int i = 0; i < shape[dim]; i++, pos += strides[dim]) {
+            list.append(dim == shape.length - 1 ? unpack(pos) : tolist(pos, dim + 1));
         }
         return list;
     }
-    
+
+    public $S hex() {
+        return tobytes().hex();
+    }
+
+    public $MV toreadonly() {
+        checkReleased();
+        return new $MV(buffer, memory, offset, true, format, shape, strides, obj);
+    }
+
+    public $MV cast($O format) {
+        return cast(format, null);
+    }
+
+    /**
+     * The same memory seen with another format and, optionally, shape.
+     */
+    public $MV cast($O format, $O shape) {
+        checkReleased();
+        if (!isContiguous()) {
+            throw new $X("TypeError", "memoryview: casts are restricted to C-contiguous views");
+        }
+        char f = parseFormat(format);
+        if (!isByteFormat(f) && !isByteFormat(this.format)) {
+            throw new $X("TypeError", "memoryview: cannot cast between two non-byte formats");
+        }
+        int size = itemsize(f);
+        int[] dims;
+        if (shape == null || shape == $N.INSTANCE) {
+            if (length % size != 0) {
+                throw new $X("TypeError", "memoryview: length is not a multiple of itemsize");
+            }
+            dims = new int[] { length / size };
+        } else {
+            $O[] items = shape instanceof $T ? (($T) shape).items
+                       : shape instanceof $L ? (($L) shape).items.toArray(new $O[0]) : null;
+            if (items == null) throw new $X("TypeError", "shape must be a list or a tuple");
+            dims = new int[items.length];
+            long product = size;
+            for (int d = 0; d < items.length; d++) {
+                long dim = (($I) items[d]).value;
+                if (dim <= 0) throw new $X("ValueError", "memoryview.cast(): elements of shape must be integers > 0");
+                dims[d] = (int) dim;
+                product *= dim;
+            }
+            if (product != length) {
+                throw new $X("TypeError", "memoryview: product(shape) * itemsize != buffer size");
+            }
+        }
+        int[] st = new int[dims.length];
+        int stride = size;
+        for (int d = dims.length - 1; d >= 0; d--) {
+            st[d] = stride;
+            stride *= dims[d];
+        }
+        return new $MV(buffer, memory, offset, readonly, f, dims, st, obj);
+    }
+
+    /**
+     * Count this view as an export of its object, if that object is
+     * resizable, until it is released. Done on entering a with block.
+     */
+    private $MV export() {
+        if (obj instanceof Resizable && !exported) {
+            ((Resizable) obj).exports(1);
+            exported = true;
+        }
+        return this;
+    }
+
     /**
      * Release the buffer.
      */
     public void release() {
-        // No-op in Java (GC handles it)
+        // The memory itself is GC'd; later use of the view is an error
+        if (released) return;
+        released = true;
+        if (exported) ((Resizable) obj).exports(-1);
     }
-    
+
+    public $MV __enter__() {
+        checkReleased();
+        return export();
+    }
+
+    public $B __exit__($O type, $O value, $O traceback) {
+        release();
+        return $B.FALSE;
+    }
+
+    /**
+     * The writable memory behind a readinto() or recv_into() argument,
+     * viewed without copying.
+     */
+    static $MV target($O buffer, String function) {
+        if (buffer instanceof $BA) {
+            $BA array = ($BA) buffer;
+            return new $MV(array.buf, array.start, array.length, false);
+        }
+        if (buffer instanceof $MV) {
+            $MV view = ($MV) buffer;
+            view.checkReleased();
+            if (view.readonly) {
+                throw new $X.TypeError(function + " argument must be read-write bytes-like object, not memoryview");
+            }
+            if (!view.isContiguous() || view.memory != null) {
+                throw new $X.TypeError(function + " argument must be a contiguous buffer");
+            }
+            return view;
+        }
+        if (buffer instanceof $BY) {
+            // Kept for code that reads into a preallocated bytes object
+            $BY bytes = ($BY) buffer;
+            return new $MV(bytes.data, 0, bytes.data.length, false);
+        }
+        throw new $X.TypeError(function + " argument must be read-write bytes-like object, not "
+            + (buffer != null ? buffer.getClass().getSimpleName() : "NoneType"));
+    }
+
+    static final $NM<$MV> METHODS = new $NM<>($MV.class)
+        .add("tobytes", $MV::tobytes)
+        .add("tolist", $MV::tolist)
+        .add("hex", $MV::hex)
+        .add("toreadonly", $MV::toreadonly)
+        .add("cast", (self, format) -> self.cast(format))
+        .add("cast", (self, format, shape) -> self.cast(format, shape))
+        .keywords("cast", "format", "shape")
+        .add("release", self -> { self.release(); return $N.INSTANCE; })
+        .add("__enter__", $MV::__enter__)
+        .add("__exit__", $MV::__exit__);
+
+    // Methods handed out as values, by table slot
+    private $O[] bound;
+
     @Override
     public $O __getattr__(String name) {
         switch (name) {
-            case "readonly": return $B.of(readonly);
-            case "nbytes": return $I.of(length);
-            case "itemsize": return $I.of(1);
-            case "ndim": return $I.of(1);
-            case "shape": return $T.of($I.of(length));
-            case "strides": return $T.of($I.of(1));
-            case "tobytes": return new $O() {
-                @Override
-                public $O __call__($O... args) {
-                    return tobytes();
-                }
-            };
-            case "tolist": return new $O() {
-                @Override
-                public $O __call__($O... args) {
-                    return tolist();
-                }
-            };
-            case "release": return new $O() {
-                @Override
-                public $O __call__($O... args) {
-                    release();
-                    return $N.INSTANCE;
-                }
-            };
+            case "readonly": checkReleased(); return $B.of(readonly);
+            case "nbytes": checkReleased(); return $I.of(length);
+            case "itemsize": checkReleased(); return $I.of(itemsize);
+            case "format": checkReleased(); return $S.of(String.valueOf(format));
+            case "ndim": checkReleased(); return $I.of(shape.length);
+            case "shape": checkReleased(); return dims(shape);
+            case "strides": checkReleased(); return dims(strides);
+            case "obj": checkReleased(); return obj != null ? obj : $N.INSTANCE;
+            case "contiguous":
+            case "c_contiguous": checkReleased(); return $B.of(isContiguous());
             default:
-                throw new $X("AttributeError", "memoryview has no attribute '" + name + "'");
+                if (!METHODS.has(name)) {
+                    throw new $X("AttributeError", "'memoryview' object has no attribute '" + name + "'");
+                }
+                if (bound == null) bound = METHODS.newCache();
+                return METHODS.bind(this, name, bound);
         }
     }
-    
+
+    private static $T dims(int[] values) {
+        $O[] items = new $O[values.length];
+        for (int i = 0; i < values.length; i++) items[i] = $I.of(values[i]);
+        return $T.wrap(items);
+    }
+
     @Override
     public $O __iter__() {
+        checkReleased();
+        if (shape.length != 1) {
+            throw new $X("NotImplementedError", "multi-dimensional sub-views are not implemented");
+        }
         return new $MVI(this);
     }
-    
+
     @Override
     public $S __repr__() {
-        return $S.of("<memory at 0x" + Integer.toHexString(System.identityHashCode(this)) + ">");
+        return $S.of((released ? "<released memory at 0x" : "<memory at 0x")
+            + Integer.toHexString(System.identityHashCode(this)) + ">");
     }
-    
+
     @Override
     public boolean __bool__() {
-        return length > 0;
+        checkReleased();
+        return shape.length == 0 || shape[0] > 0;
     }
-    
+
+    @Override
+    public $I __hash__() {
+        if (!readonly) throw new $X("ValueError", "cannot hash writable memoryview object");
+        return tobytes().__hash__();
+    }
+
+    /**
+     * Views are equal when they have the same shape and equal item values.
+     */
     @Override
     public $O __eq__($O other) {
-        if (other instanceof $MV) {
-            $MV o = ($MV) other;
-            if (length != o.length) return $B.FALSE;
-            for (int i = 0; i < length; i++) {
-                if (buffer[offset + i] != o.buffer[o.offset + i]) {
-                    return $B.FALSE;
-                }
+        if (other == this) return $B.TRUE;
+        $MV o = bytesLike(other);
+        if (o == null || released || o.released) return $B.FALSE;
+        if (!Arrays.equals(shape, o.shape)) return $B.FALSE;
+        if (format == o.format && isContiguous() && o.isContiguous()) {
+            if (memory != null || o.memory != null) {
+                return $B.of(Arrays.equals(tobytes().data, o.tobytes().data));
             }
-            return $B.TRUE;
-        }
-        if (other instanceof $BY) {
-            $BY o = ($BY) other;
-            if (length != o.data.length) return $B.FALSE;
-            for (int i = 0; i < length; i++) {
-                if (buffer[offset + i] != o.data[i]) {
-                    return $B.FALSE;
-                }
-            }
-            return $B.TRUE;
+            return $B.of(Arrays.equals(buffer, offset, offset + length, o.buffer, o.offset, o.offset + o.length));
         }
-        return $B.FALSE;
+        return tolist().__eq__(o.tolist());
     }
 }
 
@@ -214,17 +701,17 @@ public final class $MV extends $O {
 class $MVI extends $O {
     private final $MV mv;
     private int idx;
-    
+
     $MVI($MV mv) {
         this.mv = mv;
         this.idx = 0;
     }
-    
+
     @Override
     public $O __iter__() {
         return this;
     }
-    
+
     @Override
     public $O __next__() {
         if (idx >= (int)mv.__len__().value) {
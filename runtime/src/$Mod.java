@@ -101,7 +101,7 @@ public final class $Mod extends $O {
      * Get an attribute from the module.
      */
     public $O getAttr(String attrName) {
-        $O value = attrs.get($S.of(attrName));
+        $O value = attrs.get($S.intern(attrName));
         if (value == null) {
             throw new $X("AttributeError: module '" + name + "' has no attribute '" + attrName + "'");
         }
@@ -112,14 +112,14 @@ public final class $Mod extends $O {
      * Set an attribute on the module.
      */
     public void setAttr(String attrName, $O value) {
-        attrs.__setitem__($S.of(attrName), value);
+        attrs.__setitem__($S.intern(attrName), value);
     }
     
     /**
      * Check if module has an attribute.
      */
     public boolean hasAttr(String attrName) {
-        return attrs.get($S.of(attrName)) != null;
+        return attrs.get($S.intern(attrName)) != null;
     }
     
     /**
@@ -158,7 +158,7 @@ public final class $Mod extends $O {
      */
     public $L getPublicNames() {
         $L names = new $L();
-        for ($O key : attrs.keys().items) {
+        for ($O key : attrs.keyArray()) {
             String keyStr = key.toString();
             // Skip private names (starting with _)
             if (!keyStr.startsWith("_")) {
@@ -173,6 +173,11 @@ public final class $Mod extends $O {
         return getAttr(name);
     }
     
+    @Override
+    public void __setattr__(String name, $O value) {
+        setAttr(name, value);
+    }
+    
     @Override
     public $S __repr__() {
         if (javaClass != null) {
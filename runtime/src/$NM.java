@@ -0,0 +1,292 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * $NM - Native method table for a runtime class written in Java.
+ *
+ * A class declares its Python methods once, as a static table built from
+ * method references or lambdas of a fixed arity, each with any trailing
+ * default arguments:
+ *
+ *   static final $NM<FileIO> METHODS = new $NM<>(FileIO.class, RawIOBase.METHODS)
+ *       .add("seek", FileIO::seek, $I.of(SEEK_SET))
+ *       .add("tell", FileIO::tell);
+ *
+ * A table starts with its parent's entries, and entries call the Java
+ * methods virtually, so subclasses only add what they introduce. A
+ * method that also takes keyword arguments names its parameters with
+ * keywords(name, params...).
+ *
+ * Method call sites (obj.name(args), see $BS.callMethod) link straight
+ * to the handle for the number of arguments given, guarded on the
+ * receiver's class, so a call allocates no method object. Only when a
+ * method value escapes (m = f.write) does __getattr__ hand out a bound
+ * method, made once per instance and name.
+ */
+public final class $NM<T extends $O> {
+
+    /** A method taking no arguments besides self. */
+    public interface M0<T> { $O call(T self); }
+    /** A method taking one argument. */
+    public interface M1<T> { $O call(T self, $O a); }
+    /** A method taking two arguments. */
+    public interface M2<T> { $O call(T self, $O a, $O b); }
+    /** A method taking three arguments. */
+    public interface M3<T> { $O call(T self, $O a, $O b, $O c); }
+
+    // Most arguments any entry takes
+    private static final int MAX_ARITY = 3;
+
+    private static final MethodHandle[] CALLS = new MethodHandle[MAX_ARITY + 1];
+    static {
+        Class<?>[] types = { M0.class, M1.class, M2.class, M3.class };
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            for (int n = 0; n <= MAX_ARITY; n++) {
+                // call(T self, $O...) erases to call(Object, $O...)
+                MethodType type = arityType(n).changeParameterType(0, Object.class);
+                CALLS[n] = lookup.findVirtual(types[n], "call", type);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** ($O self, $O a1, ... $O an)$O */
+    private static MethodType arityType(int n) {
+        Class<?>[] params = new Class<?>[n + 1];
+        java.util.Arrays.fill(params, $O.class);
+        return MethodType.methodType($O.class, params);
+    }
+
+    /**
+     * One Python method: a handle of type ($O, $O[])$O for each number of
+     * arguments it accepts, null for the others.
+     */
+    static final class Entry {
+        final String name;
+        final int slot;
+        final MethodHandle[] byArity = new MethodHandle[MAX_ARITY + 1];
+        int min = Integer.MAX_VALUE;
+        int max = -1;
+        // Parameter names, for methods that take keyword arguments
+        String[] params;
+
+        Entry(String name, int slot) {
+            this.name = name;
+            this.slot = slot;
+        }
+
+        MethodHandle handle(int argc) {
+            return argc <= MAX_ARITY ? byArity[argc] : null;
+        }
+
+        $X arityError(int argc) {
+            if (max == 0) {
+                return new $X.TypeError(name + "() takes no arguments (" + argc + " given)");
+            }
+            if (min == max) {
+                return new $X.TypeError(name + "() takes exactly " + min
+                    + (min == 1 ? " argument (" : " arguments (") + argc + " given)");
+            }
+            int bound = argc < min ? min : max;
+            return new $X.TypeError(name + " expected " + (argc < min ? "at least " : "at most ")
+                + bound + (bound == 1 ? " argument, got " : " arguments, got ") + argc);
+        }
+    }
+
+    // Tables by the class that declares them
+    private static final Map<Class<?>, $NM<?>> TABLES = new ConcurrentHashMap<>();
+
+    private static final $NM<?> NONE = new $NM<>();
+
+    // Each class's table: its own, or the nearest superclass's
+    private static final ClassValue<$NM<?>> RESOLVED = new ClassValue<>() {
+        @Override
+        protected $NM<?> computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                $NM<?> table = TABLES.get(c);
+                if (table != null) return table;
+            }
+            return NONE;
+        }
+    };
+
+    private final Map<String, Entry> entries;
+
+    private $NM() {
+        this.entries = Map.of();
+    }
+
+    /**
+     * A table for type holding parent's entries, which type may extend
+     * and override.
+     */
+    public $NM(Class<T> type, $NM<? super T> parent) {
+        this.entries = new HashMap<>();
+        if (parent != null) {
+            for (Entry e : parent.entries.values()) {
+                Entry copy = new Entry(e.name, e.slot);
+                System.arraycopy(e.byArity, 0, copy.byArity, 0, e.byArity.length);
+                copy.min = e.min;
+                copy.max = e.max;
+                copy.params = e.params;
+                entries.put(e.name, copy);
+            }
+        }
+        TABLES.put(type, this);
+    }
+
+    public $NM(Class<T> type) {
+        this(type, null);
+    }
+
+    /**
+     * The method table for objects of class type; an empty one for
+     * classes that declare none.
+     */
+    static $NM<?> of(Class<?> type) {
+        return RESOLVED.get(type);
+    }
+
+    public $NM<T> add(String name, M0<T> method) {
+        return put(name, CALLS[0].bindTo(method), 0);
+    }
+
+    public $NM<T> add(String name, M1<T> method, $O... defaults) {
+        return put(name, CALLS[1].bindTo(method), 1, defaults);
+    }
+
+    public $NM<T> add(String name, M2<T> method, $O... defaults) {
+        return put(name, CALLS[2].bindTo(method), 2, defaults);
+    }
+
+    public $NM<T> add(String name, M3<T> method, $O... defaults) {
+        return put(name, CALLS[3].bindTo(method), 3, defaults);
+    }
+
+    /**
+     * Let method name, already added, take its arguments by keyword too,
+     * params being the names of its parameters in order.
+     */
+    public $NM<T> keywords(String name, String... params) {
+        entries.get(name).params = params;
+        return this;
+    }
+
+    /**
+     * Register handle, taking self and arity arguments, for every number
+     * of arguments from arity less the trailing defaults up to arity.
+     * An entry for the same name replaces the handles it covers.
+     */
+    private $NM<T> put(String name, MethodHandle handle, int arity, $O... defaults) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            entry = new Entry(name, entries.size());
+            entries.put(name, entry);
+        }
+        handle = handle.asType(arityType(arity));
+        for (int given = arity - defaults.length; given <= arity; given++) {
+            MethodHandle h = handle;
+            if (given < arity) {
+                Object[] filled = new Object[arity - given];
+                System.arraycopy(defaults, defaults.length - filled.length, filled, 0, filled.length);
+                h = MethodHandles.insertArguments(h, given + 1, filled);
+            }
+            entry.byArity[given] = h.asSpreader($O[].class, given);
+            entry.min = Math.min(entry.min, given);
+            entry.max = Math.max(entry.max, given);
+        }
+        return this;
+    }
+
+    /**
+     * The handle, of type ($O, $O[])$O, calling method name with argc
+     * arguments; null if there is no such method or it takes a different
+     * number of arguments.
+     */
+    MethodHandle handle(String name, int argc) {
+        Entry entry = entries.get(name);
+        return entry != null ? entry.handle(argc) : null;
+    }
+
+    boolean has(String name) {
+        return entries.containsKey(name);
+    }
+
+    /** A cache for one instance's bound methods, one slot per entry. */
+    $O[] newCache() {
+        return new $O[entries.size()];
+    }
+
+    /**
+     * The bound method name of self, made the first time it is asked for
+     * and kept in cache; null if this table has no such method.
+     */
+    $O bind($O self, String name, $O[] cache) {
+        Entry entry = entries.get(name);
+        if (entry == null) return null;
+        $O bound = cache[entry.slot];
+        if (bound == null) {
+            bound = new Bound(self, entry);
+            cache[entry.slot] = bound;
+        }
+        return bound;
+    }
+
+    static $O invoke(MethodHandle handle, $O self, $O[] args) {
+        try {
+            return ($O) handle.invokeExact(self, args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            $X ex = new $X("RuntimeError", t.getClass().getName() + ": " + t.getMessage());
+            ex.initCause(t);
+            throw ex;
+        }
+    }
+
+    /**
+     * A native method bound to its receiver, as a value.
+     */
+    static final class Bound extends $O {
+        private final $O self;
+        private final Entry entry;
+
+        Bound($O self, Entry entry) {
+            this.self = self;
+            this.entry = entry;
+        }
+
+        @Override
+        public $O __call__($O... args) {
+            MethodHandle handle = entry.handle(args.length);
+            if (handle == null) throw entry.arityError(args.length);
+            return invoke(handle, self, args);
+        }
+
+        @Override
+        public $O __call__($O[] args, String[] kwnames) {
+            if (kwnames == null || kwnames.length == 0 || entry.params == null) {
+                return super.__call__(args, kwnames);
+            }
+            $O[] values = keywordsToPositional(entry.name, args, kwnames, entry.params);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    throw new $X.TypeError(entry.name + "() missing required argument '"
+                        + entry.params[i] + "' (pos " + (i + 1) + ")");
+                }
+            }
+            return __call__(values);
+        }
+
+        @Override
+        public $S __repr__() {
+            return $S.of("<built-in method " + entry.name + " of " + self.__repr__().value() + ">");
+        }
+    }
+}
@@ -44,10 +44,10 @@ public class $O {
     }
     
     /**
-     * Inequality comparison.
+     * Inequality comparison: the inverse of __eq__.
      */
     public $O __ne__($O other) {
-        return $B.of(this != other);
+        return $B.of(!__eq__(other).__bool__());
     }
     
     /**
@@ -84,6 +84,14 @@ public class $O {
         throw new $X("TypeError", "unsupported operand type(s) for +");
     }
     
+    /**
+     * In-place add (+=) - mutable types extend themselves; the default
+     * rebinds the name to a + b.
+     */
+    public $O __iadd__($O other) {
+        return __add__(other);
+    }
+    
     public $O __sub__($O other) {
         throw new $X("TypeError", "unsupported operand type(s) for -");
     }
@@ -119,6 +127,10 @@ public class $O {
     public $O __invert__() {
         throw new $X("TypeError", "bad operand type for unary ~");
     }
+
+    public $O __not__() {
+        return $B.of(!__bool__());
+    }
     
     // Bitwise operations
     
@@ -190,11 +202,65 @@ public class $O {
         throw new $X("TypeError", "object is not callable");
     }
     
+    /**
+     * Call with keyword arguments. The last kwnames.length entries of
+     * args are the keyword values, in the order given by kwnames.
+     * Default: callables that don't override this take no keywords.
+     */
+    public $O __call__($O[] args, String[] kwnames) {
+        if (kwnames == null || kwnames.length == 0) {
+            return __call__(args);
+        }
+        throw new $X("TypeError", "'" + kwnames[0] + "' is an invalid keyword argument");
+    }
+    
+    /**
+     * Helper for builtins taking keyword arguments: the arguments in the
+     * order of params, each keyword value (the last kwnames.length entries
+     * of args) moved to the position of its name. A null name is a
+     * positional-only parameter. The result ends at the last parameter
+     * given; parameters before it that were not given are null.
+     */
+    static $O[] keywordsToPositional(String fname, $O[] args, String[] kwnames, String... params) {
+        int nkw = kwnames != null ? kwnames.length : 0;
+        int argc = args.length - nkw;
+        if (args.length > params.length) {
+            throw new $X.TypeError(fname + "() takes at most " + params.length
+                + (params.length == 1 ? " argument (" : " arguments (") + args.length + " given)");
+        }
+        $O[] values = new $O[params.length];
+        System.arraycopy(args, 0, values, 0, argc);
+        int count = argc;
+        for (int i = 0; i < nkw; i++) {
+            int j = java.util.Arrays.asList(params).indexOf(kwnames[i]);
+            if (j < 0) {
+                throw new $X.TypeError("'" + kwnames[i] + "' is an invalid keyword argument for " + fname + "()");
+            }
+            if (j < argc) {
+                throw new $X.TypeError("argument for " + fname + "() given by name ('" + kwnames[i]
+                    + "') and position (" + (j + 1) + ")");
+            }
+            values[j] = args[argc + i];
+            count = Math.max(count, j + 1);
+        }
+        return count == values.length ? values : java.util.Arrays.copyOf(values, count);
+    }
+    
+    /**
+     * Helper for callables that bind a leading argument (self, cls).
+     */
+    static $O[] prepend($O first, $O[] args) {
+        $O[] full = new $O[args.length + 1];
+        full[0] = first;
+        System.arraycopy(args, 0, full, 1, args.length);
+        return full;
+    }
+    
     /**
      * Java toString for debugging.
      */
     @Override
     public String toString() {
-        return __str__().value;
+        return __str__().value();
     }
 }
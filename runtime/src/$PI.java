@@ -0,0 +1,119 @@
+/**
+ * $PI - Pair iterator.
+ *
+ * Used by compiled code for loops of the form "for a, b in iterable".
+ * Each call to advance() moves to the next element and exposes its two
+ * components as first and second, so the loop can bind both targets
+ * without building (or indexing into) a tuple. The dict items iterator
+ * is itself a pair iterator and fills the fields from the map entry
+ * directly; any other iterable is wrapped and its elements unpacked.
+ */
+public abstract class $PI extends $O {
+
+    public $O first;
+    public $O second;
+
+    /**
+     * Move to the next element.
+     * @return this iterator, or null when exhausted
+     */
+    abstract $PI advance();
+
+    /**
+     * Unpack a single element into first and second.
+     */
+    final $PI unpack($O item) {
+        if (item instanceof $T) {
+            $O[] items = (($T) item).items;
+            if (items.length == 2) {
+                first = items[0];
+                second = items[1];
+                return this;
+            }
+            throw unpackError(items.length);
+        }
+        if (item instanceof $L) {
+            java.util.List<$O> items = (($L) item).items;
+            if (items.size() == 2) {
+                first = items.get(0);
+                second = items.get(1);
+                return this;
+            }
+            throw unpackError(items.size());
+        }
+        $O iter = item.__iter__();
+        $O a = $BS.safeNext(iter);
+        $O b = a != null ? $BS.safeNext(iter) : null;
+        if (b == null) {
+            throw unpackError(a == null ? 0 : 1);
+        }
+        if ($BS.safeNext(iter) != null) {
+            throw new $X("ValueError", "too many values to unpack (expected 2)");
+        }
+        first = a;
+        second = b;
+        return this;
+    }
+
+    private static $X unpackError(int got) {
+        if (got > 2) {
+            return new $X("ValueError", "too many values to unpack (expected 2)");
+        }
+        return new $X("ValueError", "not enough values to unpack (expected 2, got " + got + ")");
+    }
+
+    // Entry points for compiled code
+
+    /**
+     * Start a two-target for loop over the given iterable.
+     */
+    public static $O of($O iterable) {
+        if (iterable instanceof $DV) {
+            $DV view = ($DV) iterable;
+            if (view.kind == $DV.ITEMS) {
+                return new $DI(view.dict, $DV.ITEMS);
+            }
+        } else if (iterable instanceof $DI && (($DI) iterable).kind == $DV.ITEMS) {
+            return iterable;
+        }
+        return new Unpacking(iterable.__iter__());
+    }
+
+    /**
+     * Advance a pair iterator returned by of().
+     * @return the iterator, or null when exhausted
+     */
+    public static $O next($O pi) {
+        return (($PI) pi).advance();
+    }
+
+    public static $O first($O pi) {
+        return (($PI) pi).first;
+    }
+
+    public static $O second($O pi) {
+        return (($PI) pi).second;
+    }
+
+    @Override
+    public $O __iter__() {
+        return this;
+    }
+
+    /**
+     * Unpacks the elements of an arbitrary iterator.
+     */
+    static final class Unpacking extends $PI {
+        private final $O iter;
+
+        Unpacking($O iter) {
+            this.iter = iter;
+        }
+
+        @Override
+        $PI advance() {
+            $O item = $BS.safeNext(iter);
+            return item != null ? unpack(item) : null;
+        }
+    }
+}
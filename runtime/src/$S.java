@@ -1,25 +1,135 @@
 /**
  * $S - PyStr for Unicode strings.
+ *
+ * A string is normally a plain Java String. Concatenation that produces a
+ * longer string instead appends to a shared StringBuilder and records how
+ * many of its characters belong to the result, like CPython resizing a
+ * string in place when nothing else refers to it: "s += piece" in a loop
+ * keeps appending to the same buffer, so building a string from N pieces
+ * is linear. The earlier strings stay valid because an append never
+ * changes a buffer's existing characters. value() turns the string back
+ * into a plain String the first time its contents are needed.
+ *
+ * Identifier-like strings (attribute names, keyword names, string literals
+ * that look like names) are interned: intern() returns one canonical $S
+ * per name, so attribute tables keyed by them are hit by identity. Each
+ * string caches its hash, and equals()/hashCode() follow the contents so
+ * dicts and sets can find string keys by hashing.
  */
 public final class $S extends $O {
     
-    public final String value;
+    /** Concatenations shorter than this just build a new String. */
+    private static final int LAZY_MIN_LENGTH = 64;
+    
+    /** The characters, or null while they live in buffer. */
+    private String flat;
+    
+    /** Append buffer whose first length characters are this string. */
+    private StringBuilder buffer;
+    
+    private final int length;
+    
+    /** Cached __hash__ result. */
+    private $I hash;
+    
+    /** Canonical instances of identifier-like strings. */
+    private static final java.util.concurrent.ConcurrentHashMap<String, $S> INTERNED =
+        new java.util.concurrent.ConcurrentHashMap<>();
+    
+    /** Longest string intern() will keep. */
+    private static final int INTERN_MAX_LENGTH = 64;
     
     private $S(String value) {
-        this.value = value;
+        this.flat = value;
+        this.length = value.length();
+    }
+    
+    private $S(StringBuilder buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
     }
     
     public static $S of(String value) {
         return new $S(value);
     }
     
+    /**
+     * The canonical $S for an identifier-like name; any other string just
+     * gets a new $S.
+     */
+    public static $S intern(String name) {
+        $S s = INTERNED.get(name);
+        if (s != null) return s;
+        if (!isIdentifier(name)) return new $S(name);
+        return INTERNED.computeIfAbsent(name, $S::new);
+    }
+    
+    private static boolean isIdentifier(String name) {
+        int n = name.length();
+        if (n == 0 || n > INTERN_MAX_LENGTH) return false;
+        for (int i = 0; i < n; i++) {
+            char c = name.charAt(i);
+            boolean ok = c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                || (i > 0 && c >= '0' && c <= '9');
+            if (!ok) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * The contents as a Java String.
+     */
+    public String value() {
+        String s = flat;
+        return s != null ? s : flatten();
+    }
+    
+    private synchronized String flatten() {
+        if (flat == null) {
+            StringBuilder b = buffer;
+            synchronized (b) {
+                flat = b.substring(0, length);
+            }
+            buffer = null;
+        }
+        return flat;
+    }
+    
+    /**
+     * Concatenate, appending to this string's buffer when nothing has been
+     * appended to it since this string was made.
+     */
+    $S concat($S other) {
+        if (other.length == 0) return this;
+        if (length == 0) return other;
+        String right = other.value();
+        StringBuilder b = buffer;
+        if (b != null) {
+            synchronized (b) {
+                if (b.length() == length) {
+                    b.append(right);
+                    return new $S(b, length + right.length());
+                }
+            }
+        }
+        String left = value();
+        int n = length + right.length();
+        if (n < LAZY_MIN_LENGTH) {
+            return of(left.concat(right));
+        }
+        StringBuilder nb = new StringBuilder(n + (n >> 1) + 16);
+        nb.append(left).append(right);
+        return new $S(nb, n);
+    }
+    
     @Override
     public boolean __bool__() {
-        return !value.isEmpty();
+        return length > 0;
     }
     
     @Override
     public $S __repr__() {
+        String value = value();
         StringBuilder sb = new StringBuilder();
         sb.append('\'');
         for (int i = 0; i < value.length(); i++) {
@@ -49,18 +159,36 @@ public final class $S extends $O {
     
     @Override
     public $I __hash__() {
-        return $I.of(value.hashCode());
+        $I h = hash;
+        if (h == null) {
+            h = $I.of(value().hashCode());
+            hash = h;
+        }
+        return h;
+    }
+    
+    @Override
+    public int hashCode() {
+        return value().hashCode();
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) return true;
+        if (!(other instanceof $S)) return false;
+        $S o = ($S) other;
+        return length == o.length && value().equals(o.value());
     }
     
     @Override
     public $I __len__() {
-        return $I.of(value.length());
+        return $I.of(length);
     }
     
     @Override
     public $O __eq__($O other) {
         if (other instanceof $S) {
-            return $B.of(value.equals((($S)other).value));
+            return $B.of(equals(other));
         }
         return $B.FALSE;
     }
@@ -68,7 +196,7 @@ public final class $S extends $O {
     @Override
     public $O __lt__($O other) {
         if (other instanceof $S) {
-            return $B.of(value.compareTo((($S)other).value) < 0);
+            return $B.of(value().compareTo((($S)other).value()) < 0);
         }
         throw new $X("TypeError", "'<' not supported between str and " + other.getClass().getSimpleName());
     }
@@ -76,7 +204,7 @@ public final class $S extends $O {
     @Override
     public $O __le__($O other) {
         if (other instanceof $S) {
-            return $B.of(value.compareTo((($S)other).value) <= 0);
+            return $B.of(value().compareTo((($S)other).value()) <= 0);
         }
         throw new $X("TypeError", "'<=' not supported between str and " + other.getClass().getSimpleName());
     }
@@ -84,7 +212,7 @@ public final class $S extends $O {
     @Override
     public $O __gt__($O other) {
         if (other instanceof $S) {
-            return $B.of(value.compareTo((($S)other).value) > 0);
+            return $B.of(value().compareTo((($S)other).value()) > 0);
         }
         throw new $X("TypeError", "'>' not supported between str and " + other.getClass().getSimpleName());
     }
@@ -92,7 +220,7 @@ public final class $S extends $O {
     @Override
     public $O __ge__($O other) {
         if (other instanceof $S) {
-            return $B.of(value.compareTo((($S)other).value) >= 0);
+            return $B.of(value().compareTo((($S)other).value()) >= 0);
         }
         throw new $X("TypeError", "'>=' not supported between str and " + other.getClass().getSimpleName());
     }
@@ -100,7 +228,7 @@ public final class $S extends $O {
     @Override
     public $O __add__($O other) {
         if (other instanceof $S) {
-            return of(value + (($S)other).value);
+            return concat(($S) other);
         }
         throw new $X("TypeError", "can only concatenate str to str");
     }
@@ -109,12 +237,12 @@ public final class $S extends $O {
     public $O __mul__($O other) {
         if (other instanceof $I) {
             $I i = ($I) other;
-            if (i.big != null) throw new $X("OverflowError", "repeated string is too long");
+            if (i.isBig()) throw new $X("OverflowError", "repeated string is too long");
             int n = (int) i.value;
             if (n <= 0) return of("");
-            StringBuilder sb = new StringBuilder(value.length() * n);
+            StringBuilder sb = new StringBuilder(length * n);
             for (int j = 0; j < n; j++) {
-                sb.append(value);
+                sb.append(value());
             }
             return of(sb.toString());
         }
@@ -123,9 +251,10 @@ public final class $S extends $O {
     
     @Override
     public $O __getitem__($O key) {
+        String value = value();
         if (key instanceof $I) {
             $I i = ($I) key;
-            if (i.big != null) throw new $X("IndexError", "string index out of range");
+            if (i.isBig()) throw new $X("IndexError", "string index out of range");
             int idx = (int) i.value;
             if (idx < 0) idx += value.length();
             if (idx < 0 || idx >= value.length()) {
@@ -158,7 +287,7 @@ public final class $S extends $O {
     @Override
     public $B __contains__($O item) {
         if (item instanceof $S) {
-            return $B.of(value.contains((($S)item).value));
+            return $B.of(value().contains((($S)item).value()));
         }
         throw new $X("TypeError", "'in <string>' requires string as left operand");
     }
@@ -182,6 +311,8 @@ public final class $S extends $O {
             case "startswith":
             case "endswith":
             case "find":
+            case "rfind":
+            case "rindex":
             case "replace":
             case "isdigit":
             case "isalpha":
@@ -206,100 +337,322 @@ public final class $S extends $O {
     // String methods
     
     public $S upper() {
-        return of(value.toUpperCase());
+        return of(value().toUpperCase(java.util.Locale.ROOT));
     }
     
     public $S lower() {
-        return of(value.toLowerCase());
+        return of(value().toLowerCase(java.util.Locale.ROOT));
     }
     
     public $S strip() {
-        return of(value.strip());
+        return of(value().strip());
     }
     
     public $S lstrip() {
-        return of(value.stripLeading());
+        return of(value().stripLeading());
     }
     
     public $S rstrip() {
-        return of(value.stripTrailing());
+        return of(value().stripTrailing());
+    }
+    
+    private static String str($O arg, String method) {
+        if (arg instanceof $S) return (($S) arg).value();
+        throw new $X("TypeError", method + "() argument must be str, not "
+            + arg.getClass().getSimpleName());
+    }
+    
+    private static boolean isSpace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c);
     }
     
     public $L split() {
-        return split($S.of(" "));
+        return split($N.INSTANCE, $I.of(-1));
     }
     
     public $L split($O sep) {
-        if (!(sep instanceof $S)) {
-            throw new $X("TypeError", "must be str, not " + sep.getClass().getSimpleName());
+        return split(sep, $I.of(-1));
+    }
+    
+    public $L split($O sep, $O maxsplit) {
+        String value = value();
+        long max = maxsplit instanceof $I ? (($I) maxsplit).value : -1;
+        if (max < 0) max = Long.MAX_VALUE;
+        $L result = new $L();
+        int n = value.length();
+        if (sep == $N.INSTANCE) {
+            // Runs of whitespace separate words; none are empty
+            int i = 0;
+            while (true) {
+                while (i < n && isSpace(value.charAt(i))) i++;
+                if (i == n) break;
+                if (result.items.size() == max) {
+                    // The rest, trailing whitespace and all
+                    result.items.add(of(value.substring(i)));
+                    break;
+                }
+                int start = i;
+                while (i < n && !isSpace(value.charAt(i))) i++;
+                result.items.add(of(value.substring(start, i)));
+            }
+            return result;
         }
-        String[] parts = value.split(java.util.regex.Pattern.quote((($S)sep).value), -1);
-        $O[] items = new $O[parts.length];
-        for (int i = 0; i < parts.length; i++) {
-            items[i] = of(parts[i]);
+        String s = str(sep, "split");
+        if (s.isEmpty()) throw new $X("ValueError", "empty separator");
+        int pos = 0;
+        for (int i; result.items.size() < max && (i = value.indexOf(s, pos)) >= 0; ) {
+            result.items.add(of(value.substring(pos, i)));
+            pos = i + s.length();
         }
-        return $L.of(items);
+        result.items.add(of(value.substring(pos)));
+        return result;
+    }
+    
+    public $L split($O[] args, String[] kwnames) {
+        $O sep = $N.INSTANCE;
+        $O maxsplit = $I.of(-1);
+        int npos = args.length - (kwnames != null ? kwnames.length : 0);
+        if (npos > 2) throw new $X("TypeError", "split() takes at most 2 arguments");
+        if (npos > 0) sep = args[0];
+        if (npos > 1) maxsplit = args[1];
+        for (int i = npos; i < args.length; i++) {
+            String name = kwnames[i - npos];
+            if ("sep".equals(name)) {
+                sep = args[i];
+            } else if ("maxsplit".equals(name)) {
+                maxsplit = args[i];
+            } else {
+                throw new $X("TypeError", "'" + name + "' is an invalid keyword argument for split()");
+            }
+        }
+        return split(sep, maxsplit);
     }
     
     public $S join($O iterable) {
-        if (iterable instanceof $L) {
-            $L list = ($L) iterable;
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < list.items.size(); i++) {
-                if (i > 0) sb.append(value);
-                $O item = list.items.get(i);
-                if (!(item instanceof $S)) {
-                    throw new $X("TypeError", "sequence item: expected str instance");
+        $O[] items;
+        int count;
+        if (iterable instanceof $T) {
+            items = (($T) iterable).items;
+            count = items.length;
+        } else if (iterable instanceof $L) {
+            java.util.List<$O> list = (($L) iterable).items;
+            items = list.toArray(new $O[0]);
+            count = items.length;
+        } else {
+            // Any other iterable: gather the pieces first so the result
+            // can be built in one exactly sized buffer
+            items = new $O[8];
+            count = 0;
+            $O iter = iterable.__iter__();
+            for ($O item; (item = $BS.safeNext(iter)) != null; ) {
+                if (count == items.length) {
+                    items = java.util.Arrays.copyOf(items, count * 2);
                 }
-                sb.append((($S)item).value);
+                items[count++] = item;
             }
-            return of(sb.toString());
         }
-        if (iterable instanceof $T) {
-            $T tuple = ($T) iterable;
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < tuple.items.length; i++) {
-                if (i > 0) sb.append(value);
-                $O item = tuple.items[i];
-                if (!(item instanceof $S)) {
-                    throw new $X("TypeError", "sequence item: expected str instance");
-                }
-                sb.append((($S)item).value);
+        return join(value(), items, count);
+    }
+    
+    /**
+     * Join the first count items with sep, sizing the buffer up front.
+     */
+    static $S join(String sep, $O[] items, int count) {
+        if (count == 1 && items[0] instanceof $S) return ($S) items[0];
+        long total = (long) sep.length() * Math.max(count - 1, 0);
+        for (int i = 0; i < count; i++) {
+            if (!(items[i] instanceof $S)) {
+                throw new $X("TypeError", "sequence item: expected str instance");
             }
-            return of(sb.toString());
+            total += (($S) items[i]).length;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new $X("OverflowError", "join() result is too long for a Python string");
+        }
+        StringBuilder sb = new StringBuilder((int) total);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(sep);
+            sb.append((($S) items[i]).value());
         }
-        throw new $X("TypeError", "can only join an iterable");
+        return of(sb.toString());
     }
     
     public $B startswith($O prefix) {
         if (prefix instanceof $S) {
-            return $B.of(value.startsWith((($S)prefix).value));
+            return $B.of(value().startsWith((($S)prefix).value()));
         }
         throw new $X("TypeError", "startswith arg must be str");
     }
     
     public $B endswith($O suffix) {
         if (suffix instanceof $S) {
-            return $B.of(value.endsWith((($S)suffix).value));
+            return $B.of(value().endsWith((($S)suffix).value()));
         }
         throw new $X("TypeError", "endswith arg must be str");
     }
     
+    /**
+     * Index of sub in value[start:end], or -1.
+     */
+    private int find(String sub, int start, int end) {
+        if (start > end) return -1;
+        String value = value();
+        int i = value.indexOf(sub, start);
+        return i >= 0 && i + sub.length() <= end ? i : -1;
+    }
+    
     public $I find($O sub) {
-        if (sub instanceof $S) {
-            return $I.of(value.indexOf((($S)sub).value));
+        return $I.of(value().indexOf(str(sub, "find")));
+    }
+    
+    public $I find($O sub, $O start) {
+        return find(sub, start, $N.INSTANCE);
+    }
+    
+    public $I find($O sub, $O start, $O end) {
+        return $I.of(find(str(sub, "find"), $Scan.start(start, length), $Scan.bound(end, length, length)));
+    }
+    
+    /**
+     * Index of the last sub in value[start:end], or -1.
+     */
+    private int rfind(String sub, int start, int end) {
+        if (start > end) return -1;
+        int i = value().lastIndexOf(sub, end - sub.length());
+        return i >= start ? i : -1;
+    }
+    
+    public $I rfind($O sub) {
+        return $I.of(value().lastIndexOf(str(sub, "rfind")));
+    }
+    
+    public $I rfind($O sub, $O start) {
+        return rfind(sub, start, $N.INSTANCE);
+    }
+    
+    public $I rfind($O sub, $O start, $O end) {
+        return $I.of(rfind(str(sub, "rfind"), $Scan.start(start, length), $Scan.bound(end, length, length)));
+    }
+    
+    public $I rindex($O sub) {
+        return rindex(sub, $N.INSTANCE, $N.INSTANCE);
+    }
+    
+    public $I rindex($O sub, $O start) {
+        return rindex(sub, start, $N.INSTANCE);
+    }
+    
+    public $I rindex($O sub, $O start, $O end) {
+        $I i = rfind(sub, start, end);
+        if (i.value < 0) throw new $X("ValueError", "substring not found");
+        return i;
+    }
+    
+    public $I index($O sub) {
+        return index(sub, $N.INSTANCE, $N.INSTANCE);
+    }
+    
+    public $I index($O sub, $O start) {
+        return index(sub, start, $N.INSTANCE);
+    }
+    
+    public $I index($O sub, $O start, $O end) {
+        $I i = find(sub, start, end);
+        if (i.value < 0) throw new $X("ValueError", "substring not found");
+        return i;
+    }
+    
+    public $I count($O sub) {
+        return count(sub, $N.INSTANCE, $N.INSTANCE);
+    }
+    
+    public $I count($O sub, $O start) {
+        return count(sub, start, $N.INSTANCE);
+    }
+    
+    public $I count($O sub, $O start, $O end) {
+        String s = str(sub, "count");
+        int from = $Scan.start(start, length);
+        int to = $Scan.bound(end, length, length);
+        if (from > to) return $I.of(0);
+        if (s.isEmpty()) return $I.of(to - from + 1);
+        int count = 0;
+        for (int i = find(s, from, to); i >= 0; i = find(s, i + s.length(), to)) {
+            count++;
+        }
+        return $I.of(count);
+    }
+    
+    public $BY encode() {
+        return $BY.of(value());
+    }
+    
+    public $BY encode($O encoding) {
+        return $BY.of(value().getBytes(charset(str(encoding, "encode"))));
+    }
+    
+    /**
+     * The charset for a Python codec name. Names are matched the way the
+     * codecs module does, ignoring case and treating '-' and ' ' as '_',
+     * so "latin-1", "Latin_1" and "utf_8" work; other names go to Java.
+     */
+    static java.nio.charset.Charset charset(String encoding) {
+        String name = encoding.toLowerCase(java.util.Locale.ROOT).replace('-', '_').replace(' ', '_');
+        switch (name) {
+            case "utf_8": case "utf8": case "u8": case "utf": case "cp65001":
+                return java.nio.charset.StandardCharsets.UTF_8;
+            case "latin_1": case "latin1": case "latin": case "l1": case "iso_8859_1":
+            case "iso8859_1": case "8859": case "cp819": case "iso_ir_100":
+                return java.nio.charset.StandardCharsets.ISO_8859_1;
+            case "ascii": case "us_ascii": case "646": case "us":
+                return java.nio.charset.StandardCharsets.US_ASCII;
+            default:
+                break;
+        }
+        try {
+            return java.nio.charset.Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            try {
+                return java.nio.charset.Charset.forName(name.replace('_', '-'));
+            } catch (IllegalArgumentException again) {
+                throw new $X("LookupError", "unknown encoding: " + encoding);
+            }
         }
-        throw new $X("TypeError", "find arg must be str");
     }
     
     public $S replace($O old, $O newStr) {
-        if (old instanceof $S && newStr instanceof $S) {
-            return of(value.replace((($S)old).value, (($S)newStr).value));
+        return of(value().replace(str(old, "replace"), str(newStr, "replace")));
+    }
+    
+    public $S replace($O old, $O newStr, $O count) {
+        long max = count instanceof $I ? (($I) count).value : -1;
+        if (max < 0) return replace(old, newStr);
+        String value = value();
+        String from = str(old, "replace");
+        String to = str(newStr, "replace");
+        StringBuilder sb = new StringBuilder(value.length());
+        int pos = 0;
+        long done = 0;
+        if (from.isEmpty()) {
+            // Insert before every character, up to count times
+            for (; pos <= value.length() && done < max; pos++, done++) {
+                sb.append(to);
+                if (pos < value.length()) sb.append(value.charAt(pos));
+            }
+            if (pos < value.length()) sb.append(value, pos, value.length());
+            return of(sb.toString());
+        }
+        for (int i; done < max && (i = value.indexOf(from, pos)) >= 0; done++) {
+            sb.append(value, pos, i).append(to);
+            pos = i + from.length();
         }
-        throw new $X("TypeError", "replace args must be str");
+        if (done == 0) return this;
+        sb.append(value, pos, value.length());
+        return of(sb.toString());
     }
     
     public $B isdigit() {
+        String value = value();
         if (value.isEmpty()) return $B.FALSE;
         for (int i = 0; i < value.length(); i++) {
             if (!Character.isDigit(value.charAt(i))) return $B.FALSE;
@@ -308,6 +661,7 @@ public final class $S extends $O {
     }
     
     public $B isalpha() {
+        String value = value();
         if (value.isEmpty()) return $B.FALSE;
         for (int i = 0; i < value.length(); i++) {
             if (!Character.isLetter(value.charAt(i))) return $B.FALSE;
@@ -316,6 +670,7 @@ public final class $S extends $O {
     }
     
     public $B isalnum() {
+        String value = value();
         if (value.isEmpty()) return $B.FALSE;
         for (int i = 0; i < value.length(); i++) {
             if (!Character.isLetterOrDigit(value.charAt(i))) return $B.FALSE;
@@ -343,9 +698,9 @@ class $SI extends $O {
     
     @Override
     public $O __next__() {
-        if (index >= str.value.length()) {
+        if (index >= str.value().length()) {
             throw new $X.StopIteration();
         }
-        return $S.of(String.valueOf(str.value.charAt(index++)));
+        return $S.of(String.valueOf(str.value().charAt(index++)));
     }
 }
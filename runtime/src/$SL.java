@@ -15,8 +15,8 @@ public final class $SL extends $O {
     
     @Override
     public $S __repr__() {
-        return $S.of("slice(" + start.__repr__().value + ", " + 
-                     stop.__repr__().value + ", " + step.__repr__().value + ")");
+        return $S.of("slice(" + start.__repr__().value() + ", " + 
+                     stop.__repr__().value() + ", " + step.__repr__().value() + ")");
     }
     
     @Override
@@ -27,6 +27,11 @@ public final class $SM extends $O {
         return func.__call__(args);
     }
     
+    @Override
+    public $O __call__($O[] args, String[] kwnames) {
+        return func.__call__(args, kwnames);
+    }
+    
     @Override
     public $S __repr__() {
         return $S.of("<staticmethod object>");
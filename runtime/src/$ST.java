@@ -22,6 +22,9 @@ public final class $ST extends $O {
     
     // Find matching element by __eq__
     private $O findKey($O item) {
+        // Strings hash by contents; anything else is matched by __eq__
+        if (items.contains(item)) return item;
+        if (item instanceof $S) return null;
         for ($O k : items) {
             $O eq = k.__eq__(item);
             if (eq instanceof $B && (($B)eq).boolValue) {
@@ -47,7 +50,7 @@ public final class $ST extends $O {
         for ($O item : items) {
             if (!first) sb.append(", ");
             first = false;
-            sb.append(item.__repr__().value);
+            sb.append(item.__repr__().value());
         }
         sb.append('}');
         return $S.of(sb.toString());
@@ -60,6 +63,7 @@ public final class $ST extends $O {
     
     @Override
     public $O __eq__($O other) {
+        if (other instanceof $DV) return other.__eq__(this);
         if (!(other instanceof $ST)) return $B.FALSE;
         $ST o = ($ST) other;
         if (items.size() != o.items.size()) return $B.FALSE;
@@ -81,8 +85,17 @@ public final class $ST extends $O {
     
     // Set operations
     
+    // Keys and items views take part in set operations as sets
+    private static $O viewAsSet($O other) {
+        if (other instanceof $DV && (($DV)other).isSetLike()) {
+            return fromIterable(other);
+        }
+        return other;
+    }
+    
     @Override
     public $O __sub__($O other) {
+        other = viewAsSet(other);
         if (other instanceof $ST) {
             $ST result = new $ST();
             for ($O item : items) {
@@ -97,6 +110,7 @@ public final class $ST extends $O {
     
     @Override
     public $O __and__($O other) {
+        other = viewAsSet(other);
         if (other instanceof $ST) {
             $ST result = new $ST();
             for ($O item : items) {
@@ -111,6 +125,7 @@ public final class $ST extends $O {
     
     @Override
     public $O __or__($O other) {
+        other = viewAsSet(other);
         if (other instanceof $ST) {
             $ST result = new $ST();
             result.items.addAll(items);
@@ -126,6 +141,7 @@ public final class $ST extends $O {
     
     @Override
     public $O __xor__($O other) {
+        other = viewAsSet(other);
         if (other instanceof $ST) {
             $ST o = ($ST) other;
             $ST result = new $ST();
@@ -156,7 +172,7 @@ public final class $ST extends $O {
     public void remove($O item) {
         $O existing = findKey(item);
         if (existing == null) {
-            throw new $X("KeyError", item.__repr__().value);
+            throw new $X("KeyError", item.__repr__().value());
         }
         items.remove(existing);
     }
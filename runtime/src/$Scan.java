@@ -0,0 +1,196 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * $Scan - Search and transform kernels for str and bytes.
+ *
+ * Byte kernels work a 64-bit word (eight bytes) at a time using the usual
+ * SWAR bit tricks: a byte search XORs each word with the wanted byte
+ * repeated and finds a zero byte, and character classes and ASCII case
+ * mapping test all eight bytes against a range at once. Multi-byte needles
+ * are found by scanning for their first byte, checking the last, then
+ * comparing the middle with Arrays.equals, which the JIT vectorizes.
+ * These run on any JDK, without the incubating vector module. str
+ * searches use String.indexOf, which HotSpot already vectorizes.
+ */
+final class $Scan {
+
+    private $Scan() {}
+
+    private static final VarHandle LONGS =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * Normalize an optional start/end argument the way slicing does.
+     */
+    static int bound($O arg, int length, int absent) {
+        if (arg == null || arg == $N.INSTANCE) return absent;
+        if (!(arg instanceof $I)) {
+            throw new $X("TypeError", "slice indices must be integers or None");
+        }
+        $I i = ($I) arg;
+        long v = i.value;
+        if (v < 0) v = Math.max(v + length, 0);
+        return (int) Math.min(v, length);
+    }
+
+    /**
+     * Normalize the optional start of a search. Unlike bound(), a start
+     * past the end is not pulled back to it but kept as length + 1, so
+     * that callers find nothing there, not even an empty needle.
+     */
+    static int start($O arg, int length) {
+        if (arg == null || arg == $N.INSTANCE) return 0;
+        if (!(arg instanceof $I)) {
+            throw new $X("TypeError", "slice indices must be integers or None");
+        }
+        long v = (($I) arg).value;
+        if (v < 0) v = Math.max(v + length, 0);
+        return (int) Math.min(v, length + 1L);
+    }
+
+    // Byte search
+
+    /**
+     * Index of byte b in a[from:to], or -1.
+     */
+    static int indexOf(byte[] a, int b, int from, int to) {
+        long pattern = (b & 0xFFL) * ONES;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long w = (long) LONGS.get(a, i) ^ pattern;
+            long zero = (w - ONES) & ~w & HIGHS;
+            if (zero != 0) {
+                return i + (Long.numberOfTrailingZeros(zero) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (a[i] == (byte) b) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Index of needle in hay[from:to], or -1.
+     */
+    static int indexOf(byte[] hay, byte[] needle, int from, int to) {
+        int n = needle.length;
+        if (n == 0) return from <= to ? from : -1;
+        if (n == 1) return indexOf(hay, needle[0], from, to);
+        byte last = needle[n - 1];
+        int lastStart = to - n;
+        for (int i = from; i <= lastStart; i++) {
+            i = indexOf(hay, needle[0], i, lastStart + 1);
+            if (i < 0) return -1;
+            if (hay[i + n - 1] == last && Arrays.equals(hay, i + 1, i + n - 1, needle, 1, n - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the last needle in hay[from:to], or -1.
+     */
+    static int lastIndexOf(byte[] hay, byte[] needle, int from, int to) {
+        int n = needle.length;
+        for (int i = to - n; i >= from; i--) {
+            if (Arrays.equals(hay, i, i + n, needle, 0, n)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Number of non-overlapping needles in hay[from:to].
+     */
+    static int count(byte[] hay, byte[] needle, int from, int to) {
+        if (needle.length == 0) return from <= to ? to - from + 1 : 0;
+        int count = 0;
+        for (int i = indexOf(hay, needle, from, to); i >= 0;
+             i = indexOf(hay, needle, i + needle.length, to)) {
+            count++;
+        }
+        return count;
+    }
+
+    // Character classes
+
+    /**
+     * High bit of each byte of w set where that byte is ASCII and within
+     * [lo, hi] (both at most 0x7F).
+     */
+    private static long inRange(long w, int lo, int hi) {
+        long h = w & LOWS;
+        long ge = h + (0x80 - lo) * ONES;
+        long gt = h + (0x7F - hi) * ONES;
+        return ge & ~gt & ~w & HIGHS;
+    }
+
+    private static boolean inRange(byte b, int lo, int hi) {
+        return b >= lo && b <= hi;
+    }
+
+    static final int DIGIT = 1;
+    static final int ALPHA = 2;
+    static final int ALNUM = DIGIT | ALPHA;
+
+    private static long classMask(long w, int cls) {
+        long m = 0;
+        if ((cls & DIGIT) != 0) m |= inRange(w, '0', '9');
+        if ((cls & ALPHA) != 0) m |= inRange(w | 0x2020202020202020L, 'a', 'z');
+        return m;
+    }
+
+    private static boolean inClass(byte b, int cls) {
+        return ((cls & DIGIT) != 0 && inRange(b, '0', '9'))
+            || ((cls & ALPHA) != 0 && inRange((byte) (b | 0x20), 'a', 'z'));
+    }
+
+    /**
+     * Whether a is non-empty and every byte is in the ASCII class.
+     */
+    static boolean all(byte[] a, int cls) {
+        if (a.length == 0) return false;
+        int i = 0;
+        for (; i + 8 <= a.length; i += 8) {
+            if (classMask((long) LONGS.get(a, i), cls) != HIGHS) return false;
+        }
+        for (; i < a.length; i++) {
+            if (!inClass(a[i], cls)) return false;
+        }
+        return true;
+    }
+
+    // ASCII case mapping
+
+    /**
+     * Copy of a with ASCII letters mapped to upper or lower case; other
+     * bytes are left alone.
+     */
+    static byte[] asciiCase(byte[] a, boolean upper) {
+        int lo = upper ? 'a' : 'A';
+        byte[] result = new byte[a.length];
+        int i = 0;
+        for (; i + 8 <= a.length; i += 8) {
+            long w = (long) LONGS.get(a, i);
+            LONGS.set(result, i, w ^ (inRange(w, lo, lo + 25) >>> 2));
+        }
+        for (; i < a.length; i++) {
+            byte b = a[i];
+            result[i] = inRange(b, lo, lo + 25) ? (byte) (b ^ 0x20) : b;
+        }
+        return result;
+    }
+
+    // Whitespace
+
+    static boolean isSpace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
+}
@@ -0,0 +1,569 @@
+/**
+ * $Sort - stable TimSort for list.sort() and sorted().
+ *
+ * A port of the CPython list sort: natural runs are found and extended
+ * to a minimum length by binary insertion, then merged with galloping.
+ * Only "less than" is used to compare, as in Python.
+ *
+ * When a key function is given it is called exactly once per element
+ * and the keys are sorted with the values moved alongside them. If all
+ * the keys are ints, floats or strings, or non-empty tuples whose first
+ * items are, they are compared directly instead of through __lt__.
+ */
+final class $Sort {
+
+    private static final int MIN_GALLOP = 7;
+    private static final int MAX_RUNS = 85;
+
+    // Comparison kinds
+    private static final int GENERIC = 0;
+    private static final int INT = 1;
+    private static final int FLOAT = 2;
+    private static final int STR = 3;
+    private static final int TUPLE = 4;
+
+    private final $O[] keys;
+    private final $O[] values;      // moved with keys; null without a key function
+    private final int kind;
+    private final int tupleKind;    // kind of the first items, for TUPLE
+    private int minGallop = MIN_GALLOP;
+    private $O[] tmpKeys;
+    private $O[] tmpValues;
+    private final int[] runBase = new int[MAX_RUNS];
+    private final int[] runLen = new int[MAX_RUNS];
+    private int stackSize;
+
+    private $Sort($O[] keys, $O[] values) {
+        this.keys = keys;
+        this.values = values;
+        this.kind = kindOf(keys);
+        this.tupleKind = kind == TUPLE ? firstItemKind(keys) : GENERIC;
+    }
+
+    /**
+     * Sort items in place.
+     * @param key key function, or null to compare the items themselves
+     * @param reverse sort in descending order, keeping equal items in
+     *        their original order
+     */
+    static void sort($O[] items, $O key, boolean reverse) {
+        if (items.length < 2) {
+            return;
+        }
+        if (reverse) {
+            reverse(items);
+        }
+        if (key != null) {
+            $O[] keys = new $O[items.length];
+            for (int i = 0; i < items.length; i++) {
+                keys[i] = key.__call__(items[i]);
+            }
+            new $Sort(keys, items).sort();
+        } else {
+            new $Sort(items, null).sort();
+        }
+        if (reverse) {
+            reverse(items);
+        }
+    }
+
+    private static void reverse($O[] a) {
+        reverse(a, 0, a.length);
+    }
+
+    private static void reverse($O[] a, int lo, int hi) {
+        for (hi--; lo < hi; lo++, hi--) {
+            $O t = a[lo];
+            a[lo] = a[hi];
+            a[hi] = t;
+        }
+    }
+
+    // Comparison
+
+    private static int kindOf($O o) {
+        if (o instanceof $I) return !(($I) o).isBig() ? INT : GENERIC;
+        if (o instanceof $F) return FLOAT;
+        if (o instanceof $S) return STR;
+        if (o instanceof $T) return (($T) o).items.length > 0 ? TUPLE : GENERIC;
+        return GENERIC;
+    }
+
+    private static int kindOf($O[] keys) {
+        int kind = kindOf(keys[0]);
+        for (int i = 1; i < keys.length && kind != GENERIC; i++) {
+            if (kindOf(keys[i]) != kind) {
+                kind = GENERIC;
+            }
+        }
+        return kind;
+    }
+
+    private static int firstItemKind($O[] keys) {
+        int kind = kindOf((($T) keys[0]).items[0]);
+        for (int i = 1; i < keys.length && kind != GENERIC; i++) {
+            if (kindOf((($T) keys[i]).items[0]) != kind) {
+                kind = GENERIC;
+            }
+        }
+        return kind == TUPLE ? GENERIC : kind;
+    }
+
+    private static boolean lt(int kind, $O a, $O b) {
+        switch (kind) {
+            case INT: return (($I) a).value < (($I) b).value;
+            case FLOAT: return (($F) a).value < (($F) b).value;
+            case STR: return (($S) a).value().compareTo((($S) b).value()) < 0;
+            default: return a.__lt__(b).__bool__();
+        }
+    }
+
+    private static boolean eq(int kind, $O a, $O b) {
+        switch (kind) {
+            case INT: return (($I) a).value == (($I) b).value;
+            case FLOAT: return (($F) a).value == (($F) b).value;
+            case STR: return (($S) a).value().equals((($S) b).value());
+            default: return a.__eq__(b).__bool__();
+        }
+    }
+
+    private boolean lt($O a, $O b) {
+        if (kind != TUPLE) {
+            return lt(kind, a, b);
+        }
+        if (tupleKind != GENERIC) {
+            $O x = (($T) a).items[0];
+            $O y = (($T) b).items[0];
+            if (!eq(tupleKind, x, y)) {
+                return lt(tupleKind, x, y);
+            }
+        }
+        return a.__lt__(b).__bool__();
+    }
+
+    // Main loop
+
+    private void sort() {
+        int n = keys.length;
+        int minRun = minRun(n);
+        int lo = 0;
+        int remaining = n;
+        do {
+            int len = countRun(lo, lo + remaining);
+            if (len < minRun) {
+                int force = remaining <= minRun ? remaining : minRun;
+                binarySort(lo, lo + force, lo + len);
+                len = force;
+            }
+            runBase[stackSize] = lo;
+            runLen[stackSize] = len;
+            stackSize++;
+            mergeCollapse();
+            lo += len;
+            remaining -= len;
+        } while (remaining != 0);
+        mergeForceCollapse();
+    }
+
+    private static int minRun(int n) {
+        int r = 0;
+        while (n >= 64) {
+            r |= n & 1;
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    /**
+     * Length of the run starting at lo. A strictly descending run is
+     * reversed in place, so the result is always ascending.
+     */
+    private int countRun(int lo, int hi) {
+        int i = lo + 1;
+        if (i == hi) {
+            return 1;
+        }
+        if (lt(keys[i], keys[lo])) {
+            for (i++; i < hi && lt(keys[i], keys[i - 1]); i++) {
+            }
+            reverse(keys, lo, i);
+            if (values != null) {
+                reverse(values, lo, i);
+            }
+        } else {
+            for (i++; i < hi && !lt(keys[i], keys[i - 1]); i++) {
+            }
+        }
+        return i - lo;
+    }
+
+    /**
+     * Binary insertion sort of [lo, hi), where [lo, start) is sorted.
+     */
+    private void binarySort(int lo, int hi, int start) {
+        for (; start < hi; start++) {
+            $O pivot = keys[start];
+            int l = lo;
+            int r = start;
+            while (l < r) {
+                int p = (l + r) >>> 1;
+                if (lt(pivot, keys[p])) {
+                    r = p;
+                } else {
+                    l = p + 1;
+                }
+            }
+            System.arraycopy(keys, l, keys, l + 1, start - l);
+            keys[l] = pivot;
+            if (values != null) {
+                $O v = values[start];
+                System.arraycopy(values, l, values, l + 1, start - l);
+                values[l] = v;
+            }
+        }
+    }
+
+    /**
+     * Locate the leftmost position in a[base, base + n) at which key
+     * could be inserted, starting the search at base + hint.
+     */
+    private int gallopLeft($O key, $O[] a, int base, int n, int hint) {
+        int ofs = 1;
+        int lastOfs = 0;
+        if (lt(a[base + hint], key)) {
+            int maxOfs = n - hint;
+            while (ofs < maxOfs && lt(a[base + hint + ofs], key)) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) ofs = maxOfs;
+            }
+            if (ofs > maxOfs) ofs = maxOfs;
+            lastOfs += hint;
+            ofs += hint;
+        } else {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && !lt(a[base + hint - ofs], key)) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) ofs = maxOfs;
+            }
+            if (ofs > maxOfs) ofs = maxOfs;
+            int k = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - k;
+        }
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (lt(a[base + m], key)) {
+                lastOfs = m + 1;
+            } else {
+                ofs = m;
+            }
+        }
+        return ofs;
+    }
+
+    /**
+     * Like gallopLeft, but returns the position after any items equal
+     * to key.
+     */
+    private int gallopRight($O key, $O[] a, int base, int n, int hint) {
+        int ofs = 1;
+        int lastOfs = 0;
+        if (lt(key, a[base + hint])) {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && lt(key, a[base + hint - ofs])) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) ofs = maxOfs;
+            }
+            if (ofs > maxOfs) ofs = maxOfs;
+            int k = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - k;
+        } else {
+            int maxOfs = n - hint;
+            while (ofs < maxOfs && !lt(key, a[base + hint + ofs])) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) ofs = maxOfs;
+            }
+            if (ofs > maxOfs) ofs = maxOfs;
+            lastOfs += hint;
+            ofs += hint;
+        }
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (lt(key, a[base + m])) {
+                ofs = m;
+            } else {
+                lastOfs = m + 1;
+            }
+        }
+        return ofs;
+    }
+
+    // Merging
+
+    /**
+     * Merge runs until the run lengths satisfy the TimSort invariants.
+     */
+    private void mergeCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if ((n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1]) ||
+                    (n > 1 && runLen[n - 2] <= runLen[n - 1] + runLen[n])) {
+                if (runLen[n - 1] < runLen[n + 1]) {
+                    n--;
+                }
+            } else if (runLen[n] > runLen[n + 1]) {
+                break;
+            }
+            mergeAt(n);
+        }
+    }
+
+    private void mergeForceCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+                n--;
+            }
+            mergeAt(n);
+        }
+    }
+
+    /**
+     * Merge runs i and i + 1 of the run stack.
+     */
+    private void mergeAt(int i) {
+        int base1 = runBase[i];
+        int len1 = runLen[i];
+        int base2 = runBase[i + 1];
+        int len2 = runLen[i + 1];
+        runLen[i] = len1 + len2;
+        if (i == stackSize - 3) {
+            runBase[i + 1] = runBase[i + 2];
+            runLen[i + 1] = runLen[i + 2];
+        }
+        stackSize--;
+
+        // Items of run 1 that precede run 2 are already in place
+        int k = gallopRight(keys[base2], keys, base1, len1, 0);
+        base1 += k;
+        len1 -= k;
+        if (len1 == 0) {
+            return;
+        }
+        // And so are items of run 2 that follow run 1
+        len2 = gallopLeft(keys[base1 + len1 - 1], keys, base2, len2, len2 - 1);
+        if (len2 == 0) {
+            return;
+        }
+        if (len1 <= len2) {
+            mergeLo(base1, len1, base2, len2);
+        } else {
+            mergeHi(base1, len1, base2, len2);
+        }
+    }
+
+    private void ensureTmp(int n) {
+        if (tmpKeys == null || tmpKeys.length < n) {
+            int size = Math.max(n, Math.min(keys.length >>> 1, 256));
+            tmpKeys = new $O[size];
+            if (values != null) {
+                tmpValues = new $O[size];
+            }
+        }
+    }
+
+    private void move($O[] srcKeys, $O[] srcValues, int src, int dest, int n) {
+        System.arraycopy(srcKeys, src, keys, dest, n);
+        if (values != null) {
+            System.arraycopy(srcValues, src, values, dest, n);
+        }
+    }
+
+    private void move1($O[] srcKeys, $O[] srcValues, int src, int dest) {
+        keys[dest] = srcKeys[src];
+        if (values != null) {
+            values[dest] = srcValues[src];
+        }
+    }
+
+    /**
+     * Merge two adjacent runs where len1 <= len2, copying run 1 aside
+     * and filling from the left.
+     */
+    private void mergeLo(int base1, int len1, int base2, int len2) {
+        ensureTmp(len1);
+        $O[] a = keys;
+        $O[] tmp = tmpKeys;
+        System.arraycopy(a, base1, tmp, 0, len1);
+        if (values != null) {
+            System.arraycopy(values, base1, tmpValues, 0, len1);
+        }
+        int cursor1 = 0;
+        int cursor2 = base2;
+        int dest = base1;
+
+        move1(a, values, cursor2++, dest++);
+        if (--len2 == 0) {
+            move(tmp, tmpValues, cursor1, dest, len1);
+            return;
+        }
+        if (len1 == 1) {
+            move(a, values, cursor2, dest, len2);
+            move1(tmp, tmpValues, cursor1, dest + len2);
+            return;
+        }
+
+        int gallop = minGallop;
+        outer:
+        while (true) {
+            int count1 = 0;
+            int count2 = 0;
+            // One item at a time until one run wins consistently
+            do {
+                if (lt(a[cursor2], tmp[cursor1])) {
+                    move1(a, values, cursor2++, dest++);
+                    count2++;
+                    count1 = 0;
+                    if (--len2 == 0) break outer;
+                } else {
+                    move1(tmp, tmpValues, cursor1++, dest++);
+                    count1++;
+                    count2 = 0;
+                    if (--len1 == 1) break outer;
+                }
+            } while ((count1 | count2) < gallop);
+
+            // Then gallop until neither run is winning by much
+            do {
+                count1 = gallopRight(a[cursor2], tmp, cursor1, len1, 0);
+                if (count1 != 0) {
+                    move(tmp, tmpValues, cursor1, dest, count1);
+                    dest += count1;
+                    cursor1 += count1;
+                    len1 -= count1;
+                    if (len1 <= 1) break outer;
+                }
+                move1(a, values, cursor2++, dest++);
+                if (--len2 == 0) break outer;
+
+                count2 = gallopLeft(tmp[cursor1], a, cursor2, len2, 0);
+                if (count2 != 0) {
+                    move(a, values, cursor2, dest, count2);
+                    dest += count2;
+                    cursor2 += count2;
+                    len2 -= count2;
+                    if (len2 == 0) break outer;
+                }
+                move1(tmp, tmpValues, cursor1++, dest++);
+                if (--len1 == 1) break outer;
+                gallop--;
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+            if (gallop < 0) gallop = 0;
+            gallop += 2;
+        }
+        minGallop = gallop < 1 ? 1 : gallop;
+
+        if (len1 == 1) {
+            move(a, values, cursor2, dest, len2);
+            move1(tmp, tmpValues, cursor1, dest + len2);
+        } else if (len1 > 0) {
+            // len1 == 0 only with an inconsistent __lt__; run 2 is in place
+            move(tmp, tmpValues, cursor1, dest, len1);
+        }
+    }
+
+    /**
+     * Merge two adjacent runs where len1 > len2, copying run 2 aside
+     * and filling from the right.
+     */
+    private void mergeHi(int base1, int len1, int base2, int len2) {
+        ensureTmp(len2);
+        $O[] a = keys;
+        $O[] tmp = tmpKeys;
+        System.arraycopy(a, base2, tmp, 0, len2);
+        if (values != null) {
+            System.arraycopy(values, base2, tmpValues, 0, len2);
+        }
+        int cursor1 = base1 + len1 - 1;
+        int cursor2 = len2 - 1;
+        int dest = base2 + len2 - 1;
+
+        move1(a, values, cursor1--, dest--);
+        if (--len1 == 0) {
+            move(tmp, tmpValues, 0, dest - (len2 - 1), len2);
+            return;
+        }
+        if (len2 == 1) {
+            dest -= len1;
+            cursor1 -= len1;
+            move(a, values, cursor1 + 1, dest + 1, len1);
+            move1(tmp, tmpValues, cursor2, dest);
+            return;
+        }
+
+        int gallop = minGallop;
+        outer:
+        while (true) {
+            int count1 = 0;
+            int count2 = 0;
+            do {
+                if (lt(tmp[cursor2], a[cursor1])) {
+                    move1(a, values, cursor1--, dest--);
+                    count1++;
+                    count2 = 0;
+                    if (--len1 == 0) break outer;
+                } else {
+                    move1(tmp, tmpValues, cursor2--, dest--);
+                    count2++;
+                    count1 = 0;
+                    if (--len2 == 1) break outer;
+                }
+            } while ((count1 | count2) < gallop);
+
+            do {
+                count1 = len1 - gallopRight(tmp[cursor2], a, base1, len1, len1 - 1);
+                if (count1 != 0) {
+                    dest -= count1;
+                    cursor1 -= count1;
+                    len1 -= count1;
+                    move(a, values, cursor1 + 1, dest + 1, count1);
+                    if (len1 == 0) break outer;
+                }
+                move1(tmp, tmpValues, cursor2--, dest--);
+                if (--len2 == 1) break outer;
+
+                count2 = len2 - gallopLeft(a[cursor1], tmp, 0, len2, len2 - 1);
+                if (count2 != 0) {
+                    dest -= count2;
+                    cursor2 -= count2;
+                    len2 -= count2;
+                    move(tmp, tmpValues, cursor2 + 1, dest + 1, count2);
+                    if (len2 <= 1) break outer;
+                }
+                move1(a, values, cursor1--, dest--);
+                if (--len1 == 0) break outer;
+                gallop--;
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+            if (gallop < 0) gallop = 0;
+            gallop += 2;
+        }
+        minGallop = gallop < 1 ? 1 : gallop;
+
+        if (len2 == 1) {
+            dest -= len1;
+            cursor1 -= len1;
+            move(a, values, cursor1 + 1, dest + 1, len1);
+            move1(tmp, tmpValues, cursor2, dest);
+        } else if (len2 > 0) {
+            // len2 == 0 only with an inconsistent __lt__; run 1 is in place
+            move(tmp, tmpValues, 0, dest - (len2 - 1), len2);
+        }
+    }
+}
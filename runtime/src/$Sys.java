@@ -1,8 +1,8 @@
 import java.io.File;
-import java.io.InputStreamReader;
-import java.io.BufferedReader;
-import java.io.PrintStream;
-import java.io.IOException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
 
 /**
  * $Sys - sys module implementation.
@@ -36,11 +36,14 @@ public final class $Sys {
     /** Platform identifier */
     public static final $S platform = $S.of("java");
     
-    /** Standard file descriptors - wrap Java System.in/out/err */
+    /** Standard streams, as sys.__stdin__ and friends */
     public static $O stdin;
     public static $O stdout;
     public static $O stderr;
     
+    /** Buffer size for the standard streams; batch jobs write a lot */
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+    
     /** Maximum recursion depth */
     public static $I maxsize = $I.of(Integer.MAX_VALUE);
     
@@ -73,86 +76,40 @@ public final class $Sys {
         // Initialize argv with empty list (will be set by main)
         argv.append($S.of("")); // argv[0] is script name
 
-        // Wrap Java standard streams as Python file-like objects
-        final BufferedReader stdinReader = new BufferedReader(new InputStreamReader(System.in));
-        stdin = new $O() {
-            @Override public $O __getattr__(String name) {
-                switch (name) {
-                    case "read":
-                        return new $O() {
-                            @Override public $O __call__($O... args) {
-                                try {
-                                    int size = args.length > 0 && args[0] instanceof $I
-                                        ? (int) Math.min(((($I)args[0]).value), Integer.MAX_VALUE) : -1;
-                                    if (size < 0) {
-                                        StringBuilder sb = new StringBuilder();
-                                        char[] buf = new char[4096];
-                                        int n;
-                                        while ((n = stdinReader.read(buf)) >= 0) sb.append(buf, 0, n);
-                                        return $S.of(sb.toString());
-                                    }
-                                    char[] buf = new char[size];
-                                    int n = stdinReader.read(buf, 0, size);
-                                    return $S.of(n <= 0 ? "" : new String(buf, 0, n));
-                                } catch (IOException e) { throw new $X("OSError", e.getMessage()); }
-                            }
-                        };
-                    case "readline":
-                        return new $O() {
-                            @Override public $O __call__($O... args) {
-                                try {
-                                    String line = stdinReader.readLine();
-                                    return line != null ? $S.of(line + "\n") : $S.of("");
-                                } catch (IOException e) { throw new $X("OSError", e.getMessage()); }
-                            }
-                        };
-                    default: return super.__getattr__(name);
-                }
-            }
-            @Override public $S __repr__() { return $S.of("<stdin>"); }
-        };
-
-        final PrintStream out = System.out;
-        stdout = new $O() {
-            @Override public $O __getattr__(String name) {
-                if ("write".equals(name)) {
-                    return new $O() {
-                        @Override public $O __call__($O... args) {
-                            if (args.length > 0) out.print(args[0].__str__().value);
-                            return $N.INSTANCE;
-                        }
-                    };
-                }
-                if ("flush".equals(name)) {
-                    return new $O() {
-                        @Override public $O __call__($O... args) { out.flush(); return $N.INSTANCE; }
-                    };
-                }
-                return super.__getattr__(name);
-            }
-            @Override public $S __repr__() { return $S.of("<stdout>"); }
-        };
-
-        final PrintStream err = System.err;
-        stderr = new $O() {
-            @Override public $O __getattr__(String name) {
-                if ("write".equals(name)) {
-                    return new $O() {
-                        @Override public $O __call__($O... args) {
-                            if (args.length > 0) err.print(args[0].__str__().value);
-                            return $N.INSTANCE;
-                        }
-                    };
-                }
-                if ("flush".equals(name)) {
-                    return new $O() {
-                        @Override public $O __call__($O... args) { err.flush(); return $N.INSTANCE; }
-                    };
-                }
-                return super.__getattr__(name);
-            }
-            @Override public $S __repr__() { return $S.of("<stderr>"); }
-        };
+        // The standard streams are TextIOWrappers over buffered FileIOs on
+        // descriptors 0-2. stdout is line buffered only on a terminal and
+        // stderr always is; both are flushed when the program exits.
+        boolean tty = System.console() != null;
+        stdin = stream(0, new FileInputStream(FileDescriptor.in).getChannel(), "<stdin>", "r",
+                       "strict", tty, false);
+        stdout = stream(1, new FileOutputStream(FileDescriptor.out).getChannel(), "<stdout>", "w",
+                        "strict", tty, tty);
+        stderr = stream(2, new FileOutputStream(FileDescriptor.err).getChannel(), "<stderr>", "w",
+                        "backslashreplace", tty, true);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            flushQuietly(stdout);
+            flushQuietly(stderr);
+        }));
+    }
+    
+    private static _io.TextIOWrapper stream(int fd, FileChannel channel, String name, String mode,
+                                            String errors, boolean tty, boolean lineBuffering) {
+        _io.FileIO raw = new _io.FileIO(fd, channel, name, mode, tty);
+        _io.BufferedIOBase buffer = fd == 0
+            ? new _io.BufferedReader(raw, STREAM_BUFFER_SIZE)
+            : new _io.BufferedWriter(raw, STREAM_BUFFER_SIZE);
+        return new _io.TextIOWrapper(buffer, $S.of("utf-8"), $S.of(errors), $N.INSTANCE, $B.of(lineBuffering));
+    }
+    
+    /**
+     * Flush a standard stream at exit; the reader may already be gone.
+     */
+    private static void flushQuietly($O stream) {
+        try {
+            stream.__getattr__("flush").__call__();
+        } catch (RuntimeException e) {
+            // Closed stream or broken pipe
+        }
     }
     
     /**
@@ -177,7 +134,7 @@ public final class $Sys {
         $S pathStr = $S.of(p);
         // Check if already in path
         for ($O item : path.items) {
-            if (item instanceof $S && ((($S)item).value.equals(p))) {
+            if (item instanceof $S && ((($S)item).value().equals(p))) {
                 return;
             }
         }
@@ -194,7 +151,7 @@ public final class $Sys {
         } else if (code instanceof $B) {
             exitCode = (($B)code).__bool__() ? 0 : 1;
         } else if (code != null && code != $N.INSTANCE) {
-            System.err.println(code.__str__().value);
+            System.err.println(code.__str__().value());
             exitCode = 1;
         }
         System.exit(exitCode);
@@ -232,25 +189,25 @@ public final class $Sys {
         @Override
         public $O __getitem__($O key) {
             if (key instanceof $S) {
-                String name = (($S)key).value;
+                String name = (($S)key).value();
                 if ($G.hasModule(name)) {
                     return $G.getModule(name);
                 }
             }
-            throw new $X("KeyError", key.__repr__().value);
+            throw new $X("KeyError", key.__repr__().value());
         }
         
         @Override
         public void __setitem__($O key, $O value) {
             if (key instanceof $S && value instanceof $Mod) {
-                $G.registerModule((($S)key).value, ($Mod)value);
+                $G.registerModule((($S)key).value(), ($Mod)value);
             }
         }
         
         @Override
         public $B __contains__($O key) {
             if (key instanceof $S) {
-                return $B.of($G.hasModule((($S)key).value));
+                return $B.of($G.hasModule((($S)key).value()));
             }
             return $B.FALSE;
         }
@@ -266,7 +223,7 @@ public final class $Sys {
         
         public $O get($O key, $O defaultValue) {
             if (key instanceof $S) {
-                String name = (($S)key).value;
+                String name = (($S)key).value();
                 if ($G.hasModule(name)) {
                     return $G.getModule(name);
                 }
@@ -1,5 +1,10 @@
 /**
  * $T - PyTuple, immutable sequence.
+ *
+ * Tuples share their items array with whoever built it when that array is
+ * handed over with wrap(); the fixed-arity of() overloads fill a fresh array
+ * directly, so a tuple costs one object plus one array instead of the extra
+ * varargs array that of($O...) has to copy.
  */
 public final class $T extends $O {
     
@@ -16,6 +21,103 @@ public final class $T extends $O {
         if (items.length == 0) return EMPTY;
         return new $T(items.clone());
     }
+
+    public static $T of($O a) {
+        return new $T(new $O[] { a });
+    }
+
+    public static $T of($O a, $O b) {
+        return new $T(new $O[] { a, b });
+    }
+
+    public static $T of($O a, $O b, $O c) {
+        return new $T(new $O[] { a, b, c });
+    }
+
+    public static $T of($O a, $O b, $O c, $O d) {
+        return new $T(new $O[] { a, b, c, d });
+    }
+
+    /**
+     * Build a tuple that takes ownership of the array without copying it.
+     * Used for arrays that nothing else holds on to, such as the one the
+     * compiler fills for a tuple display.
+     */
+    public static $T wrap($O[] items) {
+        if (items.length == 0) return EMPTY;
+        return new $T(items);
+    }
+
+    /**
+     * Unpack a value into exactly n targets ("a, b = value").
+     * A tuple of the right length hands back its own items array, so
+     * unpacking the result of a function that returns a pair allocates
+     * nothing. The array must only be read.
+     */
+    public static $O[] unpack($O value, int n) {
+        if (value instanceof $T) {
+            $O[] items = (($T) value).items;
+            if (items.length != n) throw unpackError(n, items.length);
+            return items;
+        }
+        if (value instanceof $L) {
+            java.util.List<$O> items = (($L) value).items;
+            if (items.size() != n) throw unpackError(n, items.size());
+            return items.toArray(new $O[n]);
+        }
+        $O iter = value.__iter__();
+        $O[] result = new $O[n];
+        for (int i = 0; i < n; i++) {
+            $O item = $BS.safeNext(iter);
+            if (item == null) throw unpackError(n, i);
+            result[i] = item;
+        }
+        if ($BS.safeNext(iter) != null) throw unpackError(n, n + 1);
+        return result;
+    }
+
+    /**
+     * Unpack a value into targets with one starred name
+     * ("a, *rest, b = value"): before items, a list of the middle, then
+     * after items.
+     */
+    public static $O[] unpackStarred($O value, int before, int after) {
+        $O[] items;
+        if (value instanceof $T) {
+            items = (($T) value).items;
+        } else {
+            java.util.List<$O> list = value instanceof $L ? (($L) value).items : new java.util.ArrayList<>();
+            if (!(value instanceof $L)) {
+                $O iter = value.__iter__();
+                for ($O item; (item = $BS.safeNext(iter)) != null; ) {
+                    list.add(item);
+                }
+            }
+            items = list.toArray(new $O[0]);
+        }
+        int n = before + after;
+        if (items.length < n) {
+            throw new $X("ValueError", "not enough values to unpack (expected at least "
+                + n + ", got " + items.length + ")");
+        }
+        $O[] result = new $O[n + 1];
+        System.arraycopy(items, 0, result, 0, before);
+        $L middle = new $L();
+        for (int i = before; i < items.length - after; i++) {
+            middle.items.add(items[i]);
+        }
+        result[before] = middle;
+        System.arraycopy(items, items.length - after, result, before + 1, after);
+        return result;
+    }
+
+    private static $X unpackError(int expected, int got) {
+        if (got > expected) {
+            return new $X("ValueError", "too many values to unpack (expected " + expected + ")");
+        }
+        return new $X("ValueError", "not enough values to unpack (expected "
+            + expected + ", got " + got + ")");
+    }
     
     @Override
     public boolean __bool__() {
@@ -28,7 +130,7 @@ public final class $T extends $O {
         sb.append('(');
         for (int i = 0; i < items.length; i++) {
             if (i > 0) sb.append(", ");
-            sb.append(items[i].__repr__().value);
+            sb.append(items[i].__repr__().value());
         }
         if (items.length == 1) sb.append(',');  // (x,) for single-element tuple
         sb.append(')');
@@ -83,7 +185,7 @@ public final class $T extends $O {
     public $O __getitem__($O key) {
         if (key instanceof $I) {
             $I i = ($I) key;
-            if (i.big != null) throw new $X("IndexError", "tuple index out of range");
+            if (i.isBig()) throw new $X("IndexError", "tuple index out of range");
             int idx = (int) i.value;
             if (idx < 0) idx += items.length;
             if (idx < 0 || idx >= items.length) {
@@ -108,7 +210,7 @@ public final class $T extends $O {
                     result.add(items[i]);
                 }
             }
-            return of(result.toArray(new $O[0]));
+            return wrap(result.toArray(new $O[0]));
         }
         throw new $X("TypeError", "tuple indices must be integers or slices");
     }
@@ -131,7 +233,7 @@ public final class $T extends $O {
             $O[] combined = new $O[items.length + o.items.length];
             System.arraycopy(items, 0, combined, 0, items.length);
             System.arraycopy(o.items, 0, combined, items.length, o.items.length);
-            return of(combined);
+            return wrap(combined);
         }
         throw new $X("TypeError", "can only concatenate tuple to tuple");
     }
@@ -140,14 +242,14 @@ public final class $T extends $O {
     public $O __mul__($O other) {
         if (other instanceof $I) {
             $I i = ($I) other;
-            if (i.big != null) throw new $X("OverflowError", "repeated tuple is too long");
+            if (i.isBig()) throw new $X("OverflowError", "repeated tuple is too long");
             int n = (int) i.value;
             if (n <= 0) return EMPTY;
             $O[] result = new $O[items.length * n];
             for (int j = 0; j < n; j++) {
                 System.arraycopy(items, 0, result, j * items.length, items.length);
             }
-            return of(result);
+            return wrap(result);
         }
         throw new $X("TypeError", "can't multiply sequence by non-int");
     }
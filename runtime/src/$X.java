@@ -16,6 +16,7 @@
  *     ├── ArithmeticError
  *     │   └── ZeroDivisionError
  *     ├── AssertionError
+ *     ├── BufferError
  *     ├── AttributeError
  *     ├── EOFError
  *     ├── ImportError
@@ -91,6 +92,7 @@ public class $X extends RuntimeException {
             case "ZeroDivisionError": return new ZeroDivisionError(message);
             case "OverflowError": return new OverflowError(message);
             case "AssertionError": return new AssertionError(message);
+            case "BufferError": return new BufferError(message);
             case "ImportError": return new ImportError(message);
             case "ModuleNotFoundError": return new ModuleNotFoundError(message);
             case "OSError": return new OSError(message);
@@ -149,7 +151,7 @@ public class $X extends RuntimeException {
         public final $O code;
         
         public SystemExit($O code) {
-            super(code != null ? code.__str__().value : "");
+            super(code != null ? code.__str__().value() : "");
             this.code = code;
         }
         
@@ -249,6 +251,13 @@ public class $X extends RuntimeException {
         @Override public String typeName() { return "AssertionError"; }
     }
     
+    public static class BufferError extends Exception {
+        public BufferError(String message) { super(message); }
+        public BufferError() { super(); }
+        protected static String getTypeName() { return "BufferError"; }
+        @Override public String typeName() { return "BufferError"; }
+    }
+    
     public static class AttributeError extends Exception {
         public AttributeError(String message) { super(message); }
         public AttributeError() { super(); }
@@ -336,7 +345,7 @@ public class $X extends RuntimeException {
         public $O key;
         
         public KeyError($O key) {
-            super(key.__repr__().value);
+            super(key.__repr__().value());
             this.key = key;
         }
         
@@ -579,6 +588,7 @@ class ExceptionClasses {
     public static final $Cls OverflowError = makeExceptionClass("OverflowError", ArithmeticError, $X.OverflowError.class);
     
     public static final $Cls AssertionError = makeExceptionClass("AssertionError", Exception, $X.AssertionError.class);
+    public static final $Cls BufferError = makeExceptionClass("BufferError", Exception, $X.BufferError.class);
     public static final $Cls AttributeError = makeExceptionClass("AttributeError", Exception, $X.AttributeError.class);
     public static final $Cls EOFError = makeExceptionClass("EOFError", Exception, $X.EOFError.class);
     public static final $Cls TypeError = makeExceptionClass("TypeError", Exception, $X.TypeError.class);
@@ -631,6 +641,7 @@ class ExceptionClasses {
         if (e instanceof $X.OverflowError) return OverflowError;
         if (e instanceof $X.ArithmeticError) return ArithmeticError;
         if (e instanceof $X.AssertionError) return AssertionError;
+        if (e instanceof $X.BufferError) return BufferError;
         if (e instanceof $X.AttributeError) return AttributeError;
         if (e instanceof $X.EOFError) return EOFError;
         if (e instanceof $X.TypeError) return TypeError;
@@ -676,6 +687,7 @@ class ExceptionClasses {
             case "ZeroDivisionError": return ZeroDivisionError;
             case "OverflowError": return OverflowError;
             case "AssertionError": return AssertionError;
+            case "BufferError": return BufferError;
             case "AttributeError": return AttributeError;
             case "EOFError": return EOFError;
             case "TypeError": return TypeError;
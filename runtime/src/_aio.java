@@ -0,0 +1,492 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * _aio - Asynchronous binary file I/O for async def code.
+ *
+ * Files are opened on an AsynchronousFileChannel, and read, readinto,
+ * readline and write return a $Future completed from the channel's
+ * CompletionHandler. Awaiting one parks the virtual thread on the future
+ * rather than blocking its carrier inside RandomAccessFile.read, so a
+ * burst of file reads in async handlers no longer starves the scheduler.
+ *
+ * Operations on one file run in the order they were issued: each starts
+ * when the previous one completes, so several can be started before any
+ * is awaited (or handed to async_gather) without racing on the position.
+ */
+public class _aio {
+
+    // Read-ahead for readline and line iteration
+    private static final int CHUNK = 1 << 16;
+
+    private static final String[] PARAMS = { "file", "mode" };
+
+    /**
+     * aio.open() as called from Python, with keyword arguments last in args.
+     */
+    public static AsyncFile open($O[] args, String[] kwnames) {
+        int nkw = kwnames != null ? kwnames.length : 0;
+        int argc = args.length - nkw;
+        if (argc > PARAMS.length) {
+            throw new $X.TypeError("open() takes at most 2 arguments (" + argc + " given)");
+        }
+        $O[] values = { null, $S.of("rb") };
+        System.arraycopy(args, 0, values, 0, argc);
+        for (int i = 0; i < nkw; i++) {
+            int j = java.util.Arrays.asList(PARAMS).indexOf(kwnames[i]);
+            if (j < 0) {
+                throw new $X.TypeError("'" + kwnames[i] + "' is an invalid keyword argument for open()");
+            }
+            if (j < argc) {
+                throw new $X.TypeError("argument for open() given by name ('" + kwnames[i]
+                    + "') and position (" + (j + 1) + ")");
+            }
+            values[j] = args[argc + i];
+        }
+        if (values[0] == null) {
+            throw new $X.TypeError("open() missing required argument 'file' (pos 1)");
+        }
+        if (!(values[0] instanceof $S) || !(values[1] instanceof $S)) {
+            throw new $X.TypeError("open() argument must be str");
+        }
+        return new AsyncFile((($S) values[0]).value(), (($S) values[1]).value());
+    }
+
+    /**
+     * Map a channel failure to the matching OSError subclass.
+     */
+    static $X error(Throwable e, String name) {
+        if (e instanceof $X) return ($X) e;
+        if (e instanceof NoSuchFileException) {
+            return new $X.FileNotFoundError("[Errno 2] No such file or directory: '" + name + "'");
+        }
+        if (e instanceof FileAlreadyExistsException) {
+            return new $X.FileExistsError("[Errno 17] File exists: '" + name + "'");
+        }
+        if (e instanceof AccessDeniedException) {
+            return new $X.PermissionError("[Errno 13] Permission denied: '" + name + "'");
+        }
+        return new $X.OSError(String.valueOf(e.getMessage()));
+    }
+
+    public static class AsyncFile extends $O {
+        private final String name;
+        private final String mode;
+        private final boolean reading;
+        private final boolean writing;
+        private final boolean appending;
+        private AsynchronousFileChannel channel;
+
+        // Logical position; the channel is always accessed at an explicit offset
+        private long pos;
+
+        // Bytes read ahead of pos by readline: ahead[aheadStart..aheadEnd)
+        private byte[] ahead = new byte[0];
+        private int aheadStart;
+        private int aheadEnd;
+
+        // Completes when the last issued operation has finished
+        private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+
+        AsyncFile(String name, String mode) {
+            this.name = name;
+            this.mode = mode;
+            int kinds = 0;
+            for (char c : mode.toCharArray()) {
+                if ("rwax".indexOf(c) >= 0) kinds++;
+                else if ("b+".indexOf(c) < 0) {
+                    throw new $X.ValueError("invalid mode: '" + mode + "'");
+                }
+            }
+            if (kinds != 1) {
+                throw new $X.ValueError("must have exactly one of create/read/write/append mode");
+            }
+            if (mode.indexOf('b') < 0) {
+                throw new $X.ValueError("aio files are binary; mode must include 'b'");
+            }
+            boolean plus = mode.indexOf('+') >= 0;
+            this.reading = mode.indexOf('r') >= 0 || plus;
+            this.writing = mode.indexOf('r') < 0 || plus;
+            this.appending = mode.indexOf('a') >= 0;
+
+            Set<OpenOption> options = new HashSet<>();
+            if (reading) options.add(StandardOpenOption.READ);
+            if (writing) options.add(StandardOpenOption.WRITE);
+            if (mode.indexOf('w') >= 0) {
+                options.add(StandardOpenOption.CREATE);
+                options.add(StandardOpenOption.TRUNCATE_EXISTING);
+            } else if (appending) {
+                options.add(StandardOpenOption.CREATE);
+            } else if (mode.indexOf('x') >= 0) {
+                options.add(StandardOpenOption.CREATE_NEW);
+            }
+            try {
+                this.channel = AsynchronousFileChannel.open(Path.of(name), options, null);
+                if (appending) pos = channel.size();
+            } catch (IOException e) {
+                throw error(e, name);
+            }
+        }
+
+        private void checkClosed() {
+            if (channel == null) throw new $X.ValueError("I/O operation on closed file.");
+        }
+
+        private void checkReadable() {
+            checkClosed();
+            if (!reading) throw new $X.OSError("not readable");
+        }
+
+        private void checkWritable() {
+            checkClosed();
+            if (!writing) throw new $X.OSError("not writable");
+        }
+
+        /**
+         * Queue an operation behind the ones already issued on this file.
+         */
+        private synchronized $Future submit(Supplier<CompletableFuture<$O>> operation) {
+            CompletableFuture<$O> result = tail.handle((ignored, failure) -> null)
+                .thenCompose(ignored -> {
+                    try {
+                        return operation.get();
+                    } catch (RuntimeException e) {
+                        return CompletableFuture.failedFuture(error(e, name));
+                    }
+                });
+            tail = result;
+            return new $Future(result);
+        }
+
+        /**
+         * Read from the channel at offset until dst is full or the file
+         * ends, completing with the number of bytes read.
+         */
+        private void fill(ByteBuffer dst, long offset, int done, CompletableFuture<Integer> result) {
+            if (!dst.hasRemaining()) {
+                result.complete(done);
+                return;
+            }
+            channel.read(dst, offset, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer n, Void attachment) {
+                    if (n < 0) result.complete(done);
+                    else fill(dst, offset + n, done + n, result);
+                }
+
+                @Override
+                public void failed(Throwable e, Void attachment) {
+                    result.completeExceptionally(error(e, name));
+                }
+            });
+        }
+
+        private CompletableFuture<Integer> fill(ByteBuffer dst, long offset) {
+            CompletableFuture<Integer> result = new CompletableFuture<>();
+            fill(dst, offset, 0, result);
+            return result;
+        }
+
+        /**
+         * Write all of src at offset; the channel may take it in pieces.
+         */
+        private void drain(ByteBuffer src, long offset, CompletableFuture<Integer> result) {
+            if (!src.hasRemaining()) {
+                result.complete(src.limit());
+                return;
+            }
+            channel.write(src, offset, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer n, Void attachment) {
+                    drain(src, offset + n, result);
+                }
+
+                @Override
+                public void failed(Throwable e, Void attachment) {
+                    result.completeExceptionally(error(e, name));
+                }
+            });
+        }
+
+        /**
+         * Move up to n read-ahead bytes into dst, returning how many.
+         */
+        private int takeAhead(ByteBuffer dst) {
+            int n = Math.min(aheadEnd - aheadStart, dst.remaining());
+            dst.put(ahead, aheadStart, n);
+            aheadStart += n;
+            pos += n;
+            return n;
+        }
+
+        private void dropAhead() {
+            aheadStart = aheadEnd = 0;
+        }
+
+        public $Future read($O size) {
+            checkReadable();
+            long n = size instanceof $I ? (($I) size).value : -1;
+            return submit(() -> {
+                long count = n;
+                if (count < 0) {
+                    try {
+                        count = Math.max(0, channel.size() - pos);
+                    } catch (IOException e) {
+                        throw error(e, name);
+                    }
+                }
+                if (count > Integer.MAX_VALUE - 8) {
+                    throw new $X.OverflowError("read length is too large");
+                }
+                ByteBuffer dst = ByteBuffer.allocate((int) count);
+                takeAhead(dst);
+                return fill(dst, pos).thenApply(got -> {
+                    pos += got;
+                    byte[] data = new byte[dst.position()];
+                    dst.flip().get(data);
+                    return ($O) $BY.of(data);
+                });
+            });
+        }
+
+        public $Future readinto($O buffer) {
+            checkReadable();
+            $MV dest = $MV.target(buffer, "readinto()");
+            return submit(() -> {
+                ByteBuffer dst = ByteBuffer.wrap(dest.buffer, dest.offset, dest.length);
+                int taken = takeAhead(dst);
+                return fill(dst, pos).thenApply(got -> {
+                    pos += got;
+                    return ($O) $I.of(taken + got);
+                });
+            });
+        }
+
+        public $Future write($O data) {
+            checkWritable();
+            // Copy now: the caller may reuse its buffer before the write runs
+            $MV view = $MV.written(data);
+            ByteBuffer src = ByteBuffer.wrap(java.util.Arrays.copyOfRange(view.buffer, view.offset,
+                                                                          view.offset + view.length));
+            return submit(() -> {
+                dropAhead();
+                if (appending) {
+                    try {
+                        pos = channel.size();
+                    } catch (IOException e) {
+                        throw error(e, name);
+                    }
+                }
+                CompletableFuture<Integer> result = new CompletableFuture<>();
+                drain(src, pos, result);
+                return result.thenApply(n -> {
+                    pos += n;
+                    return ($O) $I.of(n);
+                });
+            });
+        }
+
+        /**
+         * Complete with the next line, reading ahead a chunk at a time.
+         */
+        public $Future readline() {
+            checkReadable();
+            return submit(this::nextLine);
+        }
+
+        private CompletableFuture<$O> nextLine() {
+            for (int i = aheadStart; i < aheadEnd; i++) {
+                if (ahead[i] == '\n') return CompletableFuture.completedFuture(line(i + 1));
+            }
+            int have = aheadEnd - aheadStart;
+            if (ahead.length - have < CHUNK) {
+                byte[] grown = new byte[Math.max(ahead.length * 2, have + CHUNK)];
+                System.arraycopy(ahead, aheadStart, grown, 0, have);
+                ahead = grown;
+            } else if (aheadStart > 0) {
+                System.arraycopy(ahead, aheadStart, ahead, 0, have);
+            }
+            aheadStart = 0;
+            aheadEnd = have;
+            CompletableFuture<$O> result = new CompletableFuture<>();
+            channel.read(ByteBuffer.wrap(ahead, have, ahead.length - have), pos + have, null,
+                         new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer n, Void attachment) {
+                    if (n < 0) {
+                        result.complete(line(aheadEnd));
+                        return;
+                    }
+                    aheadEnd += n;
+                    nextLine().whenComplete((value, failure) -> {
+                        if (failure != null) result.completeExceptionally(failure);
+                        else result.complete(value);
+                    });
+                }
+
+                @Override
+                public void failed(Throwable e, Void attachment) {
+                    result.completeExceptionally(error(e, name));
+                }
+            });
+            return result;
+        }
+
+        private $O line(int end) {
+            byte[] data = java.util.Arrays.copyOfRange(ahead, aheadStart, end);
+            pos += end - aheadStart;
+            aheadStart = end;
+            return $BY.of(data);
+        }
+
+        /**
+         * Seek once the operations already issued have finished.
+         */
+        public $I seek($O offset, $O whence) {
+            checkClosed();
+            waitIdle();
+            long target = (($I) offset).value;
+            int w = whence instanceof $I ? (int) (($I) whence).value : 0;
+            try {
+                switch (w) {
+                    case 0: break;
+                    case 1: target += pos; break;
+                    case 2: target += channel.size(); break;
+                    default: throw new $X.ValueError("invalid whence (" + w + ", should be 0, 1 or 2)");
+                }
+            } catch (IOException e) {
+                throw error(e, name);
+            }
+            if (target < 0) throw new $X.ValueError("negative seek position " + target);
+            dropAhead();
+            pos = target;
+            return $I.of(pos);
+        }
+
+        public $I tell() {
+            checkClosed();
+            waitIdle();
+            return $I.of(pos);
+        }
+
+        private void waitIdle() {
+            CompletableFuture<?> last;
+            synchronized (this) {
+                last = tail;
+            }
+            new $Future(last.handle((ignored, failure) -> ($O) $N.INSTANCE)).get();
+        }
+
+        public void close() {
+            if (channel == null) return;
+            waitIdle();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw error(e, name);
+            } finally {
+                channel = null;
+            }
+        }
+
+        // async for line in f: __anext__ completes with StopAsyncIteration at EOF
+
+        public $Future __anext__() {
+            checkReadable();
+            return submit(() -> nextLine().thenApply(line -> {
+                if ((($BY) line).data.length == 0) throw new $X.StopAsyncIteration();
+                return line;
+            }));
+        }
+
+        // async for currently compiles as a plain for, so iteration awaits each line
+
+        @Override
+        public $O __iter__() {
+            checkReadable();
+            return this;
+        }
+
+        @Override
+        public $O __next__() {
+            $O line = readline().get();
+            if ((($BY) line).data.length == 0) throw new $X.StopIteration();
+            return line;
+        }
+
+        public AsyncFile __enter__() {
+            checkClosed();
+            return this;
+        }
+
+        public $O __exit__($O excType, $O excVal, $O excTb) {
+            close();
+            return $N.INSTANCE;
+        }
+
+        @Override
+        public $S __repr__() {
+            return $S.of("<aio.AsyncFile name='" + name + "' mode='" + mode + "'>");
+        }
+
+        @Override
+        public $O __getattr__(String attr) {
+            final AsyncFile self = this;
+            switch (attr) {
+                case "name": return $S.of(name);
+                case "mode": return $S.of(mode);
+                case "closed": return $B.of(channel == null);
+                case "read": return new $O() {
+                    @Override public $O __call__($O... args) { return self.read(args.length > 0 ? args[0] : null); }
+                };
+                case "readinto": return new $O() {
+                    @Override public $O __call__($O... args) { return self.readinto(args[0]); }
+                };
+                case "readline": return new $O() {
+                    @Override public $O __call__($O... args) { return self.readline(); }
+                };
+                case "write": return new $O() {
+                    @Override public $O __call__($O... args) { return self.write(args[0]); }
+                };
+                case "seek": return new $O() {
+                    @Override public $O __call__($O... args) {
+                        return self.seek(args[0], args.length > 1 ? args[1] : null);
+                    }
+                };
+                case "tell": return new $O() {
+                    @Override public $O __call__($O... args) { return self.tell(); }
+                };
+                case "close": return new $O() {
+                    @Override public $O __call__($O... args) { self.close(); return $N.INSTANCE; }
+                };
+                case "__aiter__": return new $O() {
+                    @Override public $O __call__($O... args) { return self; }
+                };
+                case "__anext__": return new $O() {
+                    @Override public $O __call__($O... args) { return self.__anext__(); }
+                };
+                case "__enter__": return new $O() {
+                    @Override public $O __call__($O... args) { return self.__enter__(); }
+                };
+                case "__exit__": return new $O() {
+                    @Override public $O __call__($O... args) {
+                        return self.__exit__(args[0], args[1], args[2]);
+                    }
+                };
+            }
+            return super.__getattr__(attr);
+        }
+    }
+}
@@ -327,7 +327,7 @@ public class _collections {
             boolean first = true;
             for ($O item : data) {
                 if (!first) sb.append(", ");
-                sb.append(item.__repr__().value);
+                sb.append(item.__repr__().value());
                 first = false;
             }
             sb.append("]");
@@ -438,7 +438,7 @@ public class _collections {
             if (items != null && items instanceof $D) {
                 // Copy items from dict
                 $D d = ($D)items;
-                for ($O key : d.keys().items) {
+                for ($O key : d.keyArray()) {
                     dict.__setitem__(key, d.__getitem__(key));
                 }
             }
@@ -497,15 +497,15 @@ public class _collections {
             return dict.get(key, defaultVal);
         }
         
-        public $L keys() {
+        public $DV keys() {
             return dict.keys();
         }
         
-        public $L values() {
+        public $DV values() {
             return dict.values();
         }
         
-        public $L items() {
+        public $DV items() {
             return dict.items();
         }
         
@@ -564,8 +564,8 @@ public class _collections {
         
         @Override
         public $S __repr__() {
-            String factory = default_factory instanceof $N ? "None" : default_factory.__repr__().value;
-            return $S.of("defaultdict(" + factory + ", " + dict.__repr__().value + ")");
+            String factory = default_factory instanceof $N ? "None" : default_factory.__repr__().value();
+            return $S.of("defaultdict(" + factory + ", " + dict.__repr__().value() + ")");
         }
         
         @Override
@@ -590,7 +590,7 @@ public class _collections {
          */
         public defaultdict copy() {
             defaultdict result = new defaultdict(default_factory);
-            for ($O key : dict.keys().items) {
+            for ($O key : dict.keyArray()) {
                 result.dict.__setitem__(key, dict.__getitem__(key));
             }
             return result;
@@ -649,15 +649,15 @@ public class _collections {
             return dict.__iter__();
         }
         
-        public $L keys() {
+        public $DV keys() {
             return dict.keys();
         }
         
-        public $L values() {
+        public $DV values() {
             return dict.values();
         }
         
-        public $L items() {
+        public $DV items() {
             return dict.items();
         }
         
@@ -668,7 +668,7 @@ public class _collections {
             if (iterable instanceof $D) {
                 // Update from dict
                 $D d = ($D)iterable;
-                for ($O key : d.keys().items) {
+                for ($O key : d.keyArray()) {
                     $O count = d.__getitem__(key);
                     $O existing = __getitem__(key);
                     __setitem__(key, existing.__add__(count));
@@ -699,7 +699,7 @@ public class _collections {
         public $L most_common($O n) {
             // Get all items and sort by count descending
             $L itemsList = new $L();
-            for ($O key : dict.keys().items) {
+            for ($O key : dict.keyArray()) {
                 itemsList.append($T.of(key, __getitem__(key)));
             }
             
@@ -735,7 +735,7 @@ public class _collections {
         public void subtract($O iterable) {
             if (iterable instanceof $D) {
                 $D d = ($D)iterable;
-                for ($O key : d.keys().items) {
+                for ($O key : d.keyArray()) {
                     $O count = d.__getitem__(key);
                     $O existing = __getitem__(key);
                     __setitem__(key, existing.__sub__(count));
@@ -757,7 +757,7 @@ public class _collections {
         
         @Override
         public $S __repr__() {
-            return $S.of("Counter(" + dict.__repr__().value + ")");
+            return $S.of("Counter(" + dict.__repr__().value() + ")");
         }
         
         @Override
@@ -777,7 +777,7 @@ public class _collections {
         
         Counter_elements_iterator(Counter counter) {
             this.counter = counter;
-            this.keyIter = counter.keys().items.iterator();
+            this.keyIter = java.util.Arrays.asList(counter.dict.keyArray()).iterator();
             this.remaining = 0;
         }
         
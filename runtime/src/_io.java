@@ -1,7 +1,13 @@
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 
@@ -24,6 +30,88 @@ public class _io {
     public static final int SEEK_CUR = 1;
     public static final int SEEK_END = 2;
     
+    // Open files and sockets by descriptor; 0-2 are the standard streams
+    private static final java.util.Map<Integer, $O> descriptors = new java.util.HashMap<>();
+    private static int nextDescriptor = 3;
+    
+    /**
+     * The open FileIO or socket for descriptor fd, as posix and mmap
+     * find it.
+     */
+    static synchronized $O descriptor(long fd) {
+        $O owner = fd >= 0 && fd <= Integer.MAX_VALUE ? descriptors.get((int) fd) : null;
+        if (owner == null) throw new $X.OSError("[Errno 9] Bad file descriptor");
+        return owner;
+    }
+    
+    /**
+     * Give owner the lowest free descriptor, as the OS does.
+     */
+    static synchronized int openDescriptor($O owner) {
+        while (descriptors.containsKey(nextDescriptor)) nextDescriptor++;
+        int fd = nextDescriptor++;
+        descriptors.put(fd, owner);
+        return fd;
+    }
+    
+    /**
+     * Register owner for a descriptor the process already has open.
+     */
+    static synchronized void bindDescriptor(int fd, $O owner) {
+        descriptors.put(fd, owner);
+    }
+    
+    static synchronized void closeDescriptor(int fd) {
+        if (descriptors.remove(fd) != null) {
+            nextDescriptor = Math.min(nextDescriptor, fd);
+        }
+    }
+    
+    /**
+     * The FileIO under a binary file object, ready for a channel transfer:
+     * pending buffered writes are flushed and read-ahead is given back, so
+     * its position is the stream's logical one. Null for anything else.
+     */
+    static FileIO fileOf($O stream) {
+        if (stream instanceof FileIO) return (FileIO) stream;
+        if (stream instanceof BufferedBase) return ((BufferedBase) stream).syncedFile();
+        return null;
+    }
+    
+    // The most one bytes object (a Java array) can hold
+    static final int MAX_BYTES = Integer.MAX_VALUE - 8;
+    
+    /**
+     * A seek offset or truncate size. Positions are 64-bit throughout;
+     * only ints beyond a long are refused.
+     */
+    static long offset($O value) {
+        if (!(value instanceof $I)) {
+            throw new $X.TypeError("an integer is required");
+        }
+        if ((($I) value).isBig()) throw new $X.OverflowError("Python int too large to convert to C long");
+        return (($I) value).value;
+    }
+    
+    /** A read size or limit; -1 (read everything) for None or a negative int. */
+    static long size($O value) {
+        if (!(value instanceof $I)) return -1;
+        $I i = ($I) value;
+        if (i.isBig()) return i.signum() < 0 ? -1 : Long.MAX_VALUE;
+        return i.value < 0 ? -1 : i.value;
+    }
+    
+    /**
+     * The length of an array for n bytes read at once. Files can be far
+     * larger than one bytes object; those are read in pieces or mapped.
+     */
+    static int arraySize(long n) {
+        if (n > MAX_BYTES) {
+            throw new $X.OverflowError("cannot read " + n + " bytes into one bytes object; read in chunks or use mmap");
+        }
+        return (int) n;
+    }
+    
     /**
      * IOBase - Abstract base class for all I/O.
      */
@@ -95,45 +183,30 @@ public class _io {
             return $N.INSTANCE;
         }
         
+        static final $NM<IOBase> METHODS = new $NM<>(IOBase.class)
+            .add("close", self -> { self.close(); return $N.INSTANCE; })
+            .add("flush", self -> { self.flush(); return $N.INSTANCE; })
+            .add("readable", IOBase::readable)
+            .add("writable", IOBase::writable)
+            .add("seekable", IOBase::seekable)
+            .add("isatty", IOBase::isatty)
+            .add("fileno", IOBase::fileno)
+            .add("__enter__", IOBase::__enter__)
+            .add("__exit__", IOBase::__exit__, $N.INSTANCE, $N.INSTANCE, $N.INSTANCE);
+        
+        // Methods handed out as values, by table slot
+        private $O[] bound;
+        
         @Override
         public $O __getattr__(String name) {
-            final IOBase self = this;
             switch (name) {
                 case "closed": return $B.of(closed);
-                case "close": return new $O() {
-                    @Override public $O __call__($O... args) { self.close(); return $N.INSTANCE; }
-                };
-                case "flush": return new $O() {
-                    @Override public $O __call__($O... args) { self.flush(); return $N.INSTANCE; }
-                };
-                case "readable": return new $O() {
-                    @Override public $O __call__($O... args) { return self.readable(); }
-                };
-                case "writable": return new $O() {
-                    @Override public $O __call__($O... args) { return self.writable(); }
-                };
-                case "seekable": return new $O() {
-                    @Override public $O __call__($O... args) { return self.seekable(); }
-                };
-                case "isatty": return new $O() {
-                    @Override public $O __call__($O... args) { return self.isatty(); }
-                };
-                case "fileno": return new $O() {
-                    @Override public $O __call__($O... args) { return self.fileno(); }
-                };
-                case "__enter__": return new $O() {
-                    @Override public $O __call__($O... args) { return self.__enter__(); }
-                };
-                case "__exit__": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.__exit__(
-                            args.length > 0 ? args[0] : $N.INSTANCE,
-                            args.length > 1 ? args[1] : $N.INSTANCE,
-                            args.length > 2 ? args[2] : $N.INSTANCE
-                        );
-                    }
-                };
-                default: return super.__getattr__(name);
+                default: {
+                    $NM<?> methods = $NM.of(getClass());
+                    if (!methods.has(name)) return super.__getattr__(name);
+                    if (bound == null) bound = methods.newCache();
+                    return methods.bind(this, name, bound);
+                }
             }
         }
     }
@@ -153,41 +226,21 @@ public class _io {
          */
         public $O readinto($O buffer) {
             checkReadable();
-            if (!(buffer instanceof $BY)) {
-                throw new $X.TypeError("readinto() argument must be a bytes-like object, not "
-                    + (buffer != null ? buffer.getClass().getSimpleName() : "NoneType"));
-            }
-            byte[] dest = (($BY) buffer).data;
+            $MV dest = $MV.target(buffer, "readinto()");
             if (dest.length == 0) return $I.of(0);
             $O chunk = read($I.of(dest.length));
             if (!(chunk instanceof $BY)) return $I.of(0);
             byte[] src = (($BY) chunk).data;
             int n = src.length;
-            if (n > 0) System.arraycopy(src, 0, dest, 0, n);
+            if (n > 0) System.arraycopy(src, 0, dest.buffer, dest.offset, n);
             return $I.of(n);
         }
         
-        @Override
-        public $O __getattr__(String name) {
-            final RawIOBase self = this;
-            switch (name) {
-                case "read": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.read(args.length > 0 ? args[0] : $I.of(-1)); 
-                    }
-                };
-                case "readall": return new $O() {
-                    @Override public $O __call__($O... args) { return self.readall(); }
-                };
-                case "write": return new $O() {
-                    @Override public $O __call__($O... args) { return self.write(args[0]); }
-                };
-                case "readinto": return new $O() {
-                    @Override public $O __call__($O... args) { return self.readinto(args[0]); }
-                };
-                default: return super.__getattr__(name);
-            }
-        }
+        static final $NM<RawIOBase> METHODS = new $NM<>(RawIOBase.class, IOBase.METHODS)
+            .add("read", RawIOBase::read, $I.of(-1))
+            .add("readall", RawIOBase::readall)
+            .add("write", RawIOBase::write)
+            .add("readinto", RawIOBase::readinto);
     }
     
     /**
@@ -207,48 +260,41 @@ public class _io {
         public abstract $O read1($O size);
         public abstract $I write($O data);
         
+        public $I seek($O pos, $O whence) {
+            throw new $X.OSError("seek not supported");
+        }
+        
+        public $I tell() {
+            throw new $X.OSError("tell not supported");
+        }
+        
         /** Read bytes into a writable buffer; uses read() and copies. */
         public $O readinto($O buffer) {
             checkClosed();
             if (!readable().__bool__()) throw new $X.OSError("not readable");
-            if (!(buffer instanceof $BY)) {
-                throw new $X.TypeError("readinto() argument must be a bytes-like object, not "
-                    + (buffer != null ? buffer.getClass().getSimpleName() : "NoneType"));
-            }
-            byte[] dest = (($BY) buffer).data;
+            $MV dest = $MV.target(buffer, "readinto()");
             if (dest.length == 0) return $I.of(0);
             $O chunk = read($I.of(dest.length));
             if (!(chunk instanceof $BY)) return $I.of(0);
             byte[] src = (($BY) chunk).data;
             int n = src.length;
-            if (n > 0) System.arraycopy(src, 0, dest, 0, n);
+            if (n > 0) System.arraycopy(src, 0, dest.buffer, dest.offset, n);
             return $I.of(n);
         }
         
+        static final $NM<BufferedIOBase> METHODS = new $NM<>(BufferedIOBase.class, IOBase.METHODS)
+            .add("detach", BufferedIOBase::detach)
+            .add("read", BufferedIOBase::read, $I.of(-1))
+            .add("read1", BufferedIOBase::read1, $I.of(-1))
+            .add("readinto", BufferedIOBase::readinto)
+            .add("write", BufferedIOBase::write)
+            .add("seek", BufferedIOBase::seek, $I.of(SEEK_SET))
+            .add("tell", BufferedIOBase::tell);
+        
         @Override
         public $O __getattr__(String name) {
-            final BufferedIOBase self = this;
             switch (name) {
                 case "raw": return raw;
-                case "detach": return new $O() {
-                    @Override public $O __call__($O... args) { return self.detach(); }
-                };
-                case "read": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.read(args.length > 0 ? args[0] : $I.of(-1)); 
-                    }
-                };
-                case "read1": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.read1(args.length > 0 ? args[0] : $I.of(-1)); 
-                    }
-                };
-                case "readinto": return new $O() {
-                    @Override public $O __call__($O... args) { return self.readinto(args[0]); }
-                };
-                case "write": return new $O() {
-                    @Override public $O __call__($O... args) { return self.write(args[0]); }
-                };
                 default: return super.__getattr__(name);
             }
         }
@@ -274,9 +320,9 @@ public class _io {
             
             while (true) {
                 $S line = readline($I.of(-1));
-                if (line.value.isEmpty()) break;
+                if (line.value().isEmpty()) break;
                 lines.append(line);
-                bytesRead += line.value.length();
+                bytesRead += line.value().length();
                 if (hintBytes > 0 && bytesRead >= hintBytes) break;
             }
             return lines;
@@ -304,40 +350,25 @@ public class _io {
         @Override
         public $O __next__() {
             $S line = readline($I.of(-1));
-            if (line.value.isEmpty()) {
+            if (line.value().isEmpty()) {
                 throw new $X.StopIteration();
             }
             return line;
         }
         
+        static final $NM<TextIOBase> METHODS = new $NM<>(TextIOBase.class, IOBase.METHODS)
+            .add("read", TextIOBase::read, $I.of(-1))
+            .add("readline", TextIOBase::readline, $I.of(-1))
+            .add("readlines", TextIOBase::readlines, $I.of(-1))
+            .add("write", TextIOBase::write)
+            .add("writelines", TextIOBase::writelines);
+        
         @Override
         public $O __getattr__(String name) {
-            final TextIOBase self = this;
             switch (name) {
                 case "encoding": return $S.of(encoding);
                 case "errors": return $S.of(errors);
                 case "newlines": return newline != null ? $S.of(newline) : $N.INSTANCE;
-                case "read": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.read(args.length > 0 ? args[0] : $I.of(-1)); 
-                    }
-                };
-                case "readline": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.readline(args.length > 0 ? args[0] : $I.of(-1)); 
-                    }
-                };
-                case "readlines": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.readlines(args.length > 0 ? args[0] : $I.of(-1)); 
-                    }
-                };
-                case "write": return new $O() {
-                    @Override public $O __call__($O... args) { return self.write(args[0]); }
-                };
-                case "writelines": return new $O() {
-                    @Override public $O __call__($O... args) { return self.writelines(args[0]); }
-                };
                 default: return super.__getattr__(name);
             }
         }
@@ -355,16 +386,18 @@ public class _io {
         private final boolean writing;
         private final boolean appending;
         private final boolean creating;
+        private final boolean tty;
         private int fd = -1;
         
         public FileIO($O name, $O mode, $O closefd, $O opener) {
-            this.name = (($S)name).value;
-            this.mode = mode instanceof $S ? (($S)mode).value : "r";
+            this.name = (($S)name).value();
+            this.mode = mode instanceof $S ? (($S)mode).value() : "r";
             
-            this.reading = this.mode.contains("r");
+            this.reading = this.mode.contains("r") || this.mode.contains("+");
             this.writing = this.mode.contains("w") || this.mode.contains("a") || this.mode.contains("+");
             this.appending = this.mode.contains("a");
             this.creating = this.mode.contains("x") || this.mode.contains("w");
+            this.tty = false;
             
             try {
                 File f = new File(this.name);
@@ -390,6 +423,7 @@ public class _io {
                     file.seek(file.length());
                 }
                 
+                fd = openDescriptor(this);
             } catch ($X e) {
                 throw e;
             } catch (IOException e) {
@@ -397,6 +431,23 @@ public class _io {
             }
         }
         
+        /**
+         * A FileIO over standard descriptor fd, which the process already
+         * has open; closing it leaves the descriptor open.
+         */
+        FileIO(int fd, FileChannel channel, String name, String mode, boolean tty) {
+            this.name = name;
+            this.mode = mode;
+            this.reading = mode.contains("r");
+            this.writing = !this.reading;
+            this.appending = false;
+            this.creating = false;
+            this.tty = tty;
+            this.channel = channel;
+            this.fd = fd;
+            bindDescriptor(fd, this);
+        }
+        
         @Override
         public $B readable() { return $B.of(reading); }
         
@@ -404,46 +455,155 @@ public class _io {
         public $B writable() { return $B.of(writing); }
         
         @Override
-        public $B seekable() { return $B.TRUE; }
+        public $B seekable() { return $B.of(file != null); }
+        
+        @Override
+        public $B isatty() {
+            checkClosed();
+            return $B.of(tty);
+        }
         
         @Override
         protected void doClose() throws IOException {
             if (file != null) {
+                closeDescriptor(fd);
                 channel.close();
                 file.close();
             }
         }
         
         @Override
-        public $O read($O size) {
+        public $I fileno() {
+            checkClosed();
+            return $I.of(fd);
+        }
+        
+        /** The channel that mmap maps; checks the file is still open. */
+        FileChannel channel() {
+            checkClosed();
+            return channel;
+        }
+        
+        boolean isReading() { return reading; }
+        
+        /**
+         * Copy up to count bytes from position to target without moving
+         * this file's position; the JDK hands file and socket targets to
+         * sendfile. Stops early only at end of file.
+         * @return bytes copied
+         */
+        long transferTo(long position, long count, WritableByteChannel target) {
             checkReadable();
+            long done = 0;
             try {
-                int n = size instanceof $I ? (int)(($I)size).value : -1;
-                if (n < 0) {
-                    return readall();
+                while (done < count) {
+                    long n = channel.transferTo(position + done, count - done, target);
+                    if (n <= 0) break;
+                    done += n;
                 }
-                byte[] buf = new byte[n];
-                int len = file.read(buf);
-                if (len < 0) return $BY.of(new byte[0]);
-                if (len < n) {
-                    byte[] result = new byte[len];
-                    System.arraycopy(buf, 0, result, 0, len);
-                    return $BY.of(result);
+            } catch (IOException e) {
+                throw new $X.OSError(e.getMessage());
+            }
+            return done;
+        }
+        
+        /** The channel a transfer writes to, at the end in append mode. */
+        WritableByteChannel sink() {
+            checkWritable();
+            try {
+                if (appending) channel.position(channel.size());
+            } catch (IOException e) {
+                throw new $X.OSError(e.getMessage());
+            }
+            return channel;
+        }
+        
+        long position() {
+            return tell().value;
+        }
+        
+        void position(long pos) {
+            seek($I.of(pos), $I.of(SEEK_SET));
+        }
+        
+        boolean isWriting() { return writing; }
+        
+        /**
+         * Read from the current position into dst through the channel.
+         * @return bytes read, or -1 at end of file
+         */
+        int readChannel(ByteBuffer dst) {
+            try {
+                return channel.read(dst);
+            } catch (IOException e) {
+                throw new $X.OSError(e.getMessage());
+            }
+        }
+        
+        /**
+         * Write all of src through the channel, at the end of the file in
+         * append mode.
+         */
+        void writeChannel(ByteBuffer src) {
+            try {
+                if (appending) channel.position(channel.size());
+                while (src.hasRemaining()) {
+                    channel.write(src);
                 }
-                return $BY.of(buf);
             } catch (IOException e) {
                 throw new $X.OSError(e.getMessage());
             }
         }
         
+        @Override
+        public $O read($O size) {
+            checkReadable();
+            long n = size(size);
+            if (n < 0) {
+                return readall();
+            }
+            long left = remaining();
+            if (left >= 0) n = Math.min(n, left);
+            byte[] buf = new byte[arraySize(n)];
+            int len = buf.length == 0 ? 0 : readChannel(ByteBuffer.wrap(buf));
+            if (len <= 0) return $BY.of(new byte[0]);
+            return $BY.of(len < n ? java.util.Arrays.copyOf(buf, len) : buf);
+        }
+        
         @Override
         public $O readall() {
             checkReadable();
+            if (file == null) {
+                // A pipe or terminal: read until end of file
+                ByteArrayOutputStream all = new ByteArrayOutputStream();
+                ByteBuffer block = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+                while (readChannel(block.clear()) >= 0) {
+                    arraySize((long) all.size() + block.position());
+                    all.write(block.array(), 0, block.position());
+                }
+                return $BY.of(all.toByteArray());
+            }
+            // Sized from the channel, in 64 bits, then read in channel-sized
+            // pieces; a file that grows meanwhile is read to its new end
+            ByteBuffer dst = ByteBuffer.allocate(arraySize(remaining()));
+            while (true) {
+                while (dst.hasRemaining() && readChannel(dst) >= 0) { }
+                if (dst.hasRemaining()) break;
+                long more = remaining();
+                if (more == 0) break;
+                ByteBuffer grown = ByteBuffer.allocate(arraySize((long) dst.capacity() + more));
+                grown.put(dst.flip());
+                dst = grown;
+            }
+            byte[] buf = dst.array();
+            return $BY.of(dst.position() < buf.length ? java.util.Arrays.copyOf(buf, dst.position()) : buf);
+        }
+        
+        /** Bytes from the position to the end of the file; -1 for a pipe or terminal. */
+        long remaining() {
+            if (file == null) return -1;
             try {
-                long remaining = file.length() - file.getFilePointer();
-                byte[] buf = new byte[(int)remaining];
-                file.readFully(buf);
-                return $BY.of(buf);
+                return Math.max(0, channel.size() - channel.position());
             } catch (IOException e) {
                 throw new $X.OSError(e.getMessage());
             }
@@ -452,98 +612,78 @@ public class _io {
         @Override
         public $O readinto($O buffer) {
             checkReadable();
-            if (!(buffer instanceof $BY)) {
-                throw new $X.TypeError("readinto() argument must be a bytes-like object, not "
-                    + (buffer != null ? buffer.getClass().getSimpleName() : "NoneType"));
-            }
-            byte[] dest = (($BY) buffer).data;
+            $MV dest = $MV.target(buffer, "readinto()");
             if (dest.length == 0) return $I.of(0);
-            try {
-                int n = file.read(dest);
-                return $I.of(n < 0 ? 0 : n);
-            } catch (IOException e) {
-                throw new $X.OSError(e.getMessage());
-            }
+            int n = readChannel(ByteBuffer.wrap(dest.buffer, dest.offset, dest.length));
+            return $I.of(n < 0 ? 0 : n);
         }
         
         @Override
         public $I write($O data) {
             checkWritable();
-            try {
-                byte[] bytes;
-                if (data instanceof $BY) {
-                    bytes = (($BY)data).data;
-                } else if (data instanceof $S) {
-                    bytes = (($S)data).value.getBytes(StandardCharsets.UTF_8);
-                } else {
-                    throw new $X.TypeError("a bytes-like object is required");
-                }
-                file.write(bytes);
-                return $I.of(bytes.length);
-            } catch (IOException e) {
-                throw new $X.OSError(e.getMessage());
-            }
+            $MV view = $MV.written(data);
+            writeChannel(ByteBuffer.wrap(view.buffer, view.offset, view.length));
+            return $I.of(view.length);
         }
         
         public $I seek($O pos, $O whence) {
             checkSeekable();
             try {
-                long offset = (($I)pos).value;
+                long offset = offset(pos);
                 int w = whence instanceof $I ? (int)(($I)whence).value : SEEK_SET;
                 
                 long newPos;
                 switch (w) {
                     case SEEK_SET: newPos = offset; break;
-                    case SEEK_CUR: newPos = file.getFilePointer() + offset; break;
-                    case SEEK_END: newPos = file.length() + offset; break;
+                    case SEEK_CUR: newPos = Math.addExact(channel.position(), offset); break;
+                    case SEEK_END: newPos = Math.addExact(channel.size(), offset); break;
                     default: throw new $X.ValueError("invalid whence value");
                 }
-                file.seek(newPos);
+                if (newPos < 0) throw new $X.OSError("[Errno 22] Invalid argument");
+                channel.position(newPos);
                 return $I.of(newPos);
+            } catch (ArithmeticException e) {
+                throw new $X.OverflowError("seek position out of range");
             } catch (IOException e) {
                 throw new $X.OSError(e.getMessage());
             }
         }
         
         public $I tell() {
-            checkClosed();
+            checkSeekable();
             try {
-                return $I.of(file.getFilePointer());
+                return $I.of(channel.position());
             } catch (IOException e) {
                 throw new $X.OSError(e.getMessage());
             }
         }
         
-        public $N truncate($O size) {
+        public $I truncate($O size) {
             checkWritable();
+            checkSeekable();
             try {
-                long s = size instanceof $I ? (($I)size).value : file.getFilePointer();
+                long s = size == $N.INSTANCE ? channel.position() : offset(size);
+                if (s < 0) throw new $X.OSError("[Errno 22] Invalid argument");
+                // setLength would pull the position back to a shorter end
+                long at = channel.position();
                 file.setLength(s);
-                return $N.INSTANCE;
+                channel.position(at);
+                return $I.of(s);
             } catch (IOException e) {
                 throw new $X.OSError(e.getMessage());
             }
         }
         
+        static final $NM<FileIO> METHODS = new $NM<>(FileIO.class, RawIOBase.METHODS)
+            .add("seek", FileIO::seek, $I.of(SEEK_SET))
+            .add("tell", FileIO::tell)
+            .add("truncate", FileIO::truncate, $N.INSTANCE);
+        
         @Override
         public $O __getattr__(String name) {
-            final FileIO self = this;
             switch (name) {
                 case "name": return $S.of(this.name);
                 case "mode": return $S.of(this.mode);
-                case "seek": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.seek(args[0], args.length > 1 ? args[1] : $I.of(SEEK_SET)); 
-                    }
-                };
-                case "tell": return new $O() {
-                    @Override public $O __call__($O... args) { return self.tell(); }
-                };
-                case "truncate": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.truncate(args.length > 0 ? args[0] : $N.INSTANCE); 
-                    }
-                };
                 default: return super.__getattr__(name);
             }
         }
@@ -555,223 +695,418 @@ public class _io {
     }
     
     /**
-     * BufferedReader - Buffered reading.
+     * Whether buffered objects use direct ByteBuffers; heap buffers are
+     * the default so readline() can scan the array.
      */
-    public static class BufferedReader extends BufferedIOBase {
-        private byte[] buffer;
-        private int bufferPos = 0;
-        private int bufferEnd = 0;
+    static final boolean DIRECT_BUFFERS = Boolean.getBoolean("loretta.io.direct");
+    
+    /**
+     * BufferedBase - Buffering shared by BufferedReader, BufferedWriter
+     * and BufferedRandom.
+     *
+     * Both buffers are ByteBuffers allocated once; a FileIO is read and
+     * written through its FileChannel straight into and out of them, and
+     * reads or writes at least a buffer long skip the buffer entirely.
+     * Read-ahead is in[position, limit); pending writes are
+     * out[0, position). A stream that does both drops its read-ahead
+     * before writing and flushes before reading.
+     */
+    static abstract class BufferedBase extends BufferedIOBase {
+        protected final ByteBuffer in;
+        protected final ByteBuffer out;
         
-        public BufferedReader(RawIOBase raw, int bufferSize) {
+        BufferedBase(RawIOBase raw, int bufferSize, boolean reading, boolean writing) {
             this.raw = raw;
-            this.buffer = new byte[bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE];
+            int size = bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE;
+            this.in = reading ? allocate(size).flip() : null;
+            this.out = writing ? allocate(size) : null;
         }
         
-        public BufferedReader(RawIOBase raw) {
-            this(raw, DEFAULT_BUFFER_SIZE);
+        private static ByteBuffer allocate(int size) {
+            return DIRECT_BUFFERS ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
         }
         
         @Override
-        public $B readable() { return $B.TRUE; }
+        public $B readable() { return $B.of(in != null); }
+        
+        @Override
+        public $B writable() { return $B.of(out != null); }
         
         @Override
         public $B seekable() { return raw.seekable(); }
         
+        @Override
+        public $B isatty() { return raw.isatty(); }
+        
+        @Override
+        public $I fileno() { return raw.fileno(); }
+        
         @Override
         protected void doClose() throws IOException {
-            raw.close();
+            try {
+                flushWrites();
+            } finally {
+                raw.close();
+            }
         }
         
-        private void fillBuffer() {
-            $O data = raw.read($I.of(buffer.length));
-            if (data instanceof $BY) {
-                byte[] bytes = (($BY)data).data;
-                System.arraycopy(bytes, 0, buffer, 0, bytes.length);
-                bufferPos = 0;
-                bufferEnd = bytes.length;
-            } else {
-                bufferEnd = 0;
+        @Override
+        public void flush() {
+            // Don't check closed - may be called during close
+            flushWrites();
+        }
+        
+        // Raw I/O
+        
+        /**
+         * Read what is available into dst.
+         * @return bytes read, or -1 at end of file
+         */
+        private int readRaw(ByteBuffer dst) {
+            if (raw instanceof FileIO) {
+                return ((FileIO) raw).readChannel(dst);
+            }
+            $O data = raw.read($I.of(dst.remaining()));
+            byte[] bytes = data instanceof $BY ? (($BY) data).data : new byte[0];
+            if (bytes.length == 0) return -1;
+            dst.put(bytes);
+            return bytes.length;
+        }
+        
+        private void writeRaw(ByteBuffer src) {
+            if (raw instanceof FileIO) {
+                ((FileIO) raw).writeChannel(src);
+                return;
+            }
+            byte[] bytes = new byte[src.remaining()];
+            src.get(bytes);
+            raw.write($BY.of(bytes));
+        }
+        
+        private FileIO file() {
+            if (!(raw instanceof FileIO)) throw new $X.OSError("not seekable");
+            return (FileIO) raw;
+        }
+        
+        /** The raw FileIO at this stream's logical position, or null. */
+        FileIO syncedFile() {
+            if (!(raw instanceof FileIO)) return null;
+            checkClosed();
+            flushWrites();
+            dropReadAhead();
+            return (FileIO) raw;
+        }
+        
+        // Buffer state
+        
+        private void flushWrites() {
+            if (out != null && out.position() > 0) {
+                out.flip();
+                try {
+                    writeRaw(out);
+                } finally {
+                    out.clear();
+                }
+            }
+        }
+        
+        /**
+         * Give back read-ahead so the raw position is the logical one.
+         */
+        private void dropReadAhead() {
+            if (in != null && in.hasRemaining()) {
+                file().seek($I.of(-in.remaining()), $I.of(SEEK_CUR));
+                in.position(in.limit());
+            }
+        }
+        
+        private void startRead() {
+            checkReadable();
+            flushWrites();
+        }
+        
+        private boolean fill() {
+            in.clear();
+            int n = readRaw(in);
+            in.flip();
+            return n > 0;
+        }
+        
+        /**
+         * Copy up to n bytes into dst[off...], from the read-ahead and then
+         * the raw stream; long reads go straight into dst.
+         * @return bytes copied; short only at end of file
+         */
+        private int readInto(byte[] dst, int off, int n) {
+            int got = Math.min(n, in.remaining());
+            in.get(dst, off, got);
+            if (n - got >= in.capacity()) {
+                ByteBuffer direct = ByteBuffer.wrap(dst, off + got, n - got);
+                while (direct.hasRemaining() && readRaw(direct) > 0) { }
+                return direct.position() - off;
+            }
+            while (got < n && fill()) {
+                int k = Math.min(n - got, in.remaining());
+                in.get(dst, off + got, k);
+                got += k;
             }
+            return got;
         }
         
+        // Reading
+        
         @Override
         public $O read($O size) {
-            checkReadable();
-            int n = size instanceof $I ? (int)(($I)size).value : -1;
-            
+            startRead();
+            long n = size(size);
             if (n < 0) {
-                // Read all
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                // First, drain buffer
-                if (bufferPos < bufferEnd) {
-                    out.write(buffer, bufferPos, bufferEnd - bufferPos);
-                    bufferPos = bufferEnd;
-                }
-                // Then read rest directly
+                byte[] buffered = new byte[in.remaining()];
+                in.get(buffered);
                 $O rest = raw.readall();
-                if (rest instanceof $BY) {
-                    try {
-                        out.write((($BY)rest).data);
-                    } catch (IOException e) {
-                        throw new $X.OSError(e.getMessage());
-                    }
-                }
-                return $BY.of(out.toByteArray());
+                byte[] tail = rest instanceof $BY ? (($BY) rest).data : new byte[0];
+                if (buffered.length == 0) return $BY.of(tail);
+                byte[] all = java.util.Arrays.copyOf(buffered, arraySize((long) buffered.length + tail.length));
+                System.arraycopy(tail, 0, all, buffered.length, tail.length);
+                return $BY.of(all);
             }
-            
-            byte[] result = new byte[n];
-            int read = 0;
-            
-            // Read from buffer first
-            while (read < n && bufferPos < bufferEnd) {
-                result[read++] = buffer[bufferPos++];
+            if (n > in.remaining() && raw instanceof FileIO) {
+                // No more than the file holds, however much was asked for
+                long left = ((FileIO) raw).remaining();
+                if (left >= 0) n = Math.min(n, in.remaining() + left);
             }
-            
-            // If we need more, fill buffer and continue
-            while (read < n) {
-                fillBuffer();
-                if (bufferEnd == 0) break;  // EOF
-                while (read < n && bufferPos < bufferEnd) {
-                    result[read++] = buffer[bufferPos++];
+            byte[] result = new byte[arraySize(n)];
+            int got = readInto(result, 0, result.length);
+            return $BY.of(got == result.length ? result : java.util.Arrays.copyOf(result, got));
+        }
+        
+        @Override
+        public $O read1($O size) {
+            startRead();
+            int n = (int) Math.min(size(size), MAX_BYTES);
+            if (n < 0) n = in.capacity();
+            if (!in.hasRemaining()) {
+                if (n >= in.capacity()) {
+                    // One raw read straight into the result
+                    if (raw instanceof FileIO && ((FileIO) raw).remaining() >= 0) {
+                        n = (int) Math.min(n, Math.max(((FileIO) raw).remaining(), 1));
+                    }
+                    ByteBuffer dst = ByteBuffer.allocate(n);
+                    int got = readRaw(dst);
+                    return $BY.of(got <= 0 ? new byte[0]
+                        : got == n ? dst.array() : java.util.Arrays.copyOf(dst.array(), got));
                 }
+                if (!fill()) return $BY.of(new byte[0]);
             }
-            
-            if (read < n) {
-                byte[] truncated = new byte[read];
-                System.arraycopy(result, 0, truncated, 0, read);
-                return $BY.of(truncated);
-            }
+            byte[] result = new byte[Math.min(n, in.remaining())];
+            in.get(result);
             return $BY.of(result);
         }
         
         @Override
-        public $O read1($O size) {
-            checkReadable();
-            int n = size instanceof $I ? (int)(($I)size).value : -1;
-            if (n < 0) n = buffer.length;
-            
-            if (bufferPos >= bufferEnd) {
-                fillBuffer();
-                if (bufferEnd == 0) return $BY.of(new byte[0]);
-            }
-            
-            int available = Math.min(n, bufferEnd - bufferPos);
-            byte[] result = new byte[available];
-            System.arraycopy(buffer, bufferPos, result, 0, available);
-            bufferPos += available;
+        public $O readinto($O buffer) {
+            startRead();
+            $MV dest = $MV.target(buffer, "readinto()");
+            return $I.of(readInto(dest.buffer, dest.offset, dest.length));
+        }
+        
+        /**
+         * The buffered bytes, reading once if there are none; at least one
+         * byte unless at end of file.
+         */
+        public $O peek($O size) {
+            startRead();
+            if (!in.hasRemaining()) fill();
+            byte[] result = new byte[in.remaining()];
+            in.get(in.position(), result);
             return $BY.of(result);
         }
         
+        public $O readline($O limit) {
+            startRead();
+            int max = (int) Math.min(size(limit), MAX_BYTES);
+            java.io.ByteArrayOutputStream line = null;
+            while (true) {
+                if (!in.hasRemaining() && !fill()) break;
+                int start = in.position();
+                int stop = in.limit();
+                if (max >= 0) stop = Math.min(stop, start + max - (line != null ? line.size() : 0));
+                int nl = indexOfNewline(start, stop);
+                int end = nl >= 0 ? nl + 1 : stop;
+                byte[] part = new byte[end - start];
+                in.get(part);
+                if (line == null && (nl >= 0 || end - start == max)) return $BY.of(part);
+                if (line == null) line = new java.io.ByteArrayOutputStream();
+                line.write(part, 0, part.length);
+                if (nl >= 0 || (max >= 0 && line.size() >= max)) break;
+            }
+            return $BY.of(line != null ? line.toByteArray() : new byte[0]);
+        }
+        
+        private int indexOfNewline(int from, int to) {
+            if (in.hasArray()) {
+                int base = in.arrayOffset();
+                int i = $Scan.indexOf(in.array(), '\n', base + from, base + to);
+                return i < 0 ? -1 : i - base;
+            }
+            for (int i = from; i < to; i++) {
+                if (in.get(i) == '\n') return i;
+            }
+            return -1;
+        }
+        
+        @Override
+        public $O __iter__() {
+            return this;
+        }
+        
+        @Override
+        public $O __next__() {
+            $O line = readline($I.of(-1));
+            if ((($BY) line).data.length == 0) throw new $X.StopIteration();
+            return line;
+        }
+        
+        // Writing
+        
         @Override
         public $I write($O data) {
-            throw new $X.OSError("not writable");
+            checkWritable();
+            $MV view = $MV.written(data);
+            dropReadAhead();
+            if (view.length > out.remaining()) {
+                flushWrites();
+                if (view.length >= out.capacity()) {
+                    writeRaw(ByteBuffer.wrap(view.buffer, view.offset, view.length));
+                    return $I.of(view.length);
+                }
+            }
+            out.put(view.buffer, view.offset, view.length);
+            return $I.of(view.length);
         }
         
-        public $O peek($O size) {
-            checkReadable();
-            int n = size instanceof $I ? (int)(($I)size).value : 1;
-            
-            if (bufferPos >= bufferEnd) {
-                fillBuffer();
+        /**
+         * Encode text straight into the write buffer, flushing it each
+         * time it fills, rather than encoding to a bytes object first.
+         * The buffer must hold at least one encoded character.
+         */
+        void encode(CharBuffer text, CharsetEncoder encoder) {
+            checkWritable();
+            dropReadAhead();
+            encoder.reset();
+            while (encoder.encode(text, out, true).isOverflow()) {
+                flushWrites();
+            }
+            while (encoder.flush(out).isOverflow()) {
+                flushWrites();
             }
-            
-            int available = Math.min(n, bufferEnd - bufferPos);
-            byte[] result = new byte[available];
-            System.arraycopy(buffer, bufferPos, result, 0, available);
-            return $BY.of(result);
         }
         
+        // Positioning
+        
         @Override
-        public $S __repr__() {
-            return $S.of("<_io.BufferedReader>");
+        public $I seek($O pos, $O whence) {
+            checkClosed();
+            if (pos instanceof $I && (($I) pos).isBig()) {
+                throw new $X.ValueError("cannot fit 'int' into an offset-sized integer");
+            }
+            flushWrites();
+            int w = whence instanceof $I ? (int)(($I)whence).value : SEEK_SET;
+            if (w == SEEK_CUR && in != null) {
+                // Relative to the logical position, not the read-ahead
+                pos = $I.of(offset(pos) - in.remaining());
+            }
+            if (in != null) in.position(in.limit());
+            return file().seek(pos, whence);
+        }
+        
+        @Override
+        public $I tell() {
+            checkClosed();
+            long position = file().tell().value;
+            if (in != null) position -= in.remaining();
+            if (out != null) position += out.position();
+            return $I.of(position);
         }
+        
+        public $I truncate($O size) {
+            checkWritable();
+            flushWrites();
+            dropReadAhead();
+            FileIO f = file();
+            return f.truncate(size instanceof $I ? size : f.tell());
+        }
+        
+        static final $NM<BufferedBase> METHODS = new $NM<>(BufferedBase.class, BufferedIOBase.METHODS)
+            .add("peek", BufferedBase::peek, $I.of(0))
+            .add("readline", BufferedBase::readline, $I.of(-1))
+            .add("truncate", BufferedBase::truncate, $N.INSTANCE);
     }
     
     /**
-     * BufferedWriter - Buffered writing.
+     * BufferedReader - Buffered reading.
      */
-    public static class BufferedWriter extends BufferedIOBase {
-        private byte[] buffer;
-        private int bufferPos = 0;
+    public static class BufferedReader extends BufferedBase {
         
-        public BufferedWriter(RawIOBase raw, int bufferSize) {
-            this.raw = raw;
-            this.buffer = new byte[bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE];
+        public BufferedReader(RawIOBase raw, int bufferSize) {
+            super(raw, bufferSize, true, false);
         }
         
-        public BufferedWriter(RawIOBase raw) {
+        public BufferedReader(RawIOBase raw) {
             this(raw, DEFAULT_BUFFER_SIZE);
         }
         
         @Override
-        public $B writable() { return $B.TRUE; }
-        
-        @Override
-        public $B seekable() { return raw.seekable(); }
+        public $S __repr__() {
+            return $S.of("<_io.BufferedReader>");
+        }
+    }
+    
+    /**
+     * BufferedWriter - Buffered writing.
+     */
+    public static class BufferedWriter extends BufferedBase {
         
-        @Override
-        protected void doClose() throws IOException {
-            flush();
-            raw.close();
+        public BufferedWriter(RawIOBase raw, int bufferSize) {
+            super(raw, bufferSize, false, true);
         }
         
-        @Override
-        public void flush() {
-            // Don't check closed - may be called during close
-            if (bufferPos > 0) {
-                byte[] data = new byte[bufferPos];
-                System.arraycopy(buffer, 0, data, 0, bufferPos);
-                raw.write($BY.of(data));
-                bufferPos = 0;
-            }
+        public BufferedWriter(RawIOBase raw) {
+            this(raw, DEFAULT_BUFFER_SIZE);
         }
         
         @Override
-        public $O read($O size) {
-            throw new $X.OSError("not readable");
+        public $S __repr__() {
+            return $S.of("<_io.BufferedWriter>");
         }
+    }
+    
+    /**
+     * BufferedRandom - Buffered reading and writing of one seekable file,
+     * for the '+' modes.
+     */
+    public static class BufferedRandom extends BufferedBase {
         
-        @Override
-        public $O read1($O size) {
-            throw new $X.OSError("not readable");
+        public BufferedRandom(RawIOBase raw, int bufferSize) {
+            super(raw, bufferSize, true, true);
         }
         
-        @Override
-        public $I write($O data) {
-            checkWritable();
-            byte[] bytes;
-            if (data instanceof $BY) {
-                bytes = (($BY)data).data;
-            } else if (data instanceof $S) {
-                bytes = (($S)data).value.getBytes(StandardCharsets.UTF_8);
-            } else {
-                throw new $X.TypeError("a bytes-like object is required");
-            }
-            
-            int written = 0;
-            while (written < bytes.length) {
-                int space = buffer.length - bufferPos;
-                int toWrite = Math.min(space, bytes.length - written);
-                System.arraycopy(bytes, written, buffer, bufferPos, toWrite);
-                bufferPos += toWrite;
-                written += toWrite;
-                
-                if (bufferPos >= buffer.length) {
-                    flush();
-                }
-            }
-            
-            return $I.of(bytes.length);
+        public BufferedRandom(RawIOBase raw) {
+            this(raw, DEFAULT_BUFFER_SIZE);
         }
         
         @Override
         public $S __repr__() {
-            return $S.of("<_io.BufferedWriter>");
+            return $S.of("<_io.BufferedRandom>");
         }
     }
     
     /**
      * TextIOWrapper - Text I/O with encoding.
+     *
+     * Reading decodes whole blocks from the buffer with one CharsetDecoder
+     * into a char buffer, translating newlines as it goes, and readline()
+     * slices lines out of that buffer. A multi-byte character split
+     * between blocks stays in the decoder's input until the next block.
      */
     public static class TextIOWrapper extends TextIOBase {
         private BufferedIOBase buffer;
@@ -779,20 +1114,40 @@ public class _io {
         private final String name;
         private final String mode;
         private boolean lineBuffering;
-        private StringBuilder pendingLine = new StringBuilder();
+        
+        // newline=None translates \r and \r\n to \n on input; newline=''
+        // ends lines at any of the three without translating; any other
+        // value is the only line ending
+        private final boolean translate;
+        private final String terminator;
+        
+        // Decoded text is chars[charPos, charEnd); undecoded bytes wait in
+        // bytes. skipLF is set when a translated \r ended the last block,
+        // so a \n starting the next one belongs to it.
+        private CharsetDecoder decoder;
+        private CharsetEncoder encoder;
+        private ByteBuffer bytes;
+        private char[] chars = new char[0];
+        private int charPos = 0;
+        private int charEnd = 0;
+        private boolean skipLF = false;
+        private boolean eof = false;
         
         public TextIOWrapper(BufferedIOBase buffer, $O encoding, $O errors, $O newline, $O line_buffering) {
             this.buffer = buffer;
-            this.encoding = encoding instanceof $S ? (($S)encoding).value : "utf-8";
-            this.errors = errors instanceof $S ? (($S)errors).value : "strict";
-            this.newline = newline instanceof $S ? (($S)newline).value : null;
+            this.encoding = encoding instanceof $S ? (($S)encoding).value() : "utf-8";
+            this.errors = errors instanceof $S ? (($S)errors).value() : "strict";
+            this.newline = newline instanceof $S ? (($S)newline).value() : null;
             this.lineBuffering = line_buffering instanceof $B && (($B)line_buffering).__bool__();
             
-            try {
-                this.charset = Charset.forName(this.encoding);
-            } catch (Exception e) {
-                throw new $X.LookupError("unknown encoding: " + this.encoding);
+            if (this.newline != null && !this.newline.isEmpty() && !this.newline.equals("\n")
+                    && !this.newline.equals("\r") && !this.newline.equals("\r\n")) {
+                throw new $X.ValueError("illegal newline value: " + this.newline);
             }
+            this.translate = this.newline == null;
+            this.terminator = this.newline == null || this.newline.isEmpty() ? null : this.newline;
+            
+            this.charset = $S.charset(this.encoding);
             
             // Get name and mode from underlying buffer if available
             if (buffer.raw instanceof FileIO) {
@@ -811,113 +1166,277 @@ public class _io {
         @Override
         public $B writable() { return buffer.writable(); }
         
+        @Override
+        public $I fileno() { return buffer.fileno(); }
+        
         @Override
         public $B seekable() { return buffer.seekable(); }
         
+        @Override
+        public $B isatty() { return buffer.isatty(); }
+        
         @Override
         protected void doClose() throws IOException {
             buffer.close();
         }
         
         @Override
-        public void flush() {
+        public synchronized void flush() {
             checkClosed();
             buffer.flush();
         }
         
+        private CharsetDecoder decoder() {
+            if (decoder == null) {
+                CodingErrorAction action = "ignore".equals(errors) ? CodingErrorAction.IGNORE
+                    : "replace".equals(errors) ? CodingErrorAction.REPLACE
+                    : CodingErrorAction.REPORT;
+                decoder = charset.newDecoder()
+                    .onMalformedInput(action)
+                    .onUnmappableCharacter(action);
+                bytes = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+                bytes.flip();
+            }
+            return decoder;
+        }
+        
+        /**
+         * Decode the next block onto the end of the char buffer.
+         * @return false at end of file, when nothing more can be added
+         */
+        private boolean fill() {
+            if (eof) return false;
+            CharsetDecoder dec = decoder();
+            
+            $O block = buffer.read1($I.of(DEFAULT_BUFFER_SIZE));
+            byte[] data = block instanceof $BY ? (($BY)block).data : new byte[0];
+            if (data.length == 0) eof = true;
+            
+            // Append the block after any partial character left from before
+            bytes.compact();
+            if (bytes.remaining() < data.length) {
+                ByteBuffer grown = ByteBuffer.allocate(bytes.position() + data.length);
+                bytes.flip();
+                grown.put(bytes);
+                bytes = grown;
+            }
+            bytes.put(data);
+            bytes.flip();
+            
+            // Move the unread text down, and make room for the block
+            int unread = charEnd - charPos;
+            int room = (int) (bytes.remaining() * (double) dec.maxCharsPerByte()) + 8;
+            if (charPos > 0 || chars.length - charEnd < room) {
+                char[] dest = chars.length - unread < room
+                    ? new char[Math.max(chars.length * 2, unread + room)] : chars;
+                System.arraycopy(chars, charPos, dest, 0, unread);
+                chars = dest;
+                charPos = 0;
+                charEnd = unread;
+            }
+            
+            int start = charEnd;
+            CharBuffer out = CharBuffer.wrap(chars, charEnd, chars.length - charEnd);
+            CoderResult result = dec.decode(bytes, out, eof);
+            if (eof && !result.isError()) result = dec.flush(out);
+            if (result.isError()) {
+                throw new $X.UnicodeError("'" + encoding + "' codec can't decode byte 0x"
+                    + String.format("%02x", bytes.get(bytes.position()) & 0xFF) + ": invalid "
+                    + (result.isMalformed() ? "start byte" : "character"));
+            }
+            charEnd = out.position();
+            if (translate) translateNewlines(start);
+            return charEnd > start || !eof;
+        }
+        
+        /**
+         * Turn \r\n and \r into \n in chars[from, charEnd), in place.
+         */
+        private void translateNewlines(int from) {
+            int r = from;
+            if (skipLF && r < charEnd) {
+                if (chars[r] == '\n') r++;
+                skipLF = false;
+            }
+            int w = from;
+            for (; r < charEnd; r++) {
+                char c = chars[r];
+                if (c == '\r') {
+                    c = '\n';
+                    if (r + 1 == charEnd) {
+                        skipLF = true;
+                    } else if (chars[r + 1] == '\n') {
+                        r++;
+                    }
+                }
+                chars[w++] = c;
+            }
+            charEnd = w;
+        }
+        
+        private void resetDecoder() {
+            if (decoder != null) {
+                decoder.reset();
+                bytes.clear().flip();
+            }
+            charPos = charEnd = 0;
+            skipLF = false;
+            eof = false;
+        }
+        
+        private String take(int n) {
+            String s = new String(chars, charPos, n);
+            charPos += n;
+            return s;
+        }
+        
+        /**
+         * Index just past the first line ending in chars[from, charEnd), or
+         * -1 if there is none yet.
+         */
+        private int lineEnd(int from) {
+            if (terminator == null && !translate) {
+                for (int i = from; i < charEnd; i++) {
+                    char c = chars[i];
+                    if (c == '\n') return i + 1;
+                    if (c == '\r') {
+                        // \r\n counts as one ending; wait to see which
+                        if (i + 1 < charEnd) return chars[i + 1] == '\n' ? i + 2 : i + 1;
+                        return eof ? i + 1 : -1;
+                    }
+                }
+                return -1;
+            }
+            if (terminator == null || terminator.length() == 1) {
+                char t = terminator == null ? '\n' : terminator.charAt(0);
+                for (int i = from; i < charEnd; i++) {
+                    if (chars[i] == t) return i + 1;
+                }
+                return -1;
+            }
+            for (int i = from; i + 1 < charEnd; i++) {
+                if (chars[i] == '\r' && chars[i + 1] == '\n') return i + 2;
+            }
+            return -1;
+        }
+        
         @Override
         public $S read($O size) {
             checkReadable();
-            int n = size instanceof $I ? (int)(($I)size).value : -1;
-            
-            $O data = buffer.read(n < 0 ? $I.of(-1) : $I.of(n * 4));  // Estimate bytes needed
-            if (!(data instanceof $BY)) return $S.of("");
-            
-            byte[] bytes = (($BY)data).data;
-            String s = new String(bytes, charset);
+            int n = (int) Math.min(size(size), MAX_BYTES);
             
-            if (n >= 0 && s.length() > n) {
-                // We read too much - would need to seek back in real impl
-                return $S.of(s.substring(0, n));
+            if (n < 0) {
+                while (fill()) { }
+                return $S.of(take(charEnd - charPos));
             }
-            return $S.of(s);
+            while (charEnd - charPos < n && fill()) { }
+            return $S.of(take(Math.min(n, charEnd - charPos)));
         }
         
         @Override
         public $S readline($O limit) {
             checkReadable();
-            int maxLen = limit instanceof $I ? (int)(($I)limit).value : -1;
-            
-            StringBuilder line = new StringBuilder();
+            int maxLen = (int) Math.min(size(limit), MAX_BYTES);
             
+            // Scan only the text added since the last look
+            int scanned = 0;
             while (true) {
-                $O chunk = buffer.read1($I.of(1));
-                if (!(chunk instanceof $BY) || (($BY)chunk).data.length == 0) {
-                    break;  // EOF
+                int end = lineEnd(charPos + scanned);
+                if (end >= 0) {
+                    int n = end - charPos;
+                    return $S.of(take(maxLen >= 0 ? Math.min(n, maxLen) : n));
                 }
-                
-                String s = new String((($BY)chunk).data, charset);
-                line.append(s);
-                
-                if (s.contains("\n")) {
-                    break;
+                int unread = charEnd - charPos;
+                if (maxLen >= 0 && unread >= maxLen) {
+                    return $S.of(take(maxLen));
                 }
-                
-                if (maxLen > 0 && line.length() >= maxLen) {
-                    break;
+                // Rescan a trailing \r once the next block is in
+                scanned = unread > 0 && chars[charEnd - 1] == '\r' ? unread - 1 : unread;
+                if (!fill()) {
+                    return $S.of(take(charEnd - charPos));
                 }
             }
-            
-            return $S.of(line.toString());
         }
         
         @Override
         public $I write($O text) {
+            String s = text instanceof $S ? (($S)text).value() : text.__str__().value();
+            write(s);
+            return $I.of(s.length());
+        }
+        
+        /**
+         * Write s, encoding it straight into the buffer when the buffer
+         * is one of ours; print() writes its pieces through here.
+         */
+        synchronized void write(String s) {
             checkWritable();
-            String s = text instanceof $S ? (($S)text).value : text.__str__().value;
-            byte[] bytes = s.getBytes(charset);
-            buffer.write($BY.of(bytes));
+            if (decoder != null && (charEnd > charPos || bytes.hasRemaining())) {
+                // Write where reading has got to, not after the read-ahead
+                buffer.seek(tell(), $I.of(SEEK_SET));
+                resetDecoder();
+            }
+            String out = terminator != null && !terminator.equals("\n") ? s.replace("\n", terminator) : s;
+            if (buffer instanceof BufferedBase && ((BufferedBase) buffer).out != null
+                    && ((BufferedBase) buffer).out.capacity() >= 16) {
+                ((BufferedBase) buffer).encode(CharBuffer.wrap(out), encoder());
+            } else {
+                buffer.write($BY.of(out.getBytes(charset)));
+            }
             
-            if (lineBuffering && s.contains("\n")) {
+            if (lineBuffering && s.indexOf('\n') >= 0) {
                 flush();
             }
-            
-            return $I.of(s.length());
         }
         
+        /** Replaces what the charset cannot encode, as String.getBytes does. */
+        private CharsetEncoder encoder() {
+            if (encoder == null) {
+                encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            }
+            return encoder;
+        }
+        
+        // Positions are byte offsets into the encoded stream
+        
         public $I seek($O pos, $O whence) {
             checkSeekable();
-            // Text seek is complex - simplify to byte seek
-            if (buffer.raw instanceof FileIO) {
-                return ((FileIO)buffer.raw).seek(pos, whence);
+            flush();
+            int w = whence instanceof $I ? (int)(($I)whence).value : SEEK_SET;
+            if (w == SEEK_CUR) {
+                pos = $I.of(tell().value + offset(pos));
+                whence = $I.of(SEEK_SET);
             }
-            throw new $X.OSError("seek not supported");
+            resetDecoder();
+            return buffer.seek(pos, whence);
         }
         
         public $I tell() {
             checkClosed();
-            if (buffer.raw instanceof FileIO) {
-                return ((FileIO)buffer.raw).tell();
+            long position = buffer.tell().value;
+            if (decoder != null) {
+                // Back off over what has been read but not yet returned
+                position -= bytes.remaining();
+                if (charEnd > charPos) {
+                    position -= charset.encode(CharBuffer.wrap(chars, charPos, charEnd - charPos)).remaining();
+                }
             }
-            throw new $X.OSError("tell not supported");
+            return $I.of(position);
         }
         
+        static final $NM<TextIOWrapper> METHODS = new $NM<>(TextIOWrapper.class, TextIOBase.METHODS)
+            .add("seek", TextIOWrapper::seek, $I.of(SEEK_SET))
+            .add("tell", TextIOWrapper::tell);
+        
         @Override
         public $O __getattr__(String name) {
-            final TextIOWrapper self = this;
             switch (name) {
                 case "name": return $S.of(this.name);
                 case "mode": return $S.of(this.mode);
                 case "buffer": return this.buffer;
                 case "line_buffering": return $B.of(lineBuffering);
-                case "seek": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.seek(args[0], args.length > 1 ? args[1] : $I.of(SEEK_SET)); 
-                    }
-                };
-                case "tell": return new $O() {
-                    @Override public $O __call__($O... args) { return self.tell(); }
-                };
                 default: return super.__getattr__(name);
             }
         }
@@ -930,11 +1449,28 @@ public class _io {
     
     /**
      * BytesIO - In-memory bytes I/O.
+     *
+     * getvalue() hands out the backing array itself once it is trimmed to
+     * size, as does BytesIO(bytes) with its argument; the array is copied
+     * only when a later write would change it. A getbuffer() view held by
+     * a with block is an export: until the block is left, writes,
+     * truncate() and close() raise BufferError as in CPython. Any other
+     * view goes stale at the next of them, and until then getvalue()
+     * copies rather than share the array the view writes to.
      */
-    public static class BytesIO extends BufferedIOBase {
+    public static class BytesIO extends BufferedIOBase implements $MV.Resizable {
         private byte[] buffer;
-        private int position = 0;
+        // May lie past the end, as far as a long goes
+        private long position = 0;
         private int length = 0;
+        // The bytes object buffer also backs, if any; copy before writing
+        private $BY shared;
+        // getbuffer() views held by with blocks
+        private int exports;
+        // Writes, truncations and closes, which leave earlier views stale
+        private int resizes;
+        // Whether getbuffer() was called since the last of them
+        private boolean viewed;
         
         public BytesIO() {
             this.buffer = new byte[DEFAULT_BUFFER_SIZE];
@@ -942,10 +1478,17 @@ public class _io {
         
         public BytesIO($O initial) {
             if (initial instanceof $BY) {
-                byte[] data = (($BY)initial).data;
-                this.buffer = new byte[Math.max(data.length, DEFAULT_BUFFER_SIZE)];
-                System.arraycopy(data, 0, this.buffer, 0, data.length);
-                this.length = data.length;
+                this.shared = ($BY) initial;
+                this.buffer = shared.data;
+                this.length = buffer.length;
+                return;
+            }
+            $MV view = $MV.bytesLike(initial);
+            if (view != null) {
+                view = view.contiguous();
+                this.buffer = new byte[Math.max(view.length, DEFAULT_BUFFER_SIZE)];
+                System.arraycopy(view.buffer, view.offset, this.buffer, 0, view.length);
+                this.length = view.length;
             } else {
                 this.buffer = new byte[DEFAULT_BUFFER_SIZE];
             }
@@ -961,21 +1504,74 @@ public class _io {
         public $B seekable() { return $B.TRUE; }
         
         @Override
-        protected void doClose() {}
+        public void close() {
+            if (!closed) checkExports();
+            super.close();
+        }
+        
+        @Override
+        protected void doClose() {
+            buffer = null;
+        }
+        
+        // Exports
+        
+        @Override
+        public void exports(int delta) {
+            exports += delta;
+        }
+        
+        @Override
+        public int resizes() {
+            return resizes;
+        }
+        
+        private void checkExports() {
+            if (exports > 0) {
+                throw new $X.BufferError("Existing exports of data: object cannot be re-sized");
+            }
+            resizes++;
+            viewed = false;
+        }
+        
+        /**
+         * Make buffer[0, needed) writable: grown, and no longer shared.
+         */
+        private void prepareWrite(long needed) {
+            if (needed > MAX_BYTES) throw new $X.OverflowError("new buffer size too large");
+            if (needed > buffer.length) {
+                buffer = java.util.Arrays.copyOf(buffer, (int) Math.max(Math.min(buffer.length * 2L, MAX_BYTES), needed));
+            } else if (shared != null) {
+                buffer = java.util.Arrays.copyOf(buffer, Math.max(buffer.length, DEFAULT_BUFFER_SIZE));
+            } else {
+                return;
+            }
+            shared = null;
+        }
         
         @Override
         public $O read($O size) {
             checkClosed();
-            int n = size instanceof $I ? (int)(($I)size).value : -1;
-            if (n < 0) n = length - position;
-            n = Math.min(n, length - position);
-            
+            long want = size(size);
+            int available = available();
+            int n = want < 0 ? available : (int) Math.min(want, available);
+            if (n == buffer.length && !viewed) {
+                // All of an exactly sized buffer: share it
+                position += n;
+                return sharedValue();
+            }
+            if (n == 0) return $BY.of(new byte[0]);
             byte[] result = new byte[n];
-            System.arraycopy(buffer, position, result, 0, n);
+            System.arraycopy(buffer, (int) position, result, 0, n);
             position += n;
             return $BY.of(result);
         }
         
+        /** Bytes between the position and the end; none when past it. */
+        private int available() {
+            return position < length ? length - (int) position : 0;
+        }
+        
         @Override
         public $O read1($O size) {
             return read(size);
@@ -984,16 +1580,11 @@ public class _io {
         @Override
         public $O readinto($O buffer) {
             checkClosed();
-            if (!(buffer instanceof $BY)) {
-                throw new $X.TypeError("readinto() argument must be a bytes-like object, not "
-                    + (buffer != null ? buffer.getClass().getSimpleName() : "NoneType"));
-            }
-            byte[] dest = (($BY) buffer).data;
+            $MV dest = $MV.target(buffer, "readinto()");
             if (dest.length == 0) return $I.of(0);
-            int available = length - position;
-            int n = Math.min(dest.length, available);
+            int n = Math.min(dest.length, available());
             if (n > 0) {
-                System.arraycopy(this.buffer, position, dest, 0, n);
+                System.arraycopy(this.buffer, (int) position, dest.buffer, dest.offset, n);
                 position += n;
             }
             return $I.of(n);
@@ -1002,52 +1593,68 @@ public class _io {
         @Override
         public $I write($O data) {
             checkClosed();
-            byte[] bytes;
-            if (data instanceof $BY) {
-                bytes = (($BY)data).data;
-            } else if (data instanceof $S) {
-                bytes = (($S)data).value.getBytes(StandardCharsets.UTF_8);
-            } else {
-                throw new $X.TypeError("a bytes-like object is required");
-            }
+            $MV view = $MV.written(data);
+            checkExports();
             
-            ensureCapacity(position + bytes.length);
-            System.arraycopy(bytes, 0, buffer, position, bytes.length);
-            position += bytes.length;
-            if (position > length) length = position;
+            prepareWrite(position + view.length);
+            int at = (int) position;
+            if (at > length) java.util.Arrays.fill(buffer, length, at, (byte) 0);
+            System.arraycopy(view.buffer, view.offset, buffer, at, view.length);
+            position = at + view.length;
+            if (position > length) length = (int) position;
             
-            return $I.of(bytes.length);
+            return $I.of(view.length);
         }
         
-        private void ensureCapacity(int needed) {
-            if (needed > buffer.length) {
-                int newSize = Math.max(buffer.length * 2, needed);
-                byte[] newBuf = new byte[newSize];
-                System.arraycopy(buffer, 0, newBuf, 0, length);
-                buffer = newBuf;
-            }
+        /**
+         * A writable view of the contents, without copying.
+         */
+        public $MV getbuffer() {
+            checkClosed();
+            prepareWrite(length);
+            viewed = true;
+            return new $MV(buffer, 0, length, false, this);
         }
         
+        /**
+         * The contents as bytes sharing the backing array, which is first
+         * trimmed to size; a copy while views may write to the array.
+         */
         public $BY getvalue() {
-            byte[] result = new byte[length];
-            System.arraycopy(buffer, 0, result, 0, length);
-            return $BY.of(result);
+            checkClosed();
+            if (viewed) {
+                return $BY.of(java.util.Arrays.copyOf(buffer, length));
+            }
+            if (buffer.length != length) {
+                buffer = java.util.Arrays.copyOf(buffer, length);
+                shared = null;
+            }
+            return sharedValue();
+        }
+        
+        private $BY sharedValue() {
+            if (shared == null) shared = $BY.of(buffer);
+            return shared;
         }
         
         public $I seek($O pos, $O whence) {
             checkClosed();
-            long offset = (($I)pos).value;
+            long offset = offset(pos);
             int w = whence instanceof $I ? (int)(($I)whence).value : SEEK_SET;
             
-            int newPos;
+            long newPos;
             switch (w) {
-                case SEEK_SET: newPos = (int)offset; break;
-                case SEEK_CUR: newPos = position + (int)offset; break;
-                case SEEK_END: newPos = length + (int)offset; break;
+                case SEEK_SET:
+                    if (offset < 0) throw new $X.ValueError("negative seek value " + offset);
+                    newPos = offset;
+                    break;
+                case SEEK_CUR: newPos = position + offset; break;
+                case SEEK_END: newPos = length + offset; break;
                 default: throw new $X.ValueError("invalid whence value");
             }
             
-            if (newPos < 0) newPos = 0;
+            // Relative seeks clamp, at 0 below and a long above
+            if (newPos < 0) newPos = offset < 0 ? 0 : Long.MAX_VALUE;
             position = newPos;
             return $I.of(position);
         }
@@ -1057,39 +1664,22 @@ public class _io {
             return $I.of(position);
         }
         
-        public $N truncate($O size) {
+        public $I truncate($O size) {
             checkClosed();
-            int newLen = size instanceof $I ? (int)(($I)size).value : position;
+            checkExports();
+            long newLen = size == $N.INSTANCE ? position : offset(size);
+            if (newLen < 0) throw new $X.ValueError("negative size value " + newLen);
             if (newLen < length) {
-                length = newLen;
-                if (position > length) position = length;
+                // The position stays put, past the end if need be
+                length = (int) newLen;
             }
-            return $N.INSTANCE;
+            return $I.of(newLen);
         }
         
-        @Override
-        public $O __getattr__(String name) {
-            final BytesIO self = this;
-            switch (name) {
-                case "getvalue": return new $O() {
-                    @Override public $O __call__($O... args) { return self.getvalue(); }
-                };
-                case "seek": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.seek(args[0], args.length > 1 ? args[1] : $I.of(SEEK_SET)); 
-                    }
-                };
-                case "tell": return new $O() {
-                    @Override public $O __call__($O... args) { return self.tell(); }
-                };
-                case "truncate": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.truncate(args.length > 0 ? args[0] : $N.INSTANCE); 
-                    }
-                };
-                default: return super.__getattr__(name);
-            }
-        }
+        static final $NM<BytesIO> METHODS = new $NM<>(BytesIO.class, BufferedIOBase.METHODS)
+            .add("getvalue", BytesIO::getvalue)
+            .add("getbuffer", BytesIO::getbuffer)
+            .add("truncate", BytesIO::truncate, $N.INSTANCE);
         
         @Override
         public $S __repr__() {
@@ -1101,8 +1691,13 @@ public class _io {
      * StringIO - In-memory text I/O.
      */
     public static class StringIO extends TextIOBase {
+        // The contents are text when it is current, else buffer. buffer is
+        // only built by the first write, and text is cached by getvalue()
+        // until the next one, so neither is rebuilt from the other per call.
         private StringBuilder buffer;
-        private int position = 0;
+        private $S text;
+        // May lie past the end, as far as a long goes
+        private long position = 0;
         
         public StringIO() {
             this.buffer = new StringBuilder();
@@ -1110,12 +1705,22 @@ public class _io {
         
         public StringIO($O initial) {
             if (initial instanceof $S) {
-                this.buffer = new StringBuilder((($S)initial).value);
+                this.text = ($S) initial;
             } else {
                 this.buffer = new StringBuilder();
             }
         }
         
+        private CharSequence chars() {
+            return text != null ? text.value() : buffer;
+        }
+        
+        private StringBuilder builder() {
+            if (buffer == null) buffer = new StringBuilder(text.value());
+            text = null;
+            return buffer;
+        }
+        
         @Override
         public $B readable() { return $B.TRUE; }
         
@@ -1131,11 +1736,18 @@ public class _io {
         @Override
         public $S read($O size) {
             checkClosed();
-            int n = size instanceof $I ? (int)(($I)size).value : -1;
-            if (n < 0) n = buffer.length() - position;
-            n = Math.min(n, buffer.length() - position);
+            CharSequence chars = chars();
+            if (position >= chars.length()) return $S.of("");
+            int at = (int) position;
+            long want = size(size);
+            int n = want < 0 ? chars.length() - at : (int) Math.min(want, chars.length() - at);
+            if (n == 0) return $S.of("");
             
-            String result = buffer.substring(position, position + n);
+            if (n == chars.length()) {
+                position = n;
+                return getvalue();
+            }
+            String result = chars.subSequence(at, at + n).toString();
             position += n;
             return $S.of(result);
         }
@@ -1143,19 +1755,17 @@ public class _io {
         @Override
         public $S readline($O limit) {
             checkClosed();
-            int maxLen = limit instanceof $I ? (int)(($I)limit).value : -1;
+            CharSequence chars = chars();
+            long maxLen = size(limit);
+            if (position >= chars.length()) return $S.of("");
+            int at = (int) position;
             
-            int end = position;
-            while (end < buffer.length()) {
-                if (buffer.charAt(end) == '\n') {
-                    end++;
-                    break;
-                }
-                end++;
-                if (maxLen > 0 && end - position >= maxLen) break;
-            }
+            int end = chars instanceof String
+                ? ((String) chars).indexOf('\n', at) : ((StringBuilder) chars).indexOf("\n", at);
+            end = end < 0 ? chars.length() : end + 1;
+            if (maxLen > 0 && end - at > maxLen) end = at + (int) maxLen;
             
-            String result = buffer.substring(position, end);
+            String result = chars.subSequence(at, end).toString();
             position = end;
             return $S.of(result);
         }
@@ -1163,45 +1773,45 @@ public class _io {
         @Override
         public $I write($O text) {
             checkClosed();
-            String s = text instanceof $S ? (($S)text).value : text.__str__().value;
+            String s = text instanceof $S ? (($S)text).value() : text.__str__().value();
+            if (position + s.length() > MAX_BYTES) throw new $X.OverflowError("new buffer size too large");
+            StringBuilder sb = builder();
+            int at = (int) position;
             
-            // Overwrite or extend
-            if (position < buffer.length()) {
-                int end = Math.min(position + s.length(), buffer.length());
-                buffer.replace(position, end, s.substring(0, end - position));
-                if (s.length() > end - position) {
-                    buffer.append(s.substring(end - position));
-                }
-            } else {
-                // Extend with padding if needed
-                while (buffer.length() < position) {
-                    buffer.append('\0');
-                }
-                buffer.append(s);
+            // Overwrite or extend, padding a gap after the end with NULs
+            if (at > sb.length()) {
+                sb.setLength(at);
             }
+            sb.replace(at, Math.min(at + s.length(), sb.length()), s);
             position += s.length();
             
             return $I.of(s.length());
         }
         
         public $S getvalue() {
-            return $S.of(buffer.toString());
+            checkClosed();
+            if (text == null) text = $S.of(buffer.toString());
+            return text;
         }
         
         public $I seek($O pos, $O whence) {
             checkClosed();
-            long offset = (($I)pos).value;
+            long offset = offset(pos);
             int w = whence instanceof $I ? (int)(($I)whence).value : SEEK_SET;
             
-            int newPos;
+            long newPos;
             switch (w) {
-                case SEEK_SET: newPos = (int)offset; break;
-                case SEEK_CUR: newPos = position + (int)offset; break;
-                case SEEK_END: newPos = buffer.length() + (int)offset; break;
+                case SEEK_SET:
+                    if (offset < 0) throw new $X.ValueError("Negative seek position " + offset);
+                    newPos = offset;
+                    break;
+                case SEEK_CUR: newPos = position + offset; break;
+                case SEEK_END: newPos = chars().length() + offset; break;
                 default: throw new $X.ValueError("invalid whence value");
             }
             
-            if (newPos < 0) newPos = 0;
+            // Relative seeks clamp, at 0 below and a long above
+            if (newPos < 0) newPos = offset < 0 ? 0 : Long.MAX_VALUE;
             position = newPos;
             return $I.of(position);
         }
@@ -1211,39 +1821,21 @@ public class _io {
             return $I.of(position);
         }
         
-        public $N truncate($O size) {
+        public $I truncate($O size) {
             checkClosed();
-            int newLen = size instanceof $I ? (int)(($I)size).value : position;
-            if (newLen < buffer.length()) {
-                buffer.setLength(newLen);
-                if (position > newLen) position = newLen;
+            long newLen = size == $N.INSTANCE ? position : offset(size);
+            if (newLen < 0) throw new $X.ValueError("Negative size value " + newLen);
+            if (newLen < chars().length()) {
+                builder().setLength((int) newLen);
             }
-            return $N.INSTANCE;
+            return $I.of(newLen);
         }
         
-        @Override
-        public $O __getattr__(String name) {
-            final StringIO self = this;
-            switch (name) {
-                case "getvalue": return new $O() {
-                    @Override public $O __call__($O... args) { return self.getvalue(); }
-                };
-                case "seek": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.seek(args[0], args.length > 1 ? args[1] : $I.of(SEEK_SET)); 
-                    }
-                };
-                case "tell": return new $O() {
-                    @Override public $O __call__($O... args) { return self.tell(); }
-                };
-                case "truncate": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.truncate(args.length > 0 ? args[0] : $N.INSTANCE); 
-                    }
-                };
-                default: return super.__getattr__(name);
-            }
-        }
+        static final $NM<StringIO> METHODS = new $NM<>(StringIO.class, TextIOBase.METHODS)
+            .add("getvalue", StringIO::getvalue)
+            .add("seek", StringIO::seek, $I.of(SEEK_SET))
+            .add("tell", StringIO::tell)
+            .add("truncate", StringIO::truncate, $N.INSTANCE);
         
         @Override
         public $S __repr__() {
@@ -1254,8 +1846,40 @@ public class _io {
     /**
      * Factory: open() function.
      */
+    private static final String[] OPEN_PARAMS = {
+        "file", "mode", "buffering", "encoding", "errors", "newline", "closefd", "opener"
+    };
+    
+    /**
+     * open() as called from Python, with keyword arguments last in args.
+     */
+    public static $O open($O[] args, String[] kwnames) {
+        int nkw = kwnames != null ? kwnames.length : 0;
+        int argc = args.length - nkw;
+        if (argc > OPEN_PARAMS.length) {
+            throw new $X.TypeError("open() takes at most 8 arguments (" + argc + " given)");
+        }
+        $O[] values = { null, $S.of("r"), $I.of(-1), $N.INSTANCE, $N.INSTANCE, $N.INSTANCE, $B.TRUE, $N.INSTANCE };
+        System.arraycopy(args, 0, values, 0, argc);
+        for (int i = 0; i < nkw; i++) {
+            int j = java.util.Arrays.asList(OPEN_PARAMS).indexOf(kwnames[i]);
+            if (j < 0) {
+                throw new $X.TypeError("'" + kwnames[i] + "' is an invalid keyword argument for open()");
+            }
+            if (j < argc) {
+                throw new $X.TypeError("argument for open() given by name ('" + kwnames[i]
+                    + "') and position (" + (j + 1) + ")");
+            }
+            values[j] = args[argc + i];
+        }
+        if (values[0] == null) {
+            throw new $X.TypeError("open() missing required argument 'file' (pos 1)");
+        }
+        return open(values[0], values[1], values[2], values[3], values[4], values[5], values[6], values[7]);
+    }
+    
     public static $O open($O file, $O mode, $O buffering, $O encoding, $O errors, $O newline, $O closefd, $O opener) {
-        String m = mode instanceof $S ? (($S)mode).value : "r";
+        String m = mode instanceof $S ? (($S)mode).value() : "r";
         int buf = buffering instanceof $I ? (int)(($I)buffering).value : -1;
         
         boolean binary = m.contains("b");
@@ -1277,9 +1901,7 @@ public class _io {
         // Create buffered layer
         BufferedIOBase buffered;
         if (updating) {
-            // Would need BufferedRandom for read+write
-            buffered = reading ? new BufferedReader(raw, buf > 0 ? buf : DEFAULT_BUFFER_SIZE)
-                               : new BufferedWriter(raw, buf > 0 ? buf : DEFAULT_BUFFER_SIZE);
+            buffered = new BufferedRandom(raw, buf > 0 ? buf : DEFAULT_BUFFER_SIZE);
         } else if (writing) {
             buffered = new BufferedWriter(raw, buf > 0 ? buf : DEFAULT_BUFFER_SIZE);
         } else {
@@ -0,0 +1,572 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+
+/**
+ * _mmap - Memory-mapped file objects.
+ *
+ * An mmap maps a file opened through _io.FileIO (found by its fileno())
+ * with FileChannel.map, so reads, searches and slices touch the page
+ * cache directly instead of going through read() calls. memoryview(mmap)
+ * exports the mapping itself without a copy.
+ *
+ * A MappedByteBuffer holds at most Integer.MAX_VALUE bytes, so larger
+ * mappings are split into 1 GiB segments; accesses that straddle a
+ * segment boundary are split too.
+ */
+public class _mmap {
+
+    public static final int ACCESS_DEFAULT = 0;
+    public static final int ACCESS_READ = 1;
+    public static final int ACCESS_WRITE = 2;
+    public static final int ACCESS_COPY = 3;
+
+    public static final int MAP_SHARED = 1;
+    public static final int MAP_PRIVATE = 2;
+    public static final int MAP_ANONYMOUS = 0x20;
+
+    public static final int PROT_READ = 1;
+    public static final int PROT_WRITE = 2;
+
+    public static final int PAGESIZE = 4096;
+    public static final int ALLOCATIONGRANULARITY = 4096;
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT = 1L << SEGMENT_SHIFT;
+
+    // Window for searching across segments without copying the mapping
+    private static final int SEARCH_WINDOW = 1 << 16;
+
+    private static final String[] PARAMS = { "fileno", "length", "flags", "prot", "access", "offset" };
+
+    /**
+     * mmap() as called from Python, with keyword arguments last in args.
+     */
+    public static mmap open($O[] args, String[] kwnames) {
+        int nkw = kwnames != null ? kwnames.length : 0;
+        int argc = args.length - nkw;
+        if (argc > PARAMS.length) {
+            throw new $X.TypeError("mmap() takes at most 6 arguments (" + argc + " given)");
+        }
+        $O[] values = { null, null, $I.of(MAP_SHARED), $I.of(PROT_READ | PROT_WRITE), $I.of(ACCESS_DEFAULT), $I.of(0) };
+        System.arraycopy(args, 0, values, 0, argc);
+        for (int i = 0; i < nkw; i++) {
+            int j = java.util.Arrays.asList(PARAMS).indexOf(kwnames[i]);
+            if (j < 0) {
+                throw new $X.TypeError("'" + kwnames[i] + "' is an invalid keyword argument for mmap()");
+            }
+            if (j < argc) {
+                throw new $X.TypeError("argument for mmap() given by name ('" + kwnames[i]
+                    + "') and position (" + (j + 1) + ")");
+            }
+            values[j] = args[argc + i];
+        }
+        if (values[0] == null || values[1] == null) {
+            throw new $X.TypeError("mmap() missing required argument '"
+                + (values[0] == null ? "fileno' (pos 1)" : "length' (pos 2)"));
+        }
+        return new mmap(integer(values[0]), integer(values[1]), (int) integer(values[2]),
+                        (int) integer(values[3]), (int) integer(values[4]), integer(values[5]));
+    }
+
+    private static long integer($O value) {
+        if (!(value instanceof $I) || (($I) value).isBig()) {
+            throw new $X.TypeError("an integer is required");
+        }
+        return (($I) value).value;
+    }
+
+    /**
+     * mmap - A mapped region of a file, or anonymous memory.
+     */
+    public static class mmap extends $O {
+        private ByteBuffer[] segments;
+        private final long length;
+        private final long offset;
+        private final int access;
+        private final boolean readonly;
+        // Path for size(); null for anonymous memory
+        private final String path;
+        private long pos;
+
+        mmap(long fileno, long length, int flags, int prot, int access, long offset) {
+            if (length < 0) throw new $X.OverflowError("memory mapped length must be positive");
+            if (offset < 0) throw new $X.OverflowError("memory mapped offset must be positive");
+            if (access != ACCESS_DEFAULT && ((flags != MAP_SHARED) || (prot != (PROT_READ | PROT_WRITE)))) {
+                throw new $X.ValueError("mmap can't specify both access and flags, prot.");
+            }
+            if (access < ACCESS_DEFAULT || access > ACCESS_COPY) {
+                throw new $X.ValueError("mmap invalid access parameter.");
+            }
+            if (offset % ALLOCATIONGRANULARITY != 0) {
+                throw new $X.OSError("[Errno 22] Invalid argument");
+            }
+            FileChannel.MapMode mode;
+            if (access == ACCESS_READ || (access == ACCESS_DEFAULT && (prot & PROT_WRITE) == 0)) {
+                mode = FileChannel.MapMode.READ_ONLY;
+            } else if (access == ACCESS_COPY || (access == ACCESS_DEFAULT && (flags & MAP_PRIVATE) != 0)) {
+                mode = FileChannel.MapMode.PRIVATE;
+            } else {
+                mode = FileChannel.MapMode.READ_WRITE;
+            }
+            this.access = access;
+            this.readonly = mode == FileChannel.MapMode.READ_ONLY;
+            this.offset = offset;
+
+            if (fileno == -1) {
+                if (length == 0) throw new $X.OSError("[Errno 22] Invalid argument");
+                this.path = null;
+                this.length = length;
+                this.segments = new ByteBuffer[segmentCount(length)];
+                for (int i = 0; i < segments.length; i++) {
+                    segments[i] = ByteBuffer.allocateDirect((int) Math.min(SEGMENT, length - ((long) i << SEGMENT_SHIFT)));
+                }
+                return;
+            }
+
+            $O owner = _io.descriptor(fileno);
+            if (!(owner instanceof _io.FileIO)) throw new $X.OSError("[Errno 19] No such device");
+            _io.FileIO file = (_io.FileIO) owner;
+            if (mode == FileChannel.MapMode.READ_WRITE && !file.isWriting()) {
+                throw new $X.PermissionError("[Errno 13] Permission denied");
+            }
+            if (!file.isReading()) {
+                throw new $X.PermissionError("[Errno 13] Permission denied");
+            }
+            this.path = (($S) file.__getattr__("name")).value();
+            FileChannel channel = file.channel();
+            try {
+                long size = channel.size();
+                if (length == 0) {
+                    if (size == 0) throw new $X.ValueError("cannot mmap an empty file");
+                    if (offset >= size) throw new $X.ValueError("mmap offset is greater than file size");
+                    length = size - offset;
+                } else if (offset > size || size - offset < length) {
+                    throw new $X.ValueError("mmap length is greater than file size");
+                }
+                this.length = length;
+                this.segments = new ByteBuffer[segmentCount(length)];
+                for (int i = 0; i < segments.length; i++) {
+                    long at = (long) i << SEGMENT_SHIFT;
+                    segments[i] = map(channel, mode, offset + at, Math.min(SEGMENT, length - at));
+                }
+            } catch (NonWritableChannelException e) {
+                throw new $X.PermissionError("[Errno 13] Permission denied");
+            } catch (IOException e) {
+                throw new $X.OSError(e.getMessage());
+            }
+        }
+
+        /**
+         * Map one segment. FileChannel only maps PRIVATE on a read-write
+         * channel, so a copy of a read-only file is taken up front instead.
+         */
+        private static ByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long at, long size)
+                throws IOException {
+            try {
+                return channel.map(mode, at, size);
+            } catch (NonWritableChannelException e) {
+                if (mode != FileChannel.MapMode.PRIVATE) throw e;
+                ByteBuffer copy = ByteBuffer.allocateDirect((int) size);
+                copy.put(channel.map(FileChannel.MapMode.READ_ONLY, at, size));
+                return copy.clear();
+            }
+        }
+
+        private static int segmentCount(long length) {
+            return (int) ((length + SEGMENT - 1) >>> SEGMENT_SHIFT);
+        }
+
+        private void checkValid() {
+            if (segments == null) throw new $X.ValueError("mmap closed or invalid");
+        }
+
+        private void checkWritable() {
+            checkValid();
+            if (readonly) throw new $X.TypeError("mmap can't modify a readonly memory map.");
+        }
+
+        // Access across segments
+
+        private byte get(long at) {
+            return segments[(int) (at >>> SEGMENT_SHIFT)].get((int) (at & (SEGMENT - 1)));
+        }
+
+        private void put(long at, byte b) {
+            segments[(int) (at >>> SEGMENT_SHIFT)].put((int) (at & (SEGMENT - 1)), b);
+        }
+
+        /** Copy n bytes at position at into dst[off, off + n). */
+        private void get(long at, byte[] dst, int off, int n) {
+            while (n > 0) {
+                ByteBuffer seg = segments[(int) (at >>> SEGMENT_SHIFT)];
+                int index = (int) (at & (SEGMENT - 1));
+                int chunk = Math.min(n, seg.capacity() - index);
+                seg.get(index, dst, off, chunk);
+                at += chunk;
+                off += chunk;
+                n -= chunk;
+            }
+        }
+
+        /** Copy src[off, off + n) to position at. */
+        private void put(long at, byte[] src, int off, int n) {
+            while (n > 0) {
+                ByteBuffer seg = segments[(int) (at >>> SEGMENT_SHIFT)];
+                int index = (int) (at & (SEGMENT - 1));
+                int chunk = Math.min(n, seg.capacity() - index);
+                seg.put(index, src, off, chunk);
+                at += chunk;
+                off += chunk;
+                n -= chunk;
+            }
+        }
+
+        private byte[] slice(long start, long end) {
+            long n = end - start;
+            if (n > Integer.MAX_VALUE - 8) throw new $X.OverflowError("mmap slice too large for bytes");
+            byte[] data = new byte[(int) Math.max(n, 0)];
+            get(start, data, 0, data.length);
+            return data;
+        }
+
+        /**
+         * A memoryview of the mapping itself; writable unless mapped read-only.
+         */
+        $MV view() {
+            checkValid();
+            if (segments.length > 1) {
+                throw new $X.BufferError("mmap larger than 2 GiB cannot be exported to a memoryview");
+            }
+            return new $MV(segments[0], readonly, this);
+        }
+
+        /** A copy of the whole mapping, as bytes(mmap) returns. */
+        byte[] contents() {
+            checkValid();
+            return slice(0, length);
+        }
+
+        // Searching
+
+        /**
+         * Index of needle in [start, end), or -1. Scans a window at a time
+         * so the mapping is never copied as a whole.
+         */
+        private long find(byte[] needle, long start, long end) {
+            if (needle.length == 0) return start <= end ? start : -1;
+            byte[] window = new byte[SEARCH_WINDOW + needle.length - 1];
+            for (long at = start; at + needle.length <= end; at += SEARCH_WINDOW) {
+                int n = (int) Math.min(window.length, end - at);
+                get(at, window, 0, n);
+                int i = $Scan.indexOf(window, needle, 0, n);
+                if (i >= 0) return at + i;
+            }
+            return -1;
+        }
+
+        private long rfind(byte[] needle, long start, long end) {
+            if (needle.length == 0) return start <= end ? end : -1;
+            byte[] window = new byte[SEARCH_WINDOW + needle.length - 1];
+            for (long stop = end; stop - needle.length >= start; stop -= SEARCH_WINDOW) {
+                long at = Math.max(start, stop - window.length);
+                int n = (int) (stop - at);
+                get(at, window, 0, n);
+                int i = $Scan.lastIndexOf(window, needle, 0, n);
+                if (i >= 0) return at + i;
+            }
+            return -1;
+        }
+
+        private long bound($O arg, long absent) {
+            if (arg == null || arg == $N.INSTANCE) return absent;
+            long v = integer(arg);
+            if (v < 0) v = Math.max(v + length, 0);
+            return Math.min(v, length);
+        }
+
+        public $I find($O sub, $O start, $O end) {
+            checkValid();
+            return $I.of(find($BA.toBytes(sub), bound(start, pos), bound(end, length)));
+        }
+
+        public $I rfind($O sub, $O start, $O end) {
+            checkValid();
+            return $I.of(rfind($BA.toBytes(sub), bound(start, pos), bound(end, length)));
+        }
+
+        // File-like interface
+
+        public $BY read($O size) {
+            checkValid();
+            long remaining = Math.max(length - pos, 0);
+            long n = size == null || size == $N.INSTANCE ? remaining : integer(size);
+            if (n < 0 || n > remaining) n = remaining;
+            byte[] data = slice(pos, pos + n);
+            pos += n;
+            return $BY.of(data);
+        }
+
+        public $I read_byte() {
+            checkValid();
+            if (pos >= length) throw new $X.ValueError("read byte out of range");
+            return $I.of(get(pos++) & 0xFF);
+        }
+
+        public $BY readline() {
+            checkValid();
+            long start = Math.min(pos, length);
+            long nl = find(new byte[] { '\n' }, start, length);
+            long end = nl < 0 ? length : nl + 1;
+            pos = end;
+            return $BY.of(slice(start, end));
+        }
+
+        public $I write($O data) {
+            checkWritable();
+            $MV view = $MV.written(data);
+            if (pos > length || length - pos < view.length) {
+                throw new $X.ValueError("data out of range");
+            }
+            put(pos, view.buffer, view.offset, view.length);
+            pos += view.length;
+            return $I.of(view.length);
+        }
+
+        public void write_byte($O value) {
+            checkWritable();
+            if (pos >= length) throw new $X.ValueError("write byte out of range");
+            put(pos++, itemValue(value));
+        }
+
+        public $I seek($O where, $O whence) {
+            checkValid();
+            long dist = integer(where);
+            long base;
+            switch (whence == null ? 0 : (int) integer(whence)) {
+                case 0: base = 0; break;
+                case 1: base = pos; break;
+                case 2: base = length; break;
+                default: throw new $X.ValueError("unknown seek type");
+            }
+            long to = base + dist;
+            if (to < 0 || to > length) throw new $X.ValueError("seek out of range");
+            pos = to;
+            return $I.of(pos);
+        }
+
+        public $I tell() {
+            checkValid();
+            return $I.of(pos);
+        }
+
+        public $I size() {
+            checkValid();
+            return $I.of(path == null ? length : new File(path).length());
+        }
+
+        public void move(long dest, long src, long count) {
+            checkWritable();
+            if (dest < 0 || src < 0 || count < 0 || length - dest < count || length - src < count) {
+                throw new $X.ValueError("source, destination, or count out of range");
+            }
+            // A bounded scratch buffer keeps overlapping moves correct
+            int chunk = (int) Math.min(count, SEARCH_WINDOW);
+            byte[] scratch = new byte[chunk];
+            if (dest <= src) {
+                for (long done = 0; done < count; done += chunk) {
+                    int n = (int) Math.min(chunk, count - done);
+                    get(src + done, scratch, 0, n);
+                    put(dest + done, scratch, 0, n);
+                }
+            } else {
+                for (long left = count; left > 0; left -= chunk) {
+                    int n = (int) Math.min(chunk, left);
+                    get(src + left - n, scratch, 0, n);
+                    put(dest + left - n, scratch, 0, n);
+                }
+            }
+        }
+
+        /**
+         * Write changes back to the file. Only shared writable mappings of
+         * a file have anything to write.
+         */
+        public void flush($O start, $O size) {
+            checkValid();
+            long from = start == null ? 0 : integer(start);
+            long n = size == null ? length - from : integer(size);
+            if (from < 0 || n < 0 || from > length || length - from < n) {
+                throw new $X.ValueError("flush values out of range");
+            }
+            for (ByteBuffer seg : segments) {
+                if (!(seg instanceof MappedByteBuffer) || seg.isReadOnly() || access == ACCESS_COPY) continue;
+                ((MappedByteBuffer) seg).force();
+            }
+        }
+
+        public void close() {
+            // The mapping is unmapped when the last buffer is collected
+            segments = null;
+        }
+
+        // Sequence interface
+
+        private byte itemValue($O value) {
+            long v = integer(value);
+            if (v < 0 || v > 255) throw new $X.ValueError("mmap item value must be in range(0, 256)");
+            return (byte) v;
+        }
+
+        private long index($O key) {
+            long i = integer(key);
+            if (i < 0) i += length;
+            if (i < 0 || i >= length) throw new $X.IndexError("mmap index out of range");
+            return i;
+        }
+
+        @Override
+        public $I __len__() {
+            checkValid();
+            return $I.of(length);
+        }
+
+        @Override
+        public $O __getitem__($O key) {
+            checkValid();
+            if (key instanceof $SL) {
+                $T indices = (($SL) key).indices($I.of(length));
+                long start = (($I) indices.items[0]).value;
+                long stop = (($I) indices.items[1]).value;
+                long step = (($I) indices.items[2]).value;
+                if (step == 1) return $BY.of(slice(start, Math.max(start, stop)));
+                java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+                for (long i = start; step > 0 ? i < stop : i > stop; i += step) {
+                    out.write(get(i));
+                }
+                return $BY.of(out.toByteArray());
+            }
+            return $I.of(get(index(key)) & 0xFF);
+        }
+
+        @Override
+        public void __setitem__($O key, $O value) {
+            checkWritable();
+            if (key instanceof $SL) {
+                $T indices = (($SL) key).indices($I.of(length));
+                long start = (($I) indices.items[0]).value;
+                long stop = (($I) indices.items[1]).value;
+                long step = (($I) indices.items[2]).value;
+                long count = step > 0 ? Math.max(0, (stop - start + step - 1) / step)
+                                      : Math.max(0, (start - stop - step - 1) / -step);
+                $MV data = $MV.written(value);
+                if (data.length != count) throw new $X.IndexError("mmap slice assignment is wrong size");
+                if (step == 1) {
+                    put(start, data.buffer, data.offset, data.length);
+                } else {
+                    for (int k = 0; k < count; k++) {
+                        put(start + k * step, data.buffer[data.offset + k]);
+                    }
+                }
+                return;
+            }
+            put(index(key), itemValue(value));
+        }
+
+        @Override
+        public $B __contains__($O item) {
+            checkValid();
+            return $B.of(find($BA.toBytes(item), 0, length) >= 0);
+        }
+
+        public mmap __enter__() {
+            return this;
+        }
+
+        public $O __exit__($O excType, $O excVal, $O excTb) {
+            close();
+            return $B.FALSE;
+        }
+
+        @Override
+        public $O __getattr__(String name) {
+            final mmap self = this;
+            switch (name) {
+                case "closed": return $B.of(segments == null);
+                case "close": return new $O() {
+                    @Override public $O __call__($O... args) { self.close(); return $N.INSTANCE; }
+                };
+                case "find": return new $O() {
+                    @Override public $O __call__($O... args) {
+                        return self.find(args[0], args.length > 1 ? args[1] : null, args.length > 2 ? args[2] : null);
+                    }
+                };
+                case "rfind": return new $O() {
+                    @Override public $O __call__($O... args) {
+                        return self.rfind(args[0], args.length > 1 ? args[1] : null, args.length > 2 ? args[2] : null);
+                    }
+                };
+                case "flush": return new $O() {
+                    @Override public $O __call__($O... args) {
+                        self.flush(args.length > 0 ? args[0] : null, args.length > 1 ? args[1] : null);
+                        return $N.INSTANCE;
+                    }
+                };
+                case "move": return new $O() {
+                    @Override public $O __call__($O... args) {
+                        self.move(integer(args[0]), integer(args[1]), integer(args[2]));
+                        return $N.INSTANCE;
+                    }
+                };
+                case "read": return new $O() {
+                    @Override public $O __call__($O... args) { return self.read(args.length > 0 ? args[0] : null); }
+                };
+                case "read_byte": return new $O() {
+                    @Override public $O __call__($O... args) { return self.read_byte(); }
+                };
+                case "readline": return new $O() {
+                    @Override public $O __call__($O... args) { return self.readline(); }
+                };
+                case "write": return new $O() {
+                    @Override public $O __call__($O... args) { return self.write(args[0]); }
+                };
+                case "write_byte": return new $O() {
+                    @Override public $O __call__($O... args) { self.write_byte(args[0]); return $N.INSTANCE; }
+                };
+                case "seek": return new $O() {
+                    @Override public $O __call__($O... args) {
+                        return self.seek(args[0], args.length > 1 ? args[1] : null);
+                    }
+                };
+                case "tell": return new $O() {
+                    @Override public $O __call__($O... args) { return self.tell(); }
+                };
+                case "size": return new $O() {
+                    @Override public $O __call__($O... args) { return self.size(); }
+                };
+                case "__enter__": return new $O() {
+                    @Override public $O __call__($O... args) { return self.__enter__(); }
+                };
+                case "__exit__": return new $O() {
+                    @Override public $O __call__($O... args) {
+                        return self.__exit__(
+                            args.length > 0 ? args[0] : $N.INSTANCE,
+                            args.length > 1 ? args[1] : $N.INSTANCE,
+                            args.length > 2 ? args[2] : $N.INSTANCE
+                        );
+                    }
+                };
+                default: return super.__getattr__(name);
+            }
+        }
+
+        @Override
+        public $S __repr__() {
+            String state = segments == null ? "closed=True" : "closed=False, length=" + length + ", pos=" + pos;
+            return $S.of("<mmap.mmap " + state + ", offset=" + offset + ">");
+        }
+    }
+}
@@ -1,7 +1,11 @@
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.*;
 import java.nio.file.attribute.*;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -62,7 +66,7 @@ public class _posix {
     }
     
     public static $O getenv($O key, $O defaultVal) {
-        String k = (($S)key).value;
+        String k = (($S)key).value();
         String val = System.getenv(k);
         if (val == null) {
             return defaultVal;
@@ -245,19 +249,38 @@ public class _posix {
      */
     public static $O stat($O path) {
         String p = pathStr(path);
-        File file = new File(p);
-        if (!file.exists()) {
-            throw new $X.FileNotFoundError("No such file or directory: '" + p + "'");
-        }
-        return new stat_result(file);
+        return new stat_result(attributes(new File(p).toPath(), true, p));
     }
     
     /**
      * Get file status, don't follow symlinks.
      */
     public static $O lstat($O path) {
-        // Java doesn't easily distinguish - just call stat
-        return stat(path);
+        String p = pathStr(path);
+        return new stat_result(attributes(new File(p).toPath(), false, p));
+    }
+    
+    private static final LinkOption[] FOLLOW = {};
+    private static final LinkOption[] NOFOLLOW = { LinkOption.NOFOLLOW_LINKS };
+    
+    /**
+     * One stat of path: POSIX attributes where the file system has them.
+     */
+    static BasicFileAttributes attributes(Path path, boolean follow, String name) {
+        LinkOption[] options = follow ? FOLLOW : NOFOLLOW;
+        try {
+            try {
+                return Files.readAttributes(path, PosixFileAttributes.class, options);
+            } catch (UnsupportedOperationException e) {
+                return Files.readAttributes(path, BasicFileAttributes.class, options);
+            }
+        } catch (NoSuchFileException e) {
+            throw new $X.FileNotFoundError("No such file or directory: '" + name + "'");
+        } catch (AccessDeniedException e) {
+            throw new $X.PermissionError("Permission denied: '" + name + "'");
+        } catch (IOException e) {
+            throw new $X.OSError(e.getMessage());
+        }
     }
     
     /**
@@ -268,7 +291,7 @@ public class _posix {
         File file = new File(p);
         int m = (int)(($I)mode).value;
         
-        if ((m & F_OK) != 0 && !file.exists()) return $B.FALSE;
+        if (!file.exists()) return $B.FALSE;  // F_OK is 0: every mode needs the file
         if ((m & R_OK) != 0 && !file.canRead()) return $B.FALSE;
         if ((m & W_OK) != 0 && !file.canWrite()) return $B.FALSE;
         if ((m & X_OK) != 0 && !file.canExecute()) return $B.FALSE;
@@ -455,49 +478,453 @@ public class _posix {
         return $F.of(file.lastModified() / 1000.0);
     }
     
+    /**
+     * Iterate over the entries of a directory as DirEntry objects.
+     */
+    public static scandir_iterator scandir($O path) {
+        String p = path == $N.INSTANCE ? "." : pathStr(path);
+        Path dir = new File(p).toPath();
+        try {
+            return new scandir_iterator(Files.newDirectoryStream(dir), p);
+        } catch (NoSuchFileException e) {
+            throw new $X.FileNotFoundError("No such file or directory: '" + p + "'");
+        } catch (NotDirectoryException e) {
+            throw new $X.NotADirectoryError("Not a directory: '" + p + "'");
+        } catch (AccessDeniedException e) {
+            throw new $X.PermissionError("Permission denied: '" + p + "'");
+        } catch (IOException e) {
+            throw new $X.OSError(e.getMessage());
+        }
+    }
+    
+    public static scandir_iterator scandir() {
+        return scandir($S.of("."));
+    }
+    
+    /**
+     * Join a directory and a name the way os.path.join does.
+     */
+    private static String join(String dir, String name) {
+        return dir.isEmpty() || dir.endsWith("/") ? dir + name : dir + "/" + name;
+    }
+    
+    /**
+     * ScandirIterator - the open directory behind scandir().
+     */
+    public static class scandir_iterator extends $O {
+        private final DirectoryStream<Path> stream;
+        private final Iterator<Path> entries;
+        private final String dir;
+        private boolean closed;
+        
+        scandir_iterator(DirectoryStream<Path> stream, String dir) {
+            this.stream = stream;
+            this.entries = stream.iterator();
+            this.dir = dir;
+        }
+        
+        public void close() {
+            if (!closed) {
+                closed = true;
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    throw new $X.OSError(e.getMessage());
+                }
+            }
+        }
+        
+        @Override
+        public $O __iter__() {
+            return this;
+        }
+        
+        @Override
+        public $O __next__() {
+            // DirectoryIteratorException wraps a failed readdir
+            boolean more;
+            try {
+                more = !closed && entries.hasNext();
+            } catch (DirectoryIteratorException e) {
+                close();
+                throw new $X.OSError(e.getCause().getMessage());
+            }
+            if (!more) {
+                close();
+                throw new $X.StopIteration();
+            }
+            Path file = entries.next();
+            String name = file.getFileName().toString();
+            return new DirEntry(name, join(dir, name), file);
+        }
+        
+        @Override
+        public $O __getattr__(String name) {
+            final scandir_iterator self = this;
+            switch (name) {
+                case "close": return new $O() {
+                    @Override public $O __call__($O... args) { self.close(); return $N.INSTANCE; }
+                };
+                case "__enter__": return new $O() {
+                    @Override public $O __call__($O... args) { return self; }
+                };
+                case "__exit__": return new $O() {
+                    @Override public $O __call__($O... args) { self.close(); return $B.FALSE; }
+                };
+                default: return super.__getattr__(name);
+            }
+        }
+    }
+    
+    /**
+     * DirEntry - one scandir() result. The file is stat'ed at most once
+     * without following links and once following them, on first use.
+     */
+    public static class DirEntry extends $O {
+        private final String name;
+        private final String path;
+        private final Path file;
+        private BasicFileAttributes lstat;
+        private BasicFileAttributes stat;
+        
+        DirEntry(String name, String path, Path file) {
+            this.name = name;
+            this.path = path;
+            this.file = file;
+        }
+        
+        private BasicFileAttributes attrs(boolean follow) {
+            if (lstat == null) lstat = attributes(file, false, path);
+            if (!follow || !lstat.isSymbolicLink()) return lstat;
+            if (stat == null) stat = attributes(file, true, path);
+            return stat;
+        }
+        
+        /** Like attrs(), but a vanished or dangling entry is neither kind. */
+        private BasicFileAttributes attrsOrNull(boolean follow) {
+            try {
+                return attrs(follow);
+            } catch ($X.FileNotFoundError e) {
+                return null;
+            }
+        }
+        
+        public $B is_dir(boolean follow) {
+            BasicFileAttributes a = attrsOrNull(follow);
+            return $B.of(a != null && a.isDirectory());
+        }
+        
+        public $B is_file(boolean follow) {
+            BasicFileAttributes a = attrsOrNull(follow);
+            return $B.of(a != null && a.isRegularFile());
+        }
+        
+        public $B is_symlink() {
+            BasicFileAttributes a = attrsOrNull(false);
+            return $B.of(a != null && a.isSymbolicLink());
+        }
+        
+        public stat_result stat(boolean follow) {
+            return new stat_result(attrs(follow));
+        }
+        
+        public $I inode() {
+            try {
+                return $I.of(((Number) Files.getAttribute(file, "unix:ino", NOFOLLOW)).longValue());
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                return $I.of(0);
+            } catch (IOException e) {
+                throw new $X.OSError(e.getMessage());
+            }
+        }
+        
+        /** follow_symlinks from a call's keyword or only argument. */
+        private static boolean follow($O[] args, String[] kwnames) {
+            int nkw = kwnames != null ? kwnames.length : 0;
+            for (int i = 0; i < nkw; i++) {
+                if (!kwnames[i].equals("follow_symlinks")) {
+                    throw new $X.TypeError("'" + kwnames[i] + "' is an invalid keyword argument");
+                }
+            }
+            return args.length == 0 || args[args.length - 1].__bool__();
+        }
+        
+        @Override
+        public $O __getattr__(String attr) {
+            final DirEntry self = this;
+            switch (attr) {
+                case "name": return $S.of(name);
+                case "path": return $S.of(path);
+                case "is_dir": return new $O() {
+                    @Override public $O __call__($O... args) { return self.is_dir(follow(args, null)); }
+                    @Override public $O __call__($O[] args, String[] kw) { return self.is_dir(follow(args, kw)); }
+                };
+                case "is_file": return new $O() {
+                    @Override public $O __call__($O... args) { return self.is_file(follow(args, null)); }
+                    @Override public $O __call__($O[] args, String[] kw) { return self.is_file(follow(args, kw)); }
+                };
+                case "is_symlink": return new $O() {
+                    @Override public $O __call__($O... args) { return self.is_symlink(); }
+                };
+                case "stat": return new $O() {
+                    @Override public $O __call__($O... args) { return self.stat(follow(args, null)); }
+                    @Override public $O __call__($O[] args, String[] kw) { return self.stat(follow(args, kw)); }
+                };
+                case "inode": return new $O() {
+                    @Override public $O __call__($O... args) { return self.inode(); }
+                };
+                case "__fspath__": return new $O() {
+                    @Override public $O __call__($O... args) { return $S.of(self.path); }
+                };
+                default: return super.__getattr__(attr);
+            }
+        }
+        
+        @Override
+        public $S __str__() {
+            return __repr__();
+        }
+        
+        @Override
+        public $S __repr__() {
+            return $S.of("<DirEntry " + $S.of(name).__repr__().value() + ">");
+        }
+    }
+    
     /**
      * Walk directory tree.
      */
-    public static $L walk($O top) {
+    public static $O walk($O top) {
         return walk(top, $B.TRUE, $N.INSTANCE, $B.FALSE);
     }
     
-    public static $L walk($O top, $O topdown, $O onerror, $O followlinks) {
-        $L result = new $L();
-        walkDir(new File(pathStr(top)), result, topdown.__bool__());
-        return result;
+    public static $O walk($O top, $O topdown, $O onerror, $O followlinks) {
+        return new walk_iterator(pathStr(top), topdown.__bool__(), onerror, followlinks.__bool__());
     }
     
-    private static void walkDir(File dir, $L result, boolean topdown) {
-        if (!dir.isDirectory()) return;
+    private static final String[] WALK_PARAMS = { "top", "topdown", "onerror", "followlinks" };
+    
+    /**
+     * walk() as called from Python, with keyword arguments last in args.
+     */
+    public static $O walk($O[] args, String[] kwnames) {
+        int nkw = kwnames != null ? kwnames.length : 0;
+        int argc = args.length - nkw;
+        if (argc > WALK_PARAMS.length) {
+            throw new $X.TypeError("walk() takes at most 4 arguments (" + argc + " given)");
+        }
+        $O[] values = { null, $B.TRUE, $N.INSTANCE, $B.FALSE };
+        System.arraycopy(args, 0, values, 0, argc);
+        for (int i = 0; i < nkw; i++) {
+            int j = java.util.Arrays.asList(WALK_PARAMS).indexOf(kwnames[i]);
+            if (j < 0) {
+                throw new $X.TypeError("walk() got an unexpected keyword argument '" + kwnames[i] + "'");
+            }
+            values[j] = args[argc + i];
+        }
+        if (values[0] == null) {
+            throw new $X.TypeError("walk() missing 1 required positional argument: 'top'");
+        }
+        return walk(values[0], values[1], values[2], values[3]);
+    }
+    
+    /**
+     * The lazy (dirpath, dirnames, filenames) iterator behind walk(). A
+     * stack holds directories still to scan, and for a bottom-up walk the
+     * results waiting on their subdirectories. Top-down, subdirectories
+     * are taken from dirnames only on the next step, so the caller can
+     * prune it in place.
+     */
+    static class walk_iterator extends $O {
+        private final boolean topdown;
+        private final $O onerror;
+        private final boolean followlinks;
+        private final ArrayDeque<Object> stack = new ArrayDeque<>();
+        private String pendingDir;
+        private $L pendingDirs;
         
-        $L dirs = new $L();
-        $L files = new $L();
+        walk_iterator(String top, boolean topdown, $O onerror, boolean followlinks) {
+            this.topdown = topdown;
+            this.onerror = onerror;
+            this.followlinks = followlinks;
+            stack.push(top);
+        }
         
-        File[] contents = dir.listFiles();
-        if (contents != null) {
-            for (File f : contents) {
-                if (f.isDirectory()) {
-                    dirs.append($S.of(f.getName()));
-                } else {
-                    files.append($S.of(f.getName()));
+        @Override
+        public $O __iter__() {
+            return this;
+        }
+        
+        @Override
+        public $O __next__() {
+            if (pendingDirs != null) {
+                for (int i = pendingDirs.items.size() - 1; i >= 0; i--) {
+                    String sub = join(pendingDir, pendingDirs.items.get(i).__str__().value());
+                    if (followlinks || !Files.isSymbolicLink(new File(sub).toPath())) {
+                        stack.push(sub);
+                    }
                 }
+                pendingDirs = null;
             }
+            while (!stack.isEmpty()) {
+                Object next = stack.pop();
+                if (next instanceof $T) return ($T) next;
+                $T result = scan((String) next);
+                if (result != null) return result;
+            }
+            throw new $X.StopIteration();
         }
         
-        $T entry = $T.of($S.of(dir.getPath()), dirs, files);
-        
-        if (topdown) {
-            result.append(entry);
-            for ($O d : dirs.items) {
-                walkDir(new File(dir, (($S)d).value), result, topdown);
+        /**
+         * List one directory; top-down this returns its result, bottom-up
+         * it stacks the result under its subdirectories and returns null.
+         */
+        private $T scan(String dir) {
+            $L dirs = new $L();
+            $L files = new $L();
+            ArrayDeque<String> into = new ArrayDeque<>();
+            scandir_iterator it;
+            try {
+                it = scandir($S.of(dir));
+            } catch ($X.OSError e) {
+                if (onerror != $N.INSTANCE) onerror.__call__(e.asPyObject());
+                return null;
             }
-        } else {
-            for ($O d : dirs.items) {
-                walkDir(new File(dir, (($S)d).value), result, topdown);
+            try {
+                while (true) {
+                    DirEntry entry;
+                    try {
+                        entry = (DirEntry) it.__next__();
+                    } catch ($X.StopIteration e) {
+                        break;
+                    } catch ($X.OSError e) {
+                        if (onerror != $N.INSTANCE) onerror.__call__(e.asPyObject());
+                        return null;
+                    }
+                    boolean isDir;
+                    try {
+                        isDir = entry.is_dir(true).__bool__();
+                    } catch ($X.OSError e) {
+                        isDir = false;
+                    }
+                    (isDir ? dirs : files).append($S.of(entry.name));
+                    if (!topdown && isDir && (followlinks || !entry.is_symlink().__bool__())) {
+                        into.push(entry.path);
+                    }
+                }
+            } finally {
+                it.close();
+            }
+            $T result = $T.of($S.of(dir), dirs, files);
+            if (topdown) {
+                pendingDir = dir;
+                pendingDirs = dirs;
+                return result;
+            }
+            stack.push(result);
+            for (String sub : into) {
+                stack.push(sub);
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Copy count bytes from file descriptor in_fd to out_fd, a file or a
+     * stream socket, without passing them through Python objects. With
+     * offset None the input's position is used and advanced.
+     */
+    public static $I sendfile($O outFd, $O inFd, $O offset, $O count) {
+        $O in = _io.descriptor(fd(inFd));
+        if (!(in instanceof _io.FileIO)) throw new $X.OSError("[Errno 22] Invalid argument");
+        _io.FileIO source = (_io.FileIO) in;
+        WritableByteChannel target = sink(_io.descriptor(fd(outFd)));
+        long n = fd(count);
+        if (n < 0) throw new $X.OSError("[Errno 22] Invalid argument");
+        if (offset == $N.INSTANCE) {
+            long pos = source.position();
+            long sent = source.transferTo(pos, n, target);
+            source.position(pos + sent);
+            return $I.of(sent);
+        }
+        long pos = fd(offset);
+        if (pos < 0) throw new $X.OSError("[Errno 22] Invalid argument");
+        return $I.of(source.transferTo(pos, n, target));
+    }
+    
+    private static WritableByteChannel sink($O out) {
+        if (out instanceof _io.FileIO) return ((_io.FileIO) out).sink();
+        if (out instanceof _socket.socket) return ((_socket.socket) out).sink();
+        throw new $X.OSError("[Errno 22] Invalid argument");
+    }
+    
+    private static long fd($O value) {
+        if (!(value instanceof $I)) {
+            throw new $X.TypeError("'" + value.getClass().getSimpleName() + "' object cannot be interpreted as an integer");
+        }
+        return (($I) value).value;
+    }
+    
+    /**
+     * shutil.copyfileobj(): a channel transfer when both ends are binary
+     * files, otherwise read and write in blocks of length.
+     */
+    public static $N copyfileobj($O fsrc, $O fdst, $O length) {
+        _io.FileIO source = _io.fileOf(fsrc);
+        _io.FileIO target = source != null ? _io.fileOf(fdst) : null;
+        if (target != null) {
+            long pos = source.position();
+            source.position(pos + source.transferTo(pos, Long.MAX_VALUE, target.sink()));
+            return $N.INSTANCE;
+        }
+        long n = length instanceof $I ? (($I) length).value : 0;
+        $I block = $I.of(n > 0 ? n : 64 * 1024);
+        $O read = fsrc.__getattr__("read");
+        $O write = fdst.__getattr__("write");
+        while (true) {
+            $O data = read.__call__(block);
+            if (!data.__bool__()) break;
+            write.__call__(data);
+        }
+        return $N.INSTANCE;
+    }
+    
+    /**
+     * shutil.copyfile(): copy the contents of src to dst with one
+     * channel transfer, which the kernel does without a user-space copy.
+     */
+    public static $O copyfile($O src, $O dst) {
+        String s = pathStr(src);
+        String d = pathStr(dst);
+        Path from = Paths.get(s);
+        Path to = Paths.get(d);
+        if (!Files.exists(from)) {
+            throw new $X.FileNotFoundError("No such file or directory: '" + s + "'");
+        }
+        try {
+            if (Files.exists(to) && Files.isSameFile(from, to)) {
+                throw new $X("SameFileError", "'" + s + "' and '" + d + "' are the same file");
             }
-            result.append(entry);
+        } catch (IOException e) {
+            throw new $X.OSError(e.getMessage());
         }
+        if (Files.isDirectory(from)) throw new $X.IsADirectoryError("Is a directory: '" + s + "'");
+        if (Files.isDirectory(to)) throw new $X.IsADirectoryError("Is a directory: '" + d + "'");
+        try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(to, StandardOpenOption.WRITE,
+                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            for (long done = 0; done < size; ) {
+                long n = in.transferTo(done, size - done, out);
+                if (n <= 0) break;
+                done += n;
+            }
+        } catch (NoSuchFileException e) {
+            throw new $X.FileNotFoundError("No such file or directory: '" + e.getFile() + "'");
+        } catch (IOException e) {
+            throw new $X.OSError(e.getMessage());
+        }
+        return dst;
     }
     
     /**
@@ -505,9 +932,9 @@ public class _posix {
      */
     private static String pathStr($O path) {
         if (path instanceof $S) {
-            return (($S)path).value;
+            return (($S)path).value();
         }
-        return path.__str__().value;
+        return path.__str__().value();
     }
     
     /**
@@ -525,14 +952,20 @@ public class _posix {
         public final $F st_mtime;
         public final $F st_ctime;
         
-        public stat_result(File file) {
-            // Mode: approximate from Java
-            int mode = 0;
-            if (file.isDirectory()) mode |= 0040000;  // S_IFDIR
-            else if (file.isFile()) mode |= 0100000;  // S_IFREG
-            if (file.canRead()) mode |= 0444;
-            if (file.canWrite()) mode |= 0222;
-            if (file.canExecute()) mode |= 0111;
+        public stat_result(BasicFileAttributes attrs) {
+            int mode;
+            if (attrs.isDirectory()) mode = 0040000;          // S_IFDIR
+            else if (attrs.isSymbolicLink()) mode = 0120000;  // S_IFLNK
+            else if (attrs.isRegularFile()) mode = 0100000;   // S_IFREG
+            else mode = 0;
+            if (attrs instanceof PosixFileAttributes) {
+                for (PosixFilePermission perm : ((PosixFileAttributes) attrs).permissions()) {
+                    // OWNER_READ .. OTHERS_EXECUTE are bits 8 .. 0
+                    mode |= 0400 >> perm.ordinal();
+                }
+            } else {
+                mode |= attrs.isDirectory() ? 0755 : 0644;
+            }
             
             this.st_mode = $I.of(mode);
             this.st_ino = $I.of(0);  // Not available in Java
@@ -540,12 +973,11 @@ public class _posix {
             this.st_nlink = $I.of(1);
             this.st_uid = $I.of(0);
             this.st_gid = $I.of(0);
-            this.st_size = $I.of(file.length());
+            this.st_size = $I.of(attrs.size());
             
-            long mtime = file.lastModified();
-            this.st_atime = $F.of(mtime / 1000.0);
-            this.st_mtime = $F.of(mtime / 1000.0);
-            this.st_ctime = $F.of(mtime / 1000.0);
+            this.st_atime = $F.of(attrs.lastAccessTime().toMillis() / 1000.0);
+            this.st_mtime = $F.of(attrs.lastModifiedTime().toMillis() / 1000.0);
+            this.st_ctime = this.st_mtime;
         }
         
         @Override
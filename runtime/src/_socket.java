@@ -70,11 +70,13 @@ public class _socket {
         private boolean closed = false;
         private boolean blocking = true;
         private int timeout = 0;  // milliseconds, 0 = no timeout
+        private final int fd;
         
         public socket($O family, $O type, $O proto) {
             this.family = family instanceof $I ? (int)(($I)family).value : AF_INET;
             this.type = type instanceof $I ? (int)(($I)type).value : SOCK_STREAM;
             this.proto = proto instanceof $I ? (int)(($I)proto).value : 0;
+            this.fd = _io.openDescriptor(this);
         }
         
         public socket() {
@@ -86,6 +88,7 @@ public class _socket {
             this.family = family;
             this.type = type;
             this.proto = proto;
+            this.fd = _io.openDescriptor(this);
             this.tcpSocket = acceptedSocket;
             try {
                 this.inputStream = acceptedSocket.getInputStream();
@@ -101,13 +104,14 @@ public class _socket {
         public $N connect($O address) {
             checkClosed();
             $T addr = ($T)address;
-            String host = (($S)addr.items[0]).value;
+            String host = (($S)addr.items[0]).value();
             int port = (int)(($I)addr.items[1]).value;
             
             try {
                 if (type == SOCK_STREAM) {
                     if (blocking) {
-                        tcpSocket = new java.net.Socket();
+                        // Channel-backed, so sendfile() can use transferTo
+                        tcpSocket = SocketChannel.open().socket();
                         if (timeout > 0) {
                             tcpSocket.connect(new InetSocketAddress(host, port), timeout);
                         } else {
@@ -138,7 +142,7 @@ public class _socket {
         public $N bind($O address) {
             checkClosed();
             $T addr = ($T)address;
-            String host = (($S)addr.items[0]).value;
+            String host = (($S)addr.items[0]).value();
             int port = (int)(($I)addr.items[1]).value;
             
             try {
@@ -147,7 +151,8 @@ public class _socket {
                     : new InetSocketAddress(host, port);
                 
                 if (type == SOCK_STREAM) {
-                    serverSocket = new ServerSocket();
+                    // Accepted sockets then have channels too
+                    serverSocket = ServerSocketChannel.open().socket();
                     serverSocket.setReuseAddress(true);
                     serverSocket.bind(sockAddr);
                 } else if (type == SOCK_DGRAM) {
@@ -215,23 +220,23 @@ public class _socket {
         
         public $I send($O data, $O flags) {
             checkClosed();
-            byte[] bytes = getBytes(data);
+            $MV view = $MV.written(data);
             
             try {
                 if (type == SOCK_STREAM) {
                     if (outputStream != null) {
-                        outputStream.write(bytes);
-                        return $I.of(bytes.length);
+                        outputStream.write(view.buffer, view.offset, view.length);
+                        return $I.of(view.length);
                     } else if (tcpChannel != null) {
-                        ByteBuffer buf = ByteBuffer.wrap(bytes);
+                        ByteBuffer buf = ByteBuffer.wrap(view.buffer, view.offset, view.length);
                         return $I.of(tcpChannel.write(buf));
                     }
                     throw new $X.OSError("Socket not connected");
                 } else if (type == SOCK_DGRAM) {
                     if (udpSocket != null && udpSocket.isConnected()) {
-                        DatagramPacket packet = new DatagramPacket(bytes, bytes.length);
+                        DatagramPacket packet = new DatagramPacket(view.buffer, view.offset, view.length);
                         udpSocket.send(packet);
-                        return $I.of(bytes.length);
+                        return $I.of(view.length);
                     }
                     throw new $X.OSError("Socket not connected");
                 }
@@ -251,14 +256,14 @@ public class _socket {
         
         public $N sendall($O data, $O flags) {
             checkClosed();
-            byte[] bytes = getBytes(data);
+            $MV view = $MV.written(data);
             
             try {
                 if (type == SOCK_STREAM && outputStream != null) {
-                    outputStream.write(bytes);
+                    outputStream.write(view.buffer, view.offset, view.length);
                     outputStream.flush();
                 } else {
-                    send(data, flags);
+                    send(view, flags);
                 }
             } catch (IOException e) {
                 throw new $X.OSError("Sendall failed: " + e.getMessage());
@@ -275,9 +280,9 @@ public class _socket {
         
         public $I sendto($O data, $O flags, $O address) {
             checkClosed();
-            byte[] bytes = getBytes(data);
+            $MV view = $MV.written(data);
             $T addr = ($T)address;
-            String host = (($S)addr.items[0]).value;
+            String host = (($S)addr.items[0]).value();
             int port = (int)(($I)addr.items[1]).value;
             
             try {
@@ -286,9 +291,9 @@ public class _socket {
                         udpSocket = new DatagramSocket();
                     }
                     InetAddress inetAddr = InetAddress.getByName(host);
-                    DatagramPacket packet = new DatagramPacket(bytes, bytes.length, inetAddr, port);
+                    DatagramPacket packet = new DatagramPacket(view.buffer, view.offset, view.length, inetAddr, port);
                     udpSocket.send(packet);
-                    return $I.of(bytes.length);
+                    return $I.of(view.length);
                 }
                 throw new $X.OSError("sendto only supported for UDP sockets");
             } catch (IOException e) {
@@ -350,6 +355,56 @@ public class _socket {
             return $BY.of(new byte[0]);
         }
         
+        /**
+         * Receive up to nbytes (0 means the buffer's size) straight into a
+         * writable buffer. Returns the number of bytes received.
+         */
+        public $I recv_into($O buffer) {
+            return recv_into(buffer, $I.of(0), $I.of(0));
+        }
+        
+        public $I recv_into($O buffer, $O nbytes) {
+            return recv_into(buffer, nbytes, $I.of(0));
+        }
+        
+        public $I recv_into($O buffer, $O nbytes, $O flags) {
+            checkClosed();
+            $MV dest = $MV.target(buffer, "recv_into()");
+            int size = (int)(($I)nbytes).value;
+            if (size < 0) throw new $X("ValueError", "negative buffersize in recv_into");
+            if (size > dest.length) throw new $X("ValueError", "buffer too small for requested bytes");
+            if (size == 0) size = dest.length;
+            if (size == 0) return $I.of(0);
+            
+            try {
+                if (type == SOCK_STREAM) {
+                    if (inputStream != null) {
+                        if (timeout > 0 && tcpSocket != null) {
+                            tcpSocket.setSoTimeout(timeout);
+                        }
+                        int read = inputStream.read(dest.buffer, dest.offset, size);
+                        return $I.of(read < 0 ? 0 : read);
+                    } else if (tcpChannel != null) {
+                        int read = tcpChannel.read(ByteBuffer.wrap(dest.buffer, dest.offset, size));
+                        return $I.of(read < 0 ? 0 : read);
+                    }
+                    throw new $X.OSError("Socket not connected");
+                } else if (type == SOCK_DGRAM) {
+                    if (udpSocket != null) {
+                        DatagramPacket packet = new DatagramPacket(dest.buffer, dest.offset, size);
+                        udpSocket.receive(packet);
+                        return $I.of(packet.getLength());
+                    }
+                    throw new $X.OSError("Socket not bound");
+                }
+            } catch (SocketTimeoutException e) {
+                throw new $X("timeout", "timed out");
+            } catch (IOException e) {
+                throw new $X.OSError("Recv failed: " + e.getMessage());
+            }
+            return $I.of(0);
+        }
+        
         /**
          * Receive data and sender address (UDP).
          */
@@ -390,6 +445,7 @@ public class _socket {
         public $N close() {
             if (closed) return $N.INSTANCE;
             closed = true;
+            _io.closeDescriptor(fd);
             
             try {
                 if (tcpSocket != null) tcpSocket.close();
@@ -604,8 +660,51 @@ public class _socket {
          * Get file descriptor.
          */
         public $I fileno() {
-            // Java doesn't expose real file descriptors
-            return $I.of(-1);
+            return $I.of(closed ? -1 : fd);
+        }
+        
+        /**
+         * The channel a file transfer writes to. Stream sockets are
+         * channel-backed; anything else is wrapped around its stream.
+         */
+        WritableByteChannel sink() {
+            checkClosed();
+            if (type != SOCK_STREAM) throw new $X.OSError("[Errno 22] Invalid argument");
+            if (tcpSocket != null && tcpSocket.getChannel() != null) return tcpSocket.getChannel();
+            if (tcpChannel != null) return tcpChannel;
+            if (outputStream != null) return Channels.newChannel(outputStream);
+            throw new $X.OSError("Socket not connected");
+        }
+        
+        /**
+         * Send a binary file from offset until count bytes or end of file,
+         * leaving the file positioned after the last byte sent.
+         */
+        public $I sendfile($O file, $O offset, $O count) {
+            checkClosed();
+            long start = offset instanceof $I ? (($I) offset).value : 0;
+            long limit = count instanceof $I ? (($I) count).value : Long.MAX_VALUE;
+            if (start < 0) throw new $X.ValueError("offset must be non-negative");
+            if (limit <= 0 && count instanceof $I) throw new $X.ValueError("count must be a positive integer");
+            if (file instanceof _io.TextIOWrapper) throw new $X.ValueError("file should be opened in binary mode");
+            _io.FileIO source = _io.fileOf(file);
+            long sent;
+            if (source != null) {
+                sent = source.transferTo(start, limit, sink());
+            } else {
+                // Not backed by a file: read and send in blocks
+                file.__getattr__("seek").__call__($I.of(start));
+                sent = 0;
+                while (sent < limit) {
+                    $O data = file.__getattr__("read").__call__($I.of(Math.min(limit - sent, 65536)));
+                    $MV view = $MV.written(data);
+                    if (view.length == 0) break;
+                    sendall(view);
+                    sent += view.length;
+                }
+            }
+            if (sent > 0) file.__getattr__("seek").__call__($I.of(start + sent));
+            return $I.of(sent);
         }
         
         /**
@@ -613,7 +712,7 @@ public class _socket {
          */
         public $O makefile($O mode, $O buffering) {
             checkClosed();
-            String m = mode instanceof $S ? (($S)mode).value : "r";
+            String m = mode instanceof $S ? (($S)mode).value() : "r";
             
             if (type != SOCK_STREAM) {
                 throw new $X.OSError("makefile only supported for TCP sockets");
@@ -639,122 +738,60 @@ public class _socket {
             }
         }
         
-        private byte[] getBytes($O data) {
-            if (data instanceof $BY) {
-                return (($BY)data).data;
-            } else if (data instanceof $S) {
-                return (($S)data).value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-            }
-            throw new $X.TypeError("a bytes-like object is required");
-        }
-        
         private boolean toBool($O value) {
             if (value instanceof $B) return (($B)value).__bool__();
             if (value instanceof $I) return (($I)value).value != 0;
             return value.__bool__();
         }
         
+        static final $NM<socket> METHODS = new $NM<>(socket.class)
+            .add("connect", socket::connect)
+            .add("bind", socket::bind)
+            .add("listen", socket::listen, $I.of(5))
+            .add("accept", socket::accept)
+            .add("send", (self, data) -> self.send(data))
+            .add("send", (self, data, flags) -> self.send(data, flags))
+            .add("sendall", (self, data) -> self.sendall(data))
+            .add("sendall", (self, data, flags) -> self.sendall(data, flags))
+            .add("sendto", (self, data, address) -> self.sendto(data, address))
+            .add("sendto", (self, data, flags, address) -> self.sendto(data, flags, address))
+            .add("recv", (self, bufsize) -> self.recv(bufsize))
+            .add("recv", (self, bufsize, flags) -> self.recv(bufsize, flags))
+            .add("recv_into", (self, buffer) -> self.recv_into(buffer))
+            .add("recv_into", (self, buffer, nbytes) -> self.recv_into(buffer, nbytes))
+            .add("recv_into", (self, buffer, nbytes, flags) -> self.recv_into(buffer, nbytes, flags))
+            .add("recvfrom", (self, bufsize) -> self.recvfrom(bufsize))
+            .add("recvfrom", (self, bufsize, flags) -> self.recvfrom(bufsize, flags))
+            .add("close", socket::close)
+            .add("shutdown", socket::shutdown)
+            .add("setsockopt", socket::setsockopt)
+            .add("getsockopt", socket::getsockopt)
+            .add("setblocking", socket::setblocking)
+            .add("getblocking", socket::getblocking)
+            .add("settimeout", socket::settimeout)
+            .add("gettimeout", socket::gettimeout)
+            .add("getpeername", socket::getpeername)
+            .add("getsockname", socket::getsockname)
+            .add("fileno", socket::fileno)
+            .add("sendfile", socket::sendfile, $I.of(0), $N.INSTANCE)
+            .add("makefile", socket::makefile, $S.of("r"), $N.INSTANCE)
+            .add("__enter__", socket::__enter__)
+            .add("__exit__", socket::__exit__, $N.INSTANCE, $N.INSTANCE, $N.INSTANCE);
+        
+        // Methods handed out as values, by table slot
+        private $O[] bound;
+        
         @Override
         public $O __getattr__(String name) {
-            final socket self = this;
             switch (name) {
                 case "family": return $I.of(family);
                 case "type": return $I.of(type);
                 case "proto": return $I.of(proto);
-                case "connect": return new $O() {
-                    @Override public $O __call__($O... args) { return self.connect(args[0]); }
-                };
-                case "bind": return new $O() {
-                    @Override public $O __call__($O... args) { return self.bind(args[0]); }
-                };
-                case "listen": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.listen(args.length > 0 ? args[0] : $I.of(5)); 
-                    }
-                };
-                case "accept": return new $O() {
-                    @Override public $O __call__($O... args) { return self.accept(); }
-                };
-                case "send": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return args.length > 1 ? self.send(args[0], args[1]) : self.send(args[0]); 
-                    }
-                };
-                case "sendall": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return args.length > 1 ? self.sendall(args[0], args[1]) : self.sendall(args[0]); 
-                    }
-                };
-                case "sendto": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        if (args.length == 2) return self.sendto(args[0], args[1]);
-                        return self.sendto(args[0], args[1], args[2]); 
-                    }
-                };
-                case "recv": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return args.length > 1 ? self.recv(args[0], args[1]) : self.recv(args[0]); 
-                    }
-                };
-                case "recvfrom": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return args.length > 1 ? self.recvfrom(args[0], args[1]) : self.recvfrom(args[0]); 
-                    }
-                };
-                case "close": return new $O() {
-                    @Override public $O __call__($O... args) { return self.close(); }
-                };
-                case "shutdown": return new $O() {
-                    @Override public $O __call__($O... args) { return self.shutdown(args[0]); }
-                };
-                case "setsockopt": return new $O() {
-                    @Override public $O __call__($O... args) { return self.setsockopt(args[0], args[1], args[2]); }
-                };
-                case "getsockopt": return new $O() {
-                    @Override public $O __call__($O... args) { return self.getsockopt(args[0], args[1]); }
-                };
-                case "setblocking": return new $O() {
-                    @Override public $O __call__($O... args) { return self.setblocking(args[0]); }
-                };
-                case "getblocking": return new $O() {
-                    @Override public $O __call__($O... args) { return self.getblocking(); }
-                };
-                case "settimeout": return new $O() {
-                    @Override public $O __call__($O... args) { return self.settimeout(args[0]); }
-                };
-                case "gettimeout": return new $O() {
-                    @Override public $O __call__($O... args) { return self.gettimeout(); }
-                };
-                case "getpeername": return new $O() {
-                    @Override public $O __call__($O... args) { return self.getpeername(); }
-                };
-                case "getsockname": return new $O() {
-                    @Override public $O __call__($O... args) { return self.getsockname(); }
-                };
-                case "fileno": return new $O() {
-                    @Override public $O __call__($O... args) { return self.fileno(); }
-                };
-                case "makefile": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.makefile(
-                            args.length > 0 ? args[0] : $S.of("r"),
-                            args.length > 1 ? args[1] : $N.INSTANCE
-                        ); 
-                    }
-                };
-                case "__enter__": return new $O() {
-                    @Override public $O __call__($O... args) { return self.__enter__(); }
-                };
-                case "__exit__": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.__exit__(
-                            args.length > 0 ? args[0] : $N.INSTANCE,
-                            args.length > 1 ? args[1] : $N.INSTANCE,
-                            args.length > 2 ? args[2] : $N.INSTANCE
-                        );
-                    }
-                };
-                default: return super.__getattr__(name);
+                default: {
+                    if (!METHODS.has(name)) return super.__getattr__(name);
+                    if (bound == null) bound = METHODS.newCache();
+                    return METHODS.bind(this, name, bound);
+                }
             }
         }
         
@@ -796,23 +833,23 @@ public class _socket {
             return $N.INSTANCE;
         }
         
+        static final $NM<SocketFile> METHODS = new $NM<>(SocketFile.class)
+            .add("read", SocketFile::read, $I.of(4096))
+            .add("write", SocketFile::write)
+            .add("close", SocketFile::close);
+        
+        // Methods handed out as values, by table slot
+        private $O[] bound;
+        
         @Override
         public $O __getattr__(String name) {
-            final SocketFile self = this;
             switch (name) {
-                case "read": return new $O() {
-                    @Override public $O __call__($O... args) { 
-                        return self.read(args.length > 0 ? args[0] : $I.of(4096)); 
-                    }
-                };
-                case "write": return new $O() {
-                    @Override public $O __call__($O... args) { return self.write(args[0]); }
-                };
-                case "close": return new $O() {
-                    @Override public $O __call__($O... args) { return self.close(); }
-                };
                 case "closed": return $B.of(closed);
-                default: return super.__getattr__(name);
+                default: {
+                    if (!METHODS.has(name)) return super.__getattr__(name);
+                    if (bound == null) bound = METHODS.newCache();
+                    return METHODS.bind(this, name, bound);
+                }
             }
         }
     }
@@ -833,7 +870,7 @@ public class _socket {
      */
     public static $S gethostbyname($O hostname) {
         try {
-            String host = (($S)hostname).value;
+            String host = (($S)hostname).value();
             return $S.of(InetAddress.getByName(host).getHostAddress());
         } catch (UnknownHostException e) {
             throw new $X("gaierror", "Name or service not known");
@@ -844,7 +881,7 @@ public class _socket {
      * getaddrinfo - Get address info.
      */
     public static $L getaddrinfo($O host, $O port, $O family, $O type, $O proto, $O flags) {
-        String h = host instanceof $S ? (($S)host).value : "";
+        String h = host instanceof $S ? (($S)host).value() : "";
         int p = port instanceof $I ? (int)(($I)port).value : 0;
         int fam = family instanceof $I ? (int)(($I)family).value : AF_UNSPEC;
         int typ = type instanceof $I ? (int)(($I)type).value : 0;
@@ -878,7 +915,7 @@ public class _socket {
      */
     public static $BY inet_aton($O ip) {
         try {
-            InetAddress addr = InetAddress.getByName((($S)ip).value);
+            InetAddress addr = InetAddress.getByName((($S)ip).value());
             return $BY.of(addr.getAddress());
         } catch (UnknownHostException e) {
             throw new $X.OSError("illegal IP address string");
@@ -34,7 +34,7 @@ public class _sre {
     }
     
     public static Pattern compile($O pattern, $O flags) {
-        String p = (($S)pattern).value;
+        String p = (($S)pattern).value();
         int f = flags instanceof $I ? (int)(($I)flags).value : 0;
         return new Pattern(p, f);
     }
@@ -135,7 +135,7 @@ public class _sre {
      * Escape special regex characters.
      */
     public static $S escape($O pattern) {
-        String p = (($S)pattern).value;
+        String p = (($S)pattern).value();
         return $S.of(java.util.regex.Pattern.quote(p));
     }
     
@@ -202,7 +202,7 @@ public class _sre {
          * Search for pattern anywhere in string.
          */
         public $O search($O string) {
-            String s = (($S)string).value;
+            String s = (($S)string).value();
             Matcher m = javaPattern.matcher(s);
             if (m.find()) {
                 return new Match(this, s, m);
@@ -214,7 +214,7 @@ public class _sre {
          * Match pattern at start of string.
          */
         public $O match($O string) {
-            String s = (($S)string).value;
+            String s = (($S)string).value();
             Matcher m = javaPattern.matcher(s);
             if (m.lookingAt()) {
                 return new Match(this, s, m);
@@ -226,7 +226,7 @@ public class _sre {
          * Match entire string.
          */
         public $O fullmatch($O string) {
-            String s = (($S)string).value;
+            String s = (($S)string).value();
             Matcher m = javaPattern.matcher(s);
             if (m.matches()) {
                 return new Match(this, s, m);
@@ -238,7 +238,7 @@ public class _sre {
          * Find all non-overlapping matches.
          */
         public $L findall($O string) {
-            String s = (($S)string).value;
+            String s = (($S)string).value();
             Matcher m = javaPattern.matcher(s);
             $L result = new $L();
             
@@ -257,7 +257,7 @@ public class _sre {
                         String g = m.group(i + 1);
                         groups[i] = g != null ? $S.of(g) : $S.of("");
                     }
-                    result.append($T.of(groups));
+                    result.append($T.wrap(groups));
                 }
             }
             
@@ -268,7 +268,7 @@ public class _sre {
          * Return iterator of match objects.
          */
         public $O finditer($O string) {
-            String s = (($S)string).value;
+            String s = (($S)string).value();
             return new MatchIterator(this, s);
         }
         
@@ -276,12 +276,12 @@ public class _sre {
          * Substitute pattern matches.
          */
         public $S sub($O repl, $O string, $O count) {
-            String s = (($S)string).value;
+            String s = (($S)string).value();
             int maxCount = count instanceof $I ? (int)(($I)count).value : 0;
             
             if (repl instanceof $S) {
                 // Simple string replacement
-                String replacement = (($S)repl).value;
+                String replacement = (($S)repl).value();
                 // Convert Python backreferences (\1, \g<name>) to Java ($1, ${name})
                 replacement = replacement.replaceAll("\\\\(\\d+)", "\\$$1");
                 replacement = replacement.replaceAll("\\\\g<([^>]+)>", "\\${$1}");
@@ -308,7 +308,7 @@ public class _sre {
                     if (maxCount > 0 && replaced >= maxCount) break;
                     Match match = new Match(this, s, m);
                     $O result = repl.__call__(match);
-                    m.appendReplacement(sb, Matcher.quoteReplacement((($S)result).value));
+                    m.appendReplacement(sb, Matcher.quoteReplacement((($S)result).value()));
                     replaced++;
                 }
                 m.appendTail(sb);
@@ -321,7 +321,7 @@ public class _sre {
          * Split string by pattern.
          */
         public $L split($O string, $O maxsplit) {
-            String s = (($S)string).value;
+            String s = (($S)string).value();
             int max = maxsplit instanceof $I ? (int)(($I)maxsplit).value : 0;
             
             $L result = new $L();
@@ -392,7 +392,7 @@ public class _sre {
         
         @Override
         public $S __repr__() {
-            return $S.of("re.compile(" + pattern.__repr__().value + ")");
+            return $S.of("re.compile(" + pattern.__repr__().value() + ")");
         }
     }
     
@@ -456,14 +456,14 @@ public class _sre {
                 String g = groups[idx];
                 result[i] = g != null ? $S.of(g) : $N.INSTANCE;
             }
-            return $T.of(result);
+            return $T.wrap(result);
         }
         
         private int getGroupIndex($O arg) {
             if (arg instanceof $I) {
                 return (int)(($I)arg).value;
             } else if (arg instanceof $S) {
-                String name = (($S)arg).value;
+                String name = (($S)arg).value();
                 // Look up named group
                 for (int i = 0; i < re.groupNames.size(); i++) {
                     if (re.groupNames.get(i).equals(name)) {
@@ -487,7 +487,7 @@ public class _sre {
             for (int i = 1; i < groups.length; i++) {
                 result[i - 1] = groups[i] != null ? $S.of(groups[i]) : defaultVal;
             }
-            return $T.of(result);
+            return $T.wrap(result);
         }
         
         /**
@@ -535,7 +535,7 @@ public class _sre {
          * Expand replacement template.
          */
         public $S expand($O template) {
-            String t = (($S)template).value;
+            String t = (($S)template).value();
             // Convert backreferences
             for (int i = groups.length - 1; i >= 0; i--) {
                 String g = groups[i] != null ? groups[i] : "";
@@ -596,7 +596,7 @@ public class _sre {
         @Override
         public $S __repr__() {
             return $S.of("<re.Match object; span=(" + start + ", " + end + "), match=" + 
-                $S.of(groups[0]).__repr__().value + ">");
+                $S.of(groups[0]).__repr__().value() + ">");
         }
         
         @Override
@@ -20,6 +20,8 @@
  */
 
 #include "codegen.h"
+#include "peephole.h"
+#include <math.h>
 #include <string.h>
 #include <stdlib.h>
 #include <stdio.h>
@@ -33,10 +35,32 @@ static void codegen_lambda(codegen_ctx_t *ctx, ast_node_t *node);
 static void codegen_match_pattern(codegen_ctx_t *ctx, ast_node_t *pattern,
                                    int subject_slot, label_t *fail_label);
 static void emit_line_number(codegen_ctx_t *ctx, int line);
+static void emit_cached_constant(codegen_ctx_t *ctx, ast_node_t *node);
 
 /* Global lambda counter for unique method names */
 static int lambda_counter = 0;
 
+/* Counter for static fields caching hoisted function objects */
+static int function_cache_counter = 0;
+
+/* Counter for static fields caching folded constants, and whether one is
+   being built (its parts are not cached separately) */
+static int constant_cache_counter = 0;
+static bool emitting_cached_constant = false;
+
+/* Code attribute optimization (set per module from the compiler options) */
+static bool optimize_code = true;
+static bool report_optimization = false;
+static code_opt_stats_t module_opt_stats;
+
+/* How a compiled function receives the variables it captures */
+typedef enum capture_mode
+{
+    CAPTURE_NONE,                   /* No captured variables */
+    CAPTURE_ARRAY,                  /* $O[] closure array as first parameter */
+    CAPTURE_BOUND                   /* Values bound as leading parameters */
+} capture_mode_t;
+
 /**
  * Update stackmap after an invokedynamic operation.
  * This tracks the stack effects of Python operations.
@@ -64,6 +88,7 @@ static void stackmap_track_indy(codegen_ctx_t *ctx, py_indy_op_t op)
         case PY_INDY_AND:
         case PY_INDY_OR:
         case PY_INDY_XOR:
+        case PY_INDY_IADD:
             stackmap_pop(ctx->stackmap, 2);
             stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
             break;
@@ -122,11 +147,23 @@ static void stackmap_track_indy(codegen_ctx_t *ctx, py_indy_op_t op)
 
         /* Call: pop 2 ($O callable, $O[] args), push 1 $O */
         case PY_INDY_CALL:
-        case PY_INDY_CALL_METHOD:
+        case PY_INDY_CALL_KW:
             stackmap_pop(ctx->stackmap, 2);
             stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
             break;
 
+        /* Method lookup: pop 1 $O (receiver), push 1 $O (method or null) */
+        case PY_INDY_LOOKUP_METHOD:
+            stackmap_pop(ctx->stackmap, 1);
+            stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
+            break;
+
+        /* Method call: pop 3 ($O receiver, $O method, $O[] args), push 1 $O */
+        case PY_INDY_CALL_METHOD:
+            stackmap_pop(ctx->stackmap, 3);
+            stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
+            break;
+
         /* Iter: pop 1 $O, push 1 $O (iterator) */
         case PY_INDY_ITER:
             stackmap_pop(ctx->stackmap, 1);
@@ -173,6 +210,48 @@ static void stackmap_track_indy(codegen_ctx_t *ctx, py_indy_op_t op)
     }
 }
 
+/**
+ * Truth value of a constant test, or -1 if it is not a constant.
+ */
+static int constant_truth(ast_node_t *node)
+{
+    if (!node || node->type != AST_CONSTANT) {
+        return -1;
+    }
+    switch (node->data.constant.kind) {
+        case TOK_TRUE:
+            return 1;
+        case TOK_FALSE:
+        case TOK_NONE:
+            return 0;
+        case TOK_INTEGER:
+            return node->data.constant.big_val != NULL ||
+                   node->data.constant.value.int_val != 0;
+        case TOK_STRING:
+            return node->data.constant.value.str_val &&
+                   node->data.constant.value.str_val[0] != '\0';
+        default:
+            return -1;
+    }
+}
+
+/**
+ * Evaluate a test expression and leave its truth value as an int for
+ * ifeq/ifne. Constant tests become iconst so that the branch on them is
+ * folded by the peephole optimizer.
+ */
+static void codegen_condition(codegen_ctx_t *ctx, ast_node_t *test)
+{
+    int truth = constant_truth(test);
+    if (truth >= 0) {
+        emit_iconst(ctx, truth);
+        return;
+    }
+    codegen_expr(ctx, test);
+    indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_BOOL, NULL, 0);
+    stackmap_track_indy(ctx, PY_INDY_BOOL);
+}
+
 /* ========================================================================
  * Code generation context
  * ======================================================================== */
@@ -388,6 +467,21 @@ static void collect_names(ast_node_t *node, slist_t **names)
             for (slist_t *s = node->data.call.args; s; s = s->next) {
                 collect_names(s->data, names);
             }
+            for (slist_t *s = node->data.call.keywords; s; s = s->next) {
+                ast_node_t *kw = s->data;
+                collect_names(kw->data.keyword.value, names);
+            }
+            break;
+
+        case AST_BOOL_OP:
+            for (slist_t *s = node->data.bool_op.values; s; s = s->next) {
+                collect_names(s->data, names);
+            }
+            break;
+
+        case AST_LAMBDA:
+            /* A nested lambda's free names must be captured here too */
+            collect_names(node->data.lambda.body, names);
             break;
 
         case AST_ATTRIBUTE:
@@ -466,10 +560,16 @@ static void collect_names_from_stmts(slist_t *stmts, slist_t **names)
                 break;
 
             case AST_FOR:
+            case AST_ASYNC_FOR:
                 collect_names(stmt->data.for_stmt.iter, names);
                 collect_names_from_stmts(stmt->data.for_stmt.body, names);
                 break;
 
+            case AST_FUNCTION_DEF:
+                /* A nested function's free names must be captured here too */
+                collect_names_from_stmts(stmt->data.func_def.body, names);
+                break;
+
             default:
                 break;
         }
@@ -676,6 +776,7 @@ static bool contains_yield_stmt(ast_node_t *stmt)
                    contains_yield_stmts(stmt->data.while_stmt.orelse);
 
         case AST_FOR:
+        case AST_ASYNC_FOR:
             return contains_yield_expr(stmt->data.for_stmt.iter) ||
                    contains_yield_stmts(stmt->data.for_stmt.body) ||
                    contains_yield_stmts(stmt->data.for_stmt.orelse);
@@ -856,12 +957,34 @@ static int codegen_comp_target_slot_count(ast_node_t *target)
     return 0;
 }
 
+/**
+ * Bind a comprehension loop target name to a fresh slot. A comprehension
+ * is its own scope, so an enclosing local of the same name is hidden, not
+ * reused: it is moved onto *shadowed and put back by
+ * codegen_remove_comp_target_locals(). Names already bound at or above
+ * base belong to this same target and keep their slot.
+ */
+static int codegen_bind_comp_local(codegen_ctx_t *ctx, const char *name, int base,
+                                   slist_t **shadowed)
+{
+    int slot = codegen_get_local(ctx, name);
+    if (slot >= base) {
+        return slot;
+    }
+    if (slot >= 0) {
+        *shadowed = slist_prepend(*shadowed, hashtable_remove(ctx->locals, name));
+    }
+    return codegen_alloc_local(ctx, name);
+}
+
 /**
  * Remove comprehension loop target variable(s) from the locals table so that
- * a nested or subsequent comprehension gets fresh slots for the same names.
+ * a nested or subsequent comprehension gets fresh slots for the same names,
+ * and restore the enclosing locals they hid.
  * Frees the local_var_t for each removed name.
  */
-static void codegen_remove_comp_target_locals(codegen_ctx_t *ctx, ast_node_t *target)
+static void codegen_remove_comp_target_locals(codegen_ctx_t *ctx, ast_node_t *target,
+                                              slist_t *shadowed)
 {
     if (!target || !ctx->locals) return;
     if (target->type == AST_NAME) {
@@ -870,9 +993,7 @@ static void codegen_remove_comp_target_locals(codegen_ctx_t *ctx, ast_node_t *ta
             free(var->name);
             free(var);
         }
-        return;
-    }
-    if (target->type == AST_TUPLE || target->type == AST_LIST) {
+    } else if (target->type == AST_TUPLE || target->type == AST_LIST) {
         for (slist_t *e = target->data.collection.elts; e; e = e->next) {
             ast_node_t *elt = e->data;
             if (elt->type == AST_NAME) {
@@ -884,6 +1005,11 @@ static void codegen_remove_comp_target_locals(codegen_ctx_t *ctx, ast_node_t *ta
             }
         }
     }
+    for (slist_t *s = shadowed; s; s = s->next) {
+        local_var_t *var = s->data;
+        hashtable_insert(ctx->locals, var->name, var);
+    }
+    slist_free(shadowed);
 }
 
 /* ========================================================================
@@ -945,6 +1071,27 @@ void codegen_resolve_labels(codegen_ctx_t *ctx)
     }
 }
 
+/**
+ * Run the peephole optimizer over a finished method body, before its
+ * StackMapTable is serialized.
+ */
+static void codegen_optimize_code(codegen_ctx_t *ctx)
+{
+    if (!optimize_code) {
+        return;
+    }
+    const_pool_t *cp = class_writer_get_cp(ctx->cw);
+    code_opt_stats_t stats;
+    code_attr_optimize(ctx->code_attr, ctx->stackmap, cp, &stats);
+    module_opt_stats.insns_before += stats.insns_before;
+    module_opt_stats.insns_after += stats.insns_after;
+    if (report_optimization) {
+        printf("  %s: %u -> %u instructions\n",
+               cp->entries[ctx->method->name_index].data.utf8,
+               stats.insns_before, stats.insns_after);
+    }
+}
+
 /* ========================================================================
  * Stack tracking
  * ======================================================================== */
@@ -1054,7 +1201,7 @@ void emit_fconst(codegen_ctx_t *ctx, float value)
 
 void emit_dconst(codegen_ctx_t *ctx, double value)
 {
-    if (value == 0.0) {
+    if (value == 0.0 && !signbit(value)) {
         emit_u8(ctx, OP_DCONST_0);
     } else if (value == 1.0) {
         emit_u8(ctx, OP_DCONST_1);
@@ -1198,8 +1345,13 @@ static void parse_method_descriptor(const char *desc, int *arg_slots, int *retur
             break;
         case '[':
             *return_slots = 1;
-            if (out_class && out_class_size > 0)
-                out_class[0] = '\0'; /* array: use object for stackmap */
+            if (out_class && out_class_size > 0) {
+                /* array: the stackmap names it by its descriptor */
+                size_t len = strlen(p);
+                if (len >= out_class_size) len = out_class_size - 1;
+                memcpy(out_class, p, len);
+                out_class[len] = '\0';
+            }
             break;
         case 'I':
         case 'Z':
@@ -1441,6 +1593,42 @@ static void emit_py_int(codegen_ctx_t *ctx, int64_t value)
     emit_invokestatic(ctx, LRT_INT, "of", "(J)" DESC_INT);
 }
 
+/**
+ * Record the value on top of the stack as a plain $O, so that paths
+ * pushing different Python types agree at a join.
+ */
+static void stackmap_top_as_object(codegen_ctx_t *ctx)
+{
+    if (ctx->stackmap) {
+        stackmap_pop(ctx->stackmap, 1);
+        stackmap_push_object(ctx->stackmap, class_writer_get_cp(ctx->cw), LRT_OBJECT);
+    }
+}
+
+/**
+ * Emit a swap of the top two stack values, keeping the stackmap in step.
+ */
+static void emit_swap(codegen_ctx_t *ctx)
+{
+    emit_u8(ctx, OP_SWAP);
+    if (ctx->stackmap && ctx->stackmap->current_stack_size >= 2) {
+        verification_type_t *top = &ctx->stackmap->current_stack[ctx->stackmap->current_stack_size - 1];
+        verification_type_t tmp = top[0];
+        top[0] = top[-1];
+        top[-1] = tmp;
+    }
+}
+
+/**
+ * Emit code to create a Python int from decimal digits, for a value that
+ * does not fit in a long.
+ */
+static void emit_py_big_int(codegen_ctx_t *ctx, const char *digits)
+{
+    emit_ldc_string(ctx, digits);
+    emit_invokestatic(ctx, LRT_INT, "of", "(Ljava/lang/String;)" DESC_INT);
+}
+
 /**
  * Emit code to create a Python float from a Java double.
  */
@@ -1453,6 +1641,26 @@ static void emit_py_float(codegen_ctx_t *ctx, double value)
     emit_invokestatic(ctx, LRT_FLOAT, "of", "(D)L" LRT_FLOAT ";");
 }
 
+/**
+ * Whether a string literal looks like an identifier, and so is worth
+ * interning (dict keys such as d["name"], getattr() names, ...).
+ */
+static bool is_identifier_literal(const char *value)
+{
+    size_t n = strlen(value);
+    if (n == 0 || n > 64) {
+        return false;
+    }
+    for (size_t i = 0; i < n; i++) {
+        char c = value[i];
+        if (!(c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') ||
+              (i > 0 && c >= '0' && c <= '9'))) {
+            return false;
+        }
+    }
+    return true;
+}
+
 /**
  * Emit code to create a Python string from a Java String.
  */
@@ -1461,8 +1669,9 @@ static void emit_py_str(codegen_ctx_t *ctx, const char *value)
     /* Push Java string constant */
     emit_ldc_string(ctx, value);
 
-    /* Call $S.of(String) to create PyStr */
-    emit_invokestatic(ctx, LRT_STR, "of", "(Ljava/lang/String;)" DESC_STR);
+    /* Call $S.intern(String) or $S.of(String) to create PyStr */
+    emit_invokestatic(ctx, LRT_STR, is_identifier_literal(value) ? "intern" : "of",
+                      "(Ljava/lang/String;)" DESC_STR);
 }
 
 /**
@@ -1547,17 +1756,344 @@ static void codegen_expr(codegen_ctx_t *ctx, ast_node_t *node);
 /* Comprehension types */
 typedef enum {
     COMP_LIST,
-    COMP_SET
+    COMP_SET,
+    COMP_SINK           /* Inlined generator expression feeding a $GE$Sink */
 } comp_type_t;
 
+#define LRT_GENEXP_SINK LRT_GENEXP "$Sink"
+
+/**
+ * Restore a saved stackmap state at a branch target whose incoming edge
+ * did not see locals allocated since the save (e.g. a loop exit, which
+ * skips the inner loop's iterator and targets). Those slots become Top.
+ */
+static void restore_scoped_state(codegen_ctx_t *ctx, stackmap_state_t *state)
+{
+    uint16_t count = stackmap_get_locals_count(ctx->stackmap);
+    stackmap_restore_state(ctx->stackmap, state);
+    for (uint16_t i = state->num_locals; i < count; i++) {
+        stackmap_set_local(ctx->stackmap, i, vtype_top());
+    }
+}
+
+/**
+ * Allocate a function local for name, null-initialized, if it has none.
+ */
+static void predeclare_local(codegen_ctx_t *ctx, const char *name)
+{
+    if (is_global(ctx, name) || codegen_get_local(ctx, name) >= 0) {
+        return;
+    }
+    int slot = codegen_alloc_local(ctx, name);
+    emit_aconst_null(ctx);
+    emit_astore(ctx, slot);
+}
+
+static void predeclare_target_locals(codegen_ctx_t *ctx, ast_node_t *target)
+{
+    if (!target) {
+        return;
+    }
+    switch (target->type) {
+        case AST_NAME:
+            predeclare_local(ctx, target->data.name.id);
+            break;
+        case AST_TUPLE:
+        case AST_LIST:
+            for (slist_t *e = target->data.collection.elts; e; e = e->next) {
+                predeclare_target_locals(ctx, e->data);
+            }
+            break;
+        case AST_STARRED:
+            predeclare_target_locals(ctx, target->data.starred.value);
+            break;
+        default:
+            break;
+    }
+}
+
+/**
+ * Allocate, before a loop, the function locals its body binds, so that
+ * they are assigned on every path into the loop head and the loop exit
+ * frames, where they stay live; only temporaries allocated inside the
+ * loop (inner iterators and the like) go out of scope there.
+ */
+static void predeclare_loop_locals(codegen_ctx_t *ctx, slist_t *stmts)
+{
+    for (slist_t *s = stmts; s; s = s->next) {
+        ast_node_t *stmt = s->data;
+        if (!stmt) continue;
+
+        switch (stmt->type) {
+            case AST_ASSIGN:
+                for (slist_t *t = stmt->data.assign.targets; t; t = t->next) {
+                    predeclare_target_locals(ctx, t->data);
+                }
+                break;
+            case AST_AUG_ASSIGN:
+                predeclare_target_locals(ctx, stmt->data.aug_assign.target);
+                break;
+            case AST_ANN_ASSIGN:
+                if (stmt->data.ann_assign.value) {
+                    predeclare_target_locals(ctx, stmt->data.ann_assign.target);
+                }
+                break;
+            case AST_FOR:
+                predeclare_target_locals(ctx, stmt->data.for_stmt.target);
+                predeclare_loop_locals(ctx, stmt->data.for_stmt.body);
+                predeclare_loop_locals(ctx, stmt->data.for_stmt.orelse);
+                break;
+            case AST_WHILE:
+                predeclare_loop_locals(ctx, stmt->data.while_stmt.body);
+                predeclare_loop_locals(ctx, stmt->data.while_stmt.orelse);
+                break;
+            case AST_IF:
+                predeclare_loop_locals(ctx, stmt->data.if_stmt.body);
+                predeclare_loop_locals(ctx, stmt->data.if_stmt.orelse);
+                break;
+            case AST_WITH:
+                for (slist_t *i = stmt->data.with_stmt.items; i; i = i->next) {
+                    ast_node_t *item = i->data;
+                    predeclare_target_locals(ctx, item->data.with_item.optional_vars);
+                }
+                predeclare_loop_locals(ctx, stmt->data.with_stmt.body);
+                break;
+            case AST_TRY:
+                predeclare_loop_locals(ctx, stmt->data.try_stmt.body);
+                for (slist_t *h = stmt->data.try_stmt.handlers; h; h = h->next) {
+                    ast_node_t *handler = h->data;
+                    predeclare_loop_locals(ctx, handler->data.except_handler.body);
+                }
+                predeclare_loop_locals(ctx, stmt->data.try_stmt.orelse);
+                predeclare_loop_locals(ctx, stmt->data.try_stmt.finalbody);
+                break;
+            default:
+                break;
+        }
+    }
+}
+
+/**
+ * Whether a loop target is exactly two names ("for k, v in d.items()").
+ * Such loops are driven by a $PI pair iterator: each step exposes the two
+ * values of the element, which for a dict items view come straight from
+ * the map entry with no tuple built.
+ */
+static bool is_pair_target(ast_node_t *target)
+{
+    if (target->type != AST_TUPLE && target->type != AST_LIST) {
+        return false;
+    }
+    slist_t *elts = target->data.collection.elts;
+    return elts && elts->next && !elts->next->next &&
+           ((ast_node_t *)elts->data)->type == AST_NAME &&
+           ((ast_node_t *)elts->next->data)->type == AST_NAME;
+}
+
+/**
+ * Replace the iterable on the stack with its iterator.
+ */
+static void emit_loop_iter(codegen_ctx_t *ctx, bool pair)
+{
+    if (pair) {
+        emit_invokestatic(ctx, LRT_PAIR_ITER, "of", "(" DESC_OBJECT ")" DESC_OBJECT);
+    } else {
+        indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_ITER, NULL, 0);
+        stackmap_track_indy(ctx, PY_INDY_ITER);
+    }
+}
+
+/**
+ * Replace the iterator on the stack with its next item, or null when
+ * exhausted.
+ */
+static void emit_loop_next(codegen_ctx_t *ctx, bool pair)
+{
+    if (pair) {
+        emit_invokestatic(ctx, LRT_PAIR_ITER, "next", "(" DESC_OBJECT ")" DESC_OBJECT);
+    } else {
+        indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_NEXT, NULL, 0);
+        stackmap_track_indy(ctx, PY_INDY_NEXT);
+    }
+}
+
+/**
+ * Replace the value on the stack with an array holding exactly one item
+ * per target element, raising ValueError on a length mismatch. A starred
+ * element gets a list of the items its neighbours leave over. For a tuple
+ * of the right length the array is the tuple's own, so unpacking it
+ * allocates nothing.
+ */
+static void emit_unpack_array(codegen_ctx_t *ctx, slist_t *elts)
+{
+    int count = 0;
+    int starred = -1;
+    for (slist_t *e = elts; e; e = e->next) {
+        if (((ast_node_t *)e->data)->type == AST_STARRED) {
+            starred = count;
+        }
+        count++;
+    }
+    if (starred < 0) {
+        emit_iconst(ctx, count);
+        emit_invokestatic(ctx, LRT_TUPLE, "unpack",
+                          "(" DESC_OBJECT "I)" DESC_OBJECT_ARR);
+    } else {
+        emit_iconst(ctx, starred);
+        emit_iconst(ctx, count - starred - 1);
+        emit_invokestatic(ctx, LRT_TUPLE, "unpackStarred",
+                          "(" DESC_OBJECT "II)" DESC_OBJECT_ARR);
+    }
+}
+
+/**
+ * Push element idx of the unpacked array on the stack, keeping the array.
+ */
+static void emit_unpacked_item(codegen_ctx_t *ctx, int idx)
+{
+    emit_u8(ctx, OP_DUP);
+    stack_push(ctx, 1);
+    if (ctx->stackmap) {
+        const_pool_t *cp = class_writer_get_cp(ctx->cw);
+        stackmap_push_object(ctx->stackmap, cp, DESC_OBJECT_ARR);
+    }
+    emit_iconst(ctx, idx);
+    emit_u8(ctx, OP_AALOAD);
+    stack_pop(ctx, 2);
+    stack_push(ctx, 1);
+    if (ctx->stackmap) {
+        const_pool_t *cp = class_writer_get_cp(ctx->cw);
+        stackmap_pop(ctx->stackmap, 2);
+        stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
+    }
+}
+
+/**
+ * Replace the item on the stack with its idx'th element, for unpacking
+ * into a loop target. Without a pair iterator the item has already been
+ * turned into an array by emit_unpack_array().
+ */
+static void emit_loop_unpack(codegen_ctx_t *ctx, bool pair, int idx)
+{
+    if (pair) {
+        emit_invokestatic(ctx, LRT_PAIR_ITER, idx == 0 ? "first" : "second",
+                          "(" DESC_OBJECT ")" DESC_OBJECT);
+    } else {
+        emit_iconst(ctx, idx);
+        emit_u8(ctx, OP_AALOAD);
+        stack_pop(ctx, 2);
+        stack_push(ctx, 1);
+        if (ctx->stackmap) {
+            const_pool_t *cp = class_writer_get_cp(ctx->cw);
+            stackmap_pop(ctx->stackmap, 2);
+            stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
+        }
+    }
+}
+
+/**
+ * Store the value on top of the stack into an assignment target: a name,
+ * subscript, attribute, or a (possibly nested) tuple or list of targets.
+ */
+static void codegen_store_target(codegen_ctx_t *ctx, ast_node_t *target)
+{
+    if (target->type == AST_NAME) {
+        const char *name = target->data.name.id;
+
+        /* Check if declared global or at module level */
+        if (is_global(ctx, name) || ctx->is_module_level) {
+            /* Store via $G.setGlobal(name, value) */
+            emit_ldc_string(ctx, name);  /* Stack: value, name */
+            emit_u8(ctx, OP_SWAP);       /* Stack: name, value */
+            emit_invokestatic(ctx, "$G", "setGlobal",
+                              "(Ljava/lang/String;L$O;)V");
+        } else {
+            int slot = codegen_get_local(ctx, name);
+            if (slot < 0) {
+                /* Allocate new local */
+                slot = codegen_alloc_local(ctx, name);
+            }
+            emit_astore(ctx, slot);
+        }
+    } else if (target->type == AST_SUBSCRIPT) {
+        /* obj[key] = value */
+        /* Stack: value */
+        /* Need: obj, key, value on stack */
+        codegen_expr(ctx, target->data.subscript.value);  /* obj */
+        emit_swap(ctx);
+        codegen_expr(ctx, target->data.subscript.slice);  /* key */
+        emit_swap(ctx);
+
+        indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_SETITEM, NULL, 0);
+        stackmap_track_indy(ctx, PY_INDY_SETITEM);
+        stack_pop(ctx, 3);
+    } else if (target->type == AST_ATTRIBUTE) {
+        /* obj.attr = value */
+        codegen_expr(ctx, target->data.attribute.value);  /* obj */
+        emit_swap(ctx);
+
+        indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_SETATTR,
+                            target->data.attribute.attr, 0);
+        stackmap_track_indy(ctx, PY_INDY_SETATTR);
+        stack_pop(ctx, 2);
+    } else if (target->type == AST_TUPLE || target->type == AST_LIST) {
+        /* a, b = value: read the elements straight out of the array */
+        slist_t *elts = target->data.collection.elts;
+        emit_unpack_array(ctx, elts);
+        int idx = 0;
+        for (slist_t *e = elts; e; e = e->next, idx++) {
+            ast_node_t *elt = e->data;
+            emit_unpacked_item(ctx, idx);
+            codegen_store_target(ctx, elt->type == AST_STARRED ?
+                                 elt->data.starred.value : elt);
+        }
+        emit_u8(ctx, OP_POP);
+        stack_pop(ctx, 1);
+        if (ctx->stackmap) {
+            stackmap_pop(ctx->stackmap, 1);
+        }
+    } else {
+        emit_u8(ctx, OP_POP);
+        stack_pop(ctx, 1);
+        if (ctx->stackmap) {
+            stackmap_pop(ctx->stackmap, 1);
+        }
+    }
+}
+
 /**
  * Generate code for a single comprehension generator.
  * Recursively handles nested generators.
+ * For COMP_SINK, result_slot holds a $GE$Sink and the loop jumps to
+ * exit_label when the sink's accept() returns false.
  */
 static void codegen_comprehension_loop(codegen_ctx_t *ctx, slist_t *generators,
                                         ast_node_t *elt, int result_slot,
-                                        comp_type_t comp_type)
+                                        comp_type_t comp_type, label_t *exit_label)
 {
+    if (!generators && comp_type == COMP_SINK) {
+        /* Base case: feed element to the sink, stop if it declines more */
+        emit_aload(ctx, result_slot);
+        if (ctx->stackmap) {
+            const_pool_t *cp = class_writer_get_cp(ctx->cw);
+            stackmap_pop(ctx->stackmap, 1);
+            stackmap_push_object(ctx->stackmap, cp, LRT_GENEXP_SINK);
+        }
+        codegen_expr(ctx, elt);
+        emit_invokevirtual(ctx, LRT_GENEXP_SINK, "accept", "(" DESC_OBJECT ")Z");
+        stack_pop(ctx, 1);
+        if (ctx->stackmap) {
+            stackmap_pop(ctx->stackmap, 2);
+            stackmap_push_int(ctx->stackmap);
+        }
+        codegen_emit_jump(ctx, OP_IFEQ, exit_label);
+        stack_pop(ctx, 1);
+        if (ctx->stackmap) {
+            stackmap_pop(ctx->stackmap, 1);
+        }
+        return;
+    }
+
     if (!generators) {
         /* Base case: evaluate element and add to result */
         emit_aload(ctx, result_slot);
@@ -1589,14 +2125,14 @@ static void codegen_comprehension_loop(codegen_ctx_t *ctx, slist_t *generators,
     ast_node_t *iter_expr = gen->data.comprehension.iter;
     slist_t *ifs = gen->data.comprehension.ifs;
 
+    bool pair = is_pair_target(target);
+
     /* Get iterator and store */
     codegen_expr(ctx, iter_expr);
-    indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_ITER, NULL, 0);
-    stackmap_track_indy(ctx, PY_INDY_ITER);
+    emit_loop_iter(ctx, pair);
     int iter_slot = codegen_alloc_local(ctx, "$comp_iter");
     emit_astore(ctx, iter_slot);
     if (ctx->stackmap) {
-        stackmap_pop(ctx->stackmap, 1);
         const_pool_t *cp_iter = class_writer_get_cp(ctx->cw);
         stackmap_set_local_object(ctx->stackmap, (uint16_t)iter_slot, cp_iter, LRT_OBJECT);
     }
@@ -1620,8 +2156,7 @@ static void codegen_comprehension_loop(codegen_ctx_t *ctx, slist_t *generators,
 
     /* Get next item (returns null on StopIteration via safeNext) */
     emit_aload(ctx, iter_slot);
-    indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_NEXT, NULL, 0);
-    stackmap_track_indy(ctx, PY_INDY_NEXT);
+    emit_loop_next(ctx, pair);
 
     /* Check for null (end of iteration) */
     emit_u8(ctx, OP_DUP);
@@ -1642,15 +2177,18 @@ static void codegen_comprehension_loop(codegen_ctx_t *ctx, slist_t *generators,
         loop_end_state = stackmap_save_state(ctx->stackmap);
     }
 
-    /* Bind target variable (or unpack into multiple) */
+    /* Bind target variable (or unpack into multiple), in fresh slots */
+    int comp_base = ctx->next_local;
+    slist_t *shadowed = NULL;
     if (target->type == AST_NAME) {
-        int target_slot = codegen_get_local(ctx, target->data.name.id);
-        if (target_slot < 0) {
-            target_slot = codegen_alloc_local(ctx, target->data.name.id);
-        }
+        int target_slot = codegen_bind_comp_local(ctx, target->data.name.id,
+                                                  comp_base, &shadowed);
         emit_astore(ctx, target_slot);
     } else if (target->type == AST_TUPLE || target->type == AST_LIST) {
         slist_t *elts = target->data.collection.elts;
+        if (!pair) {
+            emit_unpack_array(ctx, elts);
+        }
         int idx = 0;
         for (slist_t *e = elts; e; e = e->next, idx++) {
             ast_node_t *elt = e->data;
@@ -1660,24 +2198,12 @@ static void codegen_comprehension_loop(codegen_ctx_t *ctx, slist_t *generators,
                 stack_push(ctx, 1);
                 if (ctx->stackmap) {
                     const_pool_t *cp = class_writer_get_cp(ctx->cw);
-                    stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
-                }
-                emit_py_int(ctx, (int64_t)idx);
-                indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache,
-                                    PY_INDY_GETITEM, NULL, 0);
-                stackmap_track_indy(ctx, PY_INDY_GETITEM);
-                stack_pop(ctx, 2);
-                stack_push(ctx, 1);
-                int slot = codegen_get_local(ctx, name);
-                if (slot < 0) {
-                    slot = codegen_alloc_local(ctx, name);
+                    stackmap_push_object(ctx->stackmap, cp,
+                                         pair ? LRT_OBJECT : DESC_OBJECT_ARR);
                 }
+                emit_loop_unpack(ctx, pair, idx);
+                int slot = codegen_bind_comp_local(ctx, name, comp_base, &shadowed);
                 emit_astore(ctx, slot);
-                if (ctx->stackmap) {
-                    stackmap_pop(ctx->stackmap, 1);
-                    const_pool_t *cp_local = class_writer_get_cp(ctx->cw);
-                    stackmap_set_local_object(ctx->stackmap, (uint16_t)slot, cp_local, LRT_OBJECT);
-                }
             }
         }
         emit_u8(ctx, OP_POP);
@@ -1698,9 +2224,7 @@ static void codegen_comprehension_loop(codegen_ctx_t *ctx, slist_t *generators,
     if (ifs) {
         skip_label = codegen_new_label(ctx);
         for (slist_t *cond = ifs; cond; cond = cond->next) {
-            codegen_expr(ctx, cond->data);
-            indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_BOOL, NULL, 0);
-            stackmap_track_indy(ctx, PY_INDY_BOOL);
+            codegen_condition(ctx, cond->data);
             codegen_emit_jump(ctx, OP_IFEQ, skip_label);
             stack_pop(ctx, 1);
             if (ctx->stackmap) {
@@ -1710,7 +2234,7 @@ static void codegen_comprehension_loop(codegen_ctx_t *ctx, slist_t *generators,
     }
 
     /* Process nested generators or evaluate element */
-    codegen_comprehension_loop(ctx, generators->next, elt, result_slot, comp_type);
+    codegen_comprehension_loop(ctx, generators->next, elt, result_slot, comp_type, exit_label);
 
     /* Skip label for failed conditions */
     if (skip_label) {
@@ -1721,16 +2245,17 @@ static void codegen_comprehension_loop(codegen_ctx_t *ctx, slist_t *generators,
     codegen_emit_jump(ctx, OP_GOTO, loop_start);
 
     /* Remove loop target names so nested/next comprehension gets fresh slots */
-    codegen_remove_comp_target_locals(ctx, target);
+    codegen_remove_comp_target_locals(ctx, target, shadowed);
 
     /* Restore state for loop_end - this is the state when IFNULL jumps here */
     if (ctx->stackmap && loop_end_state) {
-        stackmap_restore_state(ctx->stackmap, loop_end_state);
+        restore_scoped_state(ctx, loop_end_state);
         stackmap_state_free(loop_end_state);
     }
 
-    /* End of loop - pop the null */
+    /* End of loop - pop the null (still on the stack after IFNULL jumps) */
     codegen_mark_label(ctx, loop_end);
+    stack_push(ctx, 1);
     emit_u8(ctx, OP_POP);
     stack_pop(ctx, 1);
     if (ctx->stackmap) {
@@ -1763,14 +2288,14 @@ static void codegen_dict_comprehension_loop(codegen_ctx_t *ctx, slist_t *generat
     ast_node_t *iter_expr = gen->data.comprehension.iter;
     slist_t *ifs = gen->data.comprehension.ifs;
 
+    bool pair = is_pair_target(target);
+
     /* Get iterator and store */
     codegen_expr(ctx, iter_expr);
-    indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_ITER, NULL, 0);
-    stackmap_track_indy(ctx, PY_INDY_ITER);
+    emit_loop_iter(ctx, pair);
     int iter_slot = codegen_alloc_local(ctx, "$comp_iter");
     emit_astore(ctx, iter_slot);
     if (ctx->stackmap) {
-        stackmap_pop(ctx->stackmap, 1);
         const_pool_t *cp_iter = class_writer_get_cp(ctx->cw);
         stackmap_set_local_object(ctx->stackmap, (uint16_t)iter_slot, cp_iter, LRT_OBJECT);
     }
@@ -1793,8 +2318,7 @@ static void codegen_dict_comprehension_loop(codegen_ctx_t *ctx, slist_t *generat
 
     /* Get next item */
     emit_aload(ctx, iter_slot);
-    indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_NEXT, NULL, 0);
-    stackmap_track_indy(ctx, PY_INDY_NEXT);
+    emit_loop_next(ctx, pair);
 
     /* Check for null */
     emit_u8(ctx, OP_DUP);
@@ -1815,12 +2339,12 @@ static void codegen_dict_comprehension_loop(codegen_ctx_t *ctx, slist_t *generat
         loop_end_state = stackmap_save_state(ctx->stackmap);
     }
 
-    /* Bind target variable (or unpack into multiple) */
+    /* Bind target variable (or unpack into multiple), in fresh slots */
+    int comp_base = ctx->next_local;
+    slist_t *shadowed = NULL;
     if (target->type == AST_NAME) {
-        int target_slot = codegen_get_local(ctx, target->data.name.id);
-        if (target_slot < 0) {
-            target_slot = codegen_alloc_local(ctx, target->data.name.id);
-        }
+        int target_slot = codegen_bind_comp_local(ctx, target->data.name.id,
+                                                  comp_base, &shadowed);
         emit_astore(ctx, target_slot);
         if (ctx->stackmap) {
             stackmap_pop(ctx->stackmap, 1);
@@ -1829,6 +2353,9 @@ static void codegen_dict_comprehension_loop(codegen_ctx_t *ctx, slist_t *generat
         }
     } else if (target->type == AST_TUPLE || target->type == AST_LIST) {
         slist_t *elts = target->data.collection.elts;
+        if (!pair) {
+            emit_unpack_array(ctx, elts);
+        }
         int idx = 0;
         for (slist_t *e = elts; e; e = e->next, idx++) {
             ast_node_t *elt = e->data;
@@ -1838,24 +2365,12 @@ static void codegen_dict_comprehension_loop(codegen_ctx_t *ctx, slist_t *generat
                 stack_push(ctx, 1);
                 if (ctx->stackmap) {
                     const_pool_t *cp = class_writer_get_cp(ctx->cw);
-                    stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
-                }
-                emit_py_int(ctx, (int64_t)idx);
-                indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache,
-                                    PY_INDY_GETITEM, NULL, 0);
-                stackmap_track_indy(ctx, PY_INDY_GETITEM);
-                stack_pop(ctx, 2);
-                stack_push(ctx, 1);
-                int slot = codegen_get_local(ctx, name);
-                if (slot < 0) {
-                    slot = codegen_alloc_local(ctx, name);
+                    stackmap_push_object(ctx->stackmap, cp,
+                                         pair ? LRT_OBJECT : DESC_OBJECT_ARR);
                 }
+                emit_loop_unpack(ctx, pair, idx);
+                int slot = codegen_bind_comp_local(ctx, name, comp_base, &shadowed);
                 emit_astore(ctx, slot);
-                if (ctx->stackmap) {
-                    stackmap_pop(ctx->stackmap, 1);
-                    const_pool_t *cp_local = class_writer_get_cp(ctx->cw);
-                    stackmap_set_local_object(ctx->stackmap, (uint16_t)slot, cp_local, LRT_OBJECT);
-                }
             }
         }
         emit_u8(ctx, OP_POP);
@@ -1876,9 +2391,7 @@ static void codegen_dict_comprehension_loop(codegen_ctx_t *ctx, slist_t *generat
     if (ifs) {
         skip_label = codegen_new_label(ctx);
         for (slist_t *cond = ifs; cond; cond = cond->next) {
-            codegen_expr(ctx, cond->data);
-            indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_BOOL, NULL, 0);
-            stackmap_track_indy(ctx, PY_INDY_BOOL);
+            codegen_condition(ctx, cond->data);
             codegen_emit_jump(ctx, OP_IFEQ, skip_label);
             stack_pop(ctx, 1);
             if (ctx->stackmap) {
@@ -1899,16 +2412,17 @@ static void codegen_dict_comprehension_loop(codegen_ctx_t *ctx, slist_t *generat
     codegen_emit_jump(ctx, OP_GOTO, loop_start);
 
     /* Remove loop target names so nested/next comprehension gets fresh slots */
-    codegen_remove_comp_target_locals(ctx, target);
+    codegen_remove_comp_target_locals(ctx, target, shadowed);
 
     /* Restore state for loop_end - this is the state when IFNULL jumps here */
     if (ctx->stackmap && loop_end_state) {
-        stackmap_restore_state(ctx->stackmap, loop_end_state);
+        restore_scoped_state(ctx, loop_end_state);
         stackmap_state_free(loop_end_state);
     }
 
-    /* End of loop - pop the null */
+    /* End of loop - pop the null (still on the stack after IFNULL jumps) */
     codegen_mark_label(ctx, loop_end);
+    stack_push(ctx, 1);
     emit_u8(ctx, OP_POP);
     stack_pop(ctx, 1);
     if (ctx->stackmap) {
@@ -1919,6 +2433,140 @@ static void codegen_dict_comprehension_loop(codegen_ctx_t *ctx, slist_t *generat
     }
 }
 
+/* Builtins whose generator-expression argument is consumed inline */
+static const char *genexp_consumers[] = {
+    "sum", "any", "all", "list", "tuple", "min", "max", NULL
+};
+
+/**
+ * Check whether a call is consumer(genexp) with the generator expression
+ * as its only argument, e.g. sum(x * x for x in xs) or ", ".join(...).
+ */
+static bool is_inline_genexp_call(ast_node_t *node)
+{
+    if (node->data.call.keywords || !node->data.call.args ||
+            node->data.call.args->next) {
+        return false;
+    }
+    ast_node_t *arg = node->data.call.args->data;
+    if (!arg || arg->type != AST_GENERATOR_EXP ||
+            !arg->data.comprehension_expr.generators) {
+        return false;
+    }
+    for (slist_t *g = arg->data.comprehension_expr.generators; g; g = g->next) {
+        ast_node_t *gen = g->data;
+        if (gen->data.comprehension.is_async) {
+            return false;
+        }
+    }
+
+    ast_node_t *func = node->data.call.func;
+    if (func->type == AST_NAME) {
+        for (int i = 0; genexp_consumers[i]; i++) {
+            if (strcmp(func->data.name.id, genexp_consumers[i]) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    return func->type == AST_ATTRIBUTE && strcmp(func->data.attribute.attr, "join") == 0;
+}
+
+/**
+ * Generate code for consumer(genexp) with the loop inlined.
+ *
+ * The callable is evaluated once and passed to $GE.sink(), which returns
+ * a sink only if it is still the builtin (or a str's join). In that case
+ * the comprehension loop runs in place, feeding each element to the sink
+ * with no per-element function objects or calls. Otherwise we fall back
+ * to building a $GE and calling the callable with it.
+ */
+static void codegen_inline_genexp_call(codegen_ctx_t *ctx, ast_node_t *node)
+{
+    const_pool_t *cp = class_writer_get_cp(ctx->cw);
+    ast_node_t *genexp = node->data.call.args->data;
+    label_t *generic_label = codegen_new_label(ctx);
+    label_t *exit_label = codegen_new_label(ctx);
+    label_t *end_label = codegen_new_label(ctx);
+
+    /* Evaluate the callable once */
+    codegen_expr(ctx, node->data.call.func);
+    int func_slot = codegen_alloc_local(ctx, "$genexp_func");
+    emit_astore(ctx, func_slot);
+
+    /* Guard: the sink is null unless the callable is still the builtin */
+    emit_aload(ctx, func_slot);
+    emit_invokestatic(ctx, LRT_GENEXP, "sink", "(" DESC_OBJECT ")L" LRT_GENEXP_SINK ";");
+    int sink_slot = codegen_alloc_local(ctx, "$genexp_sink");
+    emit_astore(ctx, sink_slot);
+    if (ctx->stackmap) {
+        stackmap_set_local_object(ctx->stackmap, sink_slot, cp, LRT_GENEXP_SINK);
+    }
+    emit_aload(ctx, sink_slot);
+    codegen_emit_jump(ctx, OP_IFNULL, generic_label);
+    stack_pop(ctx, 1);
+    if (ctx->stackmap) {
+        stackmap_pop(ctx->stackmap, 1);
+    }
+
+    stackmap_state_t *guard_state = NULL;
+    if (ctx->stackmap) {
+        guard_state = stackmap_save_state(ctx->stackmap);
+    }
+
+    /* Inlined loop */
+    codegen_comprehension_loop(ctx, genexp->data.comprehension_expr.generators,
+                               genexp->data.comprehension_expr.elt, sink_slot,
+                               COMP_SINK, exit_label);
+    codegen_mark_label(ctx, exit_label);
+    emit_aload(ctx, sink_slot);
+    emit_invokevirtual(ctx, LRT_GENEXP_SINK, "result", "()" DESC_OBJECT);
+    if (ctx->stackmap) {
+        stackmap_pop(ctx->stackmap, 1);
+        stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
+    }
+    codegen_emit_jump(ctx, OP_GOTO, end_label);
+    stack_pop(ctx, 1);  /* The fallback pushes the result again */
+
+    if (ctx->stackmap && guard_state) {
+        restore_scoped_state(ctx, guard_state);
+    }
+
+    /* Fallback: callable($GE) */
+    codegen_mark_label(ctx, generic_label);
+    emit_aload(ctx, func_slot);
+    emit_iconst(ctx, 1);
+    emit_anewarray(ctx, LRT_OBJECT);
+    emit_u8(ctx, OP_DUP);
+    stack_push(ctx, 1);
+    if (ctx->stackmap) {
+        stackmap_push_object(ctx->stackmap, cp, "[L$O;");
+    }
+    emit_iconst(ctx, 0);
+    codegen_expr(ctx, genexp);
+    emit_u8(ctx, OP_AASTORE);
+    stack_pop(ctx, 3);
+    if (ctx->stackmap) {
+        stackmap_pop(ctx->stackmap, 3);
+    }
+    indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_CALL, NULL, 1);
+    stackmap_track_indy(ctx, PY_INDY_CALL);
+    stack_pop(ctx, 2);
+    stack_push(ctx, 1);
+
+    /* Both paths join with only the guard's locals live; the callable and
+     * sink temporaries are dead past the join, so don't let them leak into
+     * frames of enclosing branches (e.g. a surrounding try) */
+    if (ctx->stackmap && guard_state) {
+        restore_scoped_state(ctx, guard_state);
+        stackmap_set_local(ctx->stackmap, (uint16_t)func_slot, vtype_top());
+        stackmap_set_local(ctx->stackmap, (uint16_t)sink_slot, vtype_top());
+        stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
+        stackmap_state_free(guard_state);
+    }
+    codegen_mark_label(ctx, end_label);
+}
+
 /**
  * Generate code for an expression node.
  * Leaves result on the stack.
@@ -1937,7 +2585,13 @@ static void codegen_expr(codegen_ctx_t *ctx, ast_node_t *node)
         case AST_CONSTANT: {
             switch (node->data.constant.kind) {
                 case TOK_INTEGER:
-                    emit_py_int(ctx, node->data.constant.value.int_val);
+                    if (!node->data.constant.big_val) {
+                        emit_py_int(ctx, node->data.constant.value.int_val);
+                    } else if (optimize_code && !emitting_cached_constant) {
+                        emit_cached_constant(ctx, node);
+                    } else {
+                        emit_py_big_int(ctx, node->data.constant.big_val);
+                    }
                     break;
                 case TOK_FLOAT:
                     emit_py_float(ctx, node->data.constant.value.float_val);
@@ -1946,8 +2600,10 @@ static void codegen_expr(codegen_ctx_t *ctx, ast_node_t *node)
                     emit_py_str(ctx, node->data.constant.value.str_val);
                     break;
                 case TOK_BYTES:
-                    /* For now, treat bytes like strings - runtime will handle */
-                    emit_py_str(ctx, node->data.constant.value.str_val);
+                    /* Each char of a bytes literal is one byte (see lexer_put_escape) */
+                    emit_ldc_string(ctx, node->data.constant.value.str_val);
+                    emit_invokestatic(ctx, LRT_BYTES, "literal",
+                                      "(Ljava/lang/String;)L" LRT_BYTES ";");
                     break;
                 case TOK_TRUE:
                     emit_py_bool(ctx, true);
@@ -2253,8 +2909,9 @@ emit_invokestatic(ctx, "$G", "setGlobal",
 
             bool is_or = (node->data.bool_op.op == BOOLOP_OR);
 
-            /* Evaluate first value */
+            /* Evaluate first value; the values may differ in type */
             codegen_expr(ctx, values->data);
+            stackmap_top_as_object(ctx);
             values = values->next;
 
             label_t *end_label = codegen_new_label(ctx);
@@ -2294,6 +2951,7 @@ emit_invokestatic(ctx, "$G", "setGlobal",
 
                 /* Evaluate next value */
                 codegen_expr(ctx, values->data);
+                stackmap_top_as_object(ctx);
                 values = values->next;
             }
 
@@ -2307,11 +2965,7 @@ emit_invokestatic(ctx, "$G", "setGlobal",
             label_t *end_label = codegen_new_label(ctx);
 
             /* Evaluate condition */
-            codegen_expr(ctx, node->data.if_exp.test);
-
-            /* Convert to boolean */
-            indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_BOOL, NULL, 0);
-            stackmap_track_indy(ctx, PY_INDY_BOOL);
+            codegen_condition(ctx, node->data.if_exp.test);
 
             /* Branch if false */
             codegen_emit_jump(ctx, OP_IFEQ, else_label);
@@ -2329,6 +2983,7 @@ emit_invokestatic(ctx, "$G", "setGlobal",
 
             /* True branch */
             codegen_expr(ctx, node->data.if_exp.body);
+            stackmap_top_as_object(ctx);
             codegen_emit_jump(ctx, OP_GOTO, end_label);
 
             /* Restore state before marking else label - the else branch
@@ -2341,6 +2996,7 @@ emit_invokestatic(ctx, "$G", "setGlobal",
             /* False branch */
             codegen_mark_label(ctx, else_label);
             codegen_expr(ctx, node->data.if_exp.orelse);
+            stackmap_top_as_object(ctx);
 
             codegen_mark_label(ctx, end_label);
             break;
@@ -2371,8 +3027,10 @@ emit_invokestatic(ctx, "$G", "setGlobal",
 
         /* Function call */
         case AST_CALL: {
-            /* Push the callable */
-            codegen_expr(ctx, node->data.call.func);
+            if (is_inline_genexp_call(node)) {
+                codegen_inline_genexp_call(ctx, node);
+                break;
+            }
 
             /* Count arguments */
             int argc = 0;
@@ -2380,8 +3038,43 @@ emit_invokestatic(ctx, "$G", "setGlobal",
                 argc++;
             }
 
+            /* Named keyword arguments follow the positional ones in the
+             * array; their names form the call site's keyword descriptor.
+             * With a **mapping the names are only known at run time. */
+            int kwc = 0;
+            bool unpack = false;
+            for (slist_t *k = node->data.call.keywords; k; k = k->next) {
+                ast_node_t *kw = k->data;
+                if (kw->data.keyword.arg) {
+                    kwc++;
+                } else {
+                    unpack = true;
+                }
+            }
+
+            /* obj.name(args) with positional arguments is a method call
+             * site on the receiver, which links native methods directly.
+             * The method is looked up before the arguments are evaluated,
+             * as for obj.name then a call; otherwise push the callable */
+            ast_node_t *method = NULL;
+            if (kwc == 0 && !unpack && node->data.call.func->type == AST_ATTRIBUTE) {
+                method = node->data.call.func;
+                codegen_expr(ctx, method->data.attribute.value);
+                emit_u8(ctx, OP_DUP);
+                stack_push(ctx, 1);
+                if (ctx->stackmap) {
+                    const_pool_t *cp = class_writer_get_cp(ctx->cw);
+                    stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
+                }
+                indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_LOOKUP_METHOD,
+                                    method->data.attribute.attr, 0);
+                stackmap_track_indy(ctx, PY_INDY_LOOKUP_METHOD);
+            } else {
+                codegen_expr(ctx, node->data.call.func);
+            }
+
             /* Create array for arguments */
-            emit_iconst(ctx, argc);
+            emit_iconst(ctx, unpack ? argc : argc + kwc);
             emit_anewarray(ctx, LRT_OBJECT);
 
             /* Fill array with arguments */
@@ -2403,11 +3096,80 @@ emit_invokestatic(ctx, "$G", "setGlobal",
                 i++;
             }
 
-            /* Call via invokedynamic */
-            indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_CALL, NULL, argc);
-            stackmap_track_indy(ctx, PY_INDY_CALL);
+            if (method) {
+                indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_CALL_METHOD,
+                                    method->data.attribute.attr, argc);
+                stackmap_track_indy(ctx, PY_INDY_CALL_METHOD);
+                stack_pop(ctx, 3);  /* receiver + method + args array */
+                stack_push(ctx, 1); /* result */
+                break;
+            }
+
+            if (unpack) {
+                /* f(..., **mapping): gather the keywords into a dict, in call
+                 * order, and call through $BS.callMapping */
+                emit_invokestatic(ctx, LRT_DICT, "of", "()" DESC_DICT);
+                for (slist_t *k = node->data.call.keywords; k; k = k->next) {
+                    ast_node_t *kw = k->data;
+                    if (kw->data.keyword.arg) {
+                        emit_ldc_string(ctx, kw->data.keyword.arg);
+                        codegen_expr(ctx, kw->data.keyword.value);
+                        emit_invokestatic(ctx, LRT_BOOTSTRAP, "keyword",
+                                          "(" DESC_DICT "Ljava/lang/String;" DESC_OBJECT ")" DESC_DICT);
+                    } else {
+                        codegen_expr(ctx, kw->data.keyword.value);
+                        emit_invokestatic(ctx, LRT_BOOTSTRAP, "keywords",
+                                          "(" DESC_DICT DESC_OBJECT ")" DESC_DICT);
+                    }
+                }
+                emit_invokestatic(ctx, LRT_BOOTSTRAP, "callMapping",
+                                  "(" DESC_OBJECT DESC_OBJECT_ARR DESC_DICT ")" DESC_OBJECT);
+                break;
+            }
+
+            if (kwc == 0) {
+                /* Call via invokedynamic */
+                indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_CALL, NULL, argc);
+                stackmap_track_indy(ctx, PY_INDY_CALL);
+                stack_pop(ctx, 2);  /* callable + args array */
+                stack_push(ctx, 1); /* result */
+                break;
+            }
+
+            string_t *kwnames = string_new(NULL);
+            if (!kwnames) {
+                break;
+            }
+            for (slist_t *k = node->data.call.keywords; k; k = k->next) {
+                ast_node_t *kw = k->data;
+                if (kwnames->len > 0) {
+                    string_append_c(kwnames, ',');
+                }
+                string_append(kwnames, kw->data.keyword.arg);
+
+                emit_u8(ctx, OP_DUP);
+                stack_push(ctx, 1);
+                if (ctx->stackmap) {
+                    const_pool_t *cp = class_writer_get_cp(ctx->cw);
+                    stackmap_push_object(ctx->stackmap, cp, "[L$O;");
+                }
+                emit_iconst(ctx, i);
+                codegen_expr(ctx, kw->data.keyword.value);
+                emit_u8(ctx, OP_AASTORE);
+                stack_pop(ctx, 3);
+                if (ctx->stackmap) {
+                    stackmap_pop(ctx->stackmap, 3);  /* array, int, value */
+                }
+                i++;
+            }
+
+            /* Call via invokedynamic, keyword names as the call site name */
+            indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_CALL_KW,
+                                kwnames->str, argc + kwc);
+            stackmap_track_indy(ctx, PY_INDY_CALL_KW);
             stack_pop(ctx, 2);  /* callable + args array */
             stack_push(ctx, 1); /* result */
+            string_free(kwnames, true);
             break;
         }
 
@@ -2448,6 +3210,12 @@ emit_invokestatic(ctx, "$G", "setGlobal",
 
         /* Tuple literal */
         case AST_TUPLE: {
+            if (optimize_code && !emitting_cached_constant &&
+                node->data.collection.elts && fold_is_constant_tuple(node)) {
+                emit_cached_constant(ctx, node);
+                break;
+            }
+
             int count = 0;
             for (slist_t *e = node->data.collection.elts; e; e = e->next) {
                 count++;
@@ -2474,7 +3242,7 @@ emit_invokestatic(ctx, "$G", "setGlobal",
                 i++;
             }
 
-            emit_invokestatic(ctx, LRT_TUPLE, "of", "(" DESC_OBJECT_ARR ")" DESC_TUPLE);
+            emit_invokestatic(ctx, LRT_TUPLE, "wrap", "(" DESC_OBJECT_ARR ")" DESC_TUPLE);
             break;
         }
 
@@ -2571,9 +3339,13 @@ emit_invokestatic(ctx, "$G", "setGlobal",
         /* Slice: lower:upper:step -> $SL(start, stop, step) */
         case AST_SLICE: {
             /* new $SL */
+            uint16_t slice_new_offset = ctx->code->len;
             emit_new(ctx, LRT_SLICE);
             emit_u8(ctx, OP_DUP);
             stack_push(ctx, 1);  /* DUP adds one to stack */
+            if (ctx->stackmap) {
+                stackmap_push_uninitialized(ctx->stackmap, slice_new_offset);
+            }
 
             /* Push start (or None if absent) */
             if (node->data.slice.lower) {
@@ -2600,6 +3372,11 @@ emit_invokestatic(ctx, "$G", "setGlobal",
             emit_invokespecial(ctx, LRT_SLICE, "<init>",
                                "(" DESC_OBJECT DESC_OBJECT DESC_OBJECT ")V");
             stack_pop(ctx, 4);  /* Pop dup + 3 args, constructor consumes them */
+            if (ctx->stackmap) {
+                stackmap_pop(ctx->stackmap, 4);
+                stackmap_init_object(ctx->stackmap, slice_new_offset,
+                                     class_writer_get_cp(ctx->cw), LRT_SLICE);
+            }
             /* Stack: $SL object ref (from new) */
             break;
         }
@@ -2632,7 +3409,7 @@ emit_invokestatic(ctx, "$G", "setGlobal",
             }
 
             /* Process each generator (nested loops) */
-            codegen_comprehension_loop(ctx, generators, elt, result_slot, COMP_LIST);
+            codegen_comprehension_loop(ctx, generators, elt, result_slot, COMP_LIST, NULL);
 
             /* Load result */
             emit_aload(ctx, result_slot);
@@ -2672,7 +3449,7 @@ emit_invokestatic(ctx, "$G", "setGlobal",
             }
 
             /* Process each generator */
-            codegen_comprehension_loop(ctx, generators, elt, result_slot, COMP_SET);
+            codegen_comprehension_loop(ctx, generators, elt, result_slot, COMP_SET, NULL);
 
             /* Load result */
             emit_aload(ctx, result_slot);
@@ -2771,7 +3548,7 @@ emit_invokestatic(ctx, "$G", "setGlobal",
                 if (ctx->stackmap) {
                     stackmap_set_local_object(ctx->stackmap, result_slot, cp, LRT_LIST);
                 }
-                codegen_comprehension_loop(ctx, generators, elt, result_slot, COMP_LIST);
+                codegen_comprehension_loop(ctx, generators, elt, result_slot, COMP_LIST, NULL);
                 emit_aload(ctx, result_slot);
                 /* Fix the pushed type to be $L, not $O */
                 if (ctx->stackmap) {
@@ -2887,8 +3664,12 @@ emit_invokestatic(ctx, "$G", "setGlobal",
                 break;
             }
 
-            /* Load the yield list */
+            /* Load the yield list (typed: the value may contain branches) */
             emit_aload(ctx, ctx->yield_list_slot);
+            if (ctx->stackmap) {
+                stackmap_pop(ctx->stackmap, 1);
+                stackmap_push_object(ctx->stackmap, class_writer_get_cp(ctx->cw), LRT_LIST);
+            }
 
             /* Evaluate the value to yield (or None if no value) */
             if (value) {
@@ -3149,56 +3930,13 @@ static void codegen_stmt(codegen_ctx_t *ctx, ast_node_t *node)
                     /* More targets - duplicate the value */
                     emit_u8(ctx, OP_DUP);
                     stack_push(ctx, 1);
-                }
-
-                if (target->type == AST_NAME) {
-                    const char *name = target->data.name.id;
-
-                    /* Check if declared global or at module level */
-                    if (is_global(ctx, name) || ctx->is_module_level) {
-                        /* Store via $G.setGlobal(name, value) */
-                        /* Stack: value */
-                        emit_ldc_string(ctx, name);  /* Stack: value, name */
-                        emit_u8(ctx, OP_SWAP);       /* Stack: name, value */
-emit_invokestatic(ctx, "$G", "setGlobal",
-                                          "(Ljava/lang/String;L$O;)V");
-
-                        /* Also keep a local copy for faster access at module level */
-                        if (ctx->is_module_level && !is_global(ctx, name)) {
-                            /* Re-evaluate the value for local copy */
-                            /* Actually, value was already consumed - need to reload */
-                            /* For simplicity, just use globals at module level */
-                        }
-                    } else {
-                        int slot = codegen_get_local(ctx, name);
-                        if (slot < 0) {
-                            /* Allocate new local */
-                            slot = codegen_alloc_local(ctx, name);
-                        }
-                        emit_astore(ctx, slot);
+                    if (ctx->stackmap) {
+                        const_pool_t *cp = class_writer_get_cp(ctx->cw);
+                        stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
                     }
-                } else if (target->type == AST_SUBSCRIPT) {
-                    /* obj[key] = value */
-                    /* Stack: value */
-                    /* Need: obj, key, value on stack */
-                    codegen_expr(ctx, target->data.subscript.value);  /* obj */
-                    emit_u8(ctx, OP_SWAP);
-                    codegen_expr(ctx, target->data.subscript.slice);  /* key */
-                    emit_u8(ctx, OP_SWAP);
-
-                    indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_SETITEM, NULL, 0);
-                    stackmap_track_indy(ctx, PY_INDY_SETITEM);
-                    stack_pop(ctx, 3);
-                } else if (target->type == AST_ATTRIBUTE) {
-                    /* obj.attr = value */
-                    codegen_expr(ctx, target->data.attribute.value);  /* obj */
-                    emit_u8(ctx, OP_SWAP);
-
-                    indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_SETATTR,
-                                        target->data.attribute.attr, 0);
-                    stackmap_track_indy(ctx, PY_INDY_SETATTR);
-                    stack_pop(ctx, 2);
                 }
+
+                codegen_store_target(ctx, target);
             }
             break;
         }
@@ -3222,8 +3960,10 @@ emit_invokestatic(ctx, "$G", "setGlobal",
 
                 codegen_expr(ctx, node->data.aug_assign.value);
 
-                /* Emit the binary operation */
-                py_indy_op_t op = binop_to_indy(node->data.aug_assign.op);
+                /* Emit the binary operation; += lets mutable values
+                 * extend themselves in place */
+                py_indy_op_t op = node->data.aug_assign.op == BINOP_ADD
+                    ? PY_INDY_IADD : binop_to_indy(node->data.aug_assign.op);
                 indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, op, NULL, 0);
                 stackmap_track_indy(ctx, op);
                 stack_pop(ctx, 2);
@@ -3250,12 +3990,8 @@ emit_invokestatic(ctx, "$G", "setGlobal",
             label_t *else_label = codegen_new_label(ctx);
             label_t *end_label = codegen_new_label(ctx);
 
-            /* Evaluate condition */
-            codegen_expr(ctx, node->data.if_stmt.test);
-
-            /* Convert to boolean */
-            indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_BOOL, NULL, 0);
-            stackmap_track_indy(ctx, PY_INDY_BOOL);
+            /* Evaluate condition as a boolean */
+            codegen_condition(ctx, node->data.if_stmt.test);
 
             /* Branch if false */
             codegen_emit_jump(ctx, OP_IFEQ, else_label);
@@ -3317,14 +4053,16 @@ emit_invokestatic(ctx, "$G", "setGlobal",
             loop_ctx_t loop_ctx = { end_label, start_label };
             ctx->loop_stack = slist_prepend(ctx->loop_stack, &loop_ctx);
 
+            /* Locals the body binds are live from before the loop head */
+            if (!ctx->is_module_level) {
+                predeclare_loop_locals(ctx, node->data.while_stmt.body);
+            }
+
             /* Loop start */
             codegen_mark_label(ctx, start_label);
 
-            /* Evaluate condition */
-            codegen_expr(ctx, node->data.while_stmt.test);
-
-            indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_BOOL, NULL, 0);
-            stackmap_track_indy(ctx, PY_INDY_BOOL);
+            /* Evaluate condition as a boolean */
+            codegen_condition(ctx, node->data.while_stmt.test);
 
             /* Branch if false */
             codegen_emit_jump(ctx, OP_IFEQ, end_label);
@@ -3379,42 +4117,36 @@ emit_invokestatic(ctx, "$G", "setGlobal",
             loop_ctx_t loop_ctx = { break_label, start_label };
             ctx->loop_stack = slist_prepend(ctx->loop_stack, &loop_ctx);
 
+            bool pair = is_pair_target(node->data.for_stmt.target);
+
             /* Get iterator */
             codegen_expr(ctx, node->data.for_stmt.iter);
-
-            indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_ITER, NULL, 0);
-            stackmap_track_indy(ctx, PY_INDY_ITER);
+            emit_loop_iter(ctx, pair);
 
             /* Store iterator in a temporary */
             int iter_slot = codegen_alloc_local(ctx, "$iter");
             emit_astore(ctx, iter_slot);
 
+            /* Pre-allocate the loop variables and the locals the body binds,
+             * init to null, so the loop-head frame is consistent (first entry
+             * vs back-edge) and they are still live after the loop */
+            if (!ctx->is_module_level) {
+                predeclare_target_locals(ctx, node->data.for_stmt.target);
+                predeclare_loop_locals(ctx, node->data.for_stmt.body);
+            }
+
             /* Save state before loop - this is the state for break_label */
             stackmap_state_t *pre_loop_state = NULL;
             if (ctx->stackmap) {
                 pre_loop_state = stackmap_save_state(ctx->stackmap);
             }
 
-            /* Pre-allocate loop variable slot and init to null so loop-head frame is consistent (first entry vs back-edge) */
-            ast_node_t *for_target = node->data.for_stmt.target;
-            if (for_target->type == AST_NAME && !is_global(ctx, for_target->data.name.id) && !ctx->is_module_level) {
-                const char *name = for_target->data.name.id;
-                int slot = codegen_get_local(ctx, name);
-                if (slot < 0) {
-                    slot = codegen_alloc_local(ctx, for_target->data.name.id);
-                    emit_aconst_null(ctx);
-                    emit_astore(ctx, slot);
-                }
-            }
-
             /* Loop start */
             codegen_mark_label(ctx, start_label);
 
             /* Get next item */
             emit_aload(ctx, iter_slot);
-
-            indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache, PY_INDY_NEXT, NULL, 0);
-            stackmap_track_indy(ctx, PY_INDY_NEXT);
+            emit_loop_next(ctx, pair);
 
             /* Check for StopIteration (null return) */
             emit_u8(ctx, OP_DUP);
@@ -3439,26 +4171,10 @@ emit_invokestatic(ctx, "$G", "setGlobal",
 
             /* Store loop variable (or unpack into multiple) */
             ast_node_t *target = node->data.for_stmt.target;
-            if (target->type == AST_NAME) {
-                const char *name = target->data.name.id;
-
-                /* Check if declared global or at module level */
-                if (is_global(ctx, name) || ctx->is_module_level) {
-                    /* Store via $G.setGlobal(name, value) */
-                    /* Stack: value */
-                    emit_ldc_string(ctx, name);  /* Stack: value, name */
-                    emit_u8(ctx, OP_SWAP);       /* Stack: name, value */
-emit_invokestatic(ctx, "$G", "setGlobal",
-                                          "(Ljava/lang/String;L$O;)V");
-                } else {
-                    int slot = codegen_get_local(ctx, name);
-                    if (slot < 0) {
-                        slot = codegen_alloc_local(ctx, name);
-                    }
-                    emit_astore(ctx, slot);
-                }
-            } else if (target->type == AST_TUPLE || target->type == AST_LIST) {
-                /* Tuple/list unpacking: for (a, b) in iter - value is on stack */
+            if (!pair) {
+                codegen_store_target(ctx, target);
+            } else {
+                /* Pair unpacking: for a, b in iter - pair iterator is on stack */
                 slist_t *elts = target->data.collection.elts;
                 int idx = 0;
                 for (slist_t *e = elts; e; e = e->next, idx++) {
@@ -3472,12 +4188,7 @@ emit_invokestatic(ctx, "$G", "setGlobal",
                             const_pool_t *cp = class_writer_get_cp(ctx->cw);
                             stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
                         }
-                        emit_py_int(ctx, (int64_t)idx);
-                        indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache,
-                                            PY_INDY_GETITEM, NULL, 0);
-                        stackmap_track_indy(ctx, PY_INDY_GETITEM);
-                        stack_pop(ctx, 2);
-                        stack_push(ctx, 1);
+                        emit_loop_unpack(ctx, pair, idx);
                         if (is_global(ctx, name) || ctx->is_module_level) {
                             emit_ldc_string(ctx, name);
                             emit_u8(ctx, OP_SWAP);
@@ -3491,15 +4202,8 @@ emit_invokestatic(ctx, "$G", "setGlobal",
                             emit_astore(ctx, slot);
                         }
                     }
-                    /* AST_STARRED (*rest) not yet supported - skip */
                 }
-                emit_u8(ctx, OP_POP);  /* Pop the original value */
-                stack_pop(ctx, 1);
-                if (ctx->stackmap) {
-                    stackmap_pop(ctx->stackmap, 1);
-                }
-            } else {
-                emit_u8(ctx, OP_POP);
+                emit_u8(ctx, OP_POP);  /* Pop the pair iterator */
                 stack_pop(ctx, 1);
                 if (ctx->stackmap) {
                     stackmap_pop(ctx->stackmap, 1);
@@ -3515,7 +4219,7 @@ emit_invokestatic(ctx, "$G", "setGlobal",
             /* Restore state for end_label - when IFNULL jumps here, stack has 1 item (null) */
             ctx->stack_depth = saved_stack_depth;  /* Restore stack depth */
             if (ctx->stackmap && post_check_state) {
-                stackmap_restore_state(ctx->stackmap, post_check_state);
+                restore_scoped_state(ctx, post_check_state);
                 stackmap_state_free(post_check_state);
             }
 
@@ -3538,7 +4242,7 @@ emit_invokestatic(ctx, "$G", "setGlobal",
 
             /* Restore state and mark break_label - break jumps here with empty stack */
             if (ctx->stackmap && pre_loop_state) {
-                stackmap_restore_state(ctx->stackmap, pre_loop_state);
+                restore_scoped_state(ctx, pre_loop_state);
             }
             codegen_mark_label(ctx, break_label);
 
@@ -4350,13 +5054,8 @@ emit_invokestatic(ctx, "$G", "setGlobal",
             ast_node_t *test = node->data.assert_stmt.test;
             ast_node_t *msg = node->data.assert_stmt.msg;
 
-            /* Evaluate test condition */
-            codegen_expr(ctx, test);
-
-            /* Convert to bool (int) */
-            indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache,
-                                PY_INDY_BOOL, NULL, 0);
-            stackmap_track_indy(ctx, PY_INDY_BOOL);
+            /* Evaluate test condition as a boolean */
+            codegen_condition(ctx, test);
 
             /* If true (non-zero), skip the error */
             label_t *skip_label = codegen_new_label(ctx);
@@ -4383,9 +5082,9 @@ emit_invokestatic(ctx, "$G", "setGlobal",
                 indy_emit_operation(ctx->cw, ctx->code, ctx->indy_cache,
                                     PY_INDY_STR, NULL, 0);
                 stackmap_track_indy(ctx, PY_INDY_STR);
-                /* Cast to $S and extract java.lang.String from $S.value */
+                /* Cast to $S and extract its java.lang.String */
                 emit_checkcast(ctx, "$S");
-                emit_getfield(ctx, "$S", "value", "Ljava/lang/String;");
+                emit_invokevirtual(ctx, "$S", "value", "()Ljava/lang/String;");
                 /* Stack: $O -> String (no change in stack depth) */
             } else {
                 emit_ldc_string(ctx, "assertion failed");
@@ -4571,8 +5270,8 @@ emit_invokestatic(ctx, "$G", "setGlobal",
                                             codegen_expr(ctx, elt);
                                             emit_invokevirtual(ctx, LRT_OBJECT, "__str__",
                                                              "()" DESC_STR);
-                                            emit_getfield(ctx, LRT_STR, "value",
-                                                        "Ljava/lang/String;");
+                                            emit_invokevirtual(ctx, LRT_STR, "value",
+                                                               "()Ljava/lang/String;");
                                         }
                                         emit_u8(ctx, OP_AASTORE);
                                         stack_pop(ctx, 3);
@@ -5307,6 +6006,313 @@ static int count_parameters(ast_node_t *args_node)
     return count;
 }
 
+/**
+ * Append one parameter to a signature spec.
+ */
+static void spec_append(string_t *sb, const char *prefix, ast_node_t *arg,
+                        bool has_default)
+{
+    if (!arg || arg->type != AST_ARG) {
+        return;
+    }
+    if (sb->len > 0) {
+        string_append_c(sb, ',');
+    }
+    string_append(sb, prefix);
+    string_append(sb, arg->data.arg.arg);
+    if (has_default) {
+        string_append_c(sb, '=');
+    }
+}
+
+/**
+ * Build the signature spec passed to $MH for keyword binding.
+ * Parameters are listed in slot order, e.g. "a,/,b,c=,*args,d,e=,**kw":
+ * "/" ends the positional-only parameters, "*" marks the start of
+ * keyword-only parameters when there is no *args, and a trailing "="
+ * marks a parameter with a default.
+ * Returns a newly allocated string.
+ */
+static char *build_signature_spec(ast_node_t *args_node)
+{
+    string_t *sb = string_new(NULL);
+    if (!sb) {
+        return NULL;
+    }
+    if (!args_node || args_node->type != AST_ARGUMENTS) {
+        return string_free(sb, false);
+    }
+
+    slist_t *posonly = args_node->data.arguments.posonlyargs;
+    slist_t *args = args_node->data.arguments.args;
+    int num_positional = slist_length(posonly) + slist_length(args);
+    int first_default = num_positional - slist_length(args_node->data.arguments.defaults);
+
+    int idx = 0;
+    for (slist_t *a = posonly; a; a = a->next, idx++) {
+        spec_append(sb, "", a->data, idx >= first_default);
+    }
+    if (posonly) {
+        string_append(sb, ",/");
+    }
+    for (slist_t *a = args; a; a = a->next, idx++) {
+        spec_append(sb, "", a->data, idx >= first_default);
+    }
+
+    if (args_node->data.arguments.vararg) {
+        spec_append(sb, "*", args_node->data.arguments.vararg, false);
+    } else if (args_node->data.arguments.kwonlyargs) {
+        if (sb->len > 0) {
+            string_append_c(sb, ',');
+        }
+        string_append_c(sb, '*');
+    }
+
+    slist_t *kwd = args_node->data.arguments.kw_defaults;
+    for (slist_t *a = args_node->data.arguments.kwonlyargs; a; a = a->next) {
+        spec_append(sb, "", a->data, kwd && kwd->data);
+        if (kwd) {
+            kwd = kwd->next;
+        }
+    }
+
+    if (args_node->data.arguments.kwarg) {
+        spec_append(sb, "**", args_node->data.arguments.kwarg, false);
+    }
+    return string_free(sb, false);
+}
+
+/**
+ * Whether any parameter of a def or lambda has a default value.
+ */
+static bool has_defaults(ast_node_t *args_node)
+{
+    if (!args_node || args_node->type != AST_ARGUMENTS) {
+        return false;
+    }
+    if (args_node->data.arguments.defaults) {
+        return true;
+    }
+    for (slist_t *s = args_node->data.arguments.kw_defaults; s; s = s->next) {
+        if (s->data) {
+            return true;
+        }
+    }
+    return false;
+}
+
+/**
+ * Evaluate a function's default values into a $O[] on the stack, in slot
+ * order: positional defaults, then keyword-only ones. This runs where
+ * the def or lambda is executed, so each default is evaluated once, in
+ * the enclosing scope, as in Python.
+ */
+static void emit_defaults_array(codegen_ctx_t *ctx, ast_node_t *args_node)
+{
+    int count = slist_length(args_node->data.arguments.defaults);
+    for (slist_t *s = args_node->data.arguments.kw_defaults; s; s = s->next) {
+        if (s->data) {
+            count++;
+        }
+    }
+
+    emit_iconst(ctx, count);
+    emit_anewarray(ctx, LRT_OBJECT);
+
+    slist_t *lists[2] = { args_node->data.arguments.defaults,
+                          args_node->data.arguments.kw_defaults };
+    int i = 0;
+    for (int l = 0; l < 2; l++) {
+        for (slist_t *s = lists[l]; s; s = s->next) {
+            if (!s->data) {
+                continue;
+            }
+            emit_u8(ctx, OP_DUP);
+            stack_push(ctx, 1);
+            if (ctx->stackmap) {
+                const_pool_t *cp = class_writer_get_cp(ctx->cw);
+                stackmap_push_object(ctx->stackmap, cp, "[L$O;");
+            }
+            emit_iconst(ctx, i++);
+            codegen_expr(ctx, s->data);
+            emit_u8(ctx, OP_AASTORE);
+            stack_pop(ctx, 3);
+            if (ctx->stackmap) {
+                stackmap_pop(ctx->stackmap, 3);
+            }
+        }
+    }
+}
+
+/**
+ * Wrap the MethodHandle on top of the stack in a $MH carrying the
+ * function's name, signature and default values. Unless capture is
+ * CAPTURE_NONE, the captured values are in a $O[] on the stack above the
+ * MethodHandle.
+ */
+static void emit_function_object(codegen_ctx_t *ctx, const char *func_name,
+                                 ast_node_t *args_node, capture_mode_t capture)
+{
+    char *spec = build_signature_spec(args_node);
+    emit_ldc_string(ctx, func_name);
+    emit_ldc_string(ctx, spec ? spec : "");
+    free(spec);
+
+    /* Default values follow the strings as a trailing $O[] argument */
+    bool defaults = has_defaults(args_node);
+    if (defaults) {
+        emit_defaults_array(ctx, args_node);
+    }
+    const char *tail = defaults ? "Ljava/lang/String;Ljava/lang/String;[L$O;)L$MH;"
+                                : "Ljava/lang/String;Ljava/lang/String;)L$MH;";
+    char desc[160];
+
+    if (capture == CAPTURE_ARRAY) {
+        /* $MH.withClosure(MethodHandle, $O[], String, String[, $O[]]) -> $MH */
+        snprintf(desc, sizeof(desc), "(Ljava/lang/invoke/MethodHandle;[L$O;%s", tail);
+        emit_invokestatic(ctx, "$MH", "withClosure", desc);
+    } else if (capture == CAPTURE_BOUND) {
+        /* $MH.bound(MethodHandle, $O[], String, String[, $O[]]) -> $MH */
+        snprintf(desc, sizeof(desc), "(Ljava/lang/invoke/MethodHandle;[L$O;%s", tail);
+        emit_invokestatic(ctx, "$MH", "bound", desc);
+    } else {
+        /* $MH.of(MethodHandle, String, String[, $O[]]) -> $MH */
+        snprintf(desc, sizeof(desc), "(Ljava/lang/invoke/MethodHandle;%s", tail);
+        emit_invokestatic(ctx, "$MH", "of", desc);
+    }
+}
+
+/**
+ * Start a value that is created on first use and then kept in a new
+ * static field. Pushes the field and, if it is set, jumps to the returned
+ * label; otherwise the caller pushes the value and calls
+ * emit_static_cache_end().
+ */
+static label_t *emit_static_cache_begin(codegen_ctx_t *ctx, const char *field_name)
+{
+    const_pool_t *cp = class_writer_get_cp(ctx->cw);
+    const char *class_name = cp->entries[cp->entries[ctx->cw->this_class].data.class_index].data.utf8;
+    class_writer_add_field(ctx->cw, field_name, DESC_OBJECT, ACC_PRIVATE | ACC_STATIC);
+
+    label_t *cached_label = codegen_new_label(ctx);
+    emit_getstatic(ctx, class_name, field_name, DESC_OBJECT);
+    emit_u8(ctx, OP_DUP);
+    stack_push(ctx, 1);
+    if (ctx->stackmap) {
+        stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
+    }
+    codegen_emit_jump(ctx, OP_IFNONNULL, cached_label);
+    stack_pop(ctx, 1);
+    if (ctx->stackmap) {
+        stackmap_pop(ctx->stackmap, 1);
+    }
+    emit_u8(ctx, OP_POP);
+    stack_pop(ctx, 1);
+    if (ctx->stackmap) {
+        stackmap_pop(ctx->stackmap, 1);
+    }
+    return cached_label;
+}
+
+/**
+ * Store the value just pushed in the cache field and join the cached path.
+ */
+static void emit_static_cache_end(codegen_ctx_t *ctx, const char *field_name,
+                                  label_t *cached_label)
+{
+    const_pool_t *cp = class_writer_get_cp(ctx->cw);
+    const char *class_name = cp->entries[cp->entries[ctx->cw->this_class].data.class_index].data.utf8;
+    /* Same type as the cached path at the join */
+    stackmap_top_as_object(ctx);
+    emit_u8(ctx, OP_DUP);
+    stack_push(ctx, 1);
+    if (ctx->stackmap) {
+        stackmap_push_object(ctx->stackmap, cp, LRT_OBJECT);
+    }
+    emit_putstatic(ctx, class_name, field_name, DESC_OBJECT);
+    codegen_mark_label(ctx, cached_label);
+}
+
+/**
+ * Push a capture-free function object that is created on first use and
+ * then cached in a static field. Only used for non-escaping functions,
+ * where reusing one object across evaluations cannot be observed.
+ */
+static void emit_cached_function_object(codegen_ctx_t *ctx, uint16_t mh_index,
+                                        const char *func_name, ast_node_t *args_node)
+{
+    char field_name[32];
+    snprintf(field_name, sizeof(field_name), "$fn$%d", function_cache_counter++);
+    label_t *cached_label = emit_static_cache_begin(ctx, field_name);
+
+    emit_u8(ctx, OP_LDC_W);
+    emit_u16(ctx, mh_index);
+    stack_push(ctx, 1);
+    if (ctx->stackmap) {
+        const_pool_t *cp = class_writer_get_cp(ctx->cw);
+        stackmap_push_object(ctx->stackmap, cp, "java/lang/invoke/MethodHandle");
+    }
+    emit_function_object(ctx, func_name, args_node, CAPTURE_NONE);
+    emit_static_cache_end(ctx, field_name, cached_label);
+}
+
+/**
+ * Push a folded constant tuple or big int, built once and then kept in a
+ * static field like CPython's code object constants. Both are immutable,
+ * so sharing one object across evaluations cannot be observed.
+ */
+static void emit_cached_constant(codegen_ctx_t *ctx, ast_node_t *node)
+{
+    char field_name[32];
+    snprintf(field_name, sizeof(field_name), "$k$%d", constant_cache_counter++);
+    label_t *cached_label = emit_static_cache_begin(ctx, field_name);
+
+    emitting_cached_constant = true;
+    codegen_expr(ctx, node);
+    emitting_cached_constant = false;
+    emit_static_cache_end(ctx, field_name, cached_label);
+}
+
+/**
+ * Push the current value of a variable being captured by a nested
+ * function. It may itself be a capture of this function.
+ */
+static void emit_captured_value(codegen_ctx_t *ctx, const char *name)
+{
+    ast_node_t ref = {0};
+    ref.type = AST_NAME;
+    ref.data.name.id = (char *)name;
+    ref.data.name.ctx = CTX_LOAD;
+    codegen_expr(ctx, &ref);
+}
+
+/**
+ * Make the captured variables of a CAPTURE_BOUND function its leading
+ * parameters, so the body reads them as ordinary locals. Returns the
+ * next free slot.
+ */
+static int bind_captured_params(codegen_ctx_t *func_ctx, slist_t *captured_vars)
+{
+    const_pool_t *cp = class_writer_get_cp(func_ctx->cw);
+    int slot = 0;
+    for (slist_t *s = captured_vars; s; s = s->next) {
+        const char *name = s->data;
+        local_var_t *var = malloc(sizeof(local_var_t));
+        if (var) {
+            var->name = str_dup(name);
+            var->slot = slot;
+            var->start_pc = 0;
+            var->end_pc = -1;
+            hashtable_insert(func_ctx->locals, name, var);
+        }
+        if (func_ctx->stackmap) {
+            stackmap_set_local_object(func_ctx->stackmap, slot, cp, LRT_OBJECT);
+        }
+        slot++;
+    }
+    return slot;
+}
+
 /**
  * Generate code for a function definition.
  * Creates a static method for the function body and stores a callable
@@ -5323,10 +6329,13 @@ static void codegen_function_def(codegen_ctx_t *ctx, ast_node_t *node)
     temp_ctx.parent_ctx = ctx;
     slist_t *free_vars = collect_free_vars(&temp_ctx, args_node, body);
     int num_free_vars = slist_length(free_vars);
-    bool has_closure = (num_free_vars > 0);
+    capture_mode_t capture = num_free_vars == 0 ? CAPTURE_NONE :
+        node->data.func_def.closure_by_value ? CAPTURE_BOUND : CAPTURE_ARRAY;
+    bool has_closure = (capture == CAPTURE_ARRAY);
 
     /* Count parameters */
     int num_params = count_parameters(args_node);
+    int num_bound = (capture == CAPTURE_BOUND) ? num_free_vars : 0;
 
     /* Build method name: prefix with $py_ to avoid conflicts
      * When inside a class, include the class name for uniqueness */
@@ -5343,7 +6352,7 @@ static void codegen_function_def(codegen_ctx_t *ctx, ast_node_t *node)
     if (has_closure) {
         descriptor = build_method_descriptor_ex(num_params, true);
     } else {
-        descriptor = build_method_descriptor(num_params);
+        descriptor = build_method_descriptor(num_bound + num_params);
     }
     if (!descriptor) {
         slist_free(free_vars);
@@ -5372,13 +6381,16 @@ static void codegen_function_def(codegen_ctx_t *ctx, ast_node_t *node)
     int slot = 0;
     const_pool_t *cp = class_writer_get_cp(ctx->cw);
 
-    /* If we have a closure, slot 0 is the closure array */
+    /* If we have a closure, slot 0 is the closure array; bound captures
+     * come first instead */
     if (has_closure) {
         func_ctx->closure_slot = slot;
         if (func_ctx->stackmap) {
             stackmap_set_local_object(func_ctx->stackmap, slot, cp, "[L$O;");
         }
         slot++;
+    } else if (capture == CAPTURE_BOUND) {
+        slot = bind_captured_params(func_ctx, free_vars);
     }
 
     /* Process posonlyargs */
@@ -5489,88 +6501,6 @@ static void codegen_function_def(codegen_ctx_t *ctx, ast_node_t *node)
     func_ctx->next_local = slot;
     func_ctx->max_locals = slot;
 
-    /* Generate null checks and default substitutions for parameters with defaults.
-     * Defaults are aligned to the END of the args list (not the beginning).
-     * E.g., def f(a, b, c=1, d=2) has defaults for c and d.
-     * defaults list length <= args list length.
-     */
-    if (args_node && args_node->type == AST_ARGUMENTS) {
-        slist_t *args = args_node->data.arguments.args;
-        slist_t *defaults = args_node->data.arguments.defaults;
-
-        int num_args = slist_length(args);
-        int num_defaults = slist_length(defaults);
-        int first_default_idx = num_args - num_defaults;
-
-        /* Also need to account for posonlyargs */
-        int posonly_count = slist_length(args_node->data.arguments.posonlyargs);
-
-        /* Iterate through args that have defaults */
-        slist_t *default_iter = defaults;
-        int arg_idx = 0;
-        for (slist_t *s = args; s; s = s->next, arg_idx++) {
-            if (arg_idx >= first_default_idx && default_iter) {
-                ast_node_t *default_val = default_iter->data;
-                ast_node_t *arg = s->data;
-
-                if (arg && arg->type == AST_ARG && default_val) {
-                    int param_slot = posonly_count + arg_idx;
-
-                    /* Generate: if (param == null) param = default_value; */
-                    label_t *skip_label = codegen_new_label(func_ctx);
-
-                    /* Load param and check if null */
-                    emit_aload(func_ctx, param_slot);
-                    codegen_emit_jump(func_ctx, OP_IFNONNULL, skip_label);
-                    stack_pop(func_ctx, 1);
-                    if (func_ctx->stackmap) {
-                        stackmap_pop(func_ctx->stackmap, 1);
-                    }
-
-                    /* Param is null, evaluate default and store */
-                    codegen_expr(func_ctx, default_val);
-                    emit_astore(func_ctx, param_slot);
-
-                    /* Skip label */
-                    codegen_mark_label(func_ctx, skip_label);
-                }
-
-                default_iter = default_iter->next;
-            }
-        }
-
-        /* Handle kw_defaults for kwonlyargs */
-        slist_t *kw_args = args_node->data.arguments.kwonlyargs;
-        slist_t *kw_defaults = args_node->data.arguments.kw_defaults;
-        int kw_idx = 0;
-        int kw_base_slot = posonly_count + num_args;
-
-        slist_t *kwd_iter = kw_defaults;
-        for (slist_t *s = kw_args; s && kwd_iter; s = s->next, kwd_iter = kwd_iter->next, kw_idx++) {
-            ast_node_t *default_val = kwd_iter->data;
-            ast_node_t *arg = s->data;
-
-            if (arg && arg->type == AST_ARG && default_val) {
-                int param_slot = kw_base_slot + kw_idx;
-
-                /* Generate: if (param == null) param = default_value; */
-                label_t *skip_label = codegen_new_label(func_ctx);
-
-                emit_aload(func_ctx, param_slot);
-                codegen_emit_jump(func_ctx, OP_IFNONNULL, skip_label);
-                stack_pop(func_ctx, 1);
-                if (func_ctx->stackmap) {
-                    stackmap_pop(func_ctx->stackmap, 1);
-                }
-
-                codegen_expr(func_ctx, default_val);
-                emit_astore(func_ctx, param_slot);
-
-                codegen_mark_label(func_ctx, skip_label);
-            }
-        }
-    }
-
     /* Check if this is a generator function (contains yield) */
     bool is_gen = is_generator_function(body);
     if (is_gen) {
@@ -5606,12 +6536,14 @@ static void codegen_function_def(codegen_ctx_t *ctx, ast_node_t *node)
     /* Generate code for function body */
     codegen_stmts(func_ctx, body);
 
-    /* If the function doesn't end with a return, add implicit return */
-    /* Check if last instruction was ARETURN */
+    /* If the function doesn't end with a return, add implicit return.
+     * A label at the end (e.g. after if/else that both return) still
+     * needs an instruction; the optimizer drops it if unreachable. */
     bool needs_return = true;
-    if (func_ctx->code->len > 0) {
+    if (func_ctx->code->len > 0 &&
+        !stackmap_get_frame(func_ctx->stackmap, (uint16_t)func_ctx->code->len)) {
         uint8_t last_op = func_ctx->code->data[func_ctx->code->len - 1];
-        if (last_op == OP_ARETURN || last_op == OP_RETURN) {
+        if (last_op == OP_ARETURN || last_op == OP_RETURN || last_op == OP_ATHROW) {
             needs_return = false;
         }
     }
@@ -5638,6 +6570,7 @@ static void codegen_function_def(codegen_ctx_t *ctx, ast_node_t *node)
     codegen_resolve_labels(func_ctx);
     func_ctx->code_attr->data.code.max_stack = func_ctx->max_stack > 0 ? func_ctx->max_stack : 1;
     func_ctx->code_attr->data.code.max_locals = func_ctx->max_locals > 0 ? func_ctx->max_locals : 1;
+    codegen_optimize_code(func_ctx);
 
     /* Serialize and attach StackMapTable */
     if (func_ctx->stackmap && func_ctx->stackmap->num_entries > 0) {
@@ -5675,12 +6608,21 @@ static void codegen_function_def(codegen_ctx_t *ctx, ast_node_t *node)
     /* Create method handle entry pointing to the methodref */
     uint16_t mh_index = cp_add_method_handle(cp, REF_invokeStatic, method_ref);
 
-    /* Load the method handle */
-    emit_u8(ctx, OP_LDC_W);
-    emit_u16(ctx, mh_index);
-    stack_push(ctx, 1);
-    if (ctx->stackmap) {
-        stackmap_push_object(ctx->stackmap, cp, "java/lang/invoke/MethodHandle");
+    /* Defaults are evaluated each time the def runs, so only a function
+     * without any can be created once */
+    bool cached = !captured_vars && node->data.func_def.non_escaping &&
+                  !has_defaults(args_node);
+    if (cached) {
+        /* Only ever called here: create the function object once */
+        emit_cached_function_object(ctx, mh_index, func_name, args_node);
+    } else {
+        /* Load the method handle */
+        emit_u8(ctx, OP_LDC_W);
+        emit_u16(ctx, mh_index);
+        stack_push(ctx, 1);
+        if (ctx->stackmap) {
+            stackmap_push_object(ctx->stackmap, cp, "java/lang/invoke/MethodHandle");
+        }
     }
 
     /* If we have captured variables, create closure array and wrap */
@@ -5705,13 +6647,7 @@ static void codegen_function_def(codegen_ctx_t *ctx, ast_node_t *node)
             emit_iconst(ctx, i);
 
             /* Load the captured variable from current (parent) context */
-            int var_slot = codegen_get_local(ctx, var_name);
-            if (var_slot >= 0) {
-                emit_aload(ctx, var_slot);
-            } else {
-                /* Should not happen if free var detection is correct */
-                emit_aconst_null(ctx);
-            }
+            emit_captured_value(ctx, var_name);
 
             emit_u8(ctx, OP_AASTORE);
             stack_pop(ctx, 3);
@@ -5721,15 +6657,13 @@ static void codegen_function_def(codegen_ctx_t *ctx, ast_node_t *node)
             i++;
         }
 
-        /* Call $MH.withClosure(MethodHandle, $O[]) -> $MH */
-        emit_invokestatic(ctx, "$MH", "withClosure",
-                          "(Ljava/lang/invoke/MethodHandle;[L$O;)L$MH;");
+        /* Wrap with $MH.withClosure, or bind the values as arguments */
+        emit_function_object(ctx, func_name, args_node, capture);
 
         slist_free(captured_vars);
-    } else {
+    } else if (!cached) {
         /* No closure - wrap in $MH directly */
-        emit_invokestatic(ctx, "$MH", "of",
-                          "(Ljava/lang/invoke/MethodHandle;)L$MH;");
+        emit_function_object(ctx, func_name, args_node, CAPTURE_NONE);
     }
 
     /* Apply decorators (in reverse order - innermost first) */
@@ -5837,17 +6771,20 @@ static void codegen_lambda(codegen_ctx_t *ctx, ast_node_t *node)
     slist_t *free_vars = collect_free_vars_from_expr(&temp_ctx, args_node, body);
 
     int num_free_vars = slist_length(free_vars);
-    bool has_closure = (num_free_vars > 0);
+    capture_mode_t capture = num_free_vars == 0 ? CAPTURE_NONE :
+        node->data.lambda.closure_by_value ? CAPTURE_BOUND : CAPTURE_ARRAY;
+    bool has_closure = (capture == CAPTURE_ARRAY);
 
     /* Count parameters */
     int num_params = count_parameters(args_node);
+    int num_bound = (capture == CAPTURE_BOUND) ? num_free_vars : 0;
 
     /* Build method descriptor */
     char *descriptor;
     if (has_closure) {
         descriptor = build_method_descriptor_ex(num_params, true);
     } else {
-        descriptor = build_method_descriptor(num_params);
+        descriptor = build_method_descriptor(num_bound + num_params);
     }
     if (!descriptor) {
         slist_free(free_vars);
@@ -5876,13 +6813,16 @@ static void codegen_lambda(codegen_ctx_t *ctx, ast_node_t *node)
     int slot = 0;
     const_pool_t *cp = class_writer_get_cp(ctx->cw);
 
-    /* If we have a closure, slot 0 is the closure array */
+    /* If we have a closure, slot 0 is the closure array; bound captures
+     * come first instead */
     if (has_closure) {
         lambda_ctx->closure_slot = slot;
         if (lambda_ctx->stackmap) {
             stackmap_set_local_object(lambda_ctx->stackmap, slot, cp, "[L$O;");
         }
         slot++;
+    } else if (capture == CAPTURE_BOUND) {
+        slot = bind_captured_params(lambda_ctx, free_vars);
     }
 
     /* Process lambda arguments (simpler than function - just args, no kw) */
@@ -5905,45 +6845,6 @@ static void codegen_lambda(codegen_ctx_t *ctx, ast_node_t *node)
                 slot++;
             }
         }
-
-        /* Handle defaults for lambda parameters */
-        slist_t *args = args_node->data.arguments.args;
-        slist_t *defaults = args_node->data.arguments.defaults;
-
-        int num_args = slist_length(args);
-        int num_defaults = slist_length(defaults);
-        int first_default_idx = num_args - num_defaults;
-
-        int closure_offset = has_closure ? 1 : 0;
-        slist_t *default_iter = defaults;
-        int arg_idx = 0;
-        for (slist_t *s = args; s; s = s->next, arg_idx++) {
-            if (arg_idx >= first_default_idx && default_iter) {
-                ast_node_t *default_val = default_iter->data;
-                ast_node_t *arg = s->data;
-
-                if (arg && arg->type == AST_ARG && default_val) {
-                    int param_slot = closure_offset + arg_idx;
-
-                    /* Generate: if (param == null) param = default_value; */
-                    label_t *skip_label = codegen_new_label(lambda_ctx);
-
-                    emit_aload(lambda_ctx, param_slot);
-                    codegen_emit_jump(lambda_ctx, OP_IFNONNULL, skip_label);
-                    stack_pop(lambda_ctx, 1);
-                    if (lambda_ctx->stackmap) {
-                        stackmap_pop(lambda_ctx->stackmap, 1);
-                    }
-
-                    codegen_expr(lambda_ctx, default_val);
-                    emit_astore(lambda_ctx, param_slot);
-
-                    codegen_mark_label(lambda_ctx, skip_label);
-                }
-
-                default_iter = default_iter->next;
-            }
-        }
     }
 
     lambda_ctx->next_local = slot;
@@ -5958,6 +6859,7 @@ static void codegen_lambda(codegen_ctx_t *ctx, ast_node_t *node)
     codegen_resolve_labels(lambda_ctx);
     lambda_ctx->code_attr->data.code.max_stack = lambda_ctx->max_stack > 0 ? lambda_ctx->max_stack : 1;
     lambda_ctx->code_attr->data.code.max_locals = lambda_ctx->max_locals > 0 ? lambda_ctx->max_locals : 1;
+    codegen_optimize_code(lambda_ctx);
 
     /* Serialize and attach StackMapTable */
     if (lambda_ctx->stackmap && lambda_ctx->stackmap->num_entries > 0) {
@@ -5990,6 +6892,12 @@ static void codegen_lambda(codegen_ctx_t *ctx, ast_node_t *node)
 
     uint16_t mh_index = cp_add_method_handle(cp, REF_invokeStatic, method_ref);
 
+    if (!captured_vars && node->data.lambda.non_escaping && !has_defaults(args_node)) {
+        /* Callback consumed by the call it's passed to: create it once */
+        emit_cached_function_object(ctx, mh_index, "<lambda>", args_node);
+        return;
+    }
+
     /* Load the method handle */
     emit_u8(ctx, OP_LDC_W);
     emit_u16(ctx, mh_index);
@@ -5998,7 +6906,8 @@ static void codegen_lambda(codegen_ctx_t *ctx, ast_node_t *node)
         stackmap_push_object(ctx->stackmap, cp, "java/lang/invoke/MethodHandle");
     }
 
-    /* If closure, create array and wrap with $MH.withClosure */
+    /* If closure, create array and wrap with $MH.withClosure, or bind
+     * the values as arguments */
     if (captured_vars) {
         int num_captured = slist_length(captured_vars);
 
@@ -6011,28 +6920,27 @@ static void codegen_lambda(codegen_ctx_t *ctx, ast_node_t *node)
 
             emit_u8(ctx, OP_DUP);
             stack_push(ctx, 1);
+            if (ctx->stackmap) {
+                stackmap_push_object(ctx->stackmap, cp, "[L$O;");
+            }
             emit_iconst(ctx, i);
 
-            int var_slot = codegen_get_local(ctx, var_name);
-            if (var_slot >= 0) {
-                emit_aload(ctx, var_slot);
-            } else {
-                emit_aconst_null(ctx);
-            }
+            emit_captured_value(ctx, var_name);
 
             emit_u8(ctx, OP_AASTORE);
             stack_pop(ctx, 3);
+            if (ctx->stackmap) {
+                stackmap_pop(ctx->stackmap, 3);
+            }
             i++;
         }
 
-        emit_invokestatic(ctx, "$MH", "withClosure",
-                          "(Ljava/lang/invoke/MethodHandle;[L$O;)L$MH;");
+        emit_function_object(ctx, "<lambda>", args_node, capture);
 
         slist_free(captured_vars);
     } else {
         /* No closure - wrap in $MH */
-        emit_invokestatic(ctx, "$MH", "of",
-                          "(Ljava/lang/invoke/MethodHandle;)L$MH;");
+        emit_function_object(ctx, "<lambda>", args_node, CAPTURE_NONE);
     }
 
     /* Lambda leaves $MH on the stack (it's an expression) */
@@ -6069,6 +6977,13 @@ int codegen_module(ast_node_t *ast, analyzer_t *analyzer,
 
     class_writer_set_source_file(cw, basename);
 
+    optimize_code = opts->optimize;
+    report_optimization = opts->verbose && opts->optimize;
+    module_opt_stats.insns_before = module_opt_stats.insns_after = 0;
+    if (report_optimization) {
+        printf("Optimizing %s\n", class_name);
+    }
+
     /* Initialize indy cache */
     indy_cache_t indy_cache;
     indy_cache_init(&indy_cache);
@@ -6095,7 +7010,8 @@ int codegen_module(ast_node_t *ast, analyzer_t *analyzer,
 
     /* Return from main - only if not already terminated by return/throw/etc */
     bool needs_return = true;
-    if (ctx->code->len > 0) {
+    if (ctx->code->len > 0 &&
+        !stackmap_get_frame(ctx->stackmap, (uint16_t)ctx->code->len)) {
         uint8_t last_op = ctx->code->data[ctx->code->len - 1];
         if (last_op == OP_ARETURN || last_op == OP_RETURN || last_op == OP_ATHROW) {
             needs_return = false;
@@ -6109,6 +7025,7 @@ int codegen_module(ast_node_t *ast, analyzer_t *analyzer,
     codegen_resolve_labels(ctx);
     ctx->code_attr->data.code.max_stack = ctx->max_stack > 0 ? ctx->max_stack : 1;
     ctx->code_attr->data.code.max_locals = ctx->max_locals;
+    codegen_optimize_code(ctx);
 
     /* Serialize and attach StackMapTable if there are any frames */
     if (ctx->stackmap && ctx->stackmap->num_entries > 0) {
@@ -6127,6 +7044,11 @@ int codegen_module(ast_node_t *ast, analyzer_t *analyzer,
     const char *output_dir = opts->output_dir ? opts->output_dir : ".";
     bool success = class_writer_write_file(cw, output_dir);
 
+    if (report_optimization) {
+        printf("Optimized %s: %u -> %u instructions\n", class_name,
+               module_opt_stats.insns_before, module_opt_stats.insns_after);
+    }
+
     codegen_ctx_free(ctx);
     class_writer_free(cw);
     free(class_name);
@@ -0,0 +1,1455 @@
+/*
+ * fold.c
+ * Constant folding and branch simplification on the AST
+ * Copyright (C) 2026 Chris Burdess <dog@bluezoo.org>
+ *
+ * This file is part of loretta.
+ *
+ * loretta is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * loretta is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <https://www.gnu.org/licenses/>.
+ */
+
+#include <limits.h>
+#include <math.h>
+#include <stdint.h>
+#include "loretta.h"
+
+/* ========================================================================
+ * Limits
+ *
+ * An expression whose result would exceed these is left for the runtime.
+ * The values are those of CPython's AST optimizer.
+ * ======================================================================== */
+
+#define FOLD_MAX_INT_BITS   128     /* Result of *, ** and << */
+#define FOLD_MAX_STR_SIZE   4096    /* Bytes in a str or bytes result */
+#define FOLD_MAX_TUPLE_SIZE 256     /* Elements in a tuple result */
+
+#define EXACT_DOUBLE_MAX    (1LL << 53)
+
+/* ========================================================================
+ * Arbitrary-precision integers
+ *
+ * Just enough to fold int expressions that leave the long long range and
+ * to convert large literals to decimal. The capacity bounds literals;
+ * folded results are bounded by FOLD_MAX_INT_BITS.
+ * ======================================================================== */
+
+#define BIG_LIMBS 72                /* 2304 bits */
+
+typedef struct bigint
+{
+    bool neg;                       /* Sign (false for zero) */
+    int len;                        /* Limbs in use, no leading zero limbs */
+    uint32_t d[BIG_LIMBS];          /* Magnitude, least significant first */
+} bigint_t;
+
+static void big_trim(bigint_t *a)
+{
+    while (a->len > 0 && a->d[a->len - 1] == 0) {
+        a->len--;
+    }
+    if (a->len == 0) {
+        a->neg = false;
+    }
+}
+
+static void big_from_ll(bigint_t *a, long long v)
+{
+    unsigned long long m = v < 0 ? 0ULL - (unsigned long long)v : (unsigned long long)v;
+    a->neg = v < 0;
+    a->len = 0;
+    while (m) {
+        a->d[a->len++] = (uint32_t)m;
+        m >>= 32;
+    }
+    big_trim(a);
+}
+
+static bool big_to_ll(const bigint_t *a, long long *out)
+{
+    if (a->len > 2) {
+        return false;
+    }
+    unsigned long long m = 0;
+    for (int i = a->len - 1; i >= 0; i--) {
+        m = (m << 32) | a->d[i];
+    }
+    if (a->neg) {
+        if (m > (unsigned long long)LLONG_MAX + 1) {
+            return false;
+        }
+        *out = m == (unsigned long long)LLONG_MAX + 1 ? LLONG_MIN : -(long long)m;
+    } else {
+        if (m > (unsigned long long)LLONG_MAX) {
+            return false;
+        }
+        *out = (long long)m;
+    }
+    return true;
+}
+
+static int big_bits(const bigint_t *a)
+{
+    if (a->len == 0) {
+        return 0;
+    }
+    int bits = (a->len - 1) * 32;
+    for (uint32_t top = a->d[a->len - 1]; top; top >>= 1) {
+        bits++;
+    }
+    return bits;
+}
+
+/**
+ * a = a * mul + add on the magnitude. Returns false on overflow.
+ */
+static bool big_mul_add_small(bigint_t *a, uint32_t mul, uint32_t add)
+{
+    uint64_t carry = add;
+    for (int i = 0; i < a->len; i++) {
+        uint64_t t = (uint64_t)a->d[i] * mul + carry;
+        a->d[i] = (uint32_t)t;
+        carry = t >> 32;
+    }
+    if (carry) {
+        if (a->len == BIG_LIMBS) {
+            return false;
+        }
+        a->d[a->len++] = (uint32_t)carry;
+    }
+    return true;
+}
+
+/**
+ * a = a / div on the magnitude. Returns the remainder.
+ */
+static uint32_t big_div_small(bigint_t *a, uint32_t div)
+{
+    uint64_t rem = 0;
+    for (int i = a->len - 1; i >= 0; i--) {
+        uint64_t cur = (rem << 32) | a->d[i];
+        a->d[i] = (uint32_t)(cur / div);
+        rem = cur % div;
+    }
+    while (a->len > 0 && a->d[a->len - 1] == 0) {
+        a->len--;
+    }
+    return (uint32_t)rem;
+}
+
+static int big_cmp_mag(const bigint_t *a, const bigint_t *b)
+{
+    if (a->len != b->len) {
+        return a->len < b->len ? -1 : 1;
+    }
+    for (int i = a->len - 1; i >= 0; i--) {
+        if (a->d[i] != b->d[i]) {
+            return a->d[i] < b->d[i] ? -1 : 1;
+        }
+    }
+    return 0;
+}
+
+/**
+ * r = a + b, or a - b if subtract. Returns false on overflow.
+ */
+static bool big_add(bigint_t *r, const bigint_t *a, const bigint_t *b, bool subtract)
+{
+    bigint_t t;
+    bool bneg = subtract ? !b->neg : b->neg;
+    if (a->neg == bneg) {
+        int n = a->len > b->len ? a->len : b->len;
+        uint64_t carry = 0;
+        for (int i = 0; i < n; i++) {
+            uint64_t s = carry;
+            s += i < a->len ? a->d[i] : 0;
+            s += i < b->len ? b->d[i] : 0;
+            t.d[i] = (uint32_t)s;
+            carry = s >> 32;
+        }
+        t.len = n;
+        if (carry) {
+            if (n == BIG_LIMBS) {
+                return false;
+            }
+            t.d[t.len++] = (uint32_t)carry;
+        }
+        t.neg = a->neg;
+    } else {
+        const bigint_t *x = a;
+        const bigint_t *y = b;
+        t.neg = a->neg;
+        if (big_cmp_mag(a, b) < 0) {
+            x = b;
+            y = a;
+            t.neg = bneg;
+        }
+        int64_t borrow = 0;
+        for (int i = 0; i < x->len; i++) {
+            int64_t s = (int64_t)x->d[i] - (i < y->len ? y->d[i] : 0) - borrow;
+            borrow = s < 0;
+            t.d[i] = (uint32_t)(s + (borrow ? (int64_t)1 << 32 : 0));
+        }
+        t.len = x->len;
+    }
+    big_trim(&t);
+    *r = t;
+    return true;
+}
+
+static bool big_mul(bigint_t *r, const bigint_t *a, const bigint_t *b)
+{
+    bigint_t t;
+    if (a->len + b->len > BIG_LIMBS) {
+        return false;
+    }
+    t.len = a->len + b->len;
+    for (int i = 0; i < t.len; i++) {
+        t.d[i] = 0;
+    }
+    for (int i = 0; i < a->len; i++) {
+        uint64_t carry = 0;
+        for (int j = 0; j < b->len; j++) {
+            uint64_t s = (uint64_t)a->d[i] * b->d[j] + t.d[i + j] + carry;
+            t.d[i + j] = (uint32_t)s;
+            carry = s >> 32;
+        }
+        t.d[i + b->len] = (uint32_t)carry;
+    }
+    t.neg = a->neg != b->neg;
+    big_trim(&t);
+    *r = t;
+    return true;
+}
+
+static bool big_shl(bigint_t *r, const bigint_t *a, int n)
+{
+    bigint_t t;
+    int limbs = n / 32;
+    int bits = n % 32;
+    if (a->len + limbs + 1 > BIG_LIMBS) {
+        return false;
+    }
+    for (int i = 0; i < limbs; i++) {
+        t.d[i] = 0;
+    }
+    uint32_t carry = 0;
+    for (int i = 0; i < a->len; i++) {
+        t.d[i + limbs] = (a->d[i] << bits) | carry;
+        carry = bits ? a->d[i] >> (32 - bits) : 0;
+    }
+    t.d[a->len + limbs] = carry;
+    t.len = a->len + limbs + 1;
+    t.neg = a->neg;
+    big_trim(&t);
+    *r = t;
+    return true;
+}
+
+/**
+ * Parse an int literal or a folded decimal value: optional '-', optional
+ * 0x/0o/0b prefix, digits with optional underscores.
+ */
+static bool big_parse(bigint_t *a, const char *text)
+{
+    unsigned base = 10;
+    bool neg = false;
+    a->neg = false;
+    a->len = 0;
+    if (*text == '-') {
+        neg = true;
+        text++;
+    }
+    if (text[0] == '0' && text[1] != '\0') {
+        switch (text[1]) {
+            case 'x': case 'X': base = 16; text += 2; break;
+            case 'o': case 'O': base = 8; text += 2; break;
+            case 'b': case 'B': base = 2; text += 2; break;
+            default: break;
+        }
+    }
+    for (; *text; text++) {
+        unsigned digit;
+        char c = *text;
+        if (c == '_') {
+            continue;
+        } else if (c >= '0' && c <= '9') {
+            digit = (unsigned)(c - '0');
+        } else if (c >= 'a' && c <= 'f') {
+            digit = (unsigned)(c - 'a' + 10);
+        } else if (c >= 'A' && c <= 'F') {
+            digit = (unsigned)(c - 'A' + 10);
+        } else {
+            return false;
+        }
+        if (digit >= base || !big_mul_add_small(a, base, digit)) {
+            return false;
+        }
+    }
+    a->neg = neg;
+    big_trim(a);
+    return true;
+}
+
+static char *big_to_decimal(const bigint_t *a)
+{
+    /* 10 digits per 32 bits, plus sign and terminator */
+    char *buf = malloc((size_t)a->len * 10 + 3);
+    if (!buf) {
+        return NULL;
+    }
+    bigint_t t = *a;
+    char *p = buf + (size_t)a->len * 10 + 2;
+    *p = '\0';
+    do {
+        uint32_t chunk = big_div_small(&t, 1000000000u);
+        for (int i = 0; i < 9; i++) {
+            *--p = (char)('0' + chunk % 10);
+            chunk /= 10;
+            if (t.len == 0 && chunk == 0) {
+                break;
+            }
+        }
+    } while (t.len > 0);
+    if (a->neg) {
+        *--p = '-';
+    }
+    memmove(buf, p, strlen(p) + 1);
+    return buf;
+}
+
+/**
+ * Convert an integer literal that does not fit in a long long to
+ * decimal digits for AST_CONSTANT big_val.
+ */
+char *fold_int_literal(const char *text)
+{
+    bigint_t v;
+    if (text[0] != '0') {
+        /* Already decimal, of any length */
+        char *digits = malloc(strlen(text) + 1);
+        char *p = digits;
+        for (; digits && *text; text++) {
+            if (*text != '_') {
+                *p++ = *text;
+            }
+        }
+        if (digits) {
+            *p = '\0';
+        }
+        return digits;
+    }
+    if (!big_parse(&v, text)) {
+        return NULL;
+    }
+    return big_to_decimal(&v);
+}
+
+/* ========================================================================
+ * Constant nodes
+ * ======================================================================== */
+
+static bool is_constant(ast_node_t *node, token_type_t kind)
+{
+    return node && node->type == AST_CONSTANT && node->data.constant.kind == kind;
+}
+
+/* int that fits in a long long (bool is a separate kind here) */
+static bool is_small_int(ast_node_t *node)
+{
+    return is_constant(node, TOK_INTEGER) && !node->data.constant.big_val;
+}
+
+static bool is_text(ast_node_t *node)
+{
+    return (is_constant(node, TOK_STRING) || is_constant(node, TOK_BYTES)) &&
+           node->data.constant.value.str_val;
+}
+
+bool fold_is_constant_tuple(ast_node_t *node)
+{
+    if (!node || node->type != AST_TUPLE || node->data.collection.ctx != CTX_LOAD) {
+        return false;
+    }
+    for (slist_t *e = node->data.collection.elts; e; e = e->next) {
+        ast_node_t *elt = e->data;
+        if (!elt || (elt->type != AST_CONSTANT && !fold_is_constant_tuple(elt))) {
+            return false;
+        }
+    }
+    return true;
+}
+
+static bool to_big(ast_node_t *node, bigint_t *out)
+{
+    if (node->data.constant.big_val) {
+        return big_parse(out, node->data.constant.big_val);
+    }
+    big_from_ll(out, node->data.constant.value.int_val);
+    return true;
+}
+
+/* Numeric value as a double, if converting it is exact or rounds as
+   Python's int-to-float conversion does */
+static bool to_double(ast_node_t *node, double *out)
+{
+    if (is_constant(node, TOK_FLOAT)) {
+        *out = node->data.constant.value.float_val;
+        return true;
+    }
+    if (is_small_int(node)) {
+        *out = (double)node->data.constant.value.int_val;
+        return true;
+    }
+    return false;
+}
+
+static ast_node_t *new_constant(token_type_t kind, ast_node_t *at)
+{
+    ast_node_t *node = ast_new(AST_CONSTANT, at->line, at->column);
+    if (node) {
+        node->data.constant.kind = kind;
+        if (kind == TOK_TRUE) {
+            node->data.constant.value.bool_val = true;
+        }
+    }
+    return node;
+}
+
+static ast_node_t *new_int(long long v, ast_node_t *at)
+{
+    ast_node_t *node = new_constant(TOK_INTEGER, at);
+    if (node) {
+        node->data.constant.value.int_val = v;
+    }
+    return node;
+}
+
+static ast_node_t *new_big_int(const bigint_t *v, ast_node_t *at)
+{
+    long long small;
+    if (big_to_ll(v, &small)) {
+        return new_int(small, at);
+    }
+    ast_node_t *node = new_constant(TOK_INTEGER, at);
+    if (node) {
+        node->data.constant.big_val = big_to_decimal(v);
+    }
+    return node;
+}
+
+static ast_node_t *new_float(double v, ast_node_t *at)
+{
+    ast_node_t *node = new_constant(TOK_FLOAT, at);
+    if (node) {
+        node->data.constant.value.float_val = v;
+    }
+    return node;
+}
+
+static ast_node_t *new_bool(bool v, ast_node_t *at)
+{
+    return new_constant(v ? TOK_TRUE : TOK_FALSE, at);
+}
+
+static ast_node_t *new_text(token_type_t kind, char *owned, ast_node_t *at)
+{
+    ast_node_t *node = new_constant(kind, at);
+    if (node) {
+        node->data.constant.value.str_val = owned;
+    } else {
+        free(owned);
+    }
+    return node;
+}
+
+static ast_node_t *copy_constant(ast_node_t *node)
+{
+    if (node->type == AST_TUPLE) {
+        ast_node_t *copy = ast_new(AST_TUPLE, node->line, node->column);
+        if (!copy) {
+            return NULL;
+        }
+        copy->data.collection.ctx = CTX_LOAD;
+        for (slist_t *e = node->data.collection.elts; e; e = e->next) {
+            copy->data.collection.elts =
+                slist_append(copy->data.collection.elts, copy_constant(e->data));
+        }
+        return copy;
+    }
+    ast_node_t *copy = ast_new(AST_CONSTANT, node->line, node->column);
+    if (!copy) {
+        return NULL;
+    }
+    copy->data.constant = node->data.constant;
+    if (is_text(node)) {
+        copy->data.constant.value.str_val = str_dup(node->data.constant.value.str_val);
+    }
+    if (node->data.constant.big_val) {
+        copy->data.constant.big_val = str_dup(node->data.constant.big_val);
+    }
+    return copy;
+}
+
+/**
+ * Truth value of a constant, or -1 if the node is not constant.
+ */
+static int truth_value(ast_node_t *node)
+{
+    if (fold_is_constant_tuple(node)) {
+        return node->data.collection.elts != NULL;
+    }
+    if (!node || node->type != AST_CONSTANT) {
+        return -1;
+    }
+    switch (node->data.constant.kind) {
+        case TOK_TRUE:
+            return 1;
+        case TOK_FALSE:
+        case TOK_NONE:
+            return 0;
+        case TOK_INTEGER:
+            return node->data.constant.big_val != NULL ||
+                   node->data.constant.value.int_val != 0;
+        case TOK_FLOAT:
+            return node->data.constant.value.float_val != 0.0;
+        case TOK_STRING:
+        case TOK_BYTES:
+            return node->data.constant.value.str_val &&
+                   node->data.constant.value.str_val[0] != '\0';
+        default:
+            return -1;
+    }
+}
+
+/* ========================================================================
+ * Operators
+ *
+ * Each returns a new node, or NULL to leave the expression to the runtime
+ * (unsupported operands, an exception such as ZeroDivisionError, or a
+ * result over the size limits).
+ * ======================================================================== */
+
+static ast_node_t *fold_big_binop(bin_op_t op, ast_node_t *left, ast_node_t *right,
+                                  ast_node_t *at)
+{
+    bigint_t a, b, r;
+    if (!to_big(left, &a) || !to_big(right, &b)) {
+        return NULL;
+    }
+    switch (op) {
+        case BINOP_ADD:
+        case BINOP_SUB:
+            if (!big_add(&r, &a, &b, op == BINOP_SUB)) {
+                return NULL;
+            }
+            break;
+        case BINOP_MULT:
+            if (!big_mul(&r, &a, &b)) {
+                return NULL;
+            }
+            break;
+        case BINOP_POW: {
+            long long e;
+            if (b.neg || !big_to_ll(&b, &e)) {
+                return NULL;
+            }
+            big_from_ll(&r, 1);
+            for (int bit = 62; bit >= 0; bit--) {
+                if (!big_mul(&r, &r, &r)) {
+                    return NULL;
+                }
+                if (((e >> bit) & 1) && !big_mul(&r, &r, &a)) {
+                    return NULL;
+                }
+                if (big_bits(&r) > FOLD_MAX_INT_BITS) {
+                    return NULL;
+                }
+            }
+            break;
+        }
+        case BINOP_LSHIFT: {
+            long long n;
+            if (b.neg || !big_to_ll(&b, &n) || n > FOLD_MAX_INT_BITS ||
+                !big_shl(&r, &a, (int)n)) {
+                return NULL;
+            }
+            break;
+        }
+        default:
+            return NULL;
+    }
+    if (op != BINOP_ADD && op != BINOP_SUB && big_bits(&r) > FOLD_MAX_INT_BITS) {
+        return NULL;
+    }
+    return new_big_int(&r, at);
+}
+
+static ast_node_t *fold_int_binop(bin_op_t op, ast_node_t *left, ast_node_t *right,
+                                  ast_node_t *at)
+{
+    if (!is_small_int(left) || !is_small_int(right)) {
+        return fold_big_binop(op, left, right, at);
+    }
+    long long a = left->data.constant.value.int_val;
+    long long b = right->data.constant.value.int_val;
+
+    switch (op) {
+        case BINOP_ADD:
+            if ((b > 0 && a > LLONG_MAX - b) || (b < 0 && a < LLONG_MIN - b)) {
+                return fold_big_binop(op, left, right, at);
+            }
+            return new_int(a + b, at);
+        case BINOP_SUB:
+            if ((b < 0 && a > LLONG_MAX + b) || (b > 0 && a < LLONG_MIN + b)) {
+                return fold_big_binop(op, left, right, at);
+            }
+            return new_int(a - b, at);
+        case BINOP_MULT:
+        case BINOP_POW:
+        case BINOP_LSHIFT:
+            return fold_big_binop(op, left, right, at);
+        case BINOP_DIV:
+            if (b == 0 || a > EXACT_DOUBLE_MAX || a < -EXACT_DOUBLE_MAX ||
+                b > EXACT_DOUBLE_MAX || b < -EXACT_DOUBLE_MAX) {
+                return NULL;
+            }
+            return new_float((double)a / (double)b, at);
+        case BINOP_FLOORDIV:
+        case BINOP_MOD: {
+            if (b == 0 || (a == LLONG_MIN && b == -1)) {
+                return NULL;
+            }
+            long long q = a / b;
+            long long m = a % b;
+            if (m != 0 && ((m < 0) != (b < 0))) {
+                q--;
+                m += b;
+            }
+            return new_int(op == BINOP_FLOORDIV ? q : m, at);
+        }
+        case BINOP_RSHIFT:
+            if (b < 0) {
+                return NULL;
+            }
+            return new_int(b > 63 ? (a < 0 ? -1 : 0) : a >> b, at);
+        case BINOP_BITAND:
+            return new_int(a & b, at);
+        case BINOP_BITOR:
+            return new_int(a | b, at);
+        case BINOP_BITXOR:
+            return new_int(a ^ b, at);
+        default:
+            return NULL;
+    }
+}
+
+static ast_node_t *fold_float_binop(bin_op_t op, double a, double b, ast_node_t *at)
+{
+    double r;
+    switch (op) {
+        case BINOP_ADD:
+            r = a + b;
+            break;
+        case BINOP_SUB:
+            r = a - b;
+            break;
+        case BINOP_MULT:
+            r = a * b;
+            break;
+        case BINOP_DIV:
+            if (b == 0.0) {
+                return NULL;
+            }
+            r = a / b;
+            break;
+        case BINOP_FLOORDIV:
+        case BINOP_MOD: {
+            /* As CPython's float_divmod */
+            if (b == 0.0) {
+                return NULL;
+            }
+            double mod = fmod(a, b);
+            double div = (a - mod) / b;
+            if (mod != 0.0) {
+                if ((b < 0) != (mod < 0)) {
+                    mod += b;
+                    div -= 1.0;
+                }
+            } else {
+                mod = copysign(0.0, b);
+            }
+            double floordiv;
+            if (div != 0.0) {
+                floordiv = floor(div);
+                if (div - floordiv > 0.5) {
+                    floordiv += 1.0;
+                }
+            } else {
+                floordiv = copysign(0.0, a / b);
+            }
+            r = op == BINOP_FLOORDIV ? floordiv : mod;
+            break;
+        }
+        case BINOP_POW:
+            /* Leave errors and complex results to the runtime */
+            if (!isfinite(a) || !isfinite(b) || (a == 0.0 && b < 0.0) ||
+                (a < 0.0 && b != floor(b))) {
+                return NULL;
+            }
+            r = pow(a, b);
+            if (!isfinite(r)) {
+                return NULL;
+            }
+            break;
+        default:
+            return NULL;
+    }
+    return new_float(r, at);
+}
+
+static ast_node_t *repeat_text(ast_node_t *text, ast_node_t *count, ast_node_t *at)
+{
+    const char *s = text->data.constant.value.str_val;
+    size_t len = strlen(s);
+    long long n = count->data.constant.value.int_val;
+    if (n < 0) {
+        n = 0;
+    }
+    if (len > 0 && (unsigned long long)n > FOLD_MAX_STR_SIZE / len) {
+        return NULL;
+    }
+    char *buf = malloc(len * (size_t)n + 1);
+    if (!buf) {
+        return NULL;
+    }
+    for (long long i = 0; i < n; i++) {
+        memcpy(buf + len * (size_t)i, s, len);
+    }
+    buf[len * (size_t)n] = '\0';
+    return new_text(text->data.constant.kind, buf, at);
+}
+
+static ast_node_t *concat_tuples(ast_node_t *a, ast_node_t *b, long long times, ast_node_t *at)
+{
+    size_t len = slist_length(a->data.collection.elts) +
+                 (b ? slist_length(b->data.collection.elts) : 0);
+    if (times < 0) {
+        times = 0;
+    }
+    if (len > 0 && (unsigned long long)times > FOLD_MAX_TUPLE_SIZE / len) {
+        return NULL;
+    }
+    ast_node_t *tuple = ast_new(AST_TUPLE, at->line, at->column);
+    if (!tuple) {
+        return NULL;
+    }
+    tuple->data.collection.ctx = CTX_LOAD;
+    for (long long i = 0; i < times; i++) {
+        for (slist_t *e = a->data.collection.elts; e; e = e->next) {
+            tuple->data.collection.elts =
+                slist_append(tuple->data.collection.elts, copy_constant(e->data));
+        }
+        for (slist_t *e = b ? b->data.collection.elts : NULL; e; e = e->next) {
+            tuple->data.collection.elts =
+                slist_append(tuple->data.collection.elts, copy_constant(e->data));
+        }
+    }
+    return tuple;
+}
+
+static ast_node_t *fold_bin_op(ast_node_t *node)
+{
+    bin_op_t op = node->data.bin_op.op;
+    ast_node_t *left = node->data.bin_op.left;
+    ast_node_t *right = node->data.bin_op.right;
+    double a, b;
+
+    if (is_constant(left, TOK_INTEGER) && is_constant(right, TOK_INTEGER)) {
+        return fold_int_binop(op, left, right, node);
+    }
+    if ((is_constant(left, TOK_FLOAT) || is_constant(right, TOK_FLOAT)) &&
+        to_double(left, &a) && to_double(right, &b)) {
+        return fold_float_binop(op, a, b, node);
+    }
+    if (is_text(left) && is_text(right) && op == BINOP_ADD &&
+        left->data.constant.kind == right->data.constant.kind) {
+        const char *ls = left->data.constant.value.str_val;
+        const char *rs = right->data.constant.value.str_val;
+        size_t ll = strlen(ls);
+        size_t rl = strlen(rs);
+        if (ll + rl > FOLD_MAX_STR_SIZE) {
+            return NULL;
+        }
+        char *buf = malloc(ll + rl + 1);
+        if (!buf) {
+            return NULL;
+        }
+        memcpy(buf, ls, ll);
+        memcpy(buf + ll, rs, rl + 1);
+        return new_text(left->data.constant.kind, buf, node);
+    }
+    if (op == BINOP_MULT && is_text(left) && is_small_int(right)) {
+        return repeat_text(left, right, node);
+    }
+    if (op == BINOP_MULT && is_small_int(left) && is_text(right)) {
+        return repeat_text(right, left, node);
+    }
+    if (op == BINOP_ADD && fold_is_constant_tuple(left) && fold_is_constant_tuple(right)) {
+        return concat_tuples(left, right, 1, node);
+    }
+    if (op == BINOP_MULT && fold_is_constant_tuple(left) && is_small_int(right)) {
+        return concat_tuples(left, NULL, right->data.constant.value.int_val, node);
+    }
+    if (op == BINOP_MULT && is_small_int(left) && fold_is_constant_tuple(right)) {
+        return concat_tuples(right, NULL, left->data.constant.value.int_val, node);
+    }
+    return NULL;
+}
+
+static ast_node_t *fold_unary_op(ast_node_t *node)
+{
+    ast_node_t *operand = node->data.unary_op.operand;
+
+    if (node->data.unary_op.op == UNARYOP_NOT) {
+        int truth = truth_value(operand);
+        return truth < 0 ? NULL : new_bool(!truth, node);
+    }
+    if (is_constant(operand, TOK_FLOAT)) {
+        double v = operand->data.constant.value.float_val;
+        switch (node->data.unary_op.op) {
+            case UNARYOP_UADD:
+                return new_float(v, node);
+            case UNARYOP_USUB:
+                return new_float(-v, node);
+            default:
+                return NULL;
+        }
+    }
+    if (!is_constant(operand, TOK_INTEGER)) {
+        return NULL;
+    }
+    bigint_t v;
+    if (!to_big(operand, &v)) {
+        return NULL;
+    }
+    switch (node->data.unary_op.op) {
+        case UNARYOP_UADD:
+            break;
+        case UNARYOP_USUB:
+            v.neg = v.len > 0 && !v.neg;
+            break;
+        case UNARYOP_INVERT: {
+            /* ~x == -x - 1 */
+            bigint_t one;
+            big_from_ll(&one, 1);
+            v.neg = v.len > 0 && !v.neg;
+            if (!big_add(&v, &v, &one, true)) {
+                return NULL;
+            }
+            break;
+        }
+        default:
+            return NULL;
+    }
+    return new_big_int(&v, node);
+}
+
+static ast_node_t *fold_subscript(ast_node_t *node)
+{
+    ast_node_t *value = node->data.subscript.value;
+    ast_node_t *index = node->data.subscript.slice;
+
+    if (node->data.subscript.ctx != CTX_LOAD || !is_small_int(index)) {
+        return NULL;
+    }
+    long long i = index->data.constant.value.int_val;
+
+    if (fold_is_constant_tuple(value)) {
+        long long len = (long long)slist_length(value->data.collection.elts);
+        if (i < 0) {
+            i += len;
+        }
+        if (i < 0 || i >= len) {
+            return NULL;
+        }
+        slist_t *e = value->data.collection.elts;
+        while (i-- > 0) {
+            e = e->next;
+        }
+        return copy_constant(e->data);
+    }
+    if (is_constant(value, TOK_STRING) && value->data.constant.value.str_val) {
+        /* Byte offsets are character offsets only for ASCII text */
+        const char *s = value->data.constant.value.str_val;
+        long long len = 0;
+        for (; s[len]; len++) {
+            if ((unsigned char)s[len] >= 0x80) {
+                return NULL;
+            }
+        }
+        if (i < 0) {
+            i += len;
+        }
+        if (i < 0 || i >= len) {
+            return NULL;
+        }
+        return new_text(TOK_STRING, str_ndup(s + i, 1), node);
+    }
+    return NULL;
+}
+
+/**
+ * Result of comparing two constants: 0 or 1, or -1 if not folded.
+ */
+static int compare_constants(cmp_op_t op, ast_node_t *left, ast_node_t *right)
+{
+    int cmp;
+    if (is_small_int(left) && is_small_int(right)) {
+        long long a = left->data.constant.value.int_val;
+        long long b = right->data.constant.value.int_val;
+        cmp = a < b ? -1 : a > b ? 1 : 0;
+    } else if (is_constant(left, TOK_FLOAT) || is_constant(right, TOK_FLOAT)) {
+        double a, b;
+        if (!to_double(left, &a) || !to_double(right, &b)) {
+            return -1;
+        }
+        /* Mixed comparisons are exact in Python */
+        if ((is_small_int(left) && fabs(a) > (double)EXACT_DOUBLE_MAX) ||
+            (is_small_int(right) && fabs(b) > (double)EXACT_DOUBLE_MAX)) {
+            return -1;
+        }
+        if (isnan(a) || isnan(b)) {
+            return op == CMPOP_NOTEQ;
+        }
+        cmp = a < b ? -1 : a > b ? 1 : 0;
+    } else if (is_text(left) && is_text(right) &&
+               left->data.constant.kind == right->data.constant.kind) {
+        /* UTF-8 byte order is code point order */
+        cmp = strcmp(left->data.constant.value.str_val, right->data.constant.value.str_val);
+    } else {
+        return -1;
+    }
+    switch (op) {
+        case CMPOP_EQ:    return cmp == 0;
+        case CMPOP_NOTEQ: return cmp != 0;
+        case CMPOP_LT:    return cmp < 0;
+        case CMPOP_LTE:   return cmp <= 0;
+        case CMPOP_GT:    return cmp > 0;
+        case CMPOP_GTE:   return cmp >= 0;
+        default:          return -1;
+    }
+}
+
+static ast_node_t *fold_compare(ast_node_t *node)
+{
+    ast_node_t *left = node->data.compare.left;
+    slist_t *o = node->data.compare.ops;
+    slist_t *c = node->data.compare.comparators;
+    for (; o && c; o = o->next, c = c->next) {
+        int r = compare_constants(*(cmp_op_t *)o->data, left, c->data);
+        if (r < 0) {
+            return NULL;
+        }
+        if (!r) {
+            return new_bool(false, node);
+        }
+        left = c->data;
+    }
+    return o || c ? NULL : new_bool(true, node);
+}
+
+/* Take a child out of a node about to be freed */
+static ast_node_t *detach(ast_node_t **slot)
+{
+    ast_node_t *child = *slot;
+    *slot = NULL;
+    return child;
+}
+
+static ast_node_t *fold_bool_op(ast_node_t *node)
+{
+    int decides = node->data.bool_op.op == BOOLOP_AND ? 0 : 1;
+    slist_t *s = node->data.bool_op.values;
+
+    /* Leading constants either decide the result or drop out */
+    while (s && s->next) {
+        int truth = truth_value(s->data);
+        if (truth < 0) {
+            break;
+        }
+        if (truth == decides) {
+            return detach((ast_node_t **)&s->data);
+        }
+        s = s->next;
+    }
+    if (s == node->data.bool_op.values) {
+        return NULL;
+    }
+    if (!s->next) {
+        return detach((ast_node_t **)&s->data);
+    }
+    while (node->data.bool_op.values != s) {
+        slist_t *dead = node->data.bool_op.values;
+        node->data.bool_op.values = dead->next;
+        ast_free(dead->data);
+        free(dead);
+    }
+    return NULL;
+}
+
+static ast_node_t *fold_node(ast_node_t *node)
+{
+    switch (node->type) {
+        case AST_BIN_OP:
+            return fold_bin_op(node);
+        case AST_UNARY_OP:
+            return fold_unary_op(node);
+        case AST_SUBSCRIPT:
+            return fold_subscript(node);
+        case AST_COMPARE:
+            return fold_compare(node);
+        case AST_BOOL_OP:
+            return fold_bool_op(node);
+        case AST_IF_EXP: {
+            int truth = truth_value(node->data.if_exp.test);
+            if (truth < 0) {
+                return NULL;
+            }
+            return detach(truth ? &node->data.if_exp.body : &node->data.if_exp.orelse);
+        }
+        case AST_NAME:
+            /* No -O mode: __debug__ is always True and cannot be rebound */
+            if (node->data.name.ctx == CTX_LOAD && strcmp(node->data.name.id, "__debug__") == 0) {
+                return new_bool(true, node);
+            }
+            return NULL;
+        default:
+            return NULL;
+    }
+}
+
+/* ========================================================================
+ * Tree traversal
+ * ======================================================================== */
+
+typedef struct ast_visitor
+{
+    void (*node)(ast_node_t **slot, void *arg);     /* Child node */
+    void (*body)(slist_t **stmts, void *arg);       /* Statement list */
+} ast_visitor_t;
+
+static void visit_list(slist_t *list, const ast_visitor_t *v, void *arg)
+{
+    for (slist_t *s = list; s; s = s->next) {
+        v->node((ast_node_t **)&s->data, arg);
+    }
+}
+
+/**
+ * Call the visitor for each direct child of a node. Match patterns are
+ * not visited.
+ */
+static void visit_children(ast_node_t *node, const ast_visitor_t *v, void *arg)
+{
+    switch (node->type) {
+        case AST_MODULE:
+            v->body(&node->data.module.body, arg);
+            break;
+        case AST_FUNCTION_DEF:
+        case AST_ASYNC_FUNCTION_DEF:
+            visit_list(node->data.func_def.decorator_list, v, arg);
+            v->node(&node->data.func_def.args, arg);
+            v->node(&node->data.func_def.returns, arg);
+            v->body(&node->data.func_def.body, arg);
+            break;
+        case AST_CLASS_DEF:
+            visit_list(node->data.class_def.decorator_list, v, arg);
+            visit_list(node->data.class_def.bases, v, arg);
+            visit_list(node->data.class_def.keywords, v, arg);
+            v->body(&node->data.class_def.body, arg);
+            break;
+        case AST_RETURN:
+            v->node(&node->data.return_stmt.value, arg);
+            break;
+        case AST_DELETE:
+            visit_list(node->data.delete_stmt.targets, v, arg);
+            break;
+        case AST_ASSIGN:
+            visit_list(node->data.assign.targets, v, arg);
+            v->node(&node->data.assign.value, arg);
+            break;
+        case AST_AUG_ASSIGN:
+            v->node(&node->data.aug_assign.target, arg);
+            v->node(&node->data.aug_assign.value, arg);
+            break;
+        case AST_ANN_ASSIGN:
+            v->node(&node->data.ann_assign.target, arg);
+            v->node(&node->data.ann_assign.annotation, arg);
+            v->node(&node->data.ann_assign.value, arg);
+            break;
+        case AST_FOR:
+        case AST_ASYNC_FOR:
+            v->node(&node->data.for_stmt.target, arg);
+            v->node(&node->data.for_stmt.iter, arg);
+            v->body(&node->data.for_stmt.body, arg);
+            v->body(&node->data.for_stmt.orelse, arg);
+            break;
+        case AST_WHILE:
+            v->node(&node->data.while_stmt.test, arg);
+            v->body(&node->data.while_stmt.body, arg);
+            v->body(&node->data.while_stmt.orelse, arg);
+            break;
+        case AST_IF:
+            v->node(&node->data.if_stmt.test, arg);
+            v->body(&node->data.if_stmt.body, arg);
+            v->body(&node->data.if_stmt.orelse, arg);
+            break;
+        case AST_WITH:
+        case AST_ASYNC_WITH:
+            visit_list(node->data.with_stmt.items, v, arg);
+            v->body(&node->data.with_stmt.body, arg);
+            break;
+        case AST_RAISE:
+            v->node(&node->data.raise_stmt.exc, arg);
+            v->node(&node->data.raise_stmt.cause, arg);
+            break;
+        case AST_TRY:
+        case AST_TRY_STAR:
+            v->body(&node->data.try_stmt.body, arg);
+            visit_list(node->data.try_stmt.handlers, v, arg);
+            v->body(&node->data.try_stmt.orelse, arg);
+            v->body(&node->data.try_stmt.finalbody, arg);
+            break;
+        case AST_ASSERT:
+            v->node(&node->data.assert_stmt.test, arg);
+            v->node(&node->data.assert_stmt.msg, arg);
+            break;
+        case AST_EXPR_STMT:
+            v->node(&node->data.expr_stmt.value, arg);
+            break;
+        case AST_BOOL_OP:
+            visit_list(node->data.bool_op.values, v, arg);
+            break;
+        case AST_NAMED_EXPR:
+            v->node(&node->data.named_expr.target, arg);
+            v->node(&node->data.named_expr.value, arg);
+            break;
+        case AST_BIN_OP:
+            v->node(&node->data.bin_op.left, arg);
+            v->node(&node->data.bin_op.right, arg);
+            break;
+        case AST_UNARY_OP:
+            v->node(&node->data.unary_op.operand, arg);
+            break;
+        case AST_LAMBDA:
+            v->node(&node->data.lambda.args, arg);
+            v->node(&node->data.lambda.body, arg);
+            break;
+        case AST_IF_EXP:
+            v->node(&node->data.if_exp.test, arg);
+            v->node(&node->data.if_exp.body, arg);
+            v->node(&node->data.if_exp.orelse, arg);
+            break;
+        case AST_DICT:
+            visit_list(node->data.dict.keys, v, arg);
+            visit_list(node->data.dict.values, v, arg);
+            break;
+        case AST_SET:
+        case AST_LIST:
+        case AST_TUPLE:
+            visit_list(node->data.collection.elts, v, arg);
+            break;
+        case AST_LIST_COMP:
+        case AST_SET_COMP:
+        case AST_GENERATOR_EXP:
+            v->node(&node->data.comprehension_expr.elt, arg);
+            visit_list(node->data.comprehension_expr.generators, v, arg);
+            break;
+        case AST_DICT_COMP:
+            v->node(&node->data.dict_comp.key, arg);
+            v->node(&node->data.dict_comp.value, arg);
+            visit_list(node->data.dict_comp.generators, v, arg);
+            break;
+        case AST_AWAIT:
+        case AST_YIELD:
+        case AST_YIELD_FROM:
+            v->node(&node->data.await_yield.value, arg);
+            break;
+        case AST_COMPARE:
+            v->node(&node->data.compare.left, arg);
+            visit_list(node->data.compare.comparators, v, arg);
+            break;
+        case AST_CALL:
+            v->node(&node->data.call.func, arg);
+            visit_list(node->data.call.args, v, arg);
+            visit_list(node->data.call.keywords, v, arg);
+            break;
+        case AST_ATTRIBUTE:
+            v->node(&node->data.attribute.value, arg);
+            break;
+        case AST_SUBSCRIPT:
+            v->node(&node->data.subscript.value, arg);
+            v->node(&node->data.subscript.slice, arg);
+            break;
+        case AST_STARRED:
+            v->node(&node->data.starred.value, arg);
+            break;
+        case AST_SLICE:
+            v->node(&node->data.slice.lower, arg);
+            v->node(&node->data.slice.upper, arg);
+            v->node(&node->data.slice.step, arg);
+            break;
+        case AST_COMPREHENSION:
+            v->node(&node->data.comprehension.target, arg);
+            v->node(&node->data.comprehension.iter, arg);
+            visit_list(node->data.comprehension.ifs, v, arg);
+            break;
+        case AST_EXCEPT_HANDLER:
+            v->node(&node->data.except_handler.type, arg);
+            v->body(&node->data.except_handler.body, arg);
+            break;
+        case AST_ARGUMENTS:
+            visit_list(node->data.arguments.defaults, v, arg);
+            visit_list(node->data.arguments.kw_defaults, v, arg);
+            break;
+        case AST_KEYWORD:
+            v->node(&node->data.keyword.value, arg);
+            break;
+        case AST_WITH_ITEM:
+            v->node(&node->data.with_item.context_expr, arg);
+            v->node(&node->data.with_item.optional_vars, arg);
+            break;
+        case AST_MATCH:
+            v->node(&node->data.match_stmt.subject, arg);
+            visit_list(node->data.match_stmt.cases, v, arg);
+            break;
+        case AST_MATCH_CASE:
+            v->node(&node->data.match_case.guard, arg);
+            v->body(&node->data.match_case.body, arg);
+            break;
+        default:
+            break;
+    }
+}
+
+/* ========================================================================
+ * Dropping dead branches
+ *
+ * A branch that is never taken can still matter to the compiler: a yield
+ * makes the function a generator, global/nonlocal change scoping, and in
+ * a function any binding makes the name local. Such branches are kept;
+ * codegen folds the constant test and the bytecode optimizer removes the
+ * unreachable code.
+ * ======================================================================== */
+
+typedef struct scope_effects
+{
+    bool in_function;
+    bool found;
+} scope_effects_t;
+
+static void effects_node(ast_node_t **slot, void *arg);
+static void effects_body(slist_t **stmts, void *arg);
+
+static const ast_visitor_t effects_visitor = { effects_node, effects_body };
+
+static void effects_node(ast_node_t **slot, void *arg)
+{
+    scope_effects_t *e = arg;
+    ast_node_t *node = *slot;
+    if (!node || e->found) {
+        return;
+    }
+    switch (node->type) {
+        case AST_YIELD:
+        case AST_YIELD_FROM:
+        case AST_AWAIT:
+        case AST_GLOBAL:
+        case AST_NONLOCAL:
+            e->found = true;
+            return;
+        case AST_FUNCTION_DEF:
+        case AST_ASYNC_FUNCTION_DEF:
+        case AST_CLASS_DEF:
+            /* Their bodies are scopes of their own */
+            e->found = e->in_function;
+            return;
+        case AST_LAMBDA:
+            return;
+        case AST_ASSIGN:
+        case AST_AUG_ASSIGN:
+        case AST_ANN_ASSIGN:
+        case AST_FOR:
+        case AST_ASYNC_FOR:
+        case AST_WITH:
+        case AST_ASYNC_WITH:
+        case AST_DELETE:
+        case AST_IMPORT:
+        case AST_IMPORT_FROM:
+        case AST_NAMED_EXPR:
+        case AST_MATCH:
+            if (e->in_function) {
+                e->found = true;
+                return;
+            }
+            break;
+        case AST_EXCEPT_HANDLER:
+            if (e->in_function && node->data.except_handler.name) {
+                e->found = true;
+                return;
+            }
+            break;
+        default:
+            break;
+    }
+    visit_children(node, &effects_visitor, e);
+}
+
+static void effects_body(slist_t **stmts, void *arg)
+{
+    visit_list(*stmts, &effects_visitor, arg);
+}
+
+static bool has_scope_effects(slist_t *stmts, bool in_function)
+{
+    scope_effects_t e = { in_function, false };
+    effects_body(&stmts, &e);
+    return e.found;
+}
+
+/* ========================================================================
+ * Folding pass
+ * ======================================================================== */
+
+typedef struct fold_state
+{
+    bool in_function;               /* Statements are in a function body */
+} fold_state_t;
+
+static void fold_slot(ast_node_t **slot, void *arg);
+static void fold_body(slist_t **stmts, void *arg);
+
+static const ast_visitor_t fold_visitor = { fold_slot, fold_body };
+
+static void fold_slot(ast_node_t **slot, void *arg)
+{
+    fold_state_t *st = arg;
+    ast_node_t *node = *slot;
+    if (!node) {
+        return;
+    }
+
+    bool in_function = st->in_function;
+    if (node->type == AST_FUNCTION_DEF || node->type == AST_ASYNC_FUNCTION_DEF) {
+        st->in_function = true;
+    } else if (node->type == AST_CLASS_DEF) {
+        st->in_function = false;
+    }
+    visit_children(node, &fold_visitor, st);
+    st->in_function = in_function;
+
+    ast_node_t *folded = fold_node(node);
+    if (folded) {
+        ast_free(node);
+        *slot = folded;
+    }
+}
+
+/**
+ * Decide whether a statement with a constant test reduces to one of its
+ * branches. On success *taken receives the statements to run instead
+ * (possibly none), detached from the statement.
+ */
+static bool fold_branch(ast_node_t *stmt, fold_state_t *st, slist_t **taken)
+{
+    int truth;
+    switch (stmt->type) {
+        case AST_IF:
+            truth = truth_value(stmt->data.if_stmt.test);
+            if (truth < 0 ||
+                has_scope_effects(truth ? stmt->data.if_stmt.orelse : stmt->data.if_stmt.body,
+                                  st->in_function)) {
+                return false;
+            }
+            if (truth) {
+                *taken = stmt->data.if_stmt.body;
+                stmt->data.if_stmt.body = NULL;
+            } else {
+                *taken = stmt->data.if_stmt.orelse;
+                stmt->data.if_stmt.orelse = NULL;
+            }
+            return true;
+        case AST_WHILE:
+            truth = truth_value(stmt->data.while_stmt.test);
+            if (truth != 0 || has_scope_effects(stmt->data.while_stmt.body, st->in_function)) {
+                return false;
+            }
+            *taken = stmt->data.while_stmt.orelse;
+            stmt->data.while_stmt.orelse = NULL;
+            return true;
+        case AST_ASSERT:
+            if (truth_value(stmt->data.assert_stmt.test) != 1) {
+                return false;
+            }
+            *taken = NULL;
+            return true;
+        default:
+            return false;
+    }
+}
+
+static void fold_body(slist_t **stmts, void *arg)
+{
+    fold_state_t *st = arg;
+    ast_node_t *first = *stmts ? (*stmts)->data : NULL;
+    int line = first ? first->line : 0;
+    int column = first ? first->column : 0;
+    slist_t **link = stmts;
+
+    while (*link) {
+        slist_t *cell = *link;
+        slist_t *taken = NULL;
+        fold_slot((ast_node_t **)&cell->data, st);
+        if (!cell->data || !fold_branch(cell->data, st, &taken)) {
+            link = &cell->next;
+            continue;
+        }
+        /* Splice the branch taken (already folded) in place of the statement */
+        slist_t *next = cell->next;
+        ast_free(cell->data);
+        free(cell);
+        if (taken) {
+            slist_t *last = slist_last(taken);
+            last->next = next;
+            *link = taken;
+            link = &last->next;
+        } else {
+            *link = next;
+        }
+    }
+
+    /* Keep a block that lost all its statements syntactically valid */
+    if (first && !*stmts) {
+        *stmts = slist_new(ast_new(AST_PASS, line, column));
+    }
+}
+
+void fold_constants(ast_node_t *module)
+{
+    fold_state_t st = { false };
+    if (module) {
+        fold_slot(&module, &st);
+    }
+}
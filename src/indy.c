@@ -32,7 +32,9 @@ void indy_cache_init(indy_cache_t *cache)
     cache->bsm_setattr = -1;
     cache->bsm_delattr = -1;
     cache->bsm_call = -1;
+    cache->bsm_lookup_method = -1;
     cache->bsm_call_method = -1;
+    cache->bsm_call_kw = -1;
     cache->bsm_getitem = -1;
     cache->bsm_setitem = -1;
     cache->bsm_delitem = -1;
@@ -60,9 +62,15 @@ const char *indy_get_descriptor(py_indy_op_t op, int argc)
 
         /* Call: (PyObject, PyObject[])PyObject */
         case PY_INDY_CALL:
-        case PY_INDY_CALL_METHOD:
+        case PY_INDY_CALL_KW:
             return "(" DESC_OBJECT DESC_OBJECT_ARR ")" DESC_OBJECT;
 
+        /* Method call: the receiver and its looked-up method first */
+        case PY_INDY_LOOKUP_METHOD:
+            return "(" DESC_OBJECT ")" DESC_OBJECT;
+        case PY_INDY_CALL_METHOD:
+            return "(" DESC_OBJECT DESC_OBJECT DESC_OBJECT_ARR ")" DESC_OBJECT;
+
         /* Subscript: same as attribute but with PyObject key */
         case PY_INDY_GETITEM:
             return "(" DESC_OBJECT DESC_OBJECT ")" DESC_OBJECT;
@@ -247,9 +255,19 @@ uint16_t indy_emit_operation(class_writer_t *cw, bytebuf_t *code,
             call_name = "__call__";
             break;
 
+        case PY_INDY_LOOKUP_METHOD:
+            /* The method name is the call site name */
+            bsm_idx = ensure_bootstrap_method(cw, "lookupMethod", &cache->bsm_lookup_method);
+            break;
+
         case PY_INDY_CALL_METHOD:
+            /* The method name is the call site name */
             bsm_idx = ensure_bootstrap_method(cw, "callMethod", &cache->bsm_call_method);
-            call_name = "__call__";
+            break;
+
+        case PY_INDY_CALL_KW:
+            /* The keyword-name descriptor is the call site name */
+            bsm_idx = ensure_bootstrap_method(cw, "callkw", &cache->bsm_call_kw);
             break;
 
         case PY_INDY_GETITEM:
@@ -46,6 +46,9 @@
  *   SETATTR     - obj.attr = value  → PyBootstrap.setattr
  *   DELATTR     - del obj.attr      → PyBootstrap.delattr
  *   CALL        - func(args)        → PyBootstrap.call
+ *   CALL_KW     - func(args, k=v)   → PyBootstrap.callkw
+ *   LOOKUP_METHOD, CALL_METHOD
+ *               - obj.name(args)    → PyBootstrap.lookupMethod, callMethod
  *   GETITEM     - obj[key]          → PyBootstrap.getitem
  *   SETITEM     - obj[key] = value  → PyBootstrap.setitem
  *   DELITEM     - del obj[key]      → PyBootstrap.delitem
@@ -70,7 +73,9 @@ typedef enum py_indy_op
 
     /* Call operations */
     PY_INDY_CALL,                   /* Function call */
+    PY_INDY_LOOKUP_METHOD,          /* Method lookup, before the arguments */
     PY_INDY_CALL_METHOD,            /* Method call (obj.method(args)) */
+    PY_INDY_CALL_KW,                /* Call with keyword arguments */
 
     /* Subscript operations */
     PY_INDY_GETITEM,
@@ -154,7 +159,9 @@ typedef struct indy_cache
     int16_t bsm_setattr;
     int16_t bsm_delattr;
     int16_t bsm_call;
+    int16_t bsm_lookup_method;
     int16_t bsm_call_method;
+    int16_t bsm_call_kw;
     int16_t bsm_getitem;
     int16_t bsm_setitem;
     int16_t bsm_delitem;
@@ -183,7 +190,8 @@ void indy_cache_init(indy_cache_t *cache);
  * @param code      Code buffer to write instruction to
  * @param cache     Bootstrap method cache for this class
  * @param op        Python operation type
- * @param name      Operation-specific name (attr name for GETATTR, etc.)
+ * @param name      Operation-specific name (attr name for GETATTR, etc.;
+ *                  comma-separated keyword names for CALL_KW)
  * @param argc      For CALL operations: number of positional arguments
  *
  * @return CP index of the InvokeDynamic entry, or 0 on error
@@ -192,6 +200,9 @@ void indy_cache_init(indy_cache_t *cache);
  *   GETATTR:     (PyObject)PyObject
  *   SETATTR:     (PyObject, PyObject)V
  *   CALL:        (PyObject, PyObject[])PyObject   [varargs]
+ *   CALL_KW:     (PyObject, PyObject[])PyObject   [keyword values last]
+ *   LOOKUP_METHOD: (PyObject)PyObject              [null for native methods]
+ *   CALL_METHOD: (PyObject, PyObject, PyObject[])PyObject [receiver, method]
  *   BINOP:       (PyObject, PyObject)PyObject
  *   COMPARE:     (PyObject, PyObject)PyObject
  *   etc.
@@ -262,6 +273,7 @@ const char *indy_cmpop_name(py_indy_op_t op);
 /* Iterator types */
 #define LRT_ITERATOR    "$IT"
 #define LRT_GENERATOR   "$GN"
+#define LRT_PAIR_ITER   "$PI"
 
 /* Slice */
 #define LRT_SLICE       "$SL"
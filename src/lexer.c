@@ -470,6 +470,34 @@ finish_number:
     }
 }
 
+static int hex_digit_value(char c)
+{
+    if (c >= '0' && c <= '9') return c - '0';
+    if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+    if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+    return -1;
+}
+
+/*
+ * Store a \x or octal escape. Code points 0x80-0xFF take two bytes of
+ * UTF-8 and NUL is stored in the JVM's two-byte form, so the text stays
+ * a C string and goes straight into the constant pool. Bytes literals
+ * are decoded as Latin-1 at run time, giving back the escaped byte.
+ */
+static size_t lexer_put_escape(lexer_t *lexer, size_t buf_pos, unsigned cp)
+{
+    if (buf_pos + 2 >= sizeof(lexer->text_buf)) {
+        return buf_pos;
+    }
+    if (cp != 0 && cp < 0x80) {
+        lexer->text_buf[buf_pos++] = (char)cp;
+    } else {
+        lexer->text_buf[buf_pos++] = (char)(0xC0 | (cp >> 6));
+        lexer->text_buf[buf_pos++] = (char)(0x80 | (cp & 0x3F));
+    }
+    return buf_pos;
+}
+
 static void lexer_scan_string(lexer_t *lexer, bool is_bytes, bool is_fstring, bool is_raw)
 {
     int start_line = lexer->line;
@@ -533,6 +561,27 @@ static void lexer_scan_string(lexer_t *lexer, bool is_bytes, bool is_fstring, bo
                 }
             } else {
                 char esc;
+                if (c == 'x' && hex_digit_value(lexer_peek_ahead(lexer, 1)) >= 0 &&
+                    hex_digit_value(lexer_peek_ahead(lexer, 2)) >= 0) {
+                    unsigned cp = hex_digit_value(lexer_peek_ahead(lexer, 1)) * 16 +
+                                  hex_digit_value(lexer_peek_ahead(lexer, 2));
+                    lexer_advance_char(lexer);
+                    lexer_advance_char(lexer);
+                    buf_pos = lexer_put_escape(lexer, buf_pos, cp);
+                    lexer_advance_char(lexer);
+                    continue;
+                }
+                if (c >= '0' && c <= '7') {
+                    unsigned cp = c - '0';
+                    for (int k = 0; k < 2 && lexer_peek_ahead(lexer, 1) >= '0' &&
+                                    lexer_peek_ahead(lexer, 1) <= '7'; k++) {
+                        lexer_advance_char(lexer);
+                        cp = cp * 8 + (lexer_peek(lexer) - '0');
+                    }
+                    buf_pos = lexer_put_escape(lexer, buf_pos, cp & 0xFF);
+                    lexer_advance_char(lexer);
+                    continue;
+                }
                 switch (c) {
                     case 'n':  esc = '\n'; break;
                     case 't':  esc = '\t'; break;
@@ -540,7 +589,10 @@ static void lexer_scan_string(lexer_t *lexer, bool is_bytes, bool is_fstring, bo
                     case '\\': esc = '\\'; break;
                     case '\'': esc = '\''; break;
                     case '"':  esc = '"'; break;
-                    case '0':  esc = '\0'; break;
+                    case 'a':  esc = '\a'; break;
+                    case 'b':  esc = '\b'; break;
+                    case 'f':  esc = '\f'; break;
+                    case 'v':  esc = '\v'; break;
                     case '\n':
                         /* Line continuation */
                         lexer_advance_char(lexer);
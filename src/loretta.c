@@ -34,6 +34,7 @@ compiler_options_t *compiler_options_new(void)
         opts->source_files = NULL;
         opts->verbose = false;
         opts->debug_info = true;
+        opts->optimize = true;
     }
     return opts;
 }
@@ -143,6 +144,11 @@ int compile(compiler_options_t *opts)
             ast_print(ast, 0);
         }
 
+        /* Fold constant expressions and branches */
+        if (opts->optimize) {
+            fold_constants(ast);
+        }
+
         /* Analyze */
         analyzer_t *analyzer = analyzer_new();
         if (!analyzer || !analyzer_analyze(analyzer, ast, source)) {
@@ -191,6 +197,7 @@ void print_usage(const char *program_name)
     printf("  -d <dir>       Output directory for class files\n");
     printf("  -v, --verbose  Verbose output\n");
     printf("  -g             Generate debug information (default)\n");
+    printf("  -O0            Disable constant folding and the bytecode optimizer\n");
     printf("  -version       Print version and exit\n");
     printf("  -help          Print this help and exit\n");
     printf("\n");
@@ -247,6 +254,16 @@ int main(int argc, char **argv)
             continue;
         }
 
+        if (strcmp(arg, "-O0") == 0) {
+            opts->optimize = false;
+            continue;
+        }
+
+        if (strcmp(arg, "-O") == 0) {
+            opts->optimize = true;
+            continue;
+        }
+
         if (strcmp(arg, "-g") == 0) {
             opts->debug_info = true;
             continue;
@@ -36,6 +36,7 @@ typedef struct compiler_options
     slist_t *source_files;          /* List of source files to compile */
     bool verbose;                   /* Verbose output */
     bool debug_info;                /* Generate debug information */
+    bool optimize;                  /* Run the bytecode optimizer */
 } compiler_options_t;
 
 compiler_options_t *compiler_options_new(void);
@@ -465,6 +466,8 @@ struct ast_node
             slist_t *body;
             slist_t *decorator_list;
             ast_node_t *returns;    /* Return type annotation */
+            bool closure_by_value;  /* Captures never rebound (semantic.c) */
+            bool non_escaping;      /* Only called or passed to sorted() etc. */
         } func_def;
 
         /* AST_CLASS_DEF */
@@ -606,6 +609,8 @@ struct ast_node
         struct {
             ast_node_t *args;       /* AST_ARGUMENTS */
             ast_node_t *body;
+            bool closure_by_value;  /* Captures never rebound (semantic.c) */
+            bool non_escaping;      /* Passed straight to sorted() etc. */
         } lambda;
 
         /* AST_IF_EXP */
@@ -668,6 +673,8 @@ struct ast_node
                 char *str_val;
                 bool bool_val;
             } value;
+            char *big_val;          /* Decimal digits of an int outside
+                                       the long long range, else NULL */
         } constant;
 
         /* AST_ATTRIBUTE */
@@ -805,6 +812,19 @@ parser_t *parser_new(lexer_t *lexer, source_file_t *source);
 void parser_free(parser_t *parser);
 ast_node_t *parser_parse(parser_t *parser);
 
+/* ========================================================================
+ * Constant folding
+ *
+ * Runs between the parser and code generation. Constant int, float, str,
+ * bytes and tuple expressions are evaluated with Python semantics and
+ * replaced by a single AST_CONSTANT or constant AST_TUPLE, and if/while
+ * statements with a constant test are reduced to the branch taken.
+ * ======================================================================== */
+
+void fold_constants(ast_node_t *module);
+char *fold_int_literal(const char *text);   /* Literal -> decimal digits */
+bool fold_is_constant_tuple(ast_node_t *node);
+
 /* ========================================================================
  * Scope and Symbol Table
  * ======================================================================== */
@@ -19,6 +19,7 @@
  * along with this program; if not, see <https://www.gnu.org/licenses/>.
  */
 
+#include <limits.h>
 #include "loretta.h"
 
 /* ========================================================================
@@ -74,6 +75,7 @@ void ast_free(ast_node_t *node)
                 node->data.constant.kind == TOK_BYTES) {
                 free(node->data.constant.value.str_val);
             }
+            free(node->data.constant.big_val);
             break;
 
         case AST_ATTRIBUTE:
@@ -496,7 +498,9 @@ void ast_print(ast_node_t *node, int indent)
             for (int i = 0; i < indent + 1; i++) {
                 printf("  ");
             }
-            if (node->data.constant.kind == TOK_INTEGER) {
+            if (node->data.constant.kind == TOK_INTEGER && node->data.constant.big_val) {
+                printf("value: %s\n", node->data.constant.big_val);
+            } else if (node->data.constant.kind == TOK_INTEGER) {
                 printf("value: %lld\n", node->data.constant.value.int_val);
             } else if (node->data.constant.kind == TOK_STRING) {
                 printf("value: \"%s\"\n", node->data.constant.value.str_val);
@@ -1392,6 +1396,15 @@ static ast_node_t *parse_atom(parser_t *parser)
             ast_node_t *node = ast_new(AST_CONSTANT, line, column);
             node->data.constant.kind = TOK_INTEGER;
             node->data.constant.value.int_val = lexer_int_value(parser->lexer);
+            if (node->data.constant.value.int_val == LLONG_MAX) {
+                /* strtoll saturates: keep the exact value of a larger literal */
+                char *digits = fold_int_literal(lexer_text(parser->lexer));
+                if (digits && strcmp(digits, "9223372036854775807") != 0) {
+                    node->data.constant.big_val = digits;
+                } else {
+                    free(digits);
+                }
+            }
             lexer_advance(parser->lexer);
             return node;
         }
@@ -1679,6 +1692,16 @@ static ast_node_t *parse_primary(parser_t *parser)
                         slist_append(call_node->data.call.args, arg);
                 }
 
+                /* Bare generator expression as sole argument: f(x for x in y) */
+                if (parser_check(parser, TOK_FOR) && call_node->data.call.args &&
+                        !call_node->data.call.args->next && !call_node->data.call.keywords) {
+                    ast_node_t *genexp = ast_new(AST_GENERATOR_EXP, arg_line, arg_column);
+                    genexp->data.comprehension_expr.elt = call_node->data.call.args->data;
+                    genexp->data.comprehension_expr.generators = parse_comprehension_clauses(parser);
+                    call_node->data.call.args->data = genexp;
+                    break;
+                }
+
                 if (!parser_match(parser, TOK_COMMA)) {
                     break;
                 }
@@ -1752,6 +1775,17 @@ static ast_node_t *parse_primary(parser_t *parser)
                     }
 
                     sub_node->data.subscript.slice = slice;
+                } else if (parser_check(parser, TOK_COMMA)) {
+                    /* a[i, j] indexes with the tuple (i, j) */
+                    ast_node_t *tuple = ast_new(AST_TUPLE, slice_line, slice_column);
+                    tuple->data.collection.elts = slist_new(first);
+                    tuple->data.collection.ctx = CTX_LOAD;
+                    while (parser_match(parser, TOK_COMMA) &&
+                           !parser_check(parser, TOK_RBRACKET)) {
+                        tuple->data.collection.elts =
+                            slist_append(tuple->data.collection.elts, parse_expression(parser));
+                    }
+                    sub_node->data.subscript.slice = tuple;
                 } else {
                     /* Simple index */
                     sub_node->data.subscript.slice = first;
@@ -1775,6 +1809,34 @@ static ast_node_t *parse_expression(parser_t *parser)
     return parse_expr_bp(parser, 0);
 }
 
+/*
+ * Parse an expression list such as the value in "return a, b" or
+ * "x, y = y, x". More than one expression (or a trailing comma) builds
+ * a tuple.
+ */
+static ast_node_t *parse_expression_list(parser_t *parser)
+{
+    int line = lexer_line(parser->lexer);
+    int column = lexer_column(parser->lexer);
+    ast_node_t *expr = parse_expression(parser);
+    if (!expr || !parser_check(parser, TOK_COMMA)) {
+        return expr;
+    }
+
+    ast_node_t *tuple = ast_new(AST_TUPLE, line, column);
+    tuple->data.collection.elts = slist_new(expr);
+    tuple->data.collection.ctx = CTX_LOAD;
+    while (parser_match(parser, TOK_COMMA)) {
+        if (parser_check(parser, TOK_NEWLINE) || parser_check(parser, TOK_SEMICOLON) ||
+            parser_check(parser, TOK_ASSIGN) || parser_check(parser, TOK_EOF)) {
+            break;
+        }
+        tuple->data.collection.elts = slist_append(tuple->data.collection.elts,
+                                                   parse_expression(parser));
+    }
+    return tuple;
+}
+
 /* ========================================================================
  * Statement parsing
  * ======================================================================== */
@@ -1799,7 +1861,7 @@ static ast_node_t *parse_simple_stmt(parser_t *parser)
     if (parser_match(parser, TOK_RETURN)) {
         ast_node_t *node = ast_new(AST_RETURN, line, column);
         if (!parser_check(parser, TOK_NEWLINE) && !parser_check(parser, TOK_SEMICOLON)) {
-            node->data.return_stmt.value = parse_expression(parser);
+            node->data.return_stmt.value = parse_expression_list(parser);
         } else {
             node->data.return_stmt.value = NULL;
         }
@@ -2071,7 +2133,7 @@ static ast_node_t *parse_simple_stmt(parser_t *parser)
         if (parser_match(parser, TOK_ASSIGN)) {
             ast_node_t *node = ast_new(AST_ASSIGN, line, column);
             node->data.assign.targets = slist_new(tuple);
-            node->data.assign.value = parse_expression(parser);
+            node->data.assign.value = parse_expression_list(parser);
             return node;
         }
 
@@ -2121,10 +2183,10 @@ static ast_node_t *parse_simple_stmt(parser_t *parser)
         node->data.assign.targets = slist_new(expr);
 
         /* Handle chained assignment: a = b = c */
-        ast_node_t *value = parse_expression(parser);
+        ast_node_t *value = parse_expression_list(parser);
         while (parser_match(parser, TOK_ASSIGN)) {
             node->data.assign.targets = slist_append(node->data.assign.targets, value);
-            value = parse_expression(parser);
+            value = parse_expression_list(parser);
         }
         node->data.assign.value = value;
         return node;
@@ -2482,6 +2544,30 @@ static ast_node_t *parse_pattern(parser_t *parser)
     return pattern;
 }
 
+/*
+ * Parse the rest of a for statement after 'for' (or 'async for'):
+ *   target in iter: body [else: orelse]
+ */
+static ast_node_t *parse_for_rest(parser_t *parser, ast_node_type_t type, int line, int column)
+{
+    ast_node_t *node = ast_new(type, line, column);
+    /* Parse target - use parse_comp_target which stops before 'in' */
+    node->data.for_stmt.target = parse_comp_target(parser);
+    if (node->data.for_stmt.target && node->data.for_stmt.target->type == AST_NAME) {
+        node->data.for_stmt.target->data.name.ctx = CTX_STORE;
+    }
+    parser_expect(parser, TOK_IN);
+    node->data.for_stmt.iter = parse_expression(parser);
+    node->data.for_stmt.body = parse_block(parser);
+    node->data.for_stmt.orelse = NULL;
+
+    if (parser_match(parser, TOK_ELSE)) {
+        node->data.for_stmt.orelse = parse_block(parser);
+    }
+
+    return node;
+}
+
 static ast_node_t *parse_compound_stmt(parser_t *parser)
 {
     int line = lexer_line(parser->lexer);
@@ -2559,18 +2645,20 @@ static ast_node_t *parse_compound_stmt(parser_t *parser)
         node->data.if_stmt.body = parse_block(parser);
         node->data.if_stmt.orelse = NULL;
 
+        /* Each elif nests in the orelse of the previous test */
+        ast_node_t *tail = node;
         while (parser_match(parser, TOK_ELIF)) {
             ast_node_t *elif_node = ast_new(AST_IF, lexer_line(parser->lexer),
                                             lexer_column(parser->lexer));
             elif_node->data.if_stmt.test = parse_expression(parser);
             elif_node->data.if_stmt.body = parse_block(parser);
             elif_node->data.if_stmt.orelse = NULL;
-            node->data.if_stmt.orelse = slist_new(elif_node);
-            node = elif_node;
+            tail->data.if_stmt.orelse = slist_new(elif_node);
+            tail = elif_node;
         }
 
         if (parser_match(parser, TOK_ELSE)) {
-            node->data.if_stmt.orelse = parse_block(parser);
+            tail->data.if_stmt.orelse = parse_block(parser);
         }
 
         return node;
@@ -2590,22 +2678,7 @@ static ast_node_t *parse_compound_stmt(parser_t *parser)
     }
 
     if (parser_match(parser, TOK_FOR)) {
-        ast_node_t *node = ast_new(AST_FOR, line, column);
-        /* Parse target - use parse_comp_target which stops before 'in' */
-        node->data.for_stmt.target = parse_comp_target(parser);
-        if (node->data.for_stmt.target && node->data.for_stmt.target->type == AST_NAME) {
-            node->data.for_stmt.target->data.name.ctx = CTX_STORE;
-        }
-        parser_expect(parser, TOK_IN);
-        node->data.for_stmt.iter = parse_expression(parser);
-        node->data.for_stmt.body = parse_block(parser);
-        node->data.for_stmt.orelse = NULL;
-
-        if (parser_match(parser, TOK_ELSE)) {
-            node->data.for_stmt.orelse = parse_block(parser);
-        }
-
-        return node;
+        return parse_for_rest(parser, AST_FOR, line, column);
     }
 
     if (parser_match(parser, TOK_TRY)) {
@@ -2762,6 +2835,10 @@ static ast_node_t *parse_compound_stmt(parser_t *parser)
             return node;
         }
 
+        if (parser_match(parser, TOK_FOR)) {
+            return parse_for_rest(parser, AST_ASYNC_FOR, line, column);
+        }
+
         parser_error(parser, "Expected 'def', 'for', or 'with' after 'async'");
         return NULL;
     }
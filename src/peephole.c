@@ -0,0 +1,1048 @@
+/*
+ * peephole.c
+ * Bytecode peephole and dead-code optimizer for Code attributes
+ * Copyright (C) 2026 Chris Burdess <dog@bluezoo.org>
+ *
+ * This file is part of loretta.
+ *
+ * loretta is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * loretta is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <https://www.gnu.org/licenses/>.
+ */
+
+#include "peephole.h"
+#include "codegen.h"
+#include <stdlib.h>
+#include <string.h>
+
+/* Upper bound on rewrite rounds; each round only ever shrinks the code */
+#define MAX_ROUNDS 16
+
+/* Longest instruction we decode: wide iinc */
+#define MAX_INSN_LEN 6
+
+/* ========================================================================
+ * Instruction list
+ *
+ * The code is decoded into one entry per instruction. Rewrites mark
+ * entries removed (deleted by a peephole rule, any frame moves to the next
+ * live instruction) or dead (unreachable, frames are dropped) and change
+ * opcodes in place; nothing is re-encoded until the end, so original
+ * offsets stay valid for remapping frames, handlers and line numbers.
+ * ======================================================================== */
+
+typedef struct insn
+{
+    uint32_t pc;                    /* Original offset */
+    uint32_t new_pc;                /* Offset after compaction */
+    uint8_t bytes[MAX_INSN_LEN];    /* Opcode and operands */
+    uint8_t len;
+    int target;                     /* Branch target index, or -1 */
+    bool leader;                    /* Frame, branch target or handler boundary */
+    bool removed;                   /* Deleted by a peephole rule */
+    bool dead;                      /* Unreachable */
+} insn_t;
+
+typedef struct code_opt
+{
+    const_pool_t *cp;
+    insn_t *insns;
+    int count;
+    int *index;                     /* Original pc -> instruction index, or -1 */
+    uint32_t code_len;
+    int num_handlers;
+    int *handlers;                  /* start, end, handler index triples */
+    int num_slots;
+    int *reads;                     /* Live reads per local slot */
+    bool *dropped;                  /* Slots whose stores were eliminated */
+} code_opt_t;
+
+/* ========================================================================
+ * Opcode classification
+ * ======================================================================== */
+
+static int insn_length(const uint8_t *code, uint32_t pc, uint32_t len)
+{
+    uint8_t op = code[pc];
+    int n;
+
+    if (op <= OP_DCONST_1) {
+        n = 1;
+    } else if (op == OP_BIPUSH || op == OP_LDC || op == OP_NEWARRAY ||
+               (op >= OP_ILOAD && op <= OP_ALOAD) ||
+               (op >= OP_ISTORE && op <= OP_ASTORE)) {
+        n = 2;
+    } else if (op == OP_SIPUSH || op == OP_LDC_W || op == OP_LDC2_W ||
+               op == OP_IINC || (op >= OP_IFEQ && op <= OP_GOTO) ||
+               (op >= OP_GETSTATIC && op <= OP_INVOKESTATIC) ||
+               op == OP_NEW || op == OP_ANEWARRAY || op == OP_CHECKCAST ||
+               op == OP_INSTANCEOF || op == OP_IFNULL || op == OP_IFNONNULL) {
+        n = 3;
+    } else if ((op >= OP_ILOAD_0 && op <= OP_SALOAD) ||
+               (op >= OP_ISTORE_0 && op <= OP_LXOR) ||
+               (op >= OP_I2L && op <= OP_DCMPG) ||
+               (op >= OP_IRETURN && op <= OP_RETURN) ||
+               op == OP_ARRAYLENGTH || op == OP_ATHROW ||
+               op == OP_MONITORENTER || op == OP_MONITOREXIT) {
+        n = 1;
+    } else if (op == OP_MULTIANEWARRAY) {
+        n = 4;
+    } else if (op == OP_INVOKEINTERFACE || op == OP_INVOKEDYNAMIC) {
+        n = 5;
+    } else if (op == OP_WIDE && pc + 1 < len) {
+        n = code[pc + 1] == OP_IINC ? 6 : 4;
+    } else {
+        return 0;   /* jsr, ret, switches, goto_w, jsr_w: not handled */
+    }
+    return pc + n <= len ? n : 0;
+}
+
+static bool is_branch(uint8_t op)
+{
+    return (op >= OP_IFEQ && op <= OP_GOTO) ||
+           op == OP_IFNULL || op == OP_IFNONNULL;
+}
+
+/* No fall-through to the next instruction */
+static bool ends_flow(uint8_t op)
+{
+    return op == OP_GOTO || op == OP_ATHROW ||
+           (op >= OP_IRETURN && op <= OP_RETURN);
+}
+
+static uint8_t invert_branch(uint8_t op)
+{
+    if (op == OP_IFNULL || op == OP_IFNONNULL) {
+        return op ^ 1;
+    }
+    return (uint8_t)(((op - OP_IFEQ) ^ 1) + OP_IFEQ);
+}
+
+static uint16_t insn_u16(const insn_t *in, int at)
+{
+    return (uint16_t)((in->bytes[at] << 8) | in->bytes[at + 1]);
+}
+
+/* Slot read by a load or iinc, or -1. width receives 1 or 2. */
+static int insn_read_slot(const insn_t *in, int *width)
+{
+    uint8_t op = in->bytes[0];
+    int slot;
+
+    *width = 1;
+    if (op == OP_WIDE) {
+        op = in->bytes[1];
+        slot = insn_u16(in, 2);
+    } else if (op >= OP_ILOAD_0 && op <= OP_ALOAD_3) {
+        int kind = (op - OP_ILOAD_0) / 4;
+        *width = (kind == 1 || kind == 3) ? 2 : 1;
+        return (op - OP_ILOAD_0) % 4;
+    } else {
+        slot = in->bytes[1];
+    }
+    if (op == OP_IINC) {
+        return slot;
+    }
+    if (op >= OP_ILOAD && op <= OP_ALOAD) {
+        *width = (op == OP_LLOAD || op == OP_DLOAD) ? 2 : 1;
+        return slot;
+    }
+    return -1;
+}
+
+static int aload_slot(const insn_t *in)
+{
+    uint8_t op = in->bytes[0];
+    if (op == OP_ALOAD) {
+        return in->bytes[1];
+    }
+    if (op >= OP_ALOAD_0 && op <= OP_ALOAD_3) {
+        return op - OP_ALOAD_0;
+    }
+    if (op == OP_WIDE && in->bytes[1] == OP_ALOAD) {
+        return insn_u16(in, 2);
+    }
+    return -1;
+}
+
+static int astore_slot(const insn_t *in)
+{
+    uint8_t op = in->bytes[0];
+    if (op == OP_ASTORE) {
+        return in->bytes[1];
+    }
+    if (op >= OP_ASTORE_0 && op <= OP_ASTORE_3) {
+        return op - OP_ASTORE_0;
+    }
+    if (op == OP_WIDE && in->bytes[1] == OP_ASTORE) {
+        return insn_u16(in, 2);
+    }
+    return -1;
+}
+
+/* ========================================================================
+ * Constant pool lookups
+ * ======================================================================== */
+
+static const_entry_t *cp_entry(const_pool_t *cp, uint16_t idx)
+{
+    return (idx > 0 && idx < cp->count) ? &cp->entries[idx] : NULL;
+}
+
+static const char *cp_utf8(const_pool_t *cp, uint16_t idx)
+{
+    const_entry_t *e = cp_entry(cp, idx);
+    return (e && e->tag == CONST_UTF8) ? e->data.utf8 : NULL;
+}
+
+static const char *cp_class_name(const_pool_t *cp, uint16_t idx)
+{
+    const_entry_t *e = cp_entry(cp, idx);
+    return (e && e->tag == CONST_CLASS) ? cp_utf8(cp, e->data.class_index) : NULL;
+}
+
+/* Descriptor of a field, method or invokedynamic reference */
+static const char *cp_member_descriptor(const_pool_t *cp, uint16_t idx)
+{
+    const_entry_t *e = cp_entry(cp, idx);
+    uint16_t nt;
+
+    if (!e) {
+        return NULL;
+    }
+    switch (e->tag) {
+        case CONST_FIELDREF:
+        case CONST_METHODREF:
+        case CONST_INTERFACE_METHODREF:
+            nt = e->data.ref.name_type_index;
+            break;
+        case CONST_INVOKE_DYNAMIC:
+            nt = e->data.dynamic.name_and_type_index;
+            break;
+        default:
+            return NULL;
+    }
+    e = cp_entry(cp, nt);
+    return (e && e->tag == CONST_NAME_AND_TYPE) ?
+        cp_utf8(cp, e->data.name_type.descriptor_index) : NULL;
+}
+
+/* Tag of the constant loaded by ldc/ldc_w */
+static int ldc_tag(code_opt_t *o, const insn_t *in)
+{
+    uint16_t idx;
+    if (in->bytes[0] == OP_LDC) {
+        idx = in->bytes[1];
+    } else if (in->bytes[0] == OP_LDC_W) {
+        idx = insn_u16(in, 1);
+    } else {
+        return -1;
+    }
+    const_entry_t *e = cp_entry(o->cp, idx);
+    return e ? (int)e->tag : -1;
+}
+
+/* ========================================================================
+ * Instruction predicates
+ * ======================================================================== */
+
+/* Pushes one category-1 value, pops nothing, cannot throw */
+static bool is_pure_push(code_opt_t *o, const insn_t *in)
+{
+    uint8_t op = in->bytes[0];
+    int width;
+
+    if (op == OP_ACONST_NULL || (op >= OP_ICONST_M1 && op <= OP_ICONST_5) ||
+        (op >= OP_FCONST_0 && op <= OP_FCONST_2) ||
+        op == OP_BIPUSH || op == OP_SIPUSH) {
+        return true;
+    }
+    if (op == OP_LDC || op == OP_LDC_W) {
+        int tag = ldc_tag(o, in);
+        return tag == CONST_STRING || tag == CONST_INTEGER || tag == CONST_FLOAT;
+    }
+    if (op == OP_IINC || (op == OP_WIDE && in->bytes[1] == OP_IINC)) {
+        return false;
+    }
+    return insn_read_slot(in, &width) >= 0 && width == 1;
+}
+
+/* Pushes one category-1 value and pops nothing */
+static bool is_simple_push(code_opt_t *o, const insn_t *in)
+{
+    if (in->bytes[0] == OP_GETSTATIC) {
+        const char *desc = cp_member_descriptor(o->cp, insn_u16(in, 1));
+        return desc && desc[0] != 'J' && desc[0] != 'D';
+    }
+    return is_pure_push(o, in);
+}
+
+/* Integer pushed by iconst/bipush/sipush */
+static bool int_constant(const insn_t *in, int32_t *value)
+{
+    uint8_t op = in->bytes[0];
+    if (op >= OP_ICONST_M1 && op <= OP_ICONST_5) {
+        *value = op - OP_ICONST_0;
+    } else if (op == OP_BIPUSH) {
+        *value = (int8_t)in->bytes[1];
+    } else if (op == OP_SIPUSH) {
+        *value = (int16_t)insn_u16(in, 1);
+    } else {
+        return false;
+    }
+    return true;
+}
+
+/* Whether checkcast at cast is implied by the instruction before it */
+static bool cast_is_redundant(code_opt_t *o, const insn_t *prev, const insn_t *cast)
+{
+    const char *name = cp_class_name(o->cp, insn_u16(cast, 1));
+    const char *type = NULL;
+    uint8_t op = prev->bytes[0];
+
+    if (!name) {
+        return false;
+    }
+    if (strcmp(name, "java/lang/Object") == 0) {
+        return true;
+    }
+    if (op == OP_CHECKCAST) {
+        const char *prev_name = cp_class_name(o->cp, insn_u16(prev, 1));
+        return prev_name && strcmp(prev_name, name) == 0;
+    }
+    if ((op >= OP_GETSTATIC && op <= OP_INVOKEDYNAMIC) &&
+        op != OP_PUTSTATIC && op != OP_PUTFIELD) {
+        type = cp_member_descriptor(o->cp, insn_u16(prev, 1));
+        if (type && type[0] == '(') {
+            type = strchr(type, ')');
+            type = type ? type + 1 : NULL;
+        }
+    }
+    if (!type) {
+        return false;
+    }
+    if (name[0] == '[') {
+        return strcmp(type, name) == 0;
+    }
+    size_t n = strlen(name);
+    return type[0] == 'L' && strncmp(type + 1, name, n) == 0 &&
+           type[n + 1] == ';' && type[n + 2] == '\0';
+}
+
+/* ========================================================================
+ * Navigation
+ * ======================================================================== */
+
+static bool is_live(code_opt_t *o, int i)
+{
+    return i < o->count && !o->insns[i].removed && !o->insns[i].dead;
+}
+
+/* First live instruction at or after i (count if none) */
+static int first_live(code_opt_t *o, int i)
+{
+    while (i < o->count && !is_live(o, i)) {
+        i++;
+    }
+    return i;
+}
+
+static int next_live(code_opt_t *o, int i)
+{
+    return first_live(o, i + 1);
+}
+
+static int prev_live(code_opt_t *o, int i)
+{
+    for (i = i - 1; i >= 0; i--) {
+        if (is_live(o, i)) {
+            return i;
+        }
+    }
+    return -1;
+}
+
+static void remove_insn(code_opt_t *o, int i)
+{
+    o->insns[i].removed = true;
+}
+
+static void set_opcode(insn_t *in, uint8_t op)
+{
+    in->bytes[0] = op;
+    if (!is_branch(op)) {
+        in->len = 1;
+        in->target = -1;
+    }
+}
+
+/* ========================================================================
+ * Decoding
+ * ======================================================================== */
+
+static bool decode(code_opt_t *o, const uint8_t *code)
+{
+    int capacity = 64;
+
+    o->insns = malloc(capacity * sizeof(insn_t));
+    o->index = malloc((o->code_len + 1) * sizeof(int));
+    if (!o->insns || !o->index) {
+        return false;
+    }
+    for (uint32_t pc = 0; pc <= o->code_len; pc++) {
+        o->index[pc] = -1;
+    }
+
+    uint32_t pc = 0;
+    while (pc < o->code_len) {
+        int len = insn_length(code, pc, o->code_len);
+        if (len == 0) {
+            return false;
+        }
+        if (o->count == capacity) {
+            capacity *= 2;
+            insn_t *grown = realloc(o->insns, capacity * sizeof(insn_t));
+            if (!grown) {
+                return false;
+            }
+            o->insns = grown;
+        }
+        insn_t *in = &o->insns[o->count];
+        memset(in, 0, sizeof(insn_t));
+        in->pc = pc;
+        in->len = (uint8_t)len;
+        in->target = -1;
+        memcpy(in->bytes, code + pc, len);
+        o->index[pc] = o->count++;
+        pc += len;
+    }
+    o->index[o->code_len] = o->count;
+
+    /* Resolve branch targets to instruction indices */
+    for (int i = 0; i < o->count; i++) {
+        insn_t *in = &o->insns[i];
+        if (is_branch(in->bytes[0])) {
+            int32_t dest = (int32_t)in->pc + (int16_t)insn_u16(in, 1);
+            if (dest < 0 || (uint32_t)dest >= o->code_len || o->index[dest] < 0) {
+                return false;
+            }
+            in->target = o->index[dest];
+            o->insns[in->target].leader = true;
+        }
+    }
+    return true;
+}
+
+/* Mark an original offset as a leader; fails if it is mid-instruction */
+static bool mark_leader(code_opt_t *o, uint32_t pc)
+{
+    if (pc > o->code_len || o->index[pc] < 0) {
+        return false;
+    }
+    if (o->index[pc] < o->count) {
+        o->insns[o->index[pc]].leader = true;
+    }
+    return true;
+}
+
+static slist_t *line_number_entries(attribute_t *code_attr)
+{
+    for (slist_t *s = code_attr->data.code.attributes; s; s = s->next) {
+        attribute_t *a = s->data;
+        if (a->type == ATTR_LINE_NUMBER_TABLE) {
+            return a->data.line_numbers.entries;
+        }
+    }
+    return NULL;
+}
+
+static bool collect_leaders(code_opt_t *o, attribute_t *code_attr,
+                            stack_map_table_t *smt)
+{
+    if (smt) {
+        for (stack_map_frame_t *f = smt->frames; f; f = f->next) {
+            if (!mark_leader(o, f->offset)) {
+                return false;
+            }
+        }
+    }
+
+    o->num_handlers = (int)slist_length(code_attr->data.code.exception_table);
+    if (o->num_handlers > 0) {
+        o->handlers = malloc(o->num_handlers * 3 * sizeof(int));
+        if (!o->handlers) {
+            return false;
+        }
+    }
+    int h = 0;
+    for (slist_t *s = code_attr->data.code.exception_table; s; s = s->next, h++) {
+        exception_entry_t *e = s->data;
+        if (!mark_leader(o, e->start_pc) || !mark_leader(o, e->end_pc) ||
+            !mark_leader(o, e->handler_pc) || e->handler_pc >= o->code_len) {
+            return false;
+        }
+        o->handlers[h * 3] = o->index[e->start_pc];
+        o->handlers[h * 3 + 1] = o->index[e->end_pc];
+        o->handlers[h * 3 + 2] = o->index[e->handler_pc];
+    }
+
+    for (slist_t *s = line_number_entries(code_attr); s; s = s->next) {
+        line_number_entry_t *e = s->data;
+        if (e->start_pc > o->code_len || o->index[e->start_pc] < 0) {
+            return false;
+        }
+    }
+    return true;
+}
+
+/* ========================================================================
+ * Rewrite rules
+ * ======================================================================== */
+
+/* Branches to a goto take the goto's target */
+static bool thread_jumps(code_opt_t *o)
+{
+    bool changed = false;
+
+    for (int i = 0; i < o->count; i++) {
+        insn_t *in = &o->insns[i];
+        if (!is_live(o, i) || in->target < 0) {
+            continue;
+        }
+        int t = first_live(o, in->target);
+        for (int steps = 0; steps < o->count; steps++) {
+            if (t >= o->count || t == i || o->insns[t].bytes[0] != OP_GOTO) {
+                break;
+            }
+            int next = first_live(o, o->insns[t].target);
+            if (next == t) {
+                break;
+            }
+            t = next;
+        }
+        if (t < o->count && t != in->target) {
+            in->target = t;
+            changed = true;
+        }
+    }
+    return changed;
+}
+
+/* iconst/aconst_null followed by a test of that constant */
+static bool fold_constant_branches(code_opt_t *o)
+{
+    bool changed = false;
+
+    for (int i = 0; i < o->count; i++) {
+        if (!is_live(o, i)) {
+            continue;
+        }
+        int j = next_live(o, i);
+        if (j >= o->count || o->insns[j].leader) {
+            continue;
+        }
+        uint8_t test = o->insns[j].bytes[0];
+        int32_t value;
+        bool taken;
+
+        if (int_constant(&o->insns[i], &value) && test >= OP_IFEQ && test <= OP_IFLE) {
+            switch (test) {
+                case OP_IFEQ: taken = value == 0; break;
+                case OP_IFNE: taken = value != 0; break;
+                case OP_IFLT: taken = value < 0; break;
+                case OP_IFGE: taken = value >= 0; break;
+                case OP_IFGT: taken = value > 0; break;
+                default:      taken = value <= 0; break;
+            }
+        } else if (o->insns[i].bytes[0] == OP_ACONST_NULL &&
+                   (test == OP_IFNULL || test == OP_IFNONNULL)) {
+            taken = test == OP_IFNULL;
+        } else {
+            continue;
+        }
+
+        remove_insn(o, i);
+        if (taken) {
+            o->insns[j].bytes[0] = OP_GOTO;
+        } else {
+            remove_insn(o, j);
+        }
+        changed = true;
+    }
+    return changed;
+}
+
+/* goto next; if<cond> next; if<cond> L / goto M / L: */
+static bool simplify_branches(code_opt_t *o)
+{
+    bool changed = false;
+
+    for (int i = 0; i < o->count; i++) {
+        insn_t *in = &o->insns[i];
+        if (!is_live(o, i) || in->target < 0) {
+            continue;
+        }
+        int t = first_live(o, in->target);
+        int n = next_live(o, i);
+        uint8_t op = in->bytes[0];
+
+        if (op == OP_GOTO) {
+            if (t == n) {
+                remove_insn(o, i);
+                changed = true;
+            }
+            continue;
+        }
+
+        if (t == n) {
+            /* Both outcomes continue at the same place: just drop the operands */
+            bool two = op >= OP_IF_ICMPEQ && op <= OP_IF_ACMPNE;
+            set_opcode(in, two ? OP_POP2 : OP_POP);
+            changed = true;
+            continue;
+        }
+
+        if (n < o->count && o->insns[n].bytes[0] == OP_GOTO &&
+            !o->insns[n].leader && t == next_live(o, n) &&
+            first_live(o, o->insns[n].target) != n) {
+            in->bytes[0] = invert_branch(op);
+            in->target = o->insns[n].target;
+            remove_insn(o, n);
+            changed = true;
+        }
+    }
+    return changed;
+}
+
+static void count_reads(code_opt_t *o)
+{
+    memset(o->reads, 0, o->num_slots * sizeof(int));
+    for (int i = 0; i < o->count; i++) {
+        int width;
+        int slot = is_live(o, i) ? insn_read_slot(&o->insns[i], &width) : -1;
+        for (int w = 0; slot >= 0 && w < width; w++) {
+            if (slot + w < o->num_slots) {
+                o->reads[slot + w]++;
+            }
+        }
+    }
+}
+
+static bool slot_unread(code_opt_t *o, int slot, int allowed)
+{
+    return slot >= 0 && slot < o->num_slots && o->reads[slot] <= allowed;
+}
+
+/* Stack and local shuffles that cancel out */
+static bool simplify_sequences(code_opt_t *o)
+{
+    bool changed = false;
+
+    count_reads(o);
+    for (int i = 0; i < o->count; i++) {
+        if (!is_live(o, i)) {
+            continue;
+        }
+        insn_t *in = &o->insns[i];
+        uint8_t op = in->bytes[0];
+        int j = next_live(o, i);
+        insn_t *jn = j < o->count ? &o->insns[j] : NULL;
+        bool j_inner = jn && !jn->leader;
+        int slot = astore_slot(in);
+
+        /* dup; pop and push; pop */
+        if (j_inner && jn->bytes[0] == OP_POP &&
+            (op == OP_DUP || is_pure_push(o, in))) {
+            remove_insn(o, i);
+            remove_insn(o, j);
+            changed = true;
+            continue;
+        }
+
+        /* dup; astore n; pop -> astore n */
+        if (op == OP_DUP && j_inner && astore_slot(jn) >= 0) {
+            int k = next_live(o, j);
+            if (k < o->count && !o->insns[k].leader && o->insns[k].bytes[0] == OP_POP) {
+                remove_insn(o, i);
+                remove_insn(o, k);
+                changed = true;
+                continue;
+            }
+        }
+
+        /* astore n; aload n with no other reads of n */
+        if (slot >= 0 && j_inner && aload_slot(jn) == slot && slot_unread(o, slot, 1)) {
+            remove_insn(o, i);
+            remove_insn(o, j);
+            o->reads[slot]--;
+            o->dropped[slot] = true;
+            changed = true;
+            continue;
+        }
+
+        /* astore n where n is never read */
+        if (slot >= 0 && slot_unread(o, slot, 0)) {
+            set_opcode(in, OP_POP);
+            o->dropped[slot] = true;
+            changed = true;
+            continue;
+        }
+
+        /* push; ldc "s"; swap -> ldc "s"; push */
+        if (j_inner && ldc_tag(o, jn) == CONST_STRING && is_simple_push(o, in)) {
+            int k = next_live(o, j);
+            if (k < o->count && !o->insns[k].leader && o->insns[k].bytes[0] == OP_SWAP) {
+                insn_t tmp = *in;
+                memcpy(in->bytes, jn->bytes, MAX_INSN_LEN);
+                in->len = jn->len;
+                memcpy(jn->bytes, tmp.bytes, MAX_INSN_LEN);
+                jn->len = tmp.len;
+                remove_insn(o, k);
+                changed = true;
+                continue;
+            }
+        }
+
+        /* checkcast already satisfied by the previous instruction */
+        if (op == OP_CHECKCAST && !in->leader) {
+            int p = prev_live(o, i);
+            if (p >= 0 && cast_is_redundant(o, &o->insns[p], in)) {
+                remove_insn(o, i);
+                changed = true;
+            }
+        }
+    }
+    return changed;
+}
+
+/* Mark everything not reachable from the entry or a live handler as dead */
+static bool remove_unreachable(code_opt_t *o)
+{
+    bool *reached = calloc(o->count + 1, sizeof(bool));
+    int *work = malloc((o->count + 1) * sizeof(int));
+    int top = 0;
+    bool changed = false;
+
+    if (!reached || !work) {
+        free(reached);
+        free(work);
+        return false;
+    }
+
+    int entry = first_live(o, 0);
+    if (entry < o->count) {
+        work[top++] = entry;
+    }
+    for (;;) {
+        while (top > 0) {
+            int i = work[--top];
+            if (reached[i]) {
+                continue;
+            }
+            reached[i] = true;
+            insn_t *in = &o->insns[i];
+            if (in->target >= 0) {
+                int t = first_live(o, in->target);
+                if (t < o->count && !reached[t]) {
+                    work[top++] = t;
+                }
+            }
+            if (!ends_flow(in->bytes[0])) {
+                int n = next_live(o, i);
+                if (n < o->count && !reached[n]) {
+                    work[top++] = n;
+                }
+            }
+        }
+
+        /* A handler is live if anything it protects is */
+        for (int h = 0; h < o->num_handlers; h++) {
+            int handler = first_live(o, o->handlers[h * 3 + 2]);
+            if (handler >= o->count || reached[handler]) {
+                continue;
+            }
+            for (int i = o->handlers[h * 3]; i < o->handlers[h * 3 + 1]; i++) {
+                if (reached[i]) {
+                    work[top++] = handler;
+                    break;
+                }
+            }
+        }
+        if (top == 0) {
+            break;
+        }
+    }
+
+    for (int i = 0; i < o->count; i++) {
+        if (is_live(o, i) && !reached[i]) {
+            o->insns[i].dead = true;
+            changed = true;
+        }
+    }
+    free(reached);
+    free(work);
+    return changed;
+}
+
+/* ========================================================================
+ * Re-encoding
+ * ======================================================================== */
+
+static uint32_t map_pc(code_opt_t *o, uint32_t pc)
+{
+    int i = o->index[pc];
+    return i < o->count ? o->insns[i].new_pc : o->insns[o->count].new_pc;
+}
+
+static uint32_t assign_offsets(code_opt_t *o)
+{
+    uint32_t pc = 0;
+    for (int i = 0; i < o->count; i++) {
+        if (is_live(o, i)) {
+            o->insns[i].new_pc = pc;
+            pc += o->insns[i].len;
+        }
+    }
+    /* Removed instructions (and the end sentinel) map to the next live one */
+    o->insns[o->count].new_pc = pc;
+    for (int i = o->count - 1; i >= 0; i--) {
+        if (!is_live(o, i)) {
+            o->insns[i].new_pc = o->insns[i + 1].new_pc;
+        }
+    }
+    return pc;
+}
+
+static void encode(code_opt_t *o, bytebuf_t *code)
+{
+    uint8_t *p = code->data;
+
+    for (int i = 0; i < o->count; i++) {
+        insn_t *in = &o->insns[i];
+        if (!is_live(o, i)) {
+            continue;
+        }
+        if (in->target >= 0) {
+            int16_t delta = (int16_t)(o->insns[first_live(o, in->target)].new_pc - in->new_pc);
+            in->bytes[1] = (uint8_t)((delta >> 8) & 0xFF);
+            in->bytes[2] = (uint8_t)(delta & 0xFF);
+        }
+        memcpy(p, in->bytes, in->len);
+        p += in->len;
+    }
+    code->len = p - code->data;
+}
+
+static void remap_exception_table(code_opt_t *o, attribute_t *code_attr)
+{
+    slist_t *kept = NULL;
+
+    for (slist_t *s = code_attr->data.code.exception_table; s; s = s->next) {
+        exception_entry_t *e = s->data;
+        e->start_pc = (uint16_t)map_pc(o, e->start_pc);
+        e->end_pc = (uint16_t)map_pc(o, e->end_pc);
+        e->handler_pc = (uint16_t)map_pc(o, e->handler_pc);
+        if (e->start_pc < e->end_pc) {
+            kept = slist_append(kept, e);
+        } else {
+            free(e);
+        }
+    }
+    slist_free(code_attr->data.code.exception_table);
+    code_attr->data.code.exception_table = kept;
+}
+
+static void remap_line_numbers(code_opt_t *o, attribute_t *code_attr, uint32_t new_len)
+{
+    for (slist_t *s = code_attr->data.code.attributes; s; s = s->next) {
+        attribute_t *a = s->data;
+        if (a->type != ATTR_LINE_NUMBER_TABLE) {
+            continue;
+        }
+        slist_t *kept = NULL;
+        line_number_entry_t *last = NULL;
+        for (slist_t *l = a->data.line_numbers.entries; l; l = l->next) {
+            line_number_entry_t *e = l->data;
+            e->start_pc = (uint16_t)map_pc(o, e->start_pc);
+            if (e->start_pc >= new_len) {
+                free(e);
+                continue;
+            }
+            if (last && last->start_pc == e->start_pc) {
+                /* The earlier line's code is gone; keep the later one */
+                last->line_number = e->line_number;
+                free(e);
+                continue;
+            }
+            kept = slist_append(kept, e);
+            last = e;
+        }
+        slist_free(a->data.line_numbers.entries);
+        a->data.line_numbers.entries = kept;
+    }
+}
+
+static void remap_types(code_opt_t *o, verification_type_t *types, uint16_t n,
+                        bool is_locals)
+{
+    for (uint16_t i = 0; i < n; i++) {
+        if (types[i].tag == VT_UNINITIALIZED) {
+            types[i].data.offset = (uint16_t)map_pc(o, types[i].data.offset);
+        } else if (is_locals && i < o->num_slots && o->dropped[i]) {
+            types[i] = vtype_top();
+        }
+    }
+}
+
+static void free_frame(stack_map_frame_t *f)
+{
+    free(f->locals);
+    free(f->stack);
+    free(f);
+}
+
+static void remap_frames(code_opt_t *o, stack_map_table_t *smt, uint32_t new_len)
+{
+    stack_map_frame_t *head = NULL;
+    stack_map_frame_t **link = &head;
+    stack_map_frame_t *tail = NULL;
+    uint16_t entries = 0;
+
+    stack_map_frame_t *f = smt->frames;
+    while (f) {
+        stack_map_frame_t *next = f->next;
+        int i = o->index[f->offset];
+        f->next = NULL;
+
+        if ((i < o->count && o->insns[i].dead) || map_pc(o, f->offset) >= new_len) {
+            free_frame(f);
+            f = next;
+            continue;
+        }
+        f->offset = (uint16_t)map_pc(o, f->offset);
+        remap_types(o, f->locals, f->num_locals, true);
+        remap_types(o, f->stack, f->stack_size, false);
+
+        if (tail && tail->offset == f->offset) {
+            /* A removed instruction's frame landed on a later one: the
+             * later frame describes the surviving instruction */
+            free_frame(tail);
+            *link = f;
+        } else {
+            if (tail) {
+                link = &tail->next;
+            }
+            *link = f;
+            entries++;
+        }
+        tail = f;
+        f = next;
+    }
+    smt->frames = head;
+    smt->last_frame = tail;
+    smt->num_entries = entries;
+}
+
+/* ========================================================================
+ * Public API
+ * ======================================================================== */
+
+static void code_opt_free(code_opt_t *o)
+{
+    free(o->insns);
+    free(o->index);
+    free(o->handlers);
+    free(o->reads);
+    free(o->dropped);
+}
+
+bool code_attr_optimize(attribute_t *code_attr, stack_map_table_t *smt,
+                        const_pool_t *cp, code_opt_stats_t *stats)
+{
+    code_opt_t o;
+    bytebuf_t *code;
+    bool changed = false;
+
+    if (stats) {
+        stats->insns_before = stats->insns_after = 0;
+    }
+    if (!code_attr || code_attr->type != ATTR_CODE || !cp) {
+        return false;
+    }
+    code = code_attr->data.code.code;
+    if (!code || code->len == 0 || code->len > 0xFFFF) {
+        return false;
+    }
+
+    memset(&o, 0, sizeof(o));
+    o.cp = cp;
+    o.code_len = (uint32_t)code->len;
+    o.num_slots = code_attr->data.code.max_locals + 2;
+    o.reads = calloc(o.num_slots, sizeof(int));
+    o.dropped = calloc(o.num_slots, sizeof(bool));
+
+    if (!o.reads || !o.dropped || !decode(&o, code->data) ||
+        !collect_leaders(&o, code_attr, smt)) {
+        if (stats) {
+            stats->insns_before = stats->insns_after = (unsigned)o.count;
+        }
+        code_opt_free(&o);
+        return false;
+    }
+
+    /* Room for the end sentinel used by offset mapping */
+    insn_t *grown = realloc(o.insns, (o.count + 1) * sizeof(insn_t));
+    if (!grown) {
+        code_opt_free(&o);
+        return false;
+    }
+    o.insns = grown;
+    memset(&o.insns[o.count], 0, sizeof(insn_t));
+    o.insns[o.count].pc = o.code_len;
+
+    for (int round = 0; round < MAX_ROUNDS; round++) {
+        bool progress = false;
+        progress |= fold_constant_branches(&o);
+        progress |= thread_jumps(&o);
+        progress |= simplify_branches(&o);
+        progress |= simplify_sequences(&o);
+        progress |= remove_unreachable(&o);
+        if (!progress) {
+            break;
+        }
+        changed = true;
+    }
+
+    unsigned live = 0;
+    for (int i = 0; i < o.count; i++) {
+        if (is_live(&o, i)) {
+            live++;
+        }
+    }
+    if (stats) {
+        stats->insns_before = (unsigned)o.count;
+        stats->insns_after = live;
+    }
+
+    if (changed) {
+        uint32_t new_len = assign_offsets(&o);
+        encode(&o, code);
+        remap_exception_table(&o, code_attr);
+        remap_line_numbers(&o, code_attr, new_len);
+        if (smt) {
+            remap_frames(&o, smt, new_len);
+        }
+    }
+
+    code_opt_free(&o);
+    return changed;
+}
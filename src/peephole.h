@@ -0,0 +1,70 @@
+/*
+ * peephole.h
+ * Bytecode peephole and dead-code optimizer for Code attributes
+ * Copyright (C) 2026 Chris Burdess <dog@bluezoo.org>
+ *
+ * This file is part of loretta.
+ *
+ * loretta is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * loretta is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <https://www.gnu.org/licenses/>.
+ */
+
+#ifndef PEEPHOLE_H
+#define PEEPHOLE_H
+
+#include <stdint.h>
+#include <stdbool.h>
+#include "constpool.h"
+#include "classwriter.h"
+#include "stackmap.h"
+
+/* ========================================================================
+ * Code attribute optimizer
+ *
+ * Runs over a finished Code attribute (labels resolved) before its
+ * StackMapTable is serialized. The pass works on whole instructions and
+ * rewrites branch offsets, the exception table, the LineNumberTable and
+ * the recorded stack map frames to match the shortened code.
+ *
+ * Transformations, repeated until nothing changes:
+ *   - constant-condition branch folding (iconst/aconst_null + if<cond>)
+ *   - jump threading (branches to a goto take the goto's target)
+ *   - goto to the next instruction, and branch-over-goto inversion
+ *   - dup/pop and push/pop pairs, dup/astore/pop
+ *   - astore n / aload n where slot n is read nowhere else
+ *   - push / ldc / swap reordering
+ *   - redundant checkcast
+ *   - removal of code unreachable from the method entry or a live
+ *     exception handler
+ *
+ * Methods using jsr/ret, switches or wide jumps are left unchanged.
+ * ======================================================================== */
+
+typedef struct code_opt_stats
+{
+    unsigned insns_before;          /* Instructions before optimization */
+    unsigned insns_after;           /* Instructions after optimization */
+} code_opt_stats_t;
+
+/**
+ * Optimize a Code attribute in place.
+ * @param code_attr The method's Code attribute
+ * @param smt       Frames recorded for the method (may be NULL)
+ * @param cp        Constant pool of the class
+ * @param stats     Receives instruction counts for this method (may be NULL)
+ * @return true if the code was changed
+ */
+bool code_attr_optimize(attribute_t *code_attr, stack_map_table_t *smt,
+                        const_pool_t *cp, code_opt_stats_t *stats);
+
+#endif /* PEEPHOLE_H */
@@ -1,6 +1,6 @@
 /*
  * semantic.c
- * Semantic analysis - scope and symbol resolution
+ * Semantic analysis - scope and symbol resolution, closure analysis
  * Copyright (C) 2026 Chris Burdess <dog@bluezoo.org>
  *
  * This file is part of loretta.
@@ -400,6 +400,7 @@ static void analyze_statement(analyzer_t *analyzer, ast_node_t *node)
             break;
 
         case AST_FOR:
+        case AST_ASYNC_FOR:
             analyze_expression(analyzer, node->data.for_stmt.iter);
             /* Define loop target */
             if (node->data.for_stmt.target->type == AST_NAME) {
@@ -476,6 +477,683 @@ static void analyze_statement(analyzer_t *analyzer, ast_node_t *node)
     }
 }
 
+/* ========================================================================
+ * Closure analysis
+ *
+ * A nested def or lambda captures enclosing variables by copying their
+ * values into the function object when it is created. That matches
+ * Python only if a captured variable is never rebound once the function
+ * exists: every binding of it in the enclosing function comes textually
+ * before the nested function, none is inside a loop that also contains
+ * the nested function, and no inner scope declares it nonlocal. Nested
+ * functions whose captures all qualify are marked closure_by_value, and
+ * the code generator binds the values as leading arguments instead of
+ * passing a closure array.
+ *
+ * Nested functions that are only ever called directly or passed straight
+ * to a builtin that calls them before returning (the key function of
+ * sorted(), min(), max() and list.sort()) are marked non_escaping.
+ * ======================================================================== */
+
+typedef struct closure_binding
+{
+    const char *name;
+    int pos;
+} closure_binding_t;
+
+typedef struct nested_func
+{
+    ast_node_t *node;
+    int pos;                        /* Where the function object is created */
+    int loop_start;                 /* Outermost enclosing loop, or -1 */
+    slist_t *free_names;            /* Names loaded but not bound (char*) */
+} nested_func_t;
+
+typedef struct closure_scan
+{
+    int pos;                        /* Pre-order position counter */
+    int loop_depth;
+    int loop_start;                 /* Start of outermost open loop */
+    int class_depth;                /* Inside a class body: don't record bindings */
+    bool is_module;                 /* Bindings are globals */
+    slist_t *bindings;              /* closure_binding_t* in this scope */
+    slist_t *loads;                 /* Distinct names loaded (char*) */
+    slist_t *escapes;               /* Names used other than as a call or callback */
+    slist_t *nonlocals;             /* Names rebound by inner scopes */
+    slist_t *nonlocal_decls;        /* Names declared nonlocal in this scope */
+    slist_t *globals;               /* Names declared global in this scope */
+    slist_t *nested;                /* nested_func_t* created in this scope */
+} closure_scan_t;
+
+static void scan_stmts(closure_scan_t *scan, slist_t *stmts);
+static void scan_expr(closure_scan_t *scan, ast_node_t *node);
+static void scan_function(closure_scan_t *scan, ast_node_t *node);
+
+static bool name_list_contains(slist_t *list, const char *name)
+{
+    for (slist_t *s = list; s; s = s->next) {
+        if (strcmp((const char *)s->data, name) == 0) {
+            return true;
+        }
+    }
+    return false;
+}
+
+static void name_list_add(slist_t **list, const char *name)
+{
+    if (!name_list_contains(*list, name)) {
+        *list = slist_append(*list, (void *)name);
+    }
+}
+
+static void scan_bind(closure_scan_t *scan, const char *name)
+{
+    if (!name || scan->class_depth > 0) {
+        return;
+    }
+    closure_binding_t *b = malloc(sizeof(closure_binding_t));
+    if (b) {
+        b->name = name;
+        b->pos = ++scan->pos;
+        scan->bindings = slist_append(scan->bindings, b);
+    }
+}
+
+static void scan_target(closure_scan_t *scan, ast_node_t *node)
+{
+    if (!node) {
+        return;
+    }
+    switch (node->type) {
+        case AST_NAME:
+            scan_bind(scan, node->data.name.id);
+            break;
+        case AST_TUPLE:
+        case AST_LIST:
+            for (slist_t *s = node->data.collection.elts; s; s = s->next) {
+                scan_target(scan, s->data);
+            }
+            break;
+        case AST_STARRED:
+            scan_target(scan, node->data.starred.value);
+            break;
+        default:
+            /* Attribute or subscript store: evaluates its operands */
+            scan_expr(scan, node);
+            break;
+    }
+}
+
+static void scan_load(closure_scan_t *scan, const char *name, bool escapes)
+{
+    scan->pos++;
+    name_list_add(&scan->loads, name);
+    if (escapes) {
+        name_list_add(&scan->escapes, name);
+    }
+}
+
+static void scan_loop_enter(closure_scan_t *scan)
+{
+    if (scan->loop_depth++ == 0) {
+        scan->loop_start = ++scan->pos;
+    }
+}
+
+static void scan_loop_exit(closure_scan_t *scan)
+{
+    scan->loop_depth--;
+}
+
+/**
+ * Check whether a call invokes its callback arguments before returning
+ * and keeps no reference to them.
+ */
+static bool is_callback_consumer(ast_node_t *call)
+{
+    ast_node_t *func = call->data.call.func;
+    if (func->type == AST_NAME) {
+        const char *id = func->data.name.id;
+        return strcmp(id, "sorted") == 0 || strcmp(id, "min") == 0 ||
+               strcmp(id, "max") == 0;
+    }
+    return func->type == AST_ATTRIBUTE && strcmp(func->data.attribute.attr, "sort") == 0;
+}
+
+static void scan_call_arg(closure_scan_t *scan, ast_node_t *arg, bool consumer)
+{
+    if (consumer && arg->type == AST_NAME) {
+        scan_load(scan, arg->data.name.id, false);
+        return;
+    }
+    if (consumer && arg->type == AST_LAMBDA) {
+        arg->data.lambda.non_escaping = true;
+    }
+    scan_expr(scan, arg);
+}
+
+static void scan_comprehension(closure_scan_t *scan, slist_t *generators,
+                               ast_node_t *elt, ast_node_t *value)
+{
+    scan_loop_enter(scan);
+    for (slist_t *g = generators; g; g = g->next) {
+        ast_node_t *gen = g->data;
+        scan_expr(scan, gen->data.comprehension.iter);
+        scan_target(scan, gen->data.comprehension.target);
+        for (slist_t *i = gen->data.comprehension.ifs; i; i = i->next) {
+            scan_expr(scan, i->data);
+        }
+    }
+    scan_expr(scan, elt);
+    scan_expr(scan, value);
+    scan_loop_exit(scan);
+}
+
+static void scan_expr(closure_scan_t *scan, ast_node_t *node)
+{
+    if (!node) {
+        return;
+    }
+
+    switch (node->type) {
+        case AST_NAME:
+            if (node->data.name.ctx == CTX_LOAD) {
+                scan_load(scan, node->data.name.id, true);
+            } else {
+                scan_bind(scan, node->data.name.id);
+            }
+            break;
+
+        case AST_CALL: {
+            ast_node_t *func = node->data.call.func;
+            bool consumer = is_callback_consumer(node);
+            if (func->type == AST_NAME) {
+                scan_load(scan, func->data.name.id, false);
+            } else {
+                scan_expr(scan, func);
+            }
+            for (slist_t *s = node->data.call.args; s; s = s->next) {
+                scan_call_arg(scan, s->data, consumer);
+            }
+            for (slist_t *s = node->data.call.keywords; s; s = s->next) {
+                ast_node_t *kw = s->data;
+                scan_call_arg(scan, kw->data.keyword.value, consumer);
+            }
+            break;
+        }
+
+        case AST_LAMBDA:
+            scan_function(scan, node);
+            break;
+
+        case AST_NAMED_EXPR:
+            scan_expr(scan, node->data.named_expr.value);
+            scan_target(scan, node->data.named_expr.target);
+            break;
+
+        case AST_BOOL_OP:
+            for (slist_t *s = node->data.bool_op.values; s; s = s->next) {
+                scan_expr(scan, s->data);
+            }
+            break;
+
+        case AST_BIN_OP:
+            scan_expr(scan, node->data.bin_op.left);
+            scan_expr(scan, node->data.bin_op.right);
+            break;
+
+        case AST_UNARY_OP:
+            scan_expr(scan, node->data.unary_op.operand);
+            break;
+
+        case AST_IF_EXP:
+            scan_expr(scan, node->data.if_exp.test);
+            scan_expr(scan, node->data.if_exp.body);
+            scan_expr(scan, node->data.if_exp.orelse);
+            break;
+
+        case AST_DICT:
+            for (slist_t *s = node->data.dict.keys; s; s = s->next) {
+                scan_expr(scan, s->data);
+            }
+            for (slist_t *s = node->data.dict.values; s; s = s->next) {
+                scan_expr(scan, s->data);
+            }
+            break;
+
+        case AST_SET:
+        case AST_LIST:
+        case AST_TUPLE:
+        case AST_JOINED_STR:
+            for (slist_t *s = node->data.collection.elts; s; s = s->next) {
+                scan_expr(scan, s->data);
+            }
+            break;
+
+        case AST_LIST_COMP:
+        case AST_SET_COMP:
+        case AST_GENERATOR_EXP:
+            scan_comprehension(scan, node->data.comprehension_expr.generators,
+                               node->data.comprehension_expr.elt, NULL);
+            break;
+
+        case AST_DICT_COMP:
+            scan_comprehension(scan, node->data.dict_comp.generators,
+                               node->data.dict_comp.key, node->data.dict_comp.value);
+            break;
+
+        case AST_AWAIT:
+        case AST_YIELD:
+        case AST_YIELD_FROM:
+        case AST_FORMATTED_VALUE:
+            scan_expr(scan, node->data.await_yield.value);
+            break;
+
+        case AST_COMPARE:
+            scan_expr(scan, node->data.compare.left);
+            for (slist_t *s = node->data.compare.comparators; s; s = s->next) {
+                scan_expr(scan, s->data);
+            }
+            break;
+
+        case AST_ATTRIBUTE:
+            scan_expr(scan, node->data.attribute.value);
+            break;
+
+        case AST_SUBSCRIPT:
+            scan_expr(scan, node->data.subscript.value);
+            scan_expr(scan, node->data.subscript.slice);
+            break;
+
+        case AST_STARRED:
+            scan_expr(scan, node->data.starred.value);
+            break;
+
+        case AST_SLICE:
+            scan_expr(scan, node->data.slice.lower);
+            scan_expr(scan, node->data.slice.upper);
+            scan_expr(scan, node->data.slice.step);
+            break;
+
+        default:
+            break;
+    }
+}
+
+static void scan_stmt(closure_scan_t *scan, ast_node_t *node)
+{
+    if (!node) {
+        return;
+    }
+
+    switch (node->type) {
+        case AST_FUNCTION_DEF:
+        case AST_ASYNC_FUNCTION_DEF:
+            for (slist_t *s = node->data.func_def.decorator_list; s; s = s->next) {
+                scan_expr(scan, s->data);
+            }
+            scan_function(scan, node);
+            scan_bind(scan, node->data.func_def.name);
+            break;
+
+        case AST_CLASS_DEF:
+            for (slist_t *s = node->data.class_def.bases; s; s = s->next) {
+                scan_expr(scan, s->data);
+            }
+            for (slist_t *s = node->data.class_def.decorator_list; s; s = s->next) {
+                scan_expr(scan, s->data);
+            }
+            /* The class body runs here; names it binds are class attributes */
+            scan->class_depth++;
+            scan_stmts(scan, node->data.class_def.body);
+            scan->class_depth--;
+            scan_bind(scan, node->data.class_def.name);
+            break;
+
+        case AST_RETURN:
+            scan_expr(scan, node->data.return_stmt.value);
+            break;
+
+        case AST_DELETE:
+            for (slist_t *s = node->data.delete_stmt.targets; s; s = s->next) {
+                scan_target(scan, s->data);
+            }
+            break;
+
+        case AST_ASSIGN:
+            scan_expr(scan, node->data.assign.value);
+            for (slist_t *s = node->data.assign.targets; s; s = s->next) {
+                scan_target(scan, s->data);
+            }
+            break;
+
+        case AST_AUG_ASSIGN:
+            scan_expr(scan, node->data.aug_assign.value);
+            if (node->data.aug_assign.target->type == AST_NAME) {
+                scan_load(scan, node->data.aug_assign.target->data.name.id, false);
+            }
+            scan_target(scan, node->data.aug_assign.target);
+            break;
+
+        case AST_ANN_ASSIGN:
+            scan_expr(scan, node->data.ann_assign.value);
+            if (node->data.ann_assign.value) {
+                scan_target(scan, node->data.ann_assign.target);
+            }
+            break;
+
+        case AST_FOR:
+        case AST_ASYNC_FOR:
+            scan_expr(scan, node->data.for_stmt.iter);
+            scan_loop_enter(scan);
+            scan_target(scan, node->data.for_stmt.target);
+            scan_stmts(scan, node->data.for_stmt.body);
+            scan_stmts(scan, node->data.for_stmt.orelse);
+            scan_loop_exit(scan);
+            break;
+
+        case AST_WHILE:
+            scan_loop_enter(scan);
+            scan_expr(scan, node->data.while_stmt.test);
+            scan_stmts(scan, node->data.while_stmt.body);
+            scan_stmts(scan, node->data.while_stmt.orelse);
+            scan_loop_exit(scan);
+            break;
+
+        case AST_IF:
+            scan_expr(scan, node->data.if_stmt.test);
+            scan_stmts(scan, node->data.if_stmt.body);
+            scan_stmts(scan, node->data.if_stmt.orelse);
+            break;
+
+        case AST_WITH:
+        case AST_ASYNC_WITH:
+            for (slist_t *s = node->data.with_stmt.items; s; s = s->next) {
+                ast_node_t *item = s->data;
+                scan_expr(scan, item->data.with_item.context_expr);
+                scan_target(scan, item->data.with_item.optional_vars);
+            }
+            scan_stmts(scan, node->data.with_stmt.body);
+            break;
+
+        case AST_RAISE:
+            scan_expr(scan, node->data.raise_stmt.exc);
+            scan_expr(scan, node->data.raise_stmt.cause);
+            break;
+
+        case AST_TRY:
+        case AST_TRY_STAR:
+            scan_stmts(scan, node->data.try_stmt.body);
+            for (slist_t *s = node->data.try_stmt.handlers; s; s = s->next) {
+                ast_node_t *handler = s->data;
+                scan_expr(scan, handler->data.except_handler.type);
+                scan_bind(scan, handler->data.except_handler.name);
+                scan_stmts(scan, handler->data.except_handler.body);
+            }
+            scan_stmts(scan, node->data.try_stmt.orelse);
+            scan_stmts(scan, node->data.try_stmt.finalbody);
+            break;
+
+        case AST_ASSERT:
+            scan_expr(scan, node->data.assert_stmt.test);
+            scan_expr(scan, node->data.assert_stmt.msg);
+            break;
+
+        case AST_IMPORT:
+        case AST_IMPORT_FROM: {
+            slist_t *names = node->type == AST_IMPORT ? node->data.import_stmt.names
+                                                      : node->data.import_from.names;
+            for (slist_t *s = names; s; s = s->next) {
+                ast_node_t *alias = s->data;
+                scan_bind(scan, alias->data.alias.asname ? alias->data.alias.asname
+                                                         : alias->data.alias.name);
+            }
+            break;
+        }
+
+        case AST_GLOBAL:
+            for (slist_t *s = node->data.global_stmt.names; s; s = s->next) {
+                name_list_add(&scan->globals, s->data);
+            }
+            break;
+
+        case AST_NONLOCAL:
+            for (slist_t *s = node->data.global_stmt.names; s; s = s->next) {
+                name_list_add(&scan->nonlocal_decls, s->data);
+            }
+            break;
+
+        case AST_EXPR_STMT:
+            scan_expr(scan, node->data.expr_stmt.value);
+            break;
+
+        case AST_MATCH:
+            scan_expr(scan, node->data.match_stmt.subject);
+            for (slist_t *s = node->data.match_stmt.cases; s; s = s->next) {
+                ast_node_t *c = s->data;
+                scan_expr(scan, c->data.match_case.guard);
+                scan_stmts(scan, c->data.match_case.body);
+            }
+            break;
+
+        default:
+            break;
+    }
+}
+
+static void scan_stmts(closure_scan_t *scan, slist_t *stmts)
+{
+    for (slist_t *s = stmts; s; s = s->next) {
+        scan_stmt(scan, s->data);
+    }
+}
+
+static bool scan_binds(closure_scan_t *scan, const char *name)
+{
+    for (slist_t *s = scan->bindings; s; s = s->next) {
+        closure_binding_t *b = s->data;
+        if (strcmp(b->name, name) == 0) {
+            return true;
+        }
+    }
+    return false;
+}
+
+/**
+ * Check whether a name is a local variable of the scanned scope.
+ */
+static bool scan_owns(closure_scan_t *scan, const char *name)
+{
+    return scan_binds(scan, name) && !name_list_contains(scan->nonlocal_decls, name) &&
+           !name_list_contains(scan->globals, name);
+}
+
+static void scan_bind_params(closure_scan_t *scan, ast_node_t *args)
+{
+    if (!args || args->type != AST_ARGUMENTS) {
+        return;
+    }
+    slist_t *lists[] = {
+        args->data.arguments.posonlyargs,
+        args->data.arguments.args,
+        args->data.arguments.kwonlyargs
+    };
+    for (size_t i = 0; i < sizeof(lists) / sizeof(lists[0]); i++) {
+        for (slist_t *s = lists[i]; s; s = s->next) {
+            ast_node_t *arg = s->data;
+            scan_bind(scan, arg->data.arg.arg);
+        }
+    }
+    if (args->data.arguments.vararg) {
+        scan_bind(scan, args->data.arguments.vararg->data.arg.arg);
+    }
+    if (args->data.arguments.kwarg) {
+        scan_bind(scan, args->data.arguments.kwarg->data.arg.arg);
+    }
+}
+
+/**
+ * Check whether a nested function's captured name is never rebound in
+ * this scope once the function has been created.
+ */
+static bool capture_is_stable(closure_scan_t *scan, nested_func_t *nf, const char *name)
+{
+    if (name_list_contains(scan->nonlocals, name)) {
+        return false;
+    }
+    for (slist_t *s = scan->bindings; s; s = s->next) {
+        closure_binding_t *b = s->data;
+        if (strcmp(b->name, name) != 0) {
+            continue;
+        }
+        if (b->pos >= nf->pos) {
+            return false;
+        }
+        if (nf->loop_start >= 0 && b->pos >= nf->loop_start) {
+            return false;
+        }
+    }
+    return true;
+}
+
+/**
+ * Count how many times a scope binds a name.
+ */
+static int scan_binding_count(closure_scan_t *scan, const char *name)
+{
+    int count = 0;
+    for (slist_t *s = scan->bindings; s; s = s->next) {
+        closure_binding_t *b = s->data;
+        if (strcmp(b->name, name) == 0) {
+            count++;
+        }
+    }
+    return count;
+}
+
+/**
+ * Decide the flags of each function nested directly in a scope, once
+ * the whole scope has been scanned.
+ */
+static void resolve_nested(closure_scan_t *scan)
+{
+    for (slist_t *s = scan->nested; s; s = s->next) {
+        nested_func_t *nf = s->data;
+        bool by_value = true;
+        for (slist_t *n = nf->free_names; n; n = n->next) {
+            if (!capture_is_stable(scan, nf, n->data)) {
+                by_value = false;
+                break;
+            }
+        }
+
+        if (nf->node->type == AST_LAMBDA) {
+            nf->node->data.lambda.closure_by_value = by_value;
+        } else {
+            const char *name = nf->node->data.func_def.name;
+            nf->node->data.func_def.closure_by_value = by_value;
+            nf->node->data.func_def.non_escaping =
+                !scan->is_module &&
+                scan_binding_count(scan, name) == 1 &&
+                !name_list_contains(scan->escapes, name) &&
+                !name_list_contains(scan->nonlocals, name) &&
+                !name_list_contains(scan->globals, name) &&
+                !nf->node->data.func_def.decorator_list;
+        }
+    }
+}
+
+static void scan_free(closure_scan_t *scan)
+{
+    slist_free_full(scan->bindings, free);
+    slist_free(scan->loads);
+    slist_free(scan->escapes);
+    slist_free(scan->nonlocals);
+    slist_free(scan->nonlocal_decls);
+    slist_free(scan->globals);
+    for (slist_t *s = scan->nested; s; s = s->next) {
+        nested_func_t *nf = s->data;
+        slist_free(nf->free_names);
+        free(nf);
+    }
+    slist_free(scan->nested);
+}
+
+/**
+ * Scan a nested def or lambda as its own scope, then record it (and the
+ * names it needs from outside) in the enclosing scan.
+ */
+static void scan_function(closure_scan_t *scan, ast_node_t *node)
+{
+    bool is_lambda = node->type == AST_LAMBDA;
+    ast_node_t *args = is_lambda ? node->data.lambda.args : node->data.func_def.args;
+
+    /* Defaults are evaluated where the function is created */
+    if (args && args->type == AST_ARGUMENTS) {
+        for (slist_t *s = args->data.arguments.defaults; s; s = s->next) {
+            scan_expr(scan, s->data);
+        }
+        for (slist_t *s = args->data.arguments.kw_defaults; s; s = s->next) {
+            scan_expr(scan, s->data);
+        }
+    }
+
+    closure_scan_t inner = {0};
+    inner.loop_start = -1;
+    scan_bind_params(&inner, args);
+    if (is_lambda) {
+        scan_expr(&inner, node->data.lambda.body);
+    } else {
+        scan_stmts(&inner, node->data.func_def.body);
+    }
+    resolve_nested(&inner);
+
+    nested_func_t *nf = calloc(1, sizeof(nested_func_t));
+    if (nf) {
+        nf->node = node;
+        nf->pos = ++scan->pos;
+        nf->loop_start = scan->loop_depth > 0 ? scan->loop_start : -1;
+        scan->nested = slist_append(scan->nested, nf);
+    }
+
+    /* Whatever the function loads but doesn't own comes from outside */
+    for (slist_t *s = inner.loads; s; s = s->next) {
+        const char *name = s->data;
+        if (scan_owns(&inner, name) || name_list_contains(inner.globals, name)) {
+            continue;
+        }
+        if (nf) {
+            name_list_add(&nf->free_names, name);
+        }
+        scan_load(scan, name, true);
+    }
+
+    /* Nonlocal declarations here or below rebind outer variables */
+    for (slist_t *s = inner.nonlocal_decls; s; s = s->next) {
+        name_list_add(&scan->nonlocals, s->data);
+    }
+    for (slist_t *s = inner.nonlocals; s; s = s->next) {
+        if (!scan_owns(&inner, s->data)) {
+            name_list_add(&scan->nonlocals, s->data);
+        }
+    }
+
+    scan_free(&inner);
+}
+
+/**
+ * Run closure analysis over a module.
+ */
+static void analyze_closures(ast_node_t *module)
+{
+    closure_scan_t scan = {0};
+    scan.loop_start = -1;
+    scan.is_module = true;
+    scan_stmts(&scan, module->data.module.body);
+    resolve_nested(&scan);
+    scan_free(&scan);
+}
+
 bool analyzer_analyze(analyzer_t *analyzer, ast_node_t *ast, source_file_t *source)
 {
     if (!analyzer || !ast || ast->type != AST_MODULE) {
@@ -489,6 +1167,8 @@ bool analyzer_analyze(analyzer_t *analyzer, ast_node_t *ast, source_file_t *sour
         analyze_statement(analyzer, s->data);
     }
 
+    analyze_closures(ast);
+
     /* Print errors and warnings */
     for (slist_t *s = analyzer->errors; s; s = s->next) {
         fprintf(stderr, "%s\n", (char *)s->data);
@@ -0,0 +1,136 @@
+# Test aio: async file reads, writes and line iteration awaited from async def
+import aio
+
+path = "/tmp/loretta_aio_test.bin"
+
+
+async def write_rows(n):
+    f = aio.open(path, "wb")
+    total = 0
+    for i in range(n):
+        total += await f.write(b"row " + str(i).encode() + b"\n")
+    # Writes queue in order, so later ones can be issued before earlier ones finish
+    pending = [f.write(b"tail"), f.write(b" end")]
+    for p in pending:
+        total += await p
+    print(f.tell(), total)
+    f.close()
+    return total
+
+
+async def read_back():
+    f = aio.open(path)
+    print(f, f.mode, f.closed)
+    head = await f.read(12)
+    print(head, f.tell())
+    buf = bytearray(8)
+    n = await f.readinto(buf)
+    print(n, buf)
+    print(await f.readline(), await f.readline())
+    rest = await f.read()
+    print(len(rest), rest[-13:], await f.read(), await f.read(5))
+    f.seek(4)
+    print(await f.read(4), f.tell())
+    f.seek(-8, 2)
+    print(await f.read(100))
+    f.close()
+    print(f.closed)
+
+
+async def count_lines():
+    f = aio.open(path, "rb")
+    lines = 0
+    last = None
+    async for line in f:
+        lines += 1
+        last = line
+    f.close()
+    return lines, last
+
+
+async def mixed():
+    # readline read-ahead is handed to read, readinto and write
+    f = aio.open(path, "r+b")
+    print(await f.readline(), f.tell())
+    print(await f.read(6), f.tell())
+    buf = bytearray(4)
+    print(await f.readinto(buf), buf, f.tell())
+    await f.write(b"ROW")
+    print(f.tell(), await f.readline())
+    f.seek(0)
+    lines = [await f.readline() for i in range(4)]
+    print(lines)
+    try:
+        await f.__anext__()
+        print("anext ok")
+    except StopAsyncIteration:
+        print("StopAsyncIteration")
+    f.seek(0, 2)
+    try:
+        await f.__anext__()
+    except StopAsyncIteration:
+        print("StopAsyncIteration")
+    f.close()
+
+
+async def read_all(name):
+    f = aio.open(name)
+    data = await f.read()
+    f.close()
+    return len(data)
+
+
+print(write_rows(3000))
+read_back()
+print(count_lines())
+mixed()
+
+# Reads on separate files complete concurrently
+other = "/tmp/loretta_aio_other.bin"
+f = aio.open(other, "wb")
+f.write(b"x" * 100000)
+f.close()
+a = aio.open(path)
+b = aio.open(other)
+print(async_gather(a.read(10), b.read(10), a.read(5)))
+a.close()
+b.close()
+
+# Append and exclusive create
+f = aio.open(other, "ab")
+print(f.tell())
+f.write(b"!")
+# close waits for the queued write
+f.close()
+print(read_all(other))
+try:
+    aio.open(other, "xb")
+except FileExistsError:
+    print("FileExistsError")
+
+# Errors
+try:
+    aio.open("/tmp/loretta_aio_missing.bin")
+except FileNotFoundError:
+    print("FileNotFoundError")
+try:
+    aio.open(path, "r")
+except ValueError as e:
+    print("ValueError:", e)
+f = aio.open(path, mode="rb")
+try:
+    f.write(b"no")
+except OSError as e:
+    print("OSError:", e)
+f.close()
+try:
+    f.read(1)
+except ValueError as e:
+    print("ValueError:", e)
+f = aio.open(path).__enter__()
+f.__exit__(None, None, None)
+print(f.closed)
+
+import posix
+posix.remove(path)
+posix.remove(other)
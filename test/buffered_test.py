@@ -0,0 +1,108 @@
+# Test buffered binary files: reader, writer and the '+' modes
+
+path = "/tmp/loretta_buffered_test.bin"
+
+# Small writes are buffered, large ones go straight to the file
+f = open(path, "wb")
+for i in range(1000):
+    f.write(b"record " + str(i).encode() + b"\n")
+print(f.tell())
+big = bytes(range(256)) * 100
+f.write(big)
+print(f.tell())
+f.close()
+
+f = open(path, "rb")
+print(f.readline(), f.readline(3), f.readline(), f.tell())
+print(f.peek()[:8], f.read1(5), f.tell())
+lines = 0
+for line in f:
+    lines += 1
+    if line.startswith(b"record 999"):
+        break
+print(lines, f.tell())
+chunk = f.read(len(big))
+print(len(chunk), chunk == big, f.read(10), f.read(), f.readline())
+f.seek(7)
+print(f.read(3), f.tell())
+f.seek(-4, 1)
+print(f.read(6), f.tell())
+f.seek(-3, 2)
+print(f.read(), f.tell())
+f.close()
+
+# readinto fills the whole buffer across reads
+f = open(path, "rb")
+target = bytearray(20000)
+print(f.readinto(target), target[:9])
+f.close()
+
+# r+ reads and writes one file position
+f = open(path, "wb")
+f.write(b"0123456789abcdefghij")
+f.close()
+f = open(path, "r+b")
+print(f.read(4), f.tell())
+f.write(b"XY")
+print(f.tell(), f.read(3))
+f.seek(0, 2)
+f.write(b"END")
+f.seek(0)
+print(f.read())
+f.truncate(5)
+f.seek(0)
+print(f.read(), f.tell())
+f.close()
+
+# w+ and a+
+f = open(path, "w+b")
+f.write(b"hello world")
+f.seek(6)
+print(f.read(), f.tell())
+f.seek(0)
+f.write(b"J")
+f.seek(0)
+print(f.read())
+f.close()
+f = open(path, "a+b")
+f.write(b"!")
+f.seek(0)
+print(f.read(5))
+f.write(b"?")
+f.close()
+f = open(path, "rb")
+print(f.read())
+f.close()
+
+# Text mode on top of BufferedRandom
+f = open(path, "w+")
+f.write("alpha\nbeta\ngamma\n")
+f.seek(0)
+print(repr(f.readline()), f.tell())
+f.seek(f.tell())
+f.write("BETA\n")
+f.seek(0)
+print(f.read().split("\n"))
+f.seek(0)
+f.readline()
+pos = f.tell()
+print(repr(f.readline()))
+f.seek(pos)
+print(repr(f.readline()))
+f.close()
+
+# Large streaming copy
+f = open(path, "wb")
+block = bytes(range(256)) * 4096
+for i in range(16):
+    f.write(block)
+f.close()
+f = open(path, "rb")
+total = 0
+while True:
+    data = f.read(65536)
+    if not data:
+        break
+    total += len(data)
+f.close()
+print(total)
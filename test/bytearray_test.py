@@ -0,0 +1,173 @@
+# Test bytearray: a mutable, growable byte buffer
+
+b = bytearray()
+print(b, len(b), bool(b))
+b.append(65)
+b.extend(b"BC")
+b.extend([68, 69])
+b += b"FG"
+print(b, len(b), b[0], b[-1], b[1:4], b[::2])
+
+# += mutates in place, so other names see the change
+alias = b
+alias += b"!"
+print(b, alias is b)
+
+# Plain + builds a new bytearray
+c = b + b"xyz"
+print(c, b)
+
+# Construction
+print(bytearray(b"abc"), bytearray(3), bytearray([1, 2, 255]), bytearray(bytearray(b"q")))
+print(bytes(bytearray(b"back")), bytearray("hi", "utf-8"))
+
+# Item and slice assignment
+d = bytearray(b"hello world")
+d[0] = 72
+d[6:11] = b"there!"
+print(d)
+d[0:0] = b">> "
+print(d)
+d[::2] = b"_" * len(d[::2])
+print(d)
+
+# Deleting
+e = bytearray(b"0123456789")
+del e[0]
+del e[-1]
+print(e)
+del e[:3]
+print(e)
+del e[::2]
+print(e)
+del e[1:]
+print(e, len(e))
+
+# Methods
+f = bytearray(b"key: value\r\nnext: line\r\n")
+print(f.find(b"\r\n"), f.find(b"\r\n", 12), f.find(b"zz"), f.rfind(b":"), f.count(b"e"))
+print(f.index(b"next"), f.startswith(b"key"), f.endswith(b"\r\n"), b":" in f, 107 in f)
+print(f.decode(), f.split(b"\r\n"), f.replace(b": ", b"="))
+print(f.upper(), f.hex()[:10])
+g = bytearray(b"abc")
+print(g.pop(), g.pop(0), g)
+g.insert(0, 120)
+g.insert(99, 121)
+print(g)
+g.remove(98)
+g.reverse()
+print(g, g.copy(), g == b"yx", g == bytearray(b"yx"), g < b"z", g != b"yx")
+
+# bytes on the left takes a bytearray, or any buffer, as the other operand
+hdr = b"hdr" + bytearray(b"x")
+print(hdr, b"hdr" + memoryview(b"yz"))
+print(b"x" < bytearray(b"y"), b"x" <= bytearray(b"x"), b"y" > bytearray(b"x"),
+      b"x" >= bytearray(b"y"), b"\x80" > bytearray(b"\x01"), b"\x80" > b"\x01")
+for other in ["s", 1, None]:
+    try:
+        b"hdr" + other
+    except TypeError as e:
+        print("TypeError:", e)
+try:
+    b"x" < memoryview(b"y")
+except TypeError as e:
+    print("TypeError:", e)
+g.clear()
+print(g, len(g))
+
+# Iteration
+print([x for x in bytearray(b"\x00\x7f\xff")], list(bytearray(b"ab")))
+
+# Errors
+try:
+    bytearray(b"a").append(256)
+except ValueError as e:
+    print("ValueError:", e)
+try:
+    hash(bytearray())
+except TypeError as e:
+    print("TypeError:", e)
+try:
+    bytearray(b"a")[5]
+except IndexError as e:
+    print("IndexError:", e)
+try:
+    bytearray().pop()
+except IndexError as e:
+    print("IndexError:", e)
+
+# memoryview writes through to the bytearray
+h = bytearray(b"abcdef")
+m = memoryview(h)
+m[0] = 122
+part = m[2:4]
+print(h, m[1], part.tobytes())
+part.release()
+m.release()
+
+# While a view is held by a with block the bytearray cannot change size
+def resize(attempt):
+    try:
+        if attempt == "append":
+            h.append(1)
+        elif attempt == "del":
+            del h[:1]
+        else:
+            h.clear()
+        print(attempt, "allowed")
+    except BufferError as e:
+        print(attempt, "BufferError:", e)
+
+m = memoryview(h).__enter__()
+part = m[1:]
+for attempt in ["append", "del", "clear"]:
+    resize(attempt)
+h[1] = 66
+print(m[1], len(m), part[0])
+part.release()
+m.__exit__(None, None, None)
+h.append(103)
+print(h)
+
+# Dropped views, and slices of them, do not hold it
+def consume(view):
+    return bytes(view)
+
+print(consume(memoryview(h)[2:]), len(memoryview(h).cast("c")))
+h += b"!"
+print(h)
+
+# Released through the context manager
+m = memoryview(h).__enter__()
+m[0] = 90
+m.__exit__(None, None, None)
+h.extend(b"!")
+print(h)
+
+# Using a view kept past a change of size is an error
+m = memoryview(h)
+try:
+    h.append(33)
+    print(m[0])
+except BufferError:
+    print("BufferError")
+
+# A protocol parser: fill at the back, consume lines from the front
+buf = bytearray()
+lines = 0
+total = 0
+for i in range(20000):
+    buf += b"line " + str(i).encode() + b"\r\n"
+    while True:
+        end = buf.find(b"\r\n")
+        if end < 0:
+            break
+        total += len(buf[:end])
+        del buf[:end + 2]
+        lines += 1
+print(lines, total, len(buf))
+
+big = bytearray()
+for i in range(200000):
+    big.append(i % 256)
+print(len(big), big[-1], sum(big[:1000]))
@@ -0,0 +1,132 @@
+# Test BytesIO/StringIO: shared getvalue, exported getbuffer views, reads
+import io
+
+# getvalue() shares until the next write, which must not change earlier values
+b = io.BytesIO()
+b.write(b"hello ")
+b.write(b"world")
+v1 = b.getvalue()
+v2 = b.getvalue()
+print(v1, v2, v1 == v2, b.tell())
+b.seek(0)
+b.write(b"J")
+print(v1, b.getvalue())
+b.seek(0, 2)
+b.write(b"!" * 3)
+print(v1, b.getvalue(), len(b.getvalue()))
+
+# BytesIO(bytes) reads the initial value without copying; writes copy it
+data = b"abcdefghij" * 3
+b = io.BytesIO(data)
+print(b.read(4), b.read(), b.read())
+b.seek(0)
+whole = b.read()
+print(whole == data, b.tell())
+b.seek(2)
+b.write(b"XY")
+print(data[:6], b.getvalue()[:6], whole[:6])
+b.seek(40)
+b.write(b"z")
+print(b.getvalue()[28:], len(b.getvalue()))
+
+# getbuffer() is a writable view of the contents, exported while held
+# by a with block
+b = io.BytesIO(b"0123456789")
+view = b.getbuffer().__enter__()
+view[0] = ord("A")
+view[1:3] = b"BC"
+print(b.getvalue(), len(view), view[4], bytes(view[5:8]))
+for attempt in ["write", "truncate", "close"]:
+    try:
+        if attempt == "write":
+            b.write(b"x")
+        elif attempt == "truncate":
+            b.truncate(2)
+        else:
+            b.close()
+        print(attempt, "allowed")
+    except BufferError as e:
+        print(attempt, "BufferError:", e)
+print(b.closed, b.tell())
+
+# Views made from the export share it rather than holding their own
+print(bytes(view[2:6]), bytes(view.cast("c")[:2]))
+view.release()
+print(b.write(b"tail"), b.getvalue())
+
+# Released through the context manager
+m = b.getbuffer().__enter__()
+print(bytes(m[:4]))
+m.__exit__(None, None, None)
+b.truncate(4)
+print(b.getvalue())
+b.close()
+print(b.closed)
+try:
+    b.getvalue()
+except ValueError:
+    print("ValueError")
+
+# Only unreleased views hold the export
+b = io.BytesIO(b"abc")
+view = b.getbuffer().__enter__()
+print(len(view), view[0])
+view.release()
+view.release()
+print(b.write(b"d"), b.getvalue())
+
+# Dropped views do not hold it
+v = b.getbuffer()
+bytes(v[2:5])
+v.release()
+print(b.write(b"X"), len(b.getbuffer()), b.write(b"Y"), b.getvalue())
+
+# A value taken while a view is alive does not see its later writes
+v = b.getbuffer()
+before = b.getvalue()
+v[0] = ord("A")
+print(before, b.getvalue(), b.read())
+
+# Large accumulation
+b = io.BytesIO()
+for i in range(20000):
+    b.write(b"row " + str(i).encode() + b"\n")
+value = b.getvalue()
+print(len(value), value[-10:], value is b.getvalue())
+
+# StringIO
+s = io.StringIO("first line\nsecond line\nthird")
+print(repr(s.readline()), repr(s.read(6)), repr(s.readline()), repr(s.readline()), repr(s.readline()))
+s.seek(0)
+print(repr(s.read()), s.tell(), repr(s.read()))
+s.seek(6)
+s.write("LINE")
+print(repr(s.getvalue()))
+s.seek(0, 2)
+s.write("\nfourth\n")
+print(repr(s.getvalue()), s.tell())
+s.seek(0)
+print(s.readlines())
+s.seek(40)
+s.write("x")
+print(repr(s.getvalue()[-5:]), len(s.getvalue()))
+s.truncate(10)
+print(repr(s.getvalue()), s.tell())
+
+s = io.StringIO()
+for i in range(5000):
+    s.write("item ")
+    s.write(str(i))
+    s.write("\n")
+value = s.getvalue()
+print(len(value), value == s.getvalue())
+s.seek(0)
+count = 0
+while True:
+    line = s.readline()
+    if not line:
+        break
+    count += 1
+print(count, repr(line), repr(s.readline(3)))
+s.seek(0)
+print(repr(s.readline(3)), repr(s.readline(100)))
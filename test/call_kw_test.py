@@ -0,0 +1,143 @@
+# Test keyword arguments, defaults, *args and **kwargs at call sites
+
+def full(a, b=1, *args, c, d=2, **kw):
+    return [a, b, args, c, d, kw]
+
+print(full(1, c=3))
+print(full(1, 2, 3, 4, c=5, d=6, e=7))
+print(full(c=9, a=8))
+
+def greet(name, greeting="Hello"):
+    return greeting + " " + name
+
+print(greet("World"))
+print(greet("World", greeting="Hi"))
+print(greet(greeting="Hey", name="you"))
+
+# Closures with defaults
+def outer(x):
+    def inner(y, z=10):
+        return x + y + z
+    return inner
+
+f = outer(1)
+print(f(2))
+print(f(2, z=3))
+print(f(z=4, y=5))
+
+# Methods and constructors
+class Point:
+    def __init__(self, x, y=0):
+        self.x = x
+        self.y = y
+
+    def move(self, dx=0, dy=0):
+        return Point(self.x + dx, self.y + dy)
+
+p = Point(1, y=2).move(dy=5)
+print(p.x, p.y)
+
+# Lambdas
+g = lambda a, b: a * b
+print(g(3, b=4))
+
+# Errors
+try:
+    full(1)
+except TypeError as e:
+    print("TypeError:", e)
+
+try:
+    greet("x", bogus=1)
+except TypeError as e:
+    print("TypeError:", e)
+
+try:
+    full(1, c=1, a=3)
+except TypeError as e:
+    print("TypeError:", e)
+
+# Keyword-only parameters are never filled by position
+def kwonly(a, *, b=5):
+    return [a, b]
+
+def needs_x(*, x):
+    return x
+
+print(kwonly(1), kwonly(1, b=2), needs_x(x=3))
+for call in [lambda: kwonly(1, 2), lambda: needs_x(1), lambda: needs_x(),
+             lambda: greet(), lambda: greet("a", "b", "c"), lambda: g(1, 2, 3),
+             lambda: kwonly(1, 2, b=3), lambda: full()]:
+    try:
+        call()
+    except TypeError as e:
+        print("TypeError:", e)
+
+# Defaults are evaluated once, when the def runs
+def append_to(item, acc=[]):
+    acc.append(item)
+    return acc
+
+append_to(1)
+print(append_to(2))
+
+i = 10
+def snapshot(a=i, *, b=i + 1):
+    return [a, b]
+i = 20
+print(snapshot(), snapshot(b=0), i)
+
+def make_adder(x):
+    def add(y=x):
+        return y + 1
+    return add
+
+print(make_adder(4)(), make_adder(4)(0))
+
+adders = []
+for n in range(3):
+    def scaled(k=n):
+        return k * 10
+    adders.append(scaled)
+print([a() for a in adders])
+
+# Repeated calls reuse the call site's keyword mapping
+total = 0
+for i in range(100):
+    total = total + f(i, z=0)
+print(total)
+
+# Builtins taking keyword arguments
+print(list(enumerate("ab", start=1)), sum([1, 2], start=10), round(2.567, ndigits=1))
+print(dict(a=1, b=2), dict([("x", 1)], y=2), dict({"k": 0}, k=1))
+print(int("ff", base=16), int("0x1f", 0), int("-1_000"), int(" 12 ", base=8))
+print(str(b"caf\xc3\xa9", encoding="utf-8"), str(b"ok", "ascii"), str(encoding="utf-8"))
+print(bytes("hi", encoding="utf-8"), bytearray("hi", encoding="utf-8"))
+m = memoryview(b"abcd")
+print(m.cast("B", shape=[2, 2]).tolist(), m.cast(format="B").tolist())
+for call in [lambda: sum([1], begin=0), lambda: enumerate("a", 0, start=1), lambda: int("9", base=8)]:
+    try:
+        call()
+    except (TypeError, ValueError) as e:
+        print(e)
+
+# **mapping unpacking at call sites
+def kwf(**kw):
+    return sorted(kw.items())
+
+class Box:
+    def __init__(self, a, b=0):
+        self.total = a + b
+    def scale(self, by=1, *, then=0):
+        return self.total * by + then
+
+opts = {"b": 20}
+print(kwf(**{"a": 1}), kwf(x=0, **{"a": 1}), kwf(**opts, z=9), kwf(**{}))
+print(Box(1, **opts).total, Box(**{"a": 2}).scale(**{"by": 3}, then=1), dict(**opts, c=3))
+for call in [lambda: kwf(a=1, **{"a": 2}), lambda: kwf(**{1: 2}), lambda: kwf(**5)]:
+    try:
+        call()
+    except TypeError:
+        print("TypeError")
+
+print("call_kw tests: PASS")
@@ -0,0 +1,77 @@
+# Test closure capture: values bound at creation vs. rebound later
+
+def adder(n):
+    def add(x):
+        return x + n
+    return add
+
+print(adder(3)(4))
+
+def scale_all(xs, k):
+    return list(map(lambda v: v * k, xs))
+
+print(scale_all([1, 2, 3], 10))
+
+def two_level(a):
+    def middle(b):
+        def inner(c):
+            return a + b + c
+        return inner
+    return middle
+
+print(two_level(1)(2)(3))
+
+# Captured value with defaults on the nested function
+def greeter(greeting):
+    def greet(name, punct="!"):
+        return greeting + " " + name + punct
+    return greet
+
+g = greeter("Hello")
+print(g("World"))
+print(g("World", punct="?"))
+
+# Non-escaping callbacks
+def by_length(words):
+    return max(words, key=lambda w: len(w))
+
+print(by_length(["ccc", "a", "bb"]))
+
+def by_last(words):
+    def last(w):
+        return w[-1]
+    return min(words, key=last)
+
+print(by_last(["ab", "ca", "bc"]))
+
+def shortest(words, bonus):
+    return min(words, key=lambda w: len(w) - bonus)
+
+print(shortest(["abc", "de", "fghi"], 1))
+
+def repeated(n):
+    out = []
+    for i in range(n):
+        out.append(max([3, 1, 2], key=lambda v: -v))
+    return out
+
+print(repeated(3))
+
+# Non-escaping nested def called directly
+def total(xs):
+    def sq(v):
+        return v * v
+    s = 0
+    for x in xs:
+        s = s + sq(x)
+    return s
+
+print(total([1, 2, 3]))
+
+# Captured callable
+def compose(f, g):
+    return lambda x: f(g(x))
+
+inc = lambda x: x + 1
+dbl = lambda x: x * 2
+print(compose(inc, dbl)(5))
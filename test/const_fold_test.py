@@ -0,0 +1,87 @@
+# Test compile-time constant folding
+
+# Arithmetic on int constants
+DAY = 60 * 60 * 24
+print(DAY)
+print(-1, +5, ~7, -(-3))
+print(7 // -2, 7 % -2, -7 // 2, -7 % 2, 7 / 2, 1 / 3)
+print(1 << 10, 1024 >> 3, -9 >> 1, 6 & 3, 6 | 3, 6 ^ 3)
+
+# Results outside the long range stay exact
+print(2 ** 100, 1 << 70, 10 ** 20 - 1)
+print(-(2 ** 63), -9223372036854775808, 2 ** 64 // 1)
+print(123456789012345678901234567890, 0xFFFFFFFFFFFFFFFFFF)
+print(9223372036854775807 + 1, -9223372036854775807 - 2)
+print(10 ** 38, -(10 ** 38), ~(2 ** 80))
+
+# Floats, including mixed int/float
+print(7.5 // 2, -7.5 % 2, 2.0 ** 10, 1.5 + 2, 3 * 0.1)
+print(-0.0, 0.0 * -1, 1e308 * 10)
+
+# Strings
+print("prefix" + "suffix", "ab" * 3, 3 * "-", "x" * 0 == "")
+print(len("ab" * 3000), "hello"[1], "hello"[-1])
+
+# Tuples
+print((1, 2, 3)[1], (1, 2) + (3,), (0,) * 3, ("a", (1, 2))[-1])
+t = (1, 2, 3)
+u = (1, 2, 3)
+print(t == u, len(t), t[0] + t[2])
+
+# Comparisons and boolean logic
+print(1 < 2 < 3, 1 == 1.0, "a" < "b", 3 > 4, 0.5 != 0.5)
+print(not True, not 0, not "", not (1,))
+print(1 and 2, 0 or "x", None or 0 or 5, True and False)
+print(2 if True else 3, 2 if 0 else 3)
+
+# Expressions that raise are left for the runtime
+try:
+    print(1 // 0)
+except ZeroDivisionError:
+    print("ZeroDivisionError")
+try:
+    print((1, 2)[5])
+except IndexError:
+    print("IndexError")
+print(1 / 0 if False else "not evaluated")
+
+# Constant branches
+def debug_mode():
+    if __debug__:
+        return "debug"
+    return "release"
+
+print(debug_mode())
+
+def skip_dead(x):
+    if False:
+        return -x
+    while False:
+        x = 0
+    else:
+        x += 1
+    assert True
+    return x
+
+print(skip_dead(1))
+
+# A yield in a dead branch still makes a generator
+def dead_yield():
+    if False:
+        yield 1
+    return 5
+
+print(list(dead_yield()))
+
+# Folded constants inside a loop and a generator
+def scaled():
+    for i in (1, 2, 3):
+        yield i * (2 ** 70)
+
+print(list(scaled()))
+total = 0
+for i in range(3):
+    total += (10, 20, 30)[i] + 2 ** 64
+print(total)
+
+print("Done!")
@@ -0,0 +1,105 @@
+# Test dict views: keys(), values(), items()
+
+d = {"a": 1, "b": 2, "c": 3}
+ks = d.keys()
+vs = d.values()
+its = d.items()
+print(ks)
+print(vs)
+print(its)
+print(len(ks), len(vs), len(its))
+
+# Views are live
+d["d"] = 4
+print(len(ks), list(ks))
+print(list(vs), list(its))
+del d["a"]
+print(ks, bool(ks))
+
+# Membership
+print("b" in ks, "z" in ks, 2 in vs, 9 in vs)
+print(("b", 2) in its, ("b", 3) in its, "b" in its)
+
+# Set-like keys and items views
+e = {"b": 0, "x": 0}
+print(sorted(ks & e.keys()))
+print(sorted(ks | {"y"}))
+print(sorted(ks - {"b", "c"}))
+print(sorted(ks ^ e.keys()))
+print(sorted({"b", "q"} & ks))
+print(ks == {"b", "c", "d"}, {"b", "c", "d"} == ks, ks == {"b"})
+print(d.keys() == {"b": 9, "c": 9, "d": 9}.keys())
+print(sorted(its & {("b", 2), ("c", 0)}))
+print(ks.isdisjoint(["x", "y"]), ks.isdisjoint(["c"]))
+print(vs == vs, d.values() == d.values())
+
+# Looping with unpacking
+total = 0
+for k, v in d.items():
+    total += v
+    print(k, v)
+print(total)
+for k, v in [("p", 1), ["q", 2]]:
+    print(k, v)
+for a, b in ["xy", (1, 2)]:
+    print(a, b)
+pairs = {k: v * 10 for k, v in d.items()}
+print(pairs)
+print([k + str(v) for k, v in d.items() if v > 2])
+for i, k in enumerate(d.keys()):
+    print(i, k)
+
+def local_loop(m):
+    out = []
+    for k, v in m.items():
+        out.append(v)
+    else:
+        out.append(0)
+    for k, v in m.items():
+        if v == 3:
+            break
+        out.append(k)
+    return out
+
+print(local_loop(d))
+
+# Values can be replaced while iterating
+for k in d:
+    d[k] = d[k] + 1
+print(d)
+
+# Resizing while iterating raises RuntimeError
+def grow(m):
+    for k in m:
+        m[k + k] = 0
+
+def shrink(m):
+    for k, v in m.items():
+        del m[k]
+
+def unpack3():
+    for a, b in [(1, 2, 3)]:
+        pass
+
+def unpack1():
+    for a, b in [(1,)]:
+        pass
+
+try:
+    grow(d)
+except RuntimeError as ex:
+    print("RuntimeError:", ex)
+try:
+    shrink(d)
+except RuntimeError as ex:
+    print("RuntimeError:", ex)
+
+# Unpacking errors
+try:
+    unpack3()
+except ValueError as ex:
+    print("ValueError:", ex)
+try:
+    unpack1()
+except ValueError as ex:
+    print("ValueError:", ex)
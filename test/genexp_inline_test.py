@@ -0,0 +1,106 @@
+# Test builtins consuming a generator expression (inlined loops)
+
+def squares(xs):
+    return sum(x * x for x in xs)
+
+print(squares([1, 2, 3, 4]))
+print(sum(x for x in range(10) if x % 2 == 0))
+print(sum(x * y for x in range(3) for y in range(3)))
+
+# Short-circuiting any/all
+def check(xs):
+    seen = []
+    def probe(x):
+        seen.append(x)
+        return x > 2
+    found = any(probe(x) for x in xs)
+    return [found, seen]
+
+print(check([1, 2, 3, 4, 5]))
+print(any(x > 10 for x in [1, 2, 3]))
+print(all(x > 0 for x in [1, 2, 3]))
+print(all(x > 1 for x in [1, 2, 3]))
+print(any(x for x in []))
+print(all(x for x in []))
+
+# list/tuple/min/max
+print(list(x + 1 for x in range(5)))
+print(tuple(c for c in "abc"))
+print(min(len(w) for w in ["apple", "fig", "banana"]))
+print(max(len(w) for w in ["apple", "fig", "banana"]))
+
+# str.join
+words = ["a", "b", "c"]
+print(", ".join(w.upper() for w in words))
+print("".join(str(i) for i in range(5)))
+
+# Closures over enclosing locals
+def scaled(xs, k):
+    return sum(x * k for x in xs)
+
+print(scaled([1, 2, 3], 10))
+
+# Nested inside another call site
+print(len(list(x for x in range(7))))
+
+# A rebound name falls back to a regular call
+def rebound():
+    sum = len
+    return sum(list(x for x in range(3)))
+
+print(rebound())
+
+def my_sum(g):
+    total = 100
+    for v in g:
+        total = total + v
+    return total
+
+def shadow(xs):
+    sum = my_sum
+    return sum(x for x in xs)
+
+print(shadow([1, 2, 3]))
+
+# Empty min raises
+try:
+    min(x for x in [])
+except ValueError:
+    print("ValueError")
+
+# Repeated in a loop
+def loop():
+    total = 0
+    for i in range(5):
+        total = total + sum(j for j in range(i))
+    return total
+
+print(loop())
+
+# The loop variables stay in the generator's own scope
+def scoped():
+    y = 7
+    list(y * 2 for y in range(3))
+    pairs = sum(a * b for a, b in [(1, 2), (3, 4)])
+    a = "outer"
+    n = max(a for a in range(4))
+    squares = [y * y for y in range(3)]
+    return y, a, pairs, n, squares
+
+print(scoped())
+
+def unbound():
+    any(z > 1 for z in range(3))
+    try:
+        return z
+    except NameError:
+        return "NameError"
+
+print(unbound())
+
+def nested():
+    x = "kept"
+    total = sum(x * y for x in range(3) for y in range(x))
+    return x, total
+
+print(nested())
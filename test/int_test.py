@@ -0,0 +1,45 @@
+# Test int: long fast paths and the switch to arbitrary precision
+
+big = 9223372036854775807
+small = -9223372036854775808
+print(big + 1, small - 1, big * 2, small * -1, -small, big + big)
+print((big + 1) - 1 == big, (big + 1) - 1, big + 1 > big)
+print(small // -1, small % -1, 2 ** 64, 2 ** 63 - 1 == big)
+
+# Results that fit in a long again come back as plain ints
+huge = 2 ** 100
+print(huge - huge, huge // huge, huge % 7, (huge + 5) - huge, huge // 2 ** 90)
+print(-huge // 3, -huge % 3, huge // -3, huge % -3, 7 // -huge, 7 % -huge)
+print(-7 // 2, -7 % 2, 7 // -2, 7 % -2)
+
+# Comparisons across the boundary
+print(huge > big, -huge < small, big < huge, small > -huge, huge == 2 ** 100, huge != big)
+print(1 < huge, 1 > -huge, huge >= huge, -huge <= 0, huge == 1, 1 == huge)
+print(sorted([huge, 3, -huge, big, 0]), max(1, huge), min(-huge, small))
+print(huge / 2 ** 99, 1.5 < huge, 3 * huge, huge * 3)
+
+# Shifts and bitwise operations
+print(1 << 62, 1 << 63, 1 << 64, -1 << 63, -1 << 64, 3 << 61, 3 << 62)
+print(huge >> 90, huge >> 200, -huge >> 99, -1 >> 100, 5 >> 64)
+print(huge & 0xFF, huge | 1, huge ^ huge, ~huge, ~0, big & -huge)
+try:
+    1 << -1
+except ValueError as e:
+    print("ValueError:", e)
+
+# Conversions
+print(hex(-1), hex(255), hex(-huge), bin(-5), oct(-8), hex(small), abs(-huge), abs(small))
+print(str(huge), repr(-huge), bool(huge), bool(0), int("123456789012345678901234567890"))
+
+# Counting loop crossing the long range
+n = big - 3
+steps = 0
+while n < big + 3:
+    n += 1
+    steps += 1
+print(n, steps)
+
+total = 0
+for i in range(100000):
+    total += i * i
+print(total)
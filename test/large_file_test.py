@@ -0,0 +1,79 @@
+# Test positions past 2 GB and 4 GB in the io stack, on a sparse file
+import io
+
+path = "/tmp/loretta_large_file_test.bin"
+G = 1 << 30
+far = 5 * G + 123
+
+# FileIO: seek, tell, write and read at 64-bit offsets
+f = io.FileIO(path, "w+")
+print(f.seek(far), f.tell())
+print(f.write(b"far away"))
+print(f.tell(), f.seek(0, 2), f.seek(-8, 2))
+print(f.read(100), f.tell())
+print(f.seek(-4, 1), f.read(4))
+print(f.seek(3 * G), f.read(4), f.tell())
+print(f.truncate(far + 3), f.tell())
+f.seek(0, 2)
+print(f.tell())
+f.close()
+
+# Buffered and text layers report the same positions
+f = open(path, "rb")
+print(f.seek(far - 2), f.read(4), f.tell())
+print(f.seek(-1, 1), f.tell(), f.peek(1)[:1])
+print(f.seek(-3, 2), f.read(), f.tell())
+f.seek(far - 5)
+print(f.read(), f.tell())
+f.seek(far - 5)
+print(f.readline(), f.read(3), f.read1(10))
+f.close()
+
+f = open(path, "r+b")
+f.seek(4 * G)
+f.write(b"line one\nline two\n")
+print(f.tell())
+f.seek(-9, 1)
+print(f.readline(), f.tell())
+print(f.truncate(), f.seek(0, 2))
+f.close()
+
+f = open(path, "r", encoding="utf-8")
+f.seek(4 * G)
+print(repr(f.readline()), f.tell())
+print(repr(f.read(5)), repr(f.read()), f.tell())
+f.close()
+
+# Ints beyond 64 bits are refused, not wrapped
+f = open(path, "rb")
+for pos in [1 << 64, -(1 << 70)]:
+    try:
+        f.seek(pos)
+    except ValueError as e:
+        print("ValueError:", e)
+try:
+    f.seek(-1)
+except OSError:
+    print("OSError")
+f.close()
+f = io.FileIO(path)
+try:
+    f.seek(1 << 63)
+except OverflowError:
+    print("OverflowError")
+f.close()
+
+# BytesIO and StringIO positions are 64-bit too
+b = io.BytesIO(b"abc")
+print(b.seek(3 * G), b.tell(), b.read(), b.read(10))
+print(b.seek(-(4 * G), 1), b.read())
+print(b.seek(6 * G, 1), b.truncate(1), b.getvalue(), b.tell())
+try:
+    b.seek(-1)
+except ValueError as e:
+    print("ValueError:", e)
+s = io.StringIO("xyz")
+print(s.seek(5 * G), s.read(), s.seek(0), s.read(1 << 40), s.truncate(2), s.getvalue())
+
+import posix
+posix.remove(path)
@@ -0,0 +1,71 @@
+# Test list storage strategies: results must not depend on how a list
+# stores its items
+
+# Small ints, then wider ints, then a float, then a string
+a = [1, 2, 3]
+a.append(200)
+print(a, sum(a), min(a), max(a), 3 in a, 7 in a, 2.0 in a)
+a.append(-5)
+a.append(10 ** 6)
+print(a, sum(a), min(a), max(a), -5 in a, 10 ** 6 in a, 256 in a)
+a.append(2.5)
+print(a, sum(a), 2.5 in a)
+a.append("x")
+print(a, "x" in a, a[1:4], a[::-2])
+
+# Floats
+f = [1.5, -2.25, 0.0, 3.0]
+print(f, sum(f), min(f), max(f), 3 in f, 3.0 in f, 1 in f)
+f.sort()
+print(f, f[1:3], f[::2])
+f[0] = 7
+print(f, sum(f))
+
+# Bools and big ints keep their type
+b = [True, False, 1]
+print(b, sum(b), b[0], max(b))
+big = [2 ** 70, 1, 2]
+print(big, sum(big), max(big))
+n = [1, 2]
+n[0] = True
+print(n, n[0])
+
+# Overflowing sums become arbitrary precision
+h = [2 ** 62, 2 ** 62, 2 ** 62]
+print(sum(h), sum(h, 10), sum([0.5, 0.25], 1))
+
+# Slices and copies keep working across types
+c = list(range(20))
+print(c[2:15:3], c[-1:5:-4], c[5:2], len(c[:]))
+c[3:6] = ["a", "b"]
+print(c[:6])
+d = c.copy()
+d.reverse()
+print(d[:4], c[:4])
+e = [0] * 5 + [1.0] * 2
+print(e, [1, 2] * 3)
+del c[::2]
+print(c)
+c.insert(0, 9.5)
+print(c[:3], c.pop(), c.pop(0))
+
+# Sorting kernels
+s = [5, 300, -7, 42, 300, 0]
+s.sort()
+print(s)
+s.sort(reverse=True)
+print(s)
+bs = [9, 3, 255, 0, 3]
+print(sorted(bs), sorted(bs, reverse=True))
+z = [0.0, -0.0, 1.0, -1.0]
+print(sorted(z))
+m = [3, 1.5, 2]
+m.sort()
+print(m)
+
+# Lists built by appending many ints
+big_list = []
+for i in range(100000):
+    big_list.append(i * 3)
+print(len(big_list), sum(big_list), max(big_list), 299997 in big_list, 5 in big_list)
+print(big_list[-3:], big_list[50000])
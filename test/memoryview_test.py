@@ -0,0 +1,112 @@
+# Test memoryview: zero-copy views with formats, shapes and strides
+import io
+
+data = bytearray(b"0123456789abcdef")
+m = memoryview(data)
+print(len(m), m.nbytes, m.itemsize, m.format, m.ndim, m.shape, m.strides, m.readonly)
+print(m[0], m[-1], m.tobytes(), m.obj is data)
+
+# Slices are views of the same memory, with or without a step
+s = m[2:10]
+print(s.tobytes(), len(s), s.shape, s.strides)
+t = s[::3]
+print(t.tobytes(), t.tolist(), t.strides, t.contiguous, s.contiguous)
+r = m[::-4]
+print(r.tolist(), r.strides)
+s[0] = 33
+t[1] = 35
+r[0] = 64
+print(data)
+m[0:4] = b"WXYZ"
+m[10:16:2] = b"+++"
+print(data, m[10:16:2].tobytes(), m[3:0:-1].tobytes())
+print(m == data, m[0:4] == b"WXYZ", m[0:4] == b"WXYy", memoryview(b"ab") == memoryview(b"ab"))
+
+# Casting to wider formats and shapes
+raw = bytearray(16)
+words = memoryview(raw).cast("I")
+print(words.format, words.itemsize, len(words), words.shape, words.strides)
+words[0] = 0x01020304
+words[3] = 4294967295
+print(list(raw[:4]), words.tolist(), words[3])
+grid = memoryview(raw).cast("B", [4, 4])
+print(grid.shape, grid.strides, grid[0, 3], grid[3, 0], grid.tolist()[0])
+grid[1, 1] = 200
+print(raw[5], grid.tobytes()[4:8])
+shorts = memoryview(raw).cast("h")
+shorts[7] = -2
+print(shorts[7], shorts.tolist()[6:], raw[14:].hex())
+floats = memoryview(bytearray(16)).cast("d")
+floats[0] = 1.5
+floats[1] = 3
+print(floats.tolist())
+longs = memoryview(bytearray(8)).cast("q")
+longs[0] = -5
+print(longs[0], memoryview(longs.obj).cast("Q")[0] if False else longs.cast("B").cast("Q")[0])
+back = words.cast("B")
+print(back.format, len(back), back.tobytes() == bytes(raw))
+
+# Read-only views and errors
+ro = memoryview(b"abc")
+print(ro.readonly, ro.toreadonly().readonly, memoryview(data).toreadonly().readonly)
+try:
+    ro[0] = 1
+except TypeError as e:
+    print("TypeError:", e)
+try:
+    words[0] = -1
+except ValueError as e:
+    print("ValueError:", e)
+try:
+    memoryview(raw).cast("I").cast("h")
+except TypeError as e:
+    print("TypeError:", e)
+try:
+    memoryview(bytearray(5)).cast("I")
+except TypeError as e:
+    print("TypeError:", e)
+try:
+    m[0:2] = b"abc"
+except ValueError as e:
+    print("ValueError:", e)
+try:
+    memoryview("text")
+except TypeError as e:
+    print("TypeError:", e)
+
+# A released view can no longer be used
+buf = bytearray(b"xyz")
+v1 = memoryview(buf)
+print(v1[1:].tobytes())
+v1.release()
+print(buf)
+try:
+    len(v1)
+except ValueError as e:
+    print("ValueError:", e)
+
+# BytesIO.getbuffer() exposes the stream's own memory
+bio = io.BytesIO(b"stream data")
+view = bio.getbuffer()
+view[0] = 83
+print(bio.getvalue(), len(view))
+view.release()
+bio.seek(0, 2)
+bio.write(memoryview(b"--more--")[2:6])
+print(bio.getvalue())
+
+# Files take views and slices without copying them first
+path = "/tmp/loretta_memoryview_test.bin"
+payload = bytearray(b"header:payload:trailer")
+f = open(path, "wb")
+f.write(memoryview(payload)[7:14])
+try:
+    f.write(memoryview(payload)[::7])
+except BufferError as e:
+    print("BufferError:", e)
+f.write(memoryview(payload)[::7].tobytes())
+f.write(payload)
+f.close()
+f = open(path, "rb")
+print(f.read())
+f.close()
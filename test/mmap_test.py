@@ -0,0 +1,133 @@
+# Test mmap: file-backed and anonymous maps, access modes, memoryview export
+import mmap
+
+path = "/tmp/loretta_mmap_test.bin"
+
+f = open(path, "wb")
+for i in range(2000):
+    f.write(b"row " + str(i).encode() + b"\n")
+f.write(b"tail without newline")
+f.close()
+
+# Read-only map: slicing, searching and the file-like interface
+f = open(path, "rb")
+m = mmap.mmap(f.fileno(), 0, access=mmap.ACCESS_READ)
+f.close()
+print(len(m), m.size(), m[0], m[-1], m[:9], m[4:12:2], m[-4:])
+print(m.find(b"row 1999"), m.find(b"row 1999", 20000), m.find(b"nothing"), m.rfind(b"row 1"), m.rfind(b"row", 0, 10))
+print(m.find(b"\n", 100, 105), m.rfind(b"\n"), m.find(b"tail"), m.find(b""), m.rfind(b""))
+print(m.readline(), m.readline(), m.tell())
+m.seek(-8, 2)
+print(m.read(), m.read(), m.read_byte() if m.tell() < len(m) else "end")
+m.seek(3)
+print(m.read(4), m.read_byte(), m.tell())
+m.seek(2, 1)
+print(m.tell(), m.read(3))
+lines = 0
+m.seek(0)
+while True:
+    line = m.readline()
+    if not line:
+        break
+    lines += 1
+print(lines, line == b"")
+try:
+    m[0] = 65
+except TypeError as e:
+    print("TypeError:", e)
+try:
+    m.seek(len(m) + 1)
+except ValueError as e:
+    print("ValueError:", e)
+try:
+    m[len(m)]
+except IndexError as e:
+    print("IndexError:", e)
+print(bytes(m)[:5], m.closed)
+m.close()
+print(m.closed)
+try:
+    m.read(1)
+except ValueError as e:
+    print("ValueError:", e)
+
+# Read-write map: changes reach the file
+f = open(path, "r+b")
+m = mmap.mmap(f.fileno(), 0)
+m[0:3] = b"ROW"
+m[4] = ord("#")
+m.seek(10)
+m.write(b"XY")
+m.write_byte(33)
+m.move(20, 0, 5)
+m.flush()
+print(m[:25], m.tell())
+try:
+    m[0:3] = b"toolong"
+except IndexError as e:
+    print("IndexError:", e)
+try:
+    m.seek(len(m) - 1)
+    m.write(b"ab")
+except ValueError as e:
+    print("ValueError:", e)
+m.close()
+m = mmap.mmap(f.fileno(), 0).__enter__()
+m[1] = ord("o")
+m.__exit__(None, None, None)
+print(m.closed)
+print(f.read(25))
+f.close()
+
+# Copy-on-write map: changes stay private
+f = open(path, "r+b")
+m = mmap.mmap(f.fileno(), 0, access=mmap.ACCESS_COPY)
+m[0:3] = b"cow"
+print(m[:6], f.read(6))
+m.close()
+f.close()
+
+# Offset maps
+f = open(path, "rb")
+m = mmap.mmap(f.fileno(), 100, access=mmap.ACCESS_READ, offset=mmap.ALLOCATIONGRANULARITY)
+f.seek(mmap.ALLOCATIONGRANULARITY)
+print(len(m), m[:100] == f.read(100))
+m.close()
+try:
+    mmap.mmap(f.fileno(), 0, access=mmap.ACCESS_READ, offset=1)
+except OSError:
+    print("OSError")
+try:
+    mmap.mmap(f.fileno(), 10 ** 7, access=mmap.ACCESS_READ)
+except ValueError as e:
+    print("ValueError:", e)
+try:
+    mmap.mmap(f.fileno(), 0)
+except PermissionError:
+    print("PermissionError")
+f.close()
+
+f = open(path, "wb")
+f.close()
+f = open(path, "rb")
+try:
+    mmap.mmap(f.fileno(), 0, access=mmap.ACCESS_READ)
+except ValueError as e:
+    print("ValueError:", e)
+f.close()
+
+# memoryview exports the mapping without a copy
+m = mmap.mmap(-1, 64)
+v = memoryview(m)
+v[0:4] = b"abcd"
+print(m[:4], v.readonly, len(v), v[1], v[2:4].tobytes(), bytes(v[:2]))
+words = v.cast("I")
+words[1] = 0x01020304
+print(len(words), m[4:8] == bytes([4, 3, 2, 1]), words[1] == 0x01020304)
+m[8:12] = b"wxyz"
+print(v[8:12].tobytes(), v[8:12] == b"wxyz")
+m.write(b"hello")
+print(m[:5], m.tell())
+words.release()
+v.release()
+m.close()
@@ -0,0 +1,135 @@
+# Test method calls on native objects: direct call sites, escaped bound methods
+import io
+import sys
+
+
+class Sink:
+    def __init__(self):
+        self.parts = []
+
+    def write(self, s):
+        self.parts.append(s)
+        return len(s)
+
+
+# One call site seeing several receiver classes, native and not
+sinks = [("s", io.StringIO()), ("b", io.BytesIO()), ("s", Sink()), ("s", io.StringIO()),
+         ("l", []), ("b", io.BytesIO())]
+for i in range(3):
+    for kind, s in sinks:
+        if kind == "l":
+            s.append(i)
+        elif kind == "b":
+            s.write(b"b" + str(i).encode())
+        else:
+            s.write("s" + str(i))
+print(sinks[0][1].getvalue(), sinks[1][1].getvalue(), sinks[2][1].parts, sinks[4][1])
+
+# More receiver classes than a site links, then the same ones again
+objs = [("r", io.StringIO("a\nb\n")), ("r", io.BytesIO(b"c\nd\n")), ("t", "e f"),
+        ("c", [3, 1, 2]), ("g", {"k": 1}), ("t", b"g h"), ("w", Sink()), ("g", {"k": 2})]
+for round in range(2):
+    out = []
+    for kind, o in objs:
+        if kind == "t":
+            out.append(o.split())
+        elif kind == "c":
+            out.append(o.count(1))
+        elif kind == "g":
+            out.append(o.get("k"))
+        elif kind == "w":
+            out.append(o.write("x"))
+        else:
+            out.append(o.read(2))
+    print(out)
+
+# Defaults fill in missing trailing arguments
+b = io.BytesIO(b"0123456789")
+print(b.read(3), b.seek(2), b.seek(2, 1), b.read(), b.seek(-3, 2), b.read(1))
+print(b.truncate(), b.getvalue(), b.tell())
+
+# Method values escape as bound methods that keep working
+s = io.StringIO()
+w = s.write
+for word in ["alpha", " ", "beta"]:
+    w(word)
+print(s.getvalue(), w("!"), s.getvalue())
+readers = [io.BytesIO(b"xy").read, io.StringIO("zw").read]
+print([r(1) for r in readers], [r() for r in readers])
+calls = list(map(io.StringIO("1\n2\n3\n").readline, [-1, -1, 1]))
+print(calls)
+
+# A call with the wrong number of arguments is a TypeError, either way
+for f in [lambda: b.read(1, 2), lambda: b.write(), lambda: b.tell(1), lambda: s.seek()]:
+    try:
+        f()
+    except TypeError:
+        print("TypeError")
+bound_read = b.read
+try:
+    bound_read(1, 2, 3)
+except TypeError:
+    print("TypeError")
+
+# Unknown names are still AttributeErrors, properties still attributes
+try:
+    b.nosuch()
+except AttributeError:
+    print("AttributeError")
+try:
+    b.nosuch
+except AttributeError:
+    print("AttributeError")
+print(s.closed, callable(s.close), sys.stdout.line_buffering in (True, False))
+
+# The method is looked up before the arguments are evaluated
+class Holder:
+    def f(self, x):
+        return "old"
+
+
+def new_f(x):
+    return "new"
+
+
+a = Holder()
+
+
+def change():
+    a.f = new_f
+    return 1
+
+
+print(a.f(change()))
+
+
+def side():
+    print("side")
+    return 1
+
+
+try:
+    a.missing(side())
+except AttributeError:
+    print("AttributeError")
+try:
+    b.nosuch(side())
+except AttributeError:
+    print("AttributeError")
+
+# memoryview methods
+m = memoryview(b"abcd")
+print(m.tobytes(), m.hex(), m.tolist()[:2], m.cast("B").nbytes, m.toreadonly().readonly)
+tb = m.tobytes
+print(tb(), bytes(m.cast("B", [2, 2]).tobytes()))
+m.release()
+try:
+    m.tobytes()
+except ValueError:
+    print("ValueError")
+
+# Standard streams go through the same sites
+sys.stdout.write("written\n")
+out = sys.stdout
+out.write("via bound\n")
+out.flush()
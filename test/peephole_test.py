@@ -0,0 +1,123 @@
+# Test code shapes rewritten by the bytecode optimizer
+
+# Constant conditions: the dead branch is removed
+def always():
+    if True:
+        return "yes"
+    return "no"
+
+def never():
+    if False:
+        return "unreachable"
+    return "reached"
+
+print(always(), never())
+
+# while True with break and an unreachable tail
+def first_even(xs):
+    i = 0
+    while True:
+        if xs[i] % 2 == 0:
+            break
+        i = i + 1
+    return xs[i]
+
+print(first_even([1, 3, 4, 5]))
+
+# while 1 that only exits by return
+def countdown(n):
+    out = []
+    while 1:
+        out.append(n)
+        if n == 0:
+            return out
+        n = n - 1
+
+print(countdown(3))
+
+# Branch over goto (break/continue inside if)
+def odd_until(xs, stop):
+    out = []
+    for x in xs:
+        if x == stop:
+            break
+        if x % 2 == 0:
+            continue
+        out.append(x)
+    return out
+
+print(odd_until([1, 2, 3, 4, 5, 6, 7], 6))
+
+# if/else that both return, raise followed by dead code
+def sign(n):
+    if n < 0:
+        return -1
+    elif n == 0:
+        return 0
+    else:
+        return 1
+
+def check(n):
+    if n > 0:
+        return n
+    raise ValueError("negative")
+
+print(sign(-5), sign(0), sign(7))
+print(check(2))
+try:
+    check(-1)
+except ValueError as e:
+    print("caught", e)
+
+# Temporaries stored and immediately reloaded
+def squares(n):
+    result = [i * i for i in range(n)]
+    return result
+
+print(squares(4))
+
+# Constant conditions in expressions and comprehensions
+print("a" if 1 else "b", "c" if "" else "d")
+print([x for x in range(5) if True])
+print([x for x in range(5) if None])
+
+# Nested loops returning from the inner loop
+def find(grid, target):
+    for row in grid:
+        for v in row:
+            if v == target:
+                return True
+    return False
+
+print(find([[1, 2], [3, 4]], 3), find([[1, 2]], 9))
+
+x = True
+while x:
+    x = False
+print(x)
+
+# Loop variables and locals bound in a loop body are live after the loop
+def last(n):
+    for i in range(n):
+        pass
+    return i
+
+def first_over(xs, limit):
+    for x in xs:
+        if x > limit:
+            break
+    return x
+
+def inner_last(n):
+    for i in range(n):
+        for j in range(i):
+            doubled = j * 2
+    return i, j, doubled
+
+def drain(n):
+    while n > 0:
+        seen = n
+        n -= 1
+    return seen
+
+print(last(3), first_over([1, 5, 2], 3), inner_last(4), drain(3))
@@ -0,0 +1,71 @@
+# Test print() keywords and the buffered standard streams
+import sys
+
+print("a", "b", "c", sep="-")
+print("no newline", end="")
+print(" <- joined")
+print(1, 2, 3, sep="", end="!\n")
+print("x", "y", sep=None, end=None)
+print()
+print(sep="|")
+print("flushed", flush=True)
+print("to stdout", file=sys.stdout)
+print("to stderr", file=sys.stderr, flush=True)
+print("to none", file=None)
+
+
+class Collector:
+    def __init__(self):
+        self.parts = []
+
+    def write(self, s):
+        self.parts.append(s)
+
+    def flush(self):
+        self.parts.append("<flush>")
+
+
+c = Collector()
+print("one", 2, [3], sep=", ", file=c)
+print("last", end="", file=c, flush=True)
+print(c.parts)
+
+# An open text file takes the pieces directly
+path = "/tmp/loretta_print_kw_test.txt"
+f = open(path, "w")
+for i in range(3):
+    print("line", i, sep=":", file=f)
+print("end", end="", file=f)
+f.close()
+print(repr(open(path).read()))
+
+try:
+    print("x", sep=1)
+except TypeError:
+    print("TypeError")
+try:
+    print("x", color=True)
+except TypeError:
+    print("TypeError")
+
+# Standard streams
+print(sys.stdout.isatty(), sys.stderr.fileno(), sys.stdout.fileno(), sys.stdin.fileno())
+print(sys.stdout.line_buffering, sys.stderr.line_buffering)
+print(sys.stdout.writable(), sys.stdout.readable(), sys.stdin.readable())
+n = sys.stdout.write("written\n")
+print(n)
+sys.stdout.flush()
+
+# Redirecting sys.stdout redirects print
+saved = sys.stdout
+sys.stdout = c
+print("captured")
+sys.stdout = saved
+print(c.parts[-2:])
+
+# Lots of output goes through the buffer
+for i in range(300):
+    print(i, i * i, sep="\t")
+
+import posix
+posix.remove(path)
@@ -0,0 +1,110 @@
+# Test text-mode line reading: block decoding, newline modes, split characters
+
+path = "/tmp/loretta_readline_test.txt"
+
+# Multi-byte characters land across every block boundary
+f = open(path, "w", encoding="utf-8")
+for i in range(3000):
+    f.write("line " + str(i) + " é中ü " + "x" * (i % 37) + "\n")
+f.write("last line without newline")
+f.close()
+
+f = open(path, encoding="utf-8")
+count = 0
+chars = 0
+last = ""
+for line in f:
+    count += 1
+    chars += len(line)
+    last = line
+f.close()
+print(count, chars, last)
+
+f = open(path)
+print(len(f.readline()), f.readline(3), repr(f.readline(0)), f.readline()[-2:])
+print(len(f.read(12)), f.readline())
+lines = f.readlines()
+print(len(lines), repr(lines[-1]), repr(f.readline()), repr(f.read()))
+f.close()
+
+# One line longer than a block
+f = open(path, "w")
+f.write("a" * 20000 + "\n" + "b" * 9000)
+f.close()
+f = open(path)
+first = f.readline()
+rest = f.read()
+print(len(first), first[-2:] == "a\n", len(rest), repr(f.readline()))
+f.close()
+
+# Newline modes on input
+data = b"one\r\ntwo\rthree\nfour\r"
+f = open(path, "wb")
+f.write(data)
+f.close()
+for mode in [None, "", "\n", "\r", "\r\n"]:
+    f = open(path, newline=mode)
+    print(repr(mode), [line for line in f])
+    f.close()
+
+# A \r\n split across blocks is still one line ending
+f = open(path, "wb")
+f.write(b"x" * 8191 + b"\r\nnext\r\n")
+f.close()
+for mode in [None, ""]:
+    f = open(path, newline=mode)
+    print(repr(mode), [len(line) for line in f])
+    f.close()
+
+# Newline modes on output
+for mode in [None, "", "\n", "\r\n"]:
+    f = open(path, "w", newline=mode)
+    f.write("a\nb\n")
+    f.close()
+    f = open(path, "rb")
+    print(repr(mode), f.read())
+    f.close()
+
+# Decoding errors
+f = open(path, "wb")
+f.write(b"ok\n\xff\xfebad\n")
+f.close()
+f = open(path, errors="replace")
+lines = [line for line in f]
+print([len(line) for line in f], len(lines[1]), lines[1].endswith("bad\n"), ord(lines[1][0]))
+f.close()
+f = open(path, errors="ignore")
+print(f.read())
+f.close()
+f = open(path)
+try:
+    f.readline()
+except UnicodeError:
+    print("UnicodeError")
+f.close()
+try:
+    open(path, newline="x")
+except ValueError as e:
+    print("ValueError:", e)
+
+# Python codec names, however spelled
+f = open(path, "wb")
+f.write(b"caf\xe9 \xb5\n")
+f.close()
+for name in ["latin-1", "latin_1", "Latin1", "iso-8859-1", "ISO8859_1", "cp1252"]:
+    f = open(path, encoding=name)
+    print(name, f.read().rstrip())
+    f.close()
+f = open(path, "w", encoding="utf_8")
+f.write("é\n")
+f.close()
+f = open(path, encoding="ascii", errors="replace")
+print([ord(c) for c in f.read()])
+f.close()
+print(b"caf\xe9".decode("latin-1"), "café".encode("latin_1"), "ok".encode("US-ASCII"),
+      bytearray(b"\xc3\xa9").decode("UTF_8"))
+for name in ["latin-9x", "no such codec"]:
+    try:
+        open(path, encoding=name)
+    except LookupError as e:
+        print("LookupError:", e)
@@ -0,0 +1,98 @@
+# Test posix.scandir with cached DirEntry attributes, and the native walk
+import posix
+try:
+    from posix import walk
+except ImportError:
+    from os import walk
+
+root = "/tmp/loretta_scandir_test"
+
+
+def remove_tree(path):
+    for entry in posix.scandir(path):
+        if entry.is_dir(follow_symlinks=False):
+            remove_tree(entry.path)
+        else:
+            posix.remove(entry.path)
+    posix.rmdir(path)
+
+
+if posix.access(root, posix.F_OK):
+    remove_tree(root)
+posix.mkdir(root)
+for d in ["a", "a/deep", "a/deep/er", "b", "c"]:
+    posix.mkdir(root + "/" + d)
+for name in ["top.txt", "a/one.txt", "a/deep/two.txt", "a/deep/er/three.txt", "b/four.txt"]:
+    f = open(root + "/" + name, "w")
+    f.write(name * 3)
+    f.close()
+f = open(root + "/c/empty", "w")
+f.close()
+
+# Entries, kinds and cached stat results
+entries = sorted(posix.scandir(root), key=lambda e: e.name)
+print([e.name for e in entries])
+print([e.path for e in entries])
+print([(e.is_dir(), e.is_file(), e.is_symlink()) for e in entries])
+top = entries[-1]
+st = top.stat()
+print(top, repr(top), st.st_size, st.st_mode & 0o170000 == 0o100000, st.st_size == posix.stat(top.path).st_size)
+print(entries[0].stat().st_mode & 0o170000 == 0o040000, top.inode() == posix.stat(top.path).st_ino or top.inode() > 0)
+posix.remove(top.path)
+print(top.is_file(), top.stat().st_size)
+
+# The iterator closes at the end and as a context manager
+it = posix.scandir(root + "/a")
+print(sorted(e.name for e in it), list(it))
+it = posix.scandir(root + "/a")
+it.close()
+print(list(it))
+it = posix.scandir(root + "/b").__enter__()
+print([e.name for e in it])
+it.__exit__(None, None, None)
+try:
+    posix.scandir(root + "/missing")
+except FileNotFoundError:
+    print("FileNotFoundError")
+try:
+    posix.scandir(root + "/b/four.txt")
+except NotADirectoryError:
+    print("NotADirectoryError")
+
+
+def show(walker):
+    out = []
+    for dirpath, dirnames, filenames in walker:
+        out.append((dirpath[len(root):], sorted(dirnames), sorted(filenames)))
+    return out
+
+
+# Top-down, bottom-up and pruning
+down = show(walk(root))
+print(sorted(down))
+up = show(walk(root, topdown=False))
+print(sorted(up) == sorted(down), up[-1][0] == "", [p for p, d, f in up].index("/a/deep/er") < [p for p, d, f in up].index("/a"))
+pruned = []
+for dirpath, dirnames, filenames in walk(root):
+    if "deep" in dirnames:
+        dirnames.remove("deep")
+    pruned.append(dirpath[len(root):])
+print(sorted(pruned))
+errors = []
+print(list(walk(root + "/missing", onerror=lambda e: errors.append(isinstance(e, FileNotFoundError)))), errors)
+print(list(walk(root + "/missing")))
+
+# Wide directory
+posix.mkdir(root + "/wide")
+for i in range(500):
+    f = open(root + "/wide/f" + str(i), "w")
+    f.close()
+count = 0
+files = 0
+for dirpath, dirnames, filenames in walk(root):
+    count += 1
+    files += len(filenames)
+print(count, files)
+
+remove_tree(root)
+print(posix.access(root, posix.F_OK))
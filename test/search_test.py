@@ -0,0 +1,66 @@
+# Test str and bytes search, split, replace, case and class kernels
+
+b = b"hello world, hello bytes"
+print(b.find(b"wor"), b.find(b"hello", 1), b.find(111), b.count(b"l"), b.rfind(b"hello"))
+print(b.upper(), b.lower(), b"lo" in b, 104 in b, b"xyz" in b)
+print(b.split(), b.split(b", "), b.replace(b"hello", b"bye"), b.replace(b"l", b"L", 2))
+print(b"123".isdigit(), b"12a".isdigit(), b"abcXYZ".isalpha(), b"abc1".isalnum(), b"".isdigit())
+s = "a,b,,c"
+print(s.split(","), s.count(","), "  a  b ".split(), s.find("b"), s.index("c"))
+print("a b  c".split(None, 1), "a,b,c".split(",", maxsplit=1), "x".split(","))
+print("hello".count("l"), "hello".count(""), "hello".count("l", 3), "hello".find("l", -2), "hello".rfind("l"))
+print("aaa".replace("a", "b", 2), "ab".replace("", "-"), "ab".replace("", "-", 1))
+try:
+    "abc".index("z")
+except ValueError as e:
+    print("ValueError:", e)
+
+# Word-at-a-time kernels agree with a naive search at every length
+seed = 7
+def rnd(n):
+    global seed
+    seed = (seed * 1103515245 + 12345) % 2147483648
+    return seed % n
+alphabet = [97, 98, 65, 90, 122, 48, 57, 200, 0, 32]
+total = 0
+mism = 0
+for trial in range(400):
+    n = rnd(40)
+    data = bytes([alphabet[rnd(10)] for _ in range(n)])
+    m = rnd(4)
+    needle = bytes([alphabet[rnd(10)] for _ in range(m)])
+    f = data.find(needle)
+    naive = -1
+    for i in range(n - m + 1):
+        if data[i:i + m] == needle:
+            naive = i
+            break
+    if f != naive:
+        mism += 1
+    total += f + data.count(needle) + len(data.upper()) + data.upper().count(b"A") + data.lower().count(b"z")
+    total += int(data.isdigit()) + int(data.isalpha()) * 2 + int(data.isalnum()) * 4
+print(total, mism)
+
+# A start past the end finds nothing, not even an empty needle
+print("abc".find("", 100), "abc".count("", 100), "abc".find("", 3), "abc".count("", 3))
+print(b"abc".find(b"", 100), b"abc".count(b"", 100), bytearray(b"abc").find(b"", 4))
+print("abc".rfind("", 100), b"abc".rfind(b"", 4), "abc".find("c", -100, 100))
+
+# With maxsplit reached, the rest keeps its trailing whitespace
+print(" x ".split(None, 0), "a b  c  ".split(None, 1), "  ".split(None, 0))
+print(b" x ".split(None, 0), b"a b  c  ".split(None, 1), bytearray(b" x ").split(None, 0))
+
+# rfind and rindex take a start and an end
+s = "abcabcabc"
+print(s.rfind("abc", 1), s.rfind("abc", 1, 6), s.rfind("abc", 4, 6), s.rfind("c", -4, -1))
+print(s.rindex("b", 0, 5), s.rindex("a", 3), s.rindex(""), s.rindex("", 2, 4))
+b = b"abcabcabc"
+print(b.rfind(b"abc", 1), b.rfind(b"abc", 1, 6), b.rfind(99, -4, -1), b.rindex(b"a", 3))
+ba = bytearray(b"abcabcabc")
+del ba[:1]
+print(ba.rfind(b"abc", 1), ba.rfind(b"bc", 0, 5), ba.rindex(b"c", 1, 6))
+for call in [lambda: s.rindex("abc", 1, 5), lambda: b.rindex(b"x", 2), lambda: ba.rindex(b"a", 6)]:
+    try:
+        call()
+    except ValueError as e:
+        print("ValueError:", e)
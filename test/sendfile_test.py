@@ -0,0 +1,102 @@
+# Test file-to-file and file-to-socket transfers: sendfile, copyfile, copyfileobj
+import posix
+import shutil
+import socket
+
+src = "/tmp/loretta_sendfile_src.bin"
+dst = "/tmp/loretta_sendfile_dst.bin"
+
+f = open(src, "wb")
+for i in range(5000):
+    f.write(b"line " + str(i).encode() + b"\n")
+f.close()
+data = open(src, "rb").read()
+print(len(data))
+
+# posix.sendfile between raw descriptors
+fin = open(src, "rb", buffering=0)
+fout = open(dst, "wb", buffering=0)
+print(posix.sendfile(fout.fileno(), fin.fileno(), None, 100), fin.tell(), fout.tell())
+print(posix.sendfile(fout.fileno(), fin.fileno(), 1000, 50), fin.tell(), fout.tell())
+print(posix.sendfile(fout.fileno(), fin.fileno(), None, 10 ** 9), fin.tell())
+print(posix.sendfile(fout.fileno(), fin.fileno(), None, 10), fin.tell())
+fin.close()
+fout.close()
+copied = open(dst, "rb").read()
+print(len(copied), copied[:100] == data[:100], copied[100:150] == data[1000:1050], copied[150:] == data[100:])
+try:
+    posix.sendfile(12345, 12346, None, 1)
+except OSError:
+    print("OSError")
+
+# shutil.copyfile
+print(shutil.copyfile(src, dst))
+print(open(dst, "rb").read() == data)
+try:
+    shutil.copyfile("/tmp/loretta_no_such_file", dst)
+except FileNotFoundError:
+    print("FileNotFoundError")
+
+# shutil.copyfileobj honours buffered read-ahead and pending writes
+fin = open(src, "rb")
+print(fin.readline())
+fout = open(dst, "wb")
+fout.write(b"HEADER\n")
+shutil.copyfileobj(fin, fout)
+print(fin.read(), fin.tell() == len(data))
+fout.write(b"TRAILER\n")
+fout.close()
+fin.close()
+copied = open(dst, "rb").read()
+print(copied[:20], copied[-20:], len(copied) == len(data) - 7 + 15)
+
+# Appending target
+fout = open(dst, "ab")
+fin = open(src, "rb")
+fin.seek(len(data) - 10)
+shutil.copyfileobj(fin, fout)
+fout.close()
+fin.close()
+print(open(dst, "rb").read()[-30:])
+
+# Text files go through read and write
+fin = open(src)
+fout = open(dst, "w")
+shutil.copyfileobj(fin, fout, 1000)
+fin.close()
+fout.close()
+print(open(dst, "rb").read() == data)
+
+# socket.sendfile over a loopback connection
+server = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+server.bind(("127.0.0.1", 0))
+server.listen(1)
+client = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+client.connect(server.getsockname())
+conn, addr = server.accept()
+print(client.fileno() > 2, conn.fileno() > 2, client.fileno() != conn.fileno())
+f = open(src, "rb")
+print(client.sendfile(f, 10, 20), f.tell())
+received = b""
+while len(received) < 20:
+    received += conn.recv(100)
+print(received == data[10:30])
+print(posix.sendfile(client.fileno(), f.fileno(), 0, 16), f.tell())
+received = b""
+while len(received) < 16:
+    received += conn.recv(100)
+print(received)
+f.seek(0)
+print(client.sendfile(f), f.tell() == len(data))
+received = b""
+while len(received) < len(data):
+    received += conn.recv(65536)
+print(received == data)
+f.close()
+conn.close()
+client.close()
+server.close()
+print(client.fileno())
+
+posix.remove(src)
+posix.remove(dst)
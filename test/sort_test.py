@@ -0,0 +1,93 @@
+# Test sorted() and list.sort()
+
+print(sorted([5, 2, 9, 1, 5, 6]))
+print(sorted([3.5, -1.0, 2.25, 0.0]))
+print(sorted(["pear", "apple", "fig", "Banana"]))
+print(sorted([(2, "b"), (1, "z"), (2, "a"), (1, "a")]))
+print(sorted([3, 1.5, 2, True, -4.0]))
+print(sorted([]), sorted([7]), sorted("hello"), sorted((3, 1, 2)))
+print(sorted({"b": 1, "a": 2, "c": 0}))
+print(sorted(x * x for x in range(-3, 3)))
+
+# reverse keeps equal items in their original order
+words = ["bb", "a", "ccc", "dd", "e", "fff"]
+print(sorted(words, key=len))
+print(sorted(words, key=len, reverse=True))
+print(sorted(words, reverse=True))
+print(sorted(words, key=None))
+
+# list.sort() sorts in place and returns None
+nums = [4, -2, 7, 0, -2, 3]
+print(nums.sort(), nums)
+nums.sort(reverse=True)
+print(nums)
+nums.sort(key=abs)
+print(nums)
+
+# The key function is called once per item
+calls = []
+def key(x):
+    calls.append(x)
+    return -x
+data = list(range(50))
+data.sort(key=key)
+print(len(calls), data[:5])
+
+# Stability on a larger input with many equal keys
+seed = 12345
+pairs = []
+for i in range(2000):
+    seed = (seed * 1103515245 + 12345) % 2147483648
+    pairs.append((seed % 37, i))
+by_first = sorted(pairs, key=lambda p: p[0])
+ok = True
+for i in range(1, len(by_first)):
+    a = by_first[i - 1]
+    b = by_first[i]
+    if a[0] > b[0] or (a[0] == b[0] and a[1] > b[1]):
+        ok = False
+print(ok, by_first[:3], by_first[-3:])
+
+# Larger inputs exercise run detection and galloping merges
+seq = []
+for i in range(3000):
+    seed = (seed * 1103515245 + 12345) % 2147483648
+    seq.append(seed % 1000)
+seq.extend(range(500))
+seq.extend(range(400, 0, -1))
+s1 = sorted(seq)
+print(len(s1), s1[:4], s1[-4:], sum(s1[::97]))
+print(sorted(seq, reverse=True)[:5])
+strs = [str(v) for v in seq]
+print(sorted(strs)[:5], sorted(strs)[-3:])
+print(sorted([float(v) / 7 for v in seq])[100])
+print(sorted([(v % 10, str(v)) for v in seq])[:3])
+
+# Objects compared through __lt__
+class Item:
+    def __init__(self, n):
+        self.n = n
+    def __lt__(self, other):
+        return self.n < other.n
+    def __repr__(self):
+        return "Item(" + str(self.n) + ")"
+
+print(sorted([Item(3), Item(1), Item(2)]))
+
+# Errors
+def grow(x):
+    nums.append(x)
+    return x
+
+try:
+    nums.sort(key=grow)
+except ValueError as e:
+    print("ValueError:", e)
+try:
+    sorted([1, "a"])
+except TypeError:
+    print("TypeError")
+try:
+    nums.sort(cmp=None)
+except TypeError:
+    print("TypeError")
@@ -0,0 +1,25 @@
+# Test string concatenation and str.join
+
+# Strings built by repeated += stay linear
+s = ""
+for i in range(300000):
+    s += "ab"
+print(len(s), s[:6], s[-3:])
+
+# Earlier strings are unaffected by later appends to a shared buffer
+base = "x" * 70
+a = base + "1"
+b = a + "2"
+c = a + "3"
+d = b + "4"
+print(a[-3:], b[-3:], c[-3:], d[-3:], len(a), len(b), len(c), len(d))
+print(b == a + "2", hash(c) == hash(a + "3"), {c: 1}[a + "3"])
+
+# join over lists, tuples, dicts and generators
+print(",".join(str(i) for i in range(10)))
+print("-".join(x for x in ["a", "b"] if x))
+print("".join(["only"]), "+".join(()), ":".join("abc"), ", ".join({"k": 1, "j": 2}))
+try:
+    "".join([1, "a"])
+except TypeError:
+    print("TypeError")
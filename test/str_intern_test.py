@@ -0,0 +1,43 @@
+# Test string hashing and identifier interning
+
+# Dicts and sets keyed by strings built at runtime
+counts = {}
+words = []
+for i in range(20000):
+    w = "w" + str(i % 5000)
+    words.append(w)
+    counts[w] = counts.get(w, 0) + 1
+print(len(counts), counts["w0"], counts["w4999"], "w5000" in counts)
+seen = set(words)
+print(len(seen), "w17" in seen, "x" in seen)
+
+# Equal strings are one key however they were made
+d = {"name": 1}
+key = "na" + "me"
+d[key] = 2
+d["".join(["n", "a", "m", "e"])] = 3
+print(d, len(d), d[key])
+s = {"ab", "a" + "b", "".join("ab")}
+print(s)
+print(hash("spam") == hash("sp" + "am"), "spam" == "sp" + "am")
+
+# Mixed key types
+m = {1: "int", "1": "str", 2.5: "float", (1, "a"): "tuple"}
+print(m[1], m["1"], m[2.5], m[(1, "a")], "2" in m)
+del m["1"]
+print(m)
+
+# Attribute access through instance, class and module dicts
+class Point:
+    scale = 2
+    def __init__(self, x, y):
+        self.x = x
+        self.y = y
+    def total(self):
+        return (self.x + self.y) * self.scale
+
+p = Point(3, 4)
+attr = "to" + "tal"
+print(p.total(), getattr(p, attr)(), getattr(p, "x"), hasattr(p, "z"))
+setattr(p, "z" + "z", 5)
+print(p.zz, Point.scale)
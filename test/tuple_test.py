@@ -0,0 +1,53 @@
+# Test tuple construction and unpacking into targets
+
+def f(x):
+    return x, x + 1
+a, b = f(3)
+print(a, b)
+def g():
+    c, d = f(5)
+    return c * d
+print(g())
+x, y = 1, 2
+x, y = y, x
+print(x, y)
+try:
+    p, q = (1, 2, 3)
+except ValueError as e:
+    print(e)
+try:
+    p, q, r = [1, 2]
+except ValueError as e:
+    print(e)
+first, *rest = range(5)
+print(first, rest)
+*init, last = "abc"
+print(init, last)
+h, *mid, t = (1, 2)
+print(h, mid, t)
+m, (n, o) = 1, (2, 3)
+print(m, n, o)
+lst = [0, 0]
+class O:
+    pass
+ob = O()
+lst[0], ob.v = "s", 9
+print(lst, ob.v)
+u = v = 1, 2
+print(u, v)
+t1 = 5,
+print(t1)
+def h2():
+    for i, (k, v) in enumerate({"a": 1}.items()):
+        print(i, k, v)
+    for a, b, c in [(1, 2, 3), (4, 5, 6)]:
+        print(a + b + c)
+    print([x * y for x, y, _ in [(1, 2, 0), (3, 4, 0)]])
+h2()
+def divmod2(a, b):
+    return a // b, a % b
+tot = 0
+for i in range(100000):
+    q, r = divmod2(i, 7)
+    tot += q + r
+print(tot)